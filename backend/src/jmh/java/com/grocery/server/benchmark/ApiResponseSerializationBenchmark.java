@@ -0,0 +1,61 @@
+package com.grocery.server.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.grocery.server.order.dto.response.OrderResponse;
+import com.grocery.server.order.service.OrderResponseMapper;
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.service.ProductResponseMapper;
+import com.grocery.server.shared.dto.ApiResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: Jackson serialize ApiResponse (body của hầu hết endpoint)
+ * ObjectMapper cấu hình giống Spring Boot mặc định cho kiểu thời gian (ISO-8601, không timestamp)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<OrderResponse> orderResponse;
+    private ApiResponse<List<ProductResponse>> productPage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        orderResponse = ApiResponse.success("Lấy thông tin đơn hàng thành công",
+                new OrderResponseMapper().toResponse(BenchmarkFixtures.order(7L, 12, 2)));
+
+        ProductResponseMapper productMapper = new ProductResponseMapper();
+        List<ProductResponse> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(productMapper.toResponse(
+                    BenchmarkFixtures.product(i + 1, BenchmarkFixtures.store(i % 5 + 1), 3)));
+        }
+        productPage = ApiResponse.success("Lấy danh sách sản phẩm thành công", products);
+    }
+
+    @Benchmark
+    public byte[] orderDetail() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderResponse);
+    }
+
+    @Benchmark
+    public byte[] productPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productPage);
+    }
+}
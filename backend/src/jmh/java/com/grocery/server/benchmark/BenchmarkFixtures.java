@@ -0,0 +1,141 @@
+package com.grocery.server.benchmark;
+
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dựng object graph trong bộ nhớ (không cần DB) có kích thước giống dữ liệu thật
+ */
+final class BenchmarkFixtures {
+
+    private static final String[] UNIT_CODES = {"KG", "G", "BUNCH", "PACK", "BOTTLE"};
+
+    private BenchmarkFixtures() {
+    }
+
+    static Store store(long id) {
+        return Store.builder()
+                .id(id)
+                .storeName("Cửa hàng tạp hóa số " + id)
+                .address(id + " Nguyễn Văn Linh, Quận 7, TP.HCM")
+                .phoneNumber("09000000" + (10 + id % 90))
+                .latitude(10.73 + id * 0.001)
+                .longitude(106.72 + id * 0.001)
+                .build();
+    }
+
+    static Unit unit(int index) {
+        String code = UNIT_CODES[index % UNIT_CODES.length];
+        return Unit.builder()
+                .id((long) index + 1)
+                .code(code)
+                .name(code.toLowerCase())
+                .requiresQuantityInput(index % 2 == 0)
+                .build();
+    }
+
+    /**
+     * Sản phẩm có {@code variants} biến thể đơn vị (1 biến thể ngừng bán)
+     */
+    static Product product(long id, Store store, int variants) {
+        Product product = Product.builder()
+                .id(id)
+                .store(store)
+                .category(Category.builder().id(id % 8 + 1).name("Rau củ quả").build())
+                .name("Rau muống hữu cơ Đà Lạt " + id)
+                .description("Rau muống tươi thu hoạch trong ngày, đóng gói tại vườn")
+                .imageUrl("https://res.cloudinary.com/demo/image/upload/product-" + id + ".jpg")
+                .build();
+
+        List<ProductUnitMapping> mappings = new ArrayList<>(variants);
+        for (int i = 0; i < variants; i++) {
+            mappings.add(ProductUnitMapping.builder()
+                    .id(id * 10 + i)
+                    .product(product)
+                    .unit(unit(i))
+                    .unitLabel(i % 3 == 0 ? null : "Gói " + (i + 1) * 250 + "g")
+                    .price(BigDecimal.valueOf(15_000L + i * 5_000L))
+                    .stockQuantity(100 - i)
+                    .baseQuantity(BigDecimal.valueOf((i + 1) * 250L))
+                    .baseUnit("g")
+                    .isDefault(i == 0)
+                    .isActive(i != variants - 1)
+                    .build());
+        }
+        product.setProductUnitMappings(mappings);
+        return product;
+    }
+
+    /**
+     * Đơn hàng {@code itemCount} dòng trải trên {@code storeCount} cửa hàng, có shipper và 1 payment
+     */
+    static Order order(long id, int itemCount, int storeCount) {
+        User customer = User.builder()
+                .id(1000 + id).fullName("Nguyễn Thị Lan").phoneNumber("0912345678")
+                .role(User.UserRole.CUSTOMER).build();
+        User shipper = User.builder()
+                .id(2000 + id).fullName("Trần Văn Hùng").phoneNumber("0987654321")
+                .role(User.UserRole.SHIPPER).build();
+
+        List<Store> stores = new ArrayList<>(storeCount);
+        for (int s = 0; s < storeCount; s++) {
+            stores.add(store(s + 1));
+        }
+
+        Order order = Order.builder()
+                .id(id)
+                .customer(customer)
+                .shipper(shipper)
+                .status(Order.OrderStatus.DELIVERING)
+                .shippingFee(BigDecimal.valueOf(15_000))
+                .deliveryAddress("12 Lê Lợi, Phường Bến Nghé, Quận 1, TP.HCM")
+                .deliveryLat(10.7769)
+                .deliveryLng(106.7009)
+                .version(3L)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            Product product = product(id * 100 + i, stores.get(i % storeCount), 3);
+            ProductUnitMapping mapping = product.getProductUnitMappings().get(0);
+            OrderItem item = OrderItem.builder()
+                    .id(id * 100 + i)
+                    .order(order)
+                    .productUnitMapping(mapping)
+                    .quantity(BigDecimal.valueOf(i % 4 + 1))
+                    .unitPrice(mapping.getPrice())
+                    .build();
+            total = total.add(item.getSubtotal());
+            items.add(item);
+        }
+        order.setOrderItems(items);
+        order.setTotalAmount(total);
+        order.setPayments(new ArrayList<>(List.of(payment(id, order))));
+        return order;
+    }
+
+    static Payment payment(long id, Order order) {
+        return Payment.builder()
+                .id(id)
+                .order(order)
+                .paymentMethod(Payment.PaymentMethod.VNPAY)
+                .amount(order.getTotalAmount() != null
+                        ? order.getTotalAmount().add(order.getShippingFee())
+                        : BigDecimal.valueOf(250_000))
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.grocery.server.benchmark;
+
+import com.grocery.server.auth.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: JwtTokenProvider (chạy trên mọi request qua JwtAuthenticationFilter)
+ * Filter gọi validateToken rồi getPhoneNumberFromToken → đo cả cặp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider provider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider();
+        // HS512 cần key >= 512 bit
+        byte[] secret = new byte[64];
+        for (int i = 0; i < secret.length; i++) {
+            secret[i] = (byte) (i * 31 + 7);
+        }
+        ReflectionTestUtils.setField(provider, "jwtSecret", Base64.getEncoder().encodeToString(secret));
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", TimeUnit.DAYS.toMillis(1));
+        provider.init();
+        token = provider.generateToken("0912345678");
+    }
+
+    @Benchmark
+    public String validateAndExtractPhone() {
+        if (!provider.validateToken(token)) {
+            throw new IllegalStateException("Token không hợp lệ");
+        }
+        return provider.getPhoneNumberFromToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return provider.generateToken("0912345678");
+    }
+}
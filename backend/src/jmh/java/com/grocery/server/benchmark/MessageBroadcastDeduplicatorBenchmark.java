@@ -0,0 +1,59 @@
+package com.grocery.server.benchmark;
+
+import com.grocery.server.chat.service.MessageBroadcastDeduplicator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: MessageBroadcastDeduplicator (mỗi tin chat broadcast qua Redis đều đi qua isProcessed/markProcessed)
+ * Chạy nhiều thread để thấy tranh chấp trên ConcurrentHashMap
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MessageBroadcastDeduplicatorBenchmark {
+
+    /** Số message id đang "sống" trong cửa sổ 30s */
+    @Param({"10000"})
+    private int liveIds;
+
+    private MessageBroadcastDeduplicator deduplicator;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        deduplicator = new MessageBroadcastDeduplicator();
+        deduplicator.init();
+        ids = new String[liveIds];
+        for (int i = 0; i < liveIds; i++) {
+            ids[i] = "msg-" + Long.toHexString(0x5f00_0000_0000L + i);
+            deduplicator.markProcessed(ids[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        deduplicator.shutdown();
+    }
+
+    @Benchmark
+    public boolean checkThenMark() {
+        String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        if (deduplicator.isProcessed(id)) {
+            return true;
+        }
+        deduplicator.markProcessed(id);
+        return false;
+    }
+
+    @Benchmark
+    public boolean isProcessedMiss() {
+        return deduplicator.isProcessed("unknown-" + ThreadLocalRandom.current().nextInt(1024));
+    }
+}
@@ -0,0 +1,40 @@
+package com.grocery.server.benchmark;
+
+import com.grocery.server.order.dto.response.OrderResponse;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.service.OrderResponseMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: OrderResponseMapper.toResponse (OrderService.mapToOrderResponse ủy quyền trực tiếp cho mapper)
+ * Đơn 1 cửa hàng / liên cửa hàng, số dòng hàng thay đổi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderResponseMapperBenchmark {
+
+    @Param({"5", "30"})
+    private int itemCount;
+
+    @Param({"1", "3"})
+    private int storeCount;
+
+    private final OrderResponseMapper mapper = new OrderResponseMapper();
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkFixtures.order(1L, itemCount, storeCount);
+    }
+
+    @Benchmark
+    public OrderResponse toResponse() {
+        return mapper.toResponse(order);
+    }
+}
@@ -0,0 +1,102 @@
+package com.grocery.server.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.payment.config.PaymentProperties;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.payment.provider.MomoClient;
+import com.grocery.server.payment.provider.VnPayClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: ký / xác thực HMAC của cổng thanh toán
+ * - VNPay: createPaymentUrl (HMAC-SHA512, không gọi mạng) và verifyCallback
+ * - MoMo: verifyCallback (HMAC-SHA256); createPaymentUrl gọi HTTP tới MoMo nên không đo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentSigningBenchmark {
+
+    private MomoClient momoClient;
+    private VnPayClient vnPayClient;
+    private Payment payment;
+    private Map<String, String> momoCallback;
+    private Map<String, String> vnPayCallback;
+
+    @Setup
+    public void setUp() {
+        PaymentProperties.Momo momo = new PaymentProperties.Momo();
+        momo.setPartnerCode("MOMOBKUN20180529");
+        momo.setAccessKey("klm05TvNBzhg7h7j");
+        momo.setSecretKey("at67qH6mk8w5Y1nAyMoYKMWACiEi2bsa");
+        PaymentProperties.VnPay vnPay = new PaymentProperties.VnPay();
+        vnPay.setTmnCode("DEMOTMN1");
+        vnPay.setSecretKey("SECRETKEYFORVNPAYSANDBOX00000000");
+        vnPay.setUrl("https://sandbox.vnpayment.vn/paymentv2/vpcpay.html");
+        vnPay.setReturnUrl("https://api.example.com/api/payments/vnpay/return");
+        PaymentProperties properties = new PaymentProperties();
+        properties.setMomo(momo);
+        properties.setVnpay(vnPay);
+
+        momoClient = new MomoClient(properties, new ObjectMapper());
+        vnPayClient = new VnPayClient(properties);
+
+        Order order = BenchmarkFixtures.order(42L, 5, 1);
+        payment = order.getPayments().get(0);
+
+        // Callback dùng tham số của URL đã ký; chữ ký giả không đổi chi phí tính HMAC
+        vnPayCallback = parseQuery(vnPayClient.createPaymentUrl(payment, "113.161.1.1"));
+        vnPayCallback.put("vnp_ResponseCode", "00");
+        vnPayCallback.put("vnp_SecureHash", "0".repeat(128));
+
+        momoCallback = new LinkedHashMap<>();
+        momoCallback.put("partnerCode", momo.getPartnerCode());
+        momoCallback.put("orderId", "ORDER42-P42");
+        momoCallback.put("requestId", "1718000000000");
+        momoCallback.put("amount", "250000");
+        momoCallback.put("errorCode", "0");
+        momoCallback.put("transId", "3021553480");
+        momoCallback.put("message", "Success");
+        momoCallback.put("localMessage", "Thành công");
+        momoCallback.put("responseTime", "2024-06-10 10:00:00");
+        momoCallback.put("payType", "qr");
+        momoCallback.put("extraData", "42");
+        momoCallback.put("signature", "0".repeat(64));
+    }
+
+    @Benchmark
+    public String vnPayCreatePaymentUrl() {
+        return vnPayClient.createPaymentUrl(payment, "113.161.1.1");
+    }
+
+    @Benchmark
+    public boolean vnPayVerifyCallback() {
+        return vnPayClient.verifyCallback(vnPayCallback);
+    }
+
+    @Benchmark
+    public boolean momoVerifyCallback() {
+        return momoClient.verifyCallback(momoCallback);
+    }
+
+    private static Map<String, String> parseQuery(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
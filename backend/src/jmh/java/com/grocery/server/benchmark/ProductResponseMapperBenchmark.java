@@ -0,0 +1,49 @@
+package com.grocery.server.benchmark;
+
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.service.ProductResponseMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: ProductResponseMapper.toResponse (ProductService.convertToResponse)
+ * Đo theo 1 trang danh sách sản phẩm (mỗi sản phẩm vài biến thể đơn vị)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductResponseMapperBenchmark {
+
+    @Param({"20"})
+    private int pageSize;
+
+    @Param({"1", "4"})
+    private int variants;
+
+    private final ProductResponseMapper mapper = new ProductResponseMapper();
+    private List<Product> page;
+
+    @Setup
+    public void setUp() {
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(BenchmarkFixtures.product(i + 1, BenchmarkFixtures.store(i % 5 + 1), variants));
+        }
+    }
+
+    @Benchmark
+    public void toResponsePage(Blackhole bh) {
+        for (Product product : page) {
+            ProductResponse response = mapper.toResponse(product);
+            bh.consume(response);
+        }
+    }
+}
@@ -15,8 +15,6 @@ import java.util.concurrent.TimeUnit;
  * 
  * Các cache được quản lý:
  * - categories: Danh mục sản phẩm (ít thay đổi)
- * - units: Đơn vị tính (gần như không đổi) 
- * - unitCategories: Nhóm đơn vị tính
  * - storeRatings: Điểm đánh giá trung bình cửa hàng
  */
 @Configuration
@@ -27,8 +25,6 @@ public class CacheConfig {
     public CacheManager cacheManager() {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager(
             "categories",       // Cache danh mục sản phẩm
-            "units",            // Cache đơn vị tính
-            "unitCategories",   // Cache nhóm đơn vị tính
             "storeRatings"      // Cache rating cửa hàng
         );
         
@@ -158,8 +158,20 @@ public class RedisConfig {
         // Subscribe to location updates
         container.addMessageListener(orderEventListener, new PatternTopic("location:order:*"));
 
+        // Subscribe to shipper locations (đồng bộ ShipperLocationIndex giữa các instance)
+        container.addMessageListener(orderEventListener, new PatternTopic("location:shipper:*"));
+
         // Subscribe to user profile updates
         container.addMessageListener(orderEventListener, new PatternTopic("user:profile:*"));
+
+        // Subscribe to store order counters (push badge đến chủ cửa hàng đang kết nối node này)
+        container.addMessageListener(orderEventListener, new PatternTopic("store:counters:*"));
+
+        // Subscribe to search index updates (đồng bộ ProductSearchIndex giữa các instance)
+        container.addMessageListener(orderEventListener, new PatternTopic("search:*"));
+
+        // Subscribe to ETag version bumps (đồng bộ ResourceVersionService giữa các instance)
+        container.addMessageListener(orderEventListener, new PatternTopic("etag:bump:*"));
         
         return container;
     }
@@ -0,0 +1,16 @@
+package com.grocery.server.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration: SchedulingConfig
+ * Mô tả: Bật @Scheduled cho các background job
+ *
+ * Các job hiện có:
+ * - OrderOutboxRelay: publish event đơn hàng từ order_outbox lên Redis
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -41,8 +41,12 @@ public class OrderCreatedEvent implements Serializable {
     private String deliveryAddress;
     private Double deliveryLat;
     private Double deliveryLng;
+
+    // Pickup info (tọa độ cửa hàng, NULL nếu cửa hàng chưa cập nhật)
+    private Double pickupLat;
+    private Double pickupLng;
     
     // Time info
     private LocalDateTime createdAt;
-    private LocalDateTime expiresAt; // Thờigian hết hạn để nhận đơn
+    private LocalDateTime expiresAt; // Hạn xác nhận đơn (OrderExpiryService: createdAt + app.order.expiry.ttl-minutes)
 }
@@ -0,0 +1,41 @@
+package com.grocery.server.messaging.dto;
+
+import com.grocery.server.payment.entity.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * DTO: OrderPaidEvent
+ * Mục đích: Event khi đơn hàng được ghi nhận thanh toán (COD tạo payment, MOMO/VNPAY callback thành công)
+ *
+ * Gửi đến: ShipperDispatchBoard (đơn CONFIRMED + đã thanh toán → hiện cho shipper nhận)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPaidEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Event metadata
+    @Builder.Default
+    private String eventType = "ORDER_PAID";
+    private Long timestamp;
+
+    // Order info
+    private Long orderId;
+    private Long customerId;
+
+    // Payment info
+    private Long paymentId;
+    private Payment.PaymentMethod paymentMethod;
+
+    // Time info
+    private LocalDateTime paidAt;
+}
@@ -0,0 +1,35 @@
+package com.grocery.server.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * DTO: ShipperLocationEvent
+ * Mục đích: Đồng bộ vị trí shipper giữa các server instance
+ *
+ * Channel: location:shipper:{shipperId}
+ * - online = true: cập nhật vị trí vào ShipperLocationIndex
+ * - online = false: shipper offline, gỡ khỏi chỉ mục
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipperLocationEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Builder.Default
+    private String eventType = "SHIPPER_LOCATION";
+    private Long timestamp;
+
+    private Long shipperId;
+    private String phoneNumber;
+    private Double lat;
+    private Double lng;
+    private boolean online;
+}
@@ -0,0 +1,101 @@
+package com.grocery.server.messaging.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity: order_outbox
+ * Mô tả: Transactional outbox cho các event đơn hàng
+ *
+ * Event được ghi trong CÙNG transaction với Order, sau đó OrderOutboxRelay
+ * đọc theo lô và publish lên Redis. Transaction rollback → event cũng biến mất.
+ */
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_outbox_published_id", columnList = "published_at, id"),
+        @Index(name = "idx_outbox_order_id", columnList = "order_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Đơn hàng phát sinh event (dùng để giữ thứ tự theo từng đơn)
+     */
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    /**
+     * Loại event: created, accepted, status
+     */
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    /**
+     * Redis channel đích, VD: order:created:123
+     */
+    @Column(nullable = false, length = 100)
+    private String channel;
+
+    /**
+     * Nội dung event đã serialize sang JSON
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    /**
+     * Số lần relay đã thử publish
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Relay đang giữ event (NULL = chưa ai nhận) - OrderOutboxRelay publish ngoài transaction
+     */
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    /**
+     * Thời điểm relay nhận event; quá app.outbox.relay.claim-timeout-ms thì relay khác được nhận lại
+     */
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    /**
+     * Thời điểm publish thành công (NULL = chưa publish)
+     */
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().getName().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+}
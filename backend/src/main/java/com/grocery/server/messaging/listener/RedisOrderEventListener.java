@@ -3,8 +3,18 @@ package com.grocery.server.messaging.listener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.grocery.server.messaging.dto.OrderAcceptedEvent;
 import com.grocery.server.messaging.dto.OrderCreatedEvent;
+import com.grocery.server.messaging.dto.OrderPaidEvent;
 import com.grocery.server.messaging.dto.OrderStatusChangedEvent;
+import com.grocery.server.messaging.dto.ShipperLocationEvent;
 import com.grocery.server.messaging.dto.UserProfileUpdatedEvent;
+import com.grocery.server.order.dto.response.StoreOrderCountsResponse;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.service.NearestShipperDispatcher;
+import com.grocery.server.order.service.OrderDetailCache;
+import com.grocery.server.order.service.ShipperDispatchBoard;
+import com.grocery.server.order.service.StoreOrderCounterService;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.Message;
@@ -12,6 +22,9 @@ import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Listener: RedisOrderEventListener
  * Mục đích: Lắng nghe events từ Redis và forward đến WebSocket clients
@@ -20,6 +33,12 @@ import org.springframework.stereotype.Component;
  * Đây là cầu nối giữa Redis Pub/Sub và WebSocket:
  * - Nhiều server instances publish events đến Redis
  * - Listener nhận events và broadcast đến WebSocket subscribers
+ * - Đồng thời cập nhật ShipperDispatchBoard (danh sách đơn chờ shipper nhận)
+ *   và gỡ OrderDetailCache của đơn vừa thay đổi
+ * - store:counters:{storeId}: gửi counter đơn của cửa hàng đến chủ cửa hàng
+ * - search:product:{id} / search:store:{id}: nạp lại ProductSearchIndex từ database
+ * - search:stock: ghi tồn kho mới vào ProductSearchIndex (không đọc database)
+ * - etag:bump:{resource}: tăng version ETag (ResourceVersionService) trên node này
  */
 @Component
 @RequiredArgsConstructor
@@ -28,6 +47,12 @@ public class RedisOrderEventListener implements MessageListener {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
+    private final ShipperDispatchBoard shipperDispatchBoard;
+    private final NearestShipperDispatcher nearestShipperDispatcher;
+    private final OrderDetailCache orderDetailCache;
+    private final StoreOrderCounterService storeOrderCounterService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersionService resourceVersionService;
 
     @Override
     public void onMessage(Message message, byte[] pattern) {
@@ -43,10 +68,27 @@ public class RedisOrderEventListener implements MessageListener {
                 handleOrderAccepted(body);
             } else if (channel.startsWith("order:status:")) {
                 handleOrderStatusChanged(body);
+            } else if (channel.startsWith("order:paid:")) {
+                handleOrderPaid(body);
+            } else if (channel.startsWith("order:invalidate:")) {
+                handleOrderInvalidate(channel);
+            } else if (channel.startsWith("location:shipper:")) {
+                handleShipperLocation(body);
             } else if (channel.startsWith("location:order:")) {
                 handleLocationUpdate(channel, body);
             } else if (channel.startsWith("user:profile:")) {
                 handleUserProfileUpdated(body);
+            } else if (channel.startsWith(StoreOrderCounterService.COUNTS_CHANNEL)) {
+                handleStoreOrderCounts(body);
+            } else if (channel.startsWith(ProductSearchIndex.PRODUCT_CHANNEL)) {
+                productSearchIndex.refresh(extractId(channel, ProductSearchIndex.PRODUCT_CHANNEL));
+            } else if (channel.startsWith(ProductSearchIndex.STORE_CHANNEL)) {
+                productSearchIndex.refreshStore(extractId(channel, ProductSearchIndex.STORE_CHANNEL));
+            } else if (channel.equals(ProductSearchIndex.STOCK_CHANNEL)) {
+                handleIndexedStock(body);
+            } else if (channel.startsWith(ResourceVersionService.CHANNEL)) {
+                resourceVersionService.applyRemote(channel.substring(ResourceVersionService.CHANNEL.length()),
+                        objectMapper.readTree(body).path("version").asLong());
             }
         } catch (Exception e) {
             log.error("Error processing message from channel [{}]: {}", channel, e.getMessage());
@@ -55,14 +97,13 @@ public class RedisOrderEventListener implements MessageListener {
     
     /**
      * Xử lý order created event
-     * Broadcast đến shipper gần đó
+     * Gửi đến K shipper gần nhất trước, nới bán kính dần (NearestShipperDispatcher)
      */
     private void handleOrderCreated(String body) throws Exception {
         OrderCreatedEvent event = objectMapper.readValue(body, OrderCreatedEvent.class);
         log.info("Order created event: orderId={}", event.getOrderId());
         
-        // Broadcast đến tất cả shipper (sẽ filter ở client hoặc dùng user-specific)
-        messagingTemplate.convertAndSend("/topic/orders/new", event);
+        nearestShipperDispatcher.dispatch(event);
     }
     
     /**
@@ -73,6 +114,11 @@ public class RedisOrderEventListener implements MessageListener {
         OrderAcceptedEvent event = objectMapper.readValue(body, OrderAcceptedEvent.class);
         log.info("Order accepted event: orderId={}, shipperId={}", 
             event.getOrderId(), event.getShipperId());
+
+        // Đã có shipper nhận → gỡ khỏi dispatch board, dừng offer cho shipper gần
+        orderDetailCache.evict(event.getOrderId());
+        shipperDispatchBoard.remove(event.getOrderId());
+        nearestShipperDispatcher.cancel(event.getOrderId());
         
         // Broadcast đến tất cả clients theo dõi đơn hàng này
         messagingTemplate.convertAndSend("/topic/orders/" + event.getOrderId(), event);
@@ -95,6 +141,18 @@ public class RedisOrderEventListener implements MessageListener {
         OrderStatusChangedEvent event = objectMapper.readValue(body, OrderStatusChangedEvent.class);
         log.info("Order status changed: orderId={}, {} -> {}",
             event.getOrderId(), event.getOldStatus(), event.getNewStatus());
+
+        orderDetailCache.evict(event.getOrderId());
+
+        // CONFIRMED có thể đủ điều kiện chờ shipper, trạng thái khác thì chắc chắn không
+        if (event.getNewStatus() == Order.OrderStatus.CONFIRMED) {
+            shipperDispatchBoard.refresh(event.getOrderId());
+        } else {
+            shipperDispatchBoard.remove(event.getOrderId());
+        }
+        if (event.getNewStatus() != Order.OrderStatus.PENDING && event.getNewStatus() != Order.OrderStatus.CONFIRMED) {
+            nearestShipperDispatcher.cancel(event.getOrderId());
+        }
         
         // Broadcast đến tất cả clients theo dõi đơn hàng
         messagingTemplate.convertAndSend("/topic/orders/" + event.getOrderId() + "/status", event);
@@ -103,6 +161,36 @@ public class RedisOrderEventListener implements MessageListener {
         messagingTemplate.convertAndSend("/topic/orders/status", event);
     }
     
+    /**
+     * Xử lý order paid event
+     * Đơn CONFIRMED vừa thanh toán xong có thể lên dispatch board
+     */
+    private void handleOrderPaid(String body) throws Exception {
+        OrderPaidEvent event = objectMapper.readValue(body, OrderPaidEvent.class);
+        log.info("Order paid event: orderId={}, method={}", event.getOrderId(), event.getPaymentMethod());
+
+        orderDetailCache.evict(event.getOrderId());
+        shipperDispatchBoard.refresh(event.getOrderId());
+    }
+
+    /**
+     * Thay đổi đơn không có event nghiệp vụ (payment PENDING/FAILED, ảnh POD) → gỡ cache chi tiết đơn
+     */
+    private void handleOrderInvalidate(String channel) {
+        Long orderId = extractOrderId(channel);
+        if (orderId != null) {
+            orderDetailCache.evict(orderId);
+        }
+    }
+
+    /**
+     * Xử lý vị trí shipper từ instance khác
+     */
+    private void handleShipperLocation(String body) throws Exception {
+        ShipperLocationEvent event = objectMapper.readValue(body, ShipperLocationEvent.class);
+        nearestShipperDispatcher.applyLocationEvent(event);
+    }
+
     /**
      * Xử lý location update
      */
@@ -135,7 +223,33 @@ public class RedisOrderEventListener implements MessageListener {
         // Topic theo userId để hỗ trợ các client tự quản lý subscribe
         messagingTemplate.convertAndSend("/topic/users/profile/" + event.getUserId(), event);
     }
+
+    /**
+     * Xử lý store order counters event
+     * Chỉ node đang giữ WebSocket của chủ cửa hàng thực sự gửi được
+     */
+    private void handleStoreOrderCounts(String body) throws Exception {
+        StoreOrderCountsResponse snapshot = objectMapper.readValue(body, StoreOrderCountsResponse.class);
+        storeOrderCounterService.deliver(snapshot);
+    }
+
+    /**
+     * Xử lý tồn kho mới của các biến thể: {"stock": {"mappingId": stockQuantity}}
+     */
+    private void handleIndexedStock(String body) throws Exception {
+        Map<Long, Integer> stock = new HashMap<>();
+        objectMapper.readTree(body).path("stock").fields()
+                .forEachRemaining(entry -> stock.put(Long.parseLong(entry.getKey()), entry.getValue().asInt()));
+        productSearchIndex.applyStock(stock);
+    }
     
+    /**
+     * Extract ID ở cuối channel (search:product:{id}, search:store:{id})
+     */
+    private Long extractId(String channel, String prefix) {
+        return Long.parseLong(channel.substring(prefix.length()));
+    }
+
     /**
      * Extract orderId từ channel name
      */
@@ -0,0 +1,247 @@
+package com.grocery.server.messaging.publisher;
+
+import com.grocery.server.messaging.entity.OrderOutboxEvent;
+import com.grocery.server.messaging.repository.OrderOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component: OrderOutboxRelay
+ * Mục đích: Đọc order_outbox theo lô và publish lên Redis Pub/Sub
+ *
+ * Mỗi lô gồm 3 bước, Redis I/O nằm ngoài transaction:
+ * 1. Transaction ngắn: lockNextBatch (FOR UPDATE) + claim (claimed_by / claimed_at) rồi commit ngay
+ * 2. Publish lên Redis (không giữ lock nào trên order_outbox)
+ * 3. Transaction ngắn: markPublished cho event thành công, trả claim cho event lỗi / bị giữ lại
+ *
+ * Delivery guarantee:
+ * - At-least-once: chỉ đánh dấu published_at SAU khi publish thành công,
+ *   node chết giữa chừng → claim hết hạn (claim-timeout-ms) và lô được publish lại
+ * - Thứ tự theo đơn hàng: xử lý theo ID tăng dần; nếu 1 event của đơn lỗi,
+ *   các event sau của CÙNG đơn trong lô bị giữ lại cho lần sau;
+ *   relay khác không nhận event có event trước của cùng đơn đang bị giữ
+ * - Nhiều node: các relay nhận lô tuần tự (FOR UPDATE), publish song song trên các lô khác nhau
+ *
+ * Không có Redis (spring.redis.enabled=false, 1 instance): không có ai để publish tới - event đã được áp dụng
+ * tại chính node này bởi hook sau commit của OrderOutboxService (OrderDetailCache, ShipperDispatchBoard)
+ * → relay chỉ đánh dấu lô là đã xử lý (để được dọn theo retention), đếm vào order.outbox.local, không gọi publish
+ *
+ * Metrics:
+ * - order.outbox.published / order.outbox.failed: throughput
+ * - order.outbox.local: event đánh dấu đã xử lý khi không có Redis
+ * - order.outbox.lag: thời gian từ lúc ghi outbox đến lúc publish
+ * - order.outbox.pending / order.outbox.oldest.age: backlog hiện tại
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelay {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final RedisMessagePublisher messagePublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean redisEnabled;
+
+    private final String relayId = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long claimTimeoutMillis;
+    private final long retentionHours;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter localCounter;
+    private final Timer lagTimer;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+
+    public OrderOutboxRelay(OrderOutboxRepository outboxRepository,
+                            RedisMessagePublisher messagePublisher,
+                            @Autowired(required = false) StringRedisTemplate redisTemplate,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.relay.batch-size:100}") int batchSize,
+                            @Value("${app.outbox.relay.max-batches-per-run:10}") int maxBatchesPerRun,
+                            @Value("${app.outbox.relay.claim-timeout-ms:30000}") long claimTimeoutMillis,
+                            @Value("${app.outbox.retention-hours:24}") long retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.messagePublisher = messagePublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.redisEnabled = redisTemplate != null;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+        this.retentionHours = retentionHours;
+
+        this.publishedCounter = Counter.builder("order.outbox.published")
+                .description("Số event outbox đã publish lên Redis")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("order.outbox.failed")
+                .description("Số lần publish event outbox thất bại")
+                .register(meterRegistry);
+        this.localCounter = Counter.builder("order.outbox.local")
+                .description("Số event outbox đánh dấu đã xử lý tại chỗ (không có Redis)")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("order.outbox.lag")
+                .description("Thời gian từ lúc ghi outbox đến lúc publish")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("order.outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Số event outbox chưa publish")
+                .register(meterRegistry);
+        Gauge.builder("order.outbox.oldest.age", oldestPendingAgeSeconds, AtomicLong::get)
+                .description("Tuổi (giây) của event outbox cũ nhất chưa publish")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drain outbox: chạy liên tục tối đa maxBatchesPerRun lô mỗi lần
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:200}")
+    public void drain() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<OrderOutboxEvent> batch;
+            try {
+                batch = transactionTemplate.execute(status -> claimBatch());
+            } catch (Exception e) {
+                log.error("Outbox relay claim failed: {}", e.getMessage());
+                return;
+            }
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+
+            BatchResult result = redisEnabled ? publishBatch(batch) : localBatch(batch);
+            try {
+                transactionTemplate.executeWithoutResult(status -> complete(result));
+            } catch (Exception e) {
+                // Claim hết hạn → lô được publish lại (at-least-once)
+                log.error("Outbox relay failed to record batch result: {}", e.getMessage());
+                return;
+            }
+            // Lô chưa đầy hoặc có lỗi publish → dừng, chờ lần chạy sau
+            if (batch.size() < batchSize || !result.failedIds().isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private List<OrderOutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(claimTimeoutMillis));
+        List<OrderOutboxEvent> batch = outboxRepository.lockNextBatch(batchSize, staleBefore);
+        if (!batch.isEmpty()) {
+            outboxRepository.claim(batch.stream().map(OrderOutboxEvent::getId).toList(), relayId, now);
+        }
+        return batch;
+    }
+
+    private BatchResult publishBatch(List<OrderOutboxEvent> batch) {
+        Set<Long> blockedOrders = new HashSet<>();
+        List<Long> publishedIds = new ArrayList<>(batch.size());
+        List<Long> failedIds = new ArrayList<>();
+        List<Long> heldBackIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (OrderOutboxEvent event : batch) {
+            if (blockedOrders.contains(event.getOrderId())) {
+                heldBackIds.add(event.getId());
+                continue;
+            }
+            try {
+                messagePublisher.publish(event.getChannel(), event.getPayload());
+                publishedIds.add(event.getId());
+                lagTimer.record(Duration.between(event.getCreatedAt(), now));
+            } catch (Exception e) {
+                blockedOrders.add(event.getOrderId());
+                failedIds.add(event.getId());
+                log.warn("Failed to publish outbox event #{} ({}) for order {}: {}",
+                        event.getId(), event.getChannel(), event.getOrderId(), e.getMessage());
+            }
+        }
+
+        log.debug("Outbox relay: fetched={}, published={}, failed={}",
+                batch.size(), publishedIds.size(), failedIds.size());
+        return new BatchResult(publishedIds, failedIds, heldBackIds, List.of(), now);
+    }
+
+    /**
+     * Không có Redis: hook sau commit đã áp dụng event tại node này, không publish
+     */
+    private BatchResult localBatch(List<OrderOutboxEvent> batch) {
+        List<Long> ids = batch.stream().map(OrderOutboxEvent::getId).toList();
+        return new BatchResult(List.of(), List.of(), List.of(), ids, LocalDateTime.now());
+    }
+
+    private void complete(BatchResult result) {
+        if (!result.publishedIds().isEmpty()) {
+            outboxRepository.markPublished(result.publishedIds(), result.publishedAt());
+            publishedCounter.increment(result.publishedIds().size());
+        }
+        if (!result.localIds().isEmpty()) {
+            outboxRepository.markPublished(result.localIds(), result.publishedAt());
+            localCounter.increment(result.localIds().size());
+        }
+        if (!result.failedIds().isEmpty()) {
+            outboxRepository.incrementAttempts(result.failedIds());
+            failedCounter.increment(result.failedIds().size());
+        }
+        List<Long> unpublished = new ArrayList<>(result.failedIds());
+        unpublished.addAll(result.heldBackIds());
+        if (!unpublished.isEmpty()) {
+            outboxRepository.releaseClaims(unpublished, relayId);
+        }
+    }
+
+    /**
+     * Cập nhật gauge backlog (tách khỏi drain để không query mỗi 200ms)
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.metrics.interval-ms:5000}")
+    public void refreshBacklogMetrics() {
+        try {
+            pendingEvents.set(outboxRepository.countByPublishedAtIsNull());
+            LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt();
+            oldestPendingAgeSeconds.set(oldest == null
+                    ? 0
+                    : Math.max(0, Duration.between(oldest, LocalDateTime.now()).getSeconds()));
+        } catch (Exception e) {
+            log.debug("Cannot refresh outbox backlog metrics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dọn event đã publish quá thời gian lưu giữ (mặc định 24h)
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 15 * * * *}")
+    public void purgePublished() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} published outbox events older than {}", deleted, before);
+        }
+    }
+
+    private record BatchResult(List<Long> publishedIds, List<Long> failedIds, List<Long> heldBackIds,
+                               List<Long> localIds, LocalDateTime publishedAt) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.grocery.server.messaging.repository;
+
+import com.grocery.server.messaging.entity.OrderOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository: OrderOutboxRepository
+ * Mô tả: Truy vấn bảng order_outbox cho relay
+ */
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    /**
+     * Lấy lô event chưa publish, chưa bị relay khác giữ (hoặc giữ quá hạn) theo thứ tự ID và lock các row lại
+     * - Bỏ qua event có event trước đó của CÙNG đơn đang được relay khác giữ (giữ thứ tự theo đơn)
+     * - FOR UPDATE (không SKIP LOCKED) để các relay nhận lô tuần tự; transaction chỉ gồm câu này
+     *   và claim(), không chờ Redis → INSERT outbox của checkout chỉ chờ vài ms nếu trùng gap lock
+     */
+    @Query(value = "SELECT * FROM order_outbox o WHERE o.published_at IS NULL " +
+                   "AND (o.claimed_at IS NULL OR o.claimed_at < :staleBefore) " +
+                   "AND NOT EXISTS (SELECT 1 FROM order_outbox p WHERE p.order_id = o.order_id AND p.id < o.id " +
+                   "AND p.published_at IS NULL AND p.claimed_at >= :staleBefore) " +
+                   "ORDER BY o.id ASC LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<OrderOutboxEvent> lockNextBatch(@Param("limit") int limit, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Đánh dấu relay đang giữ lô (commit ngay, publish sau khi commit)
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.claimedBy = :claimedBy, e.claimedAt = :claimedAt WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claimedBy") String claimedBy,
+              @Param("claimedAt") LocalDateTime claimedAt);
+
+    /**
+     * Đánh dấu đã publish cho cả lô trong 1 câu UPDATE
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedAt = :publishedAt, e.attempts = e.attempts + 1 " +
+           "WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    /**
+     * Trả lại các event chưa publish được (lỗi / bị giữ lại vì event trước của đơn lỗi) cho lần chạy sau
+     * Chỉ trả event mình còn giữ - claim quá hạn có thể đã bị relay khác nhận lại
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.claimedBy = NULL, e.claimedAt = NULL " +
+           "WHERE e.id IN :ids AND e.claimedBy = :claimedBy")
+    int releaseClaims(@Param("ids") Collection<Long> ids, @Param("claimedBy") String claimedBy);
+
+    /**
+     * Tăng số lần thử cho các event publish lỗi
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Thời điểm tạo của event cũ nhất chưa publish (để đo lag)
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OrderOutboxEvent e WHERE e.publishedAt IS NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    long countByPublishedAtIsNull();
+
+    /**
+     * Dọn các event đã publish quá hạn lưu giữ
+     */
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.publishedAt IS NOT NULL AND e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
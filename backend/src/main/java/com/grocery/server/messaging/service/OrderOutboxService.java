@@ -0,0 +1,115 @@
+package com.grocery.server.messaging.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.messaging.entity.OrderOutboxEvent;
+import com.grocery.server.messaging.repository.OrderOutboxRepository;
+import com.grocery.server.order.service.OrderDetailCache;
+import com.grocery.server.order.service.ShipperDispatchBoard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service: OrderOutboxService
+ * Mục đích: Ghi event đơn hàng vào order_outbox thay vì publish Redis trực tiếp
+ *
+ * - Request HTTP chỉ tốn thêm 1 câu INSERT, không chờ Redis
+ * - Event chỉ tồn tại khi transaction của Order commit thành công
+ * - OrderOutboxRelay sẽ publish lên channel order:{eventType}:{orderId}
+ * - Đơn có event mới → gỡ OrderDetailCache và cập nhật ShipperDispatchBoard của node này sau commit
+ *   (node khác cập nhật khi nhận event)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderOutboxService {
+
+    private static final String INSERT_COLUMNS =
+            "INSERT INTO order_outbox (order_id, event_type, channel, payload, attempts, created_at) VALUES ";
+    private static final String INSERT_VALUES = "(?, ?, ?, ?, 0, ?)";
+    private static final int INSERT_CHUNK = 500;
+
+    private final OrderOutboxRepository outboxRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderDetailCache orderDetailCache;
+    private final ShipperDispatchBoard shipperDispatchBoard;
+
+    /**
+     * Ghi event vào outbox, bắt buộc chạy trong transaction của caller
+     *
+     * @param eventType Loại event (created, accepted, status)
+     * @param orderId   ID đơn hàng
+     * @param event     Event object (sẽ serialize sang JSON)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String eventType, Long orderId, Object event) {
+        outboxRepository.save(toOutboxEvent(eventType, orderId, event));
+        orderDetailCache.evictAfterCommit(orderId);
+        shipperDispatchBoard.applyAfterCommit(eventType, Map.of(orderId, event));
+        log.debug("Enqueued outbox event [{}] for order {}", eventType, orderId);
+    }
+
+    /**
+     * Ghi nhiều event cùng loại bằng INSERT nhiều dòng (xử lý đơn theo lô): 1 round trip / 500 event
+     * (saveAll với ID IDENTITY sẽ gửi từng câu INSERT riêng)
+     *
+     * @param eventType Loại event
+     * @param events    ID đơn hàng → event object
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String eventType, Map<Long, ?> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(events.size());
+        events.forEach((orderId, event) -> {
+            OrderOutboxEvent outboxEvent = toOutboxEvent(eventType, orderId, event);
+            rows.add(new Object[]{orderId, eventType, outboxEvent.getChannel(), outboxEvent.getPayload(), now});
+        });
+        for (int i = 0; i < rows.size(); i += INSERT_CHUNK) {
+            insertRows(rows.subList(i, Math.min(rows.size(), i + INSERT_CHUNK)));
+        }
+        orderDetailCache.evictAfterCommit(events.keySet());
+        shipperDispatchBoard.applyAfterCommit(eventType, events);
+        log.debug("Enqueued {} outbox events [{}]", rows.size(), eventType);
+    }
+
+    private void insertRows(List<Object[]> rows) {
+        String sql = INSERT_COLUMNS + String.join(", ", Collections.nCopies(rows.size(), INSERT_VALUES));
+        Object[] args = new Object[rows.size() * rows.get(0).length];
+        int index = 0;
+        for (Object[] row : rows) {
+            System.arraycopy(row, 0, args, index, row.length);
+            index += row.length;
+        }
+        jdbcTemplate.update(sql, args);
+    }
+
+    private OrderOutboxEvent toOutboxEvent(String eventType, Long orderId, Object event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize event " + eventType + " cho đơn #" + orderId, e);
+        }
+
+        return OrderOutboxEvent.builder()
+                .orderId(orderId)
+                .eventType(eventType)
+                .channel(String.format("order:%s:%d", eventType, orderId))
+                .payload(payload)
+                .build();
+    }
+}
@@ -0,0 +1,268 @@
+package com.grocery.server.notification.service;
+
+import com.grocery.server.notification.document.Notification;
+import com.grocery.server.notification.dto.NotificationResponse;
+import com.grocery.server.notification.repository.NotificationRepository;
+import com.grocery.server.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Component: NotificationDispatcher
+ * Mục đích: Gửi notification bất đồng bộ theo lô, tách khỏi latency của API đơn hàng
+ *
+ * Flow:
+ * 1. Business method gọi NotificationService.enqueue → đưa vào queue (bounded) và return ngay
+ *    (nếu đang trong transaction: chỉ đưa vào queue SAU KHI commit)
+ * 2. Worker lấy tối đa batchSize notification mỗi lần
+ * 3. Resolve phone của tất cả người nhận trong 1 query
+ * 4. Ghi MongoDB bằng insertMany
+ * 5. Đếm unread của các người nhận bằng 1 aggregation, rồi push WebSocket
+ *
+ * Queue đầy: notification bị bỏ (ghi log + metric notification.dropped)
+ * thay vì làm chậm request
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MongoTemplate mongoTemplate;
+
+    private final BlockingQueue<PendingNotification> queue;
+    private final int workerCount;
+    private final int batchSize;
+    private volatile boolean running = true;
+    private ExecutorService workers;
+
+    private final Counter deliveredCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    public NotificationDispatcher(NotificationRepository notificationRepository,
+                                  UserRepository userRepository,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  MongoTemplate mongoTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notification.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.notification.workers:2}") int workerCount,
+                                  @Value("${app.notification.batch-size:100}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+
+        this.deliveredCounter = Counter.builder("notification.delivered")
+                .description("Số notification đã lưu và push")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("notification.dropped")
+                .description("Số notification bị bỏ do queue đầy")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("notification.failed")
+                .description("Số notification lỗi khi xử lý lô")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("notification.batch")
+                .description("Thời gian xử lý 1 lô notification")
+                .register(meterRegistry);
+        Gauge.builder("notification.queue.size", queue, BlockingQueue::size)
+                .description("Số notification đang chờ trong queue")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger seq = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "notification-worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::runWorker);
+        }
+        log.info("NotificationDispatcher started: workers={}, batchSize={}", workerCount, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("NotificationDispatcher stopped with {} pending notifications", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Đưa notification vào queue
+     * Trong transaction: đợi commit (rollback → không gửi thông báo cho đơn không tồn tại)
+     */
+    public void submit(PendingNotification notification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(notification);
+                }
+            });
+        } else {
+            offer(notification);
+        }
+    }
+
+    private void offer(PendingNotification notification) {
+        if (!queue.offer(notification)) {
+            droppedCounter.increment();
+            log.warn("Notification queue full, dropped [{}] for user #{}",
+                    notification.type(), notification.recipientId());
+        }
+    }
+
+    private void runWorker() {
+        List<PendingNotification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingNotification first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batchTimer.record(() -> deliverBatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedCounter.increment(batch.size());
+                log.error("Failed to deliver notification batch of {}: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliverBatch(List<PendingNotification> batch) {
+        // Bước 1: Resolve phone trong 1 query
+        Set<Long> recipientIds = new LinkedHashSet<>();
+        batch.forEach(n -> recipientIds.add(n.recipientId()));
+        Map<Long, String> phones = new HashMap<>();
+        for (UserRepository.PhoneView view : userRepository.findPhoneNumbersByIdIn(recipientIds)) {
+            phones.put(view.getId(), view.getPhoneNumber());
+        }
+
+        // Bước 2: Build documents
+        List<Notification> documents = new ArrayList<>(batch.size());
+        for (PendingNotification n : batch) {
+            String phone = phones.get(n.recipientId());
+            if (phone == null) {
+                log.warn("Skip notification [{}]: user #{} not found", n.type(), n.recipientId());
+                continue;
+            }
+            documents.add(Notification.builder()
+                    .recipientId(n.recipientId())
+                    .recipientPhone(phone)
+                    .type(n.type())
+                    .title(n.title())
+                    .body(n.body())
+                    .referenceId(n.referenceId())
+                    .referenceType(n.referenceType())
+                    .isRead(false)
+                    .createdAt(n.createdAt())
+                    .build());
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        // Bước 3: insertMany
+        List<Notification> saved = notificationRepository.insert(documents);
+
+        // Bước 4: Push WebSocket (principal = phone number, khớp ChatService)
+        for (Notification notification : saved) {
+            NotificationResponse response = NotificationService.toResponse(notification);
+            try {
+                messagingTemplate.convertAndSendToUser(
+                        notification.getRecipientPhone(), "/queue/notifications", response);
+            } catch (Exception e) {
+                log.warn("Failed to push notification to user #{}: {}", notification.getRecipientId(), e.getMessage());
+            }
+        }
+
+        // Bước 5: Badge count — 1 aggregation cho cả lô
+        Map<Long, Long> unreadCounts = countUnread(phones.keySet());
+        phones.forEach((userId, phone) -> {
+            try {
+                messagingTemplate.convertAndSendToUser(
+                        phone, "/queue/notifications/count", unreadCounts.getOrDefault(userId, 0L));
+            } catch (Exception e) {
+                log.warn("Failed to push unread count to user #{}: {}", userId, e.getMessage());
+            }
+        });
+
+        deliveredCounter.increment(saved.size());
+        log.debug("Delivered {} notifications to {} recipients", saved.size(), phones.size());
+    }
+
+    private Map<Long, Long> countUnread(Set<Long> recipientIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("recipientId").in(recipientIds).and("isRead").is(false)),
+                Aggregation.group("recipientId").count().as("count"));
+
+        Map<Long, Long> counts = new HashMap<>();
+        for (Document doc : mongoTemplate.aggregate(aggregation, Notification.class, Document.class)) {
+            Object id = doc.get("_id");
+            Object count = doc.get("count");
+            if (id instanceof Number recipientId && count instanceof Number value) {
+                counts.put(recipientId.longValue(), value.longValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Notification chờ gửi (createdAt lấy tại thời điểm enqueue)
+     */
+    public record PendingNotification(
+            Long recipientId,
+            String type,
+            String title,
+            String body,
+            Long referenceId,
+            String referenceType,
+            LocalDateTime createdAt) {
+    }
+}
@@ -30,10 +30,28 @@ public class NotificationService {
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final MongoTemplate mongoTemplate;   // Cần cho markAllAsRead
+    private final NotificationDispatcher notificationDispatcher;
+
+    /**
+     * Đưa notification vào pipeline bất đồng bộ và return ngay.
+     * Dùng cho business flow (đơn hàng, review): lưu MongoDB + push WS do NotificationDispatcher xử lý theo lô.
+     * Nếu đang trong transaction, notification chỉ được gửi sau khi commit.
+     */
+    public void enqueue(
+            Long recipientId,
+            String type,
+            String title,
+            String body,
+            Long referenceId,
+            String referenceType) {
+        notificationDispatcher.submit(new NotificationDispatcher.PendingNotification(
+                recipientId, type, title, body, referenceId, referenceType, LocalDateTime.now()));
+    }
 
     /**
      * Tạo notification, lưu vào MongoDB và push real-time qua WebSocket.
      * Principal của WS là phone number (khớp với ChatService).
+     * Chạy đồng bộ — business flow nên dùng enqueue().
      */
     public NotificationResponse createAndSend(
             Long recipientId,
@@ -61,7 +79,7 @@ public class NotificationService {
         Notification saved = notificationRepository.save(notification);
         log.info("Tạo notification [{}] cho user #{} ({}): {}", type, recipientId, recipient.getPhoneNumber(), title);
 
-        NotificationResponse response = mapToResponse(saved);
+        NotificationResponse response = toResponse(saved);
 
         // Push real-time đến user — dùng PHONE NUMBER làm principal (khớp ChatService)
         messagingTemplate.convertAndSendToUser(
@@ -86,7 +104,7 @@ public class NotificationService {
         return notificationRepository
                 .findByRecipientIdOrderByCreatedAtDesc(userId)
                 .stream()
-                .map(this::mapToResponse)
+                .map(NotificationService::toResponse)
                 .collect(Collectors.toList());
     }
 
@@ -106,7 +124,7 @@ public class NotificationService {
         }
 
         notification.setRead(true);
-        return mapToResponse(notificationRepository.save(notification));
+        return toResponse(notificationRepository.save(notification));
     }
 
     /** Đánh dấu tất cả đã đọc — dùng MongoTemplate.updateMulti() */
@@ -127,7 +145,7 @@ public class NotificationService {
         notificationRepository.delete(notification);
     }
 
-    private NotificationResponse mapToResponse(Notification n) {
+    static NotificationResponse toResponse(Notification n) {
         return NotificationResponse.builder()
                 .id(n.getId())
                 .recipientId(n.getRecipientId())
@@ -0,0 +1,63 @@
+package com.grocery.server.order.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runtime migration: backfill order_participants cho các đơn tạo trước khi có bảng này.
+ * Chủ cửa hàng lấy từ order_stores → chạy sau OrderStoresBackfillMigration.
+ * Chạy theo từng khoảng order_id; INSERT IGNORE nên chạy lại nhiều lần không sao.
+ */
+@Component
+@Order(10)
+@RequiredArgsConstructor
+@Slf4j
+public class OrderParticipantsBackfillMigration implements ApplicationRunner {
+
+    private static final int CHUNK_SIZE = 5000;
+
+    /** Đơn mới luôn có dòng CUSTOMER ngay khi tạo → chưa có nghĩa là đơn cũ cần backfill */
+    private static final String NOT_BACKFILLED =
+            "AND NOT EXISTS (SELECT 1 FROM order_participants op WHERE op.order_id = o.id AND op.role = 'CUSTOMER') ";
+
+    private static final String BACKFILL_SQL =
+            "INSERT IGNORE INTO order_participants (order_id, user_id, role) " +
+            "SELECT o.id, o.customer_id, 'CUSTOMER' FROM orders o " +
+            "WHERE o.id > ? AND o.id <= ? " + NOT_BACKFILLED +
+            "UNION ALL " +
+            "SELECT o.id, o.shipper_id, 'SHIPPER' FROM orders o " +
+            "WHERE o.id > ? AND o.id <= ? AND o.shipper_id IS NOT NULL " + NOT_BACKFILLED +
+            "UNION ALL " +
+            "SELECT DISTINCT o.id, s.user_id, 'STORE_OWNER' FROM orders o " +
+            "JOIN order_stores os ON os.order_id = o.id " +
+            "JOIN stores s ON s.id = os.store_id " +
+            "WHERE o.id > ? AND o.id <= ? " + NOT_BACKFILLED;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+            if (maxId == null) {
+                return;
+            }
+            int inserted = 0;
+            for (long from = 0; from < maxId; from += CHUNK_SIZE) {
+                long to = from + CHUNK_SIZE;
+                inserted += jdbcTemplate.update(BACKFILL_SQL, from, to, from, to, from, to);
+            }
+
+            if (inserted > 0) {
+                log.info("Backfilled {} rows into order_participants", inserted);
+            }
+        } catch (Exception ex) {
+            log.warn("Skip order_participants backfill: {}", ex.getMessage());
+        }
+    }
+}
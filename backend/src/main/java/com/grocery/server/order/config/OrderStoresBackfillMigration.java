@@ -0,0 +1,61 @@
+package com.grocery.server.order.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runtime migration: backfill order_stores cho các đơn tạo trước khi có bảng này.
+ * Chạy theo từng khoảng order_id để không giữ lock lâu; đơn đã có dòng trong order_stores thì bỏ qua.
+ */
+@Component
+@Order(5)
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStoresBackfillMigration implements ApplicationRunner {
+
+    private static final int CHUNK_SIZE = 5000;
+
+    private static final String BACKFILL_SQL =
+            "INSERT IGNORE INTO order_stores (order_id, store_id, status, created_at) " +
+            "SELECT o.id, p.store_id, o.status, COALESCE(o.created_at, NOW()) " +
+            "FROM orders o " +
+            "JOIN order_items oi ON oi.order_id = o.id " +
+            "JOIN product_unit_mappings pum ON pum.id = oi.product_unit_mapping_id " +
+            "JOIN products p ON p.id = pum.product_id " +
+            "WHERE o.id > ? AND o.id <= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM order_stores os WHERE os.order_id = o.id) " +
+            "UNION " +
+            "SELECT o.id, o.store_id, o.status, COALESCE(o.created_at, NOW()) " +
+            "FROM orders o " +
+            "WHERE o.id > ? AND o.id <= ? AND o.store_id IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM order_stores os WHERE os.order_id = o.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+            if (maxId == null) {
+                return;
+            }
+
+            int inserted = 0;
+            for (long from = 0; from < maxId; from += CHUNK_SIZE) {
+                long to = from + CHUNK_SIZE;
+                inserted += jdbcTemplate.update(BACKFILL_SQL, from, to, from, to);
+            }
+
+            if (inserted > 0) {
+                log.info("Backfilled {} rows into order_stores", inserted);
+            }
+        } catch (Exception ex) {
+            log.warn("Skip order_stores backfill: {}", ex.getMessage());
+        }
+    }
+}
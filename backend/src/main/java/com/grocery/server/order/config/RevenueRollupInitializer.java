@@ -0,0 +1,34 @@
+package com.grocery.server.order.config;
+
+import com.grocery.server.order.service.RevenueRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runtime migration: dựng revenue_rollups lần đầu nếu bảng còn trống mà đã có đơn hàng.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RevenueRollupInitializer implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RevenueRollupService revenueRollupService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            boolean rollupsEmpty = jdbcTemplate.queryForList("SELECT 1 FROM revenue_rollups LIMIT 1").isEmpty();
+            boolean hasOrders = !jdbcTemplate.queryForList("SELECT 1 FROM orders LIMIT 1").isEmpty();
+            if (rollupsEmpty && hasOrders) {
+                revenueRollupService.rebuild();
+            }
+        } catch (Exception ex) {
+            log.warn("Skip revenue_rollups backfill: {}", ex.getMessage());
+        }
+    }
+}
@@ -1,23 +1,41 @@
 package com.grocery.server.order.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.grocery.server.order.dto.request.BulkUpdateOrderStatusRequest;
 import com.grocery.server.order.dto.request.CreateOrderRequest;
+import com.grocery.server.order.dto.request.CreateStockHoldRequest;
+import com.grocery.server.order.dto.request.UpdateShipperLocationRequest;
 import com.grocery.server.order.dto.request.UpdateOrderStatusRequest;
+import com.grocery.server.order.dto.response.BulkOrderStatusResponse;
 import com.grocery.server.order.dto.response.OrderResponse;
 import com.grocery.server.order.dto.response.OrderStatisticsResponse;
+import com.grocery.server.order.dto.response.StockHoldResponse;
+import com.grocery.server.order.dto.response.StoreOrderCountsResponse;
 import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.service.NearestShipperDispatcher;
+import com.grocery.server.order.service.OrderBulkStatusService;
+import com.grocery.server.order.service.OrderExportService;
 import com.grocery.server.order.service.OrderService;
+import com.grocery.server.order.service.RevenueRollupService;
+import com.grocery.server.order.service.StockHoldService;
+import com.grocery.server.order.service.StoreOrderCounterService;
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.dto.CursorPage;
 import com.grocery.server.shared.exception.UnauthorizedException;
+import com.grocery.server.shared.idempotency.IdempotencyService;
 import com.grocery.server.user.entity.User;
 import com.grocery.server.user.repository.UserRepository;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -33,25 +51,70 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderBulkStatusService orderBulkStatusService;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderExportService orderExportService;
+    private final NearestShipperDispatcher nearestShipperDispatcher;
+    private final StoreOrderCounterService storeOrderCounterService;
     private final UserRepository userRepository;
+    private final IdempotencyService idempotencyService;
+    private final StockHoldService stockHoldService;
 
     /**
      * Tạo đơn hàng mới
      * POST /api/orders
      * Role: CUSTOMER
+     * Header tùy chọn Idempotency-Key: client retry cùng key nhận lại đơn đã tạo, không tạo đơn mới
      */
     @PostMapping
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<ApiResponse<OrderResponse>> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
 
-        Long customerId = getUserIdFromAuthentication(authentication);
-        OrderResponse response = orderService.createOrder(request, customerId);
+        return idempotencyService.execute("orders.create", idempotencyKey, request,
+                new TypeReference<ApiResponse<OrderResponse>>() { }, () -> {
+                    Long customerId = getUserIdFromAuthentication(authentication);
+                    OrderResponse response = orderService.createOrder(request, customerId);
+
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .body(ApiResponse.success("Tạo đơn hàng thành công", response));
+                });
+    }
 
+    /**
+     * Giữ hàng cho giỏ khi bắt đầu checkout (trước khi tạo đơn / chuyển sang MoMo, VNPay)
+     * POST /api/orders/holds
+     * Role: CUSTOMER
+     * - Hàng được giữ tới expiresAt rồi tự động nhả; gửi holdId khi tạo đơn để chuyển thành trừ kho
+     * - Mỗi khách 1 phiên giữ hàng: gọi lại thay phiên cũ
+     */
+    @PostMapping("/holds")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<ApiResponse<StockHoldResponse>> createStockHold(
+            @Valid @RequestBody CreateStockHoldRequest request,
+            Authentication authentication) {
+        Long customerId = getUserIdFromAuthentication(authentication);
+        StockHoldResponse response = stockHoldService.createHold(request, customerId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Tạo đơn hàng thành công", response));
+                .body(ApiResponse.success("Đã giữ hàng", response));
+    }
+
+    /**
+     * Nhả hàng đang giữ (khách rời checkout)
+     * DELETE /api/orders/holds/{holdId}
+     * Role: CUSTOMER
+     */
+    @DeleteMapping("/holds/{holdId}")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<ApiResponse<Void>> releaseStockHold(
+            @PathVariable String holdId,
+            Authentication authentication) {
+        stockHoldService.release(holdId, getUserIdFromAuthentication(authentication));
+        return ResponseEntity.ok(ApiResponse.success("Đã nhả hàng đang giữ", null));
     }
 
     /**
@@ -95,6 +158,22 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng thành công", orders));
     }
 
+    /**
+     * Lấy đơn hàng của khách hàng - PHÂN TRANG THEO CURSOR
+     * GET /api/orders/my-orders/cursor?cursor=...&size=10
+     * Role: CUSTOMER
+     */
+    @GetMapping("/my-orders/cursor")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getMyOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        Long customerId = getUserIdFromAuthentication(authentication);
+        CursorPage<OrderResponse> orders = orderService.getOrdersByCustomerByCursor(customerId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng thành công", orders));
+    }
+
     /**
      * Lấy đơn hàng của một khách hàng cụ thể (Admin only)
      * GET /api/orders/user/{userId}
@@ -137,6 +216,36 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng cửa hàng thành công", orders));
     }
 
+    /**
+     * Lấy đơn hàng của cửa hàng - PHÂN TRANG THEO CURSOR
+     * GET /api/orders/my-store-orders/cursor?cursor=...&size=10
+     * Role: STORE
+     */
+    @GetMapping("/my-store-orders/cursor")
+    @PreAuthorize("hasRole('STORE')")
+    public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getMyStoreOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        Long userId = getUserIdFromAuthentication(authentication);
+        CursorPage<OrderResponse> orders = orderService.getOrdersByStoreOwnerByCursor(userId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng cửa hàng thành công", orders));
+    }
+
+    /**
+     * Số đơn theo trạng thái của cửa hàng hiện tại (badge dashboard)
+     * GET /api/orders/my-store-orders/counts
+     * Role: STORE
+     * Đọc counter trong bộ nhớ / Redis; thay đổi sau đó được push qua /user/queue/store/order-counts
+     */
+    @GetMapping("/my-store-orders/counts")
+    @PreAuthorize("hasRole('STORE')")
+    public ResponseEntity<ApiResponse<StoreOrderCountsResponse>> getMyStoreOrderCounts(Authentication authentication) {
+        Long userId = getUserIdFromAuthentication(authentication);
+        StoreOrderCountsResponse counts = storeOrderCounterService.getCountsForOwner(userId);
+        return ResponseEntity.ok(ApiResponse.success("Lấy số đơn hàng cửa hàng thành công", counts));
+    }
+
     /**
      * Lấy tất cả đơn hàng (dành cho admin)
      * GET /api/orders/all
@@ -170,6 +279,81 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy tất cả đơn hàng thành công", result));
     }
 
+    /**
+     * Lấy tất cả đơn hàng (admin) - PHÂN TRANG THEO CURSOR
+     * GET /api/orders/all/cursor?cursor=...&size=20&storeId=&status=&from=&to=&includeCount=false
+     * Role: ADMIN
+     * Luôn sắp xếp created_at DESC, id DESC; includeCount=true để lấy thêm tổng số (tốn 1 query COUNT)
+     */
+    @GetMapping("/all/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getAllOrdersForAdminByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean includeCount
+    ) {
+        Order.OrderStatus statusEnum = null;
+        if (status != null && !status.isBlank()) {
+            try {
+                statusEnum = Order.OrderStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new com.grocery.server.shared.exception.BadRequestException("Trạng thái không hợp lệ: " + status);
+            }
+        }
+
+        CursorPage<OrderResponse> result = orderService.getAllOrdersByCursor(
+                cursor, size, storeId, statusEnum, parseDateTime(from), parseDateTime(to), includeCount);
+        return ResponseEntity.ok(ApiResponse.success("Lấy tất cả đơn hàng thành công", result));
+    }
+
+    /**
+     * Xuất đơn hàng (streaming, bộ nhớ không đổi)
+     * GET /api/orders/export?format=ndjson|csv&storeId=&status=&from=&to=
+     * Role: ADMIN
+     * - ndjson: 1 dòng JSON / đơn (kèm items)
+     * - csv: file .csv.gz, 1 dòng / sản phẩm trong đơn
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to
+    ) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new com.grocery.server.shared.exception.BadRequestException("Định dạng không hợp lệ: " + format + ". Dùng ndjson hoặc csv.");
+        }
+
+        Order.OrderStatus statusEnum = null;
+        if (status != null && !status.isBlank()) {
+            try {
+                statusEnum = Order.OrderStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new com.grocery.server.shared.exception.BadRequestException("Trạng thái không hợp lệ: " + status);
+            }
+        }
+
+        java.time.LocalDateTime fromDt = parseDateTime(from);
+        java.time.LocalDateTime toDt = parseDateTime(to);
+        Order.OrderStatus filterStatus = statusEnum;
+        log.info("GET /api/orders/export - format={}, storeId={}, status={}, from={}, to={}", exportFormat, storeId, statusEnum, fromDt, toDt);
+
+        StreamingResponseBody body = out -> orderExportService.export(exportFormat, storeId, filterStatus, fromDt, toDt, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportFormat.getFileName() + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
     /**
      * Lấy thống kê đơn hàng cho Dashboard Admin
      * GET /api/orders/statistics
@@ -182,6 +366,19 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy thống kê đơn hàng thành công", stats));
     }
 
+    /**
+     * Dựng lại bảng tổng hợp doanh thu từ dữ liệu đơn hàng
+     * POST /api/orders/statistics/rebuild
+     * Role: ADMIN
+     */
+    @PostMapping("/statistics/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> rebuildOrderStatistics() {
+        log.info("POST /api/orders/statistics/rebuild - Rebuild revenue rollups");
+        revenueRollupService.rebuild();
+        return ResponseEntity.ok(ApiResponse.success("Dựng lại thống kê doanh thu thành công", null));
+    }
+
     private java.time.LocalDateTime parseDateTime(String s) {
         if (s == null || s.isBlank()) return null;
         try {
@@ -224,6 +421,22 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn giao hàng thành công", orders));
     }
 
+    /**
+     * Lấy đơn giao hàng của tài xế - PHÂN TRANG THEO CURSOR
+     * GET /api/orders/my-deliveries/cursor?cursor=...&size=10
+     * Role: SHIPPER
+     */
+    @GetMapping("/my-deliveries/cursor")
+    @PreAuthorize("hasRole('SHIPPER')")
+    public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getMyDeliveriesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        Long shipperId = getUserIdFromAuthentication(authentication);
+        CursorPage<OrderResponse> orders = orderService.getOrdersByShipperByCursor(shipperId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn giao hàng thành công", orders));
+    }
+
     /**
      * Lấy danh sách đơn hàng có thể nhận (cho tài xế)
      * GET /api/orders/available
@@ -250,6 +463,20 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng có thể nhận thành công", orders));
     }
 
+    /**
+     * Lấy đơn hàng có thể nhận - PHÂN TRANG THEO CURSOR (cũ nhất trước)
+     * GET /api/orders/available/cursor?cursor=...&size=10
+     * Role: SHIPPER
+     */
+    @GetMapping("/available/cursor")
+    @PreAuthorize("hasRole('SHIPPER')")
+    public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getAvailableOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<OrderResponse> orders = orderService.getAvailableOrdersByCursor(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách đơn hàng có thể nhận thành công", orders));
+    }
+
     /**
      * Cập nhật trạng thái đơn hàng
      * PATCH /api/orders/{id}/status
@@ -268,6 +495,27 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Cập nhật trạng thái đơn hàng thành công", response));
     }
 
+    /**
+     * Cập nhật trạng thái nhiều đơn cùng lúc (vd: xác nhận loạt đơn đầu ca)
+     * PATCH /api/orders/status/bulk
+     * Role: STORE, ADMIN
+     * Trả về kết quả từng đơn; đơn lỗi không làm hỏng các đơn còn lại
+     */
+    @PatchMapping("/status/bulk")
+    @PreAuthorize("hasAnyRole('STORE', 'ADMIN')")
+    public ResponseEntity<ApiResponse<BulkOrderStatusResponse>> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkUpdateOrderStatusRequest request,
+            Authentication authentication) {
+
+        Long userId = getUserIdFromAuthentication(authentication);
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        BulkOrderStatusResponse response = orderBulkStatusService.updateStatuses(request, userId, admin);
+
+        return ResponseEntity.ok(ApiResponse.success(
+                "Đã cập nhật " + response.getSucceeded() + "/" + response.getRequested() + " đơn hàng", response));
+    }
+
     /**
      * Tài xế nhận đơn
      * POST /api/orders/{id}/assign-shipper
@@ -285,6 +533,37 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Nhận đơn hàng thành công", response));
     }
 
+    /**
+     * Tài xế cập nhật vị trí hiện tại (gửi định kỳ khi đang nhận đơn)
+     * PUT /api/orders/shipper/location
+     * Role: SHIPPER
+     */
+    @PutMapping("/shipper/location")
+    @PreAuthorize("hasRole('SHIPPER')")
+    public ResponseEntity<ApiResponse<Void>> updateShipperLocation(
+            @Valid @RequestBody UpdateShipperLocationRequest request,
+            Authentication authentication) {
+
+        Long shipperId = getUserIdFromAuthentication(authentication);
+        nearestShipperDispatcher.updateLocation(shipperId, authentication.getName(), request.getLat(), request.getLng());
+
+        return ResponseEntity.ok(ApiResponse.success("Cập nhật vị trí thành công", null));
+    }
+
+    /**
+     * Tài xế tắt nhận đơn (gỡ khỏi danh sách shipper gần)
+     * DELETE /api/orders/shipper/location
+     * Role: SHIPPER
+     */
+    @DeleteMapping("/shipper/location")
+    @PreAuthorize("hasRole('SHIPPER')")
+    public ResponseEntity<ApiResponse<Void>> clearShipperLocation(Authentication authentication) {
+        Long shipperId = getUserIdFromAuthentication(authentication);
+        nearestShipperDispatcher.goOffline(shipperId);
+
+        return ResponseEntity.ok(ApiResponse.success("Đã tắt nhận đơn", null));
+    }
+
     /**
      * Helper method: Lấy userId từ Authentication
      */
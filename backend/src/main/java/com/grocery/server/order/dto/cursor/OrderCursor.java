@@ -0,0 +1,55 @@
+package com.grocery.server.order.dto.cursor;
+
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.shared.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination đơn hàng, khóa (created_at, id)
+ *
+ * - Encode: base64url("{createdAt ISO}|{id}") → client coi như chuỗi opaque
+ * - id làm tie-breaker khi nhiều đơn có cùng created_at
+ * - FIRST_DESC / FIRST_ASC: sentinel cho trang đầu, để dùng chung 1 câu query
+ *   (không cần điều kiện ":cursor IS NULL OR ..." làm mất khả năng dùng index range)
+ */
+public record OrderCursor(LocalDateTime createdAt, Long id) {
+
+    public static final OrderCursor FIRST_DESC = new OrderCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+    public static final OrderCursor FIRST_ASC = new OrderCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã cursor từ client
+     *
+     * @param cursor    Chuỗi cursor (null/blank = trang đầu)
+     * @param ascending Chiều sắp xếp của danh sách
+     * @throws BadRequestException nếu cursor không hợp lệ
+     */
+    public static OrderCursor decode(String cursor, boolean ascending) {
+        if (cursor == null || cursor.isBlank()) {
+            return ascending ? FIRST_ASC : FIRST_DESC;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep <= 0) {
+                throw new BadRequestException("Cursor không hợp lệ");
+            }
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.grocery.server.order.dto.request;
+
+import com.grocery.server.order.entity.Order.OrderStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO: BulkUpdateOrderStatusItemRequest
+ * Mô tả: 1 dòng trong yêu cầu cập nhật trạng thái hàng loạt
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUpdateOrderStatusItemRequest {
+
+    @NotNull(message = "ID đơn hàng không được để trống")
+    private Long orderId;
+
+    @NotNull(message = "Trạng thái đơn hàng không được để trống")
+    private OrderStatus newStatus;
+
+    /**
+     * Lý do hủy đơn (bắt buộc khi newStatus = CANCELLED)
+     */
+    private String cancelReason;
+
+    /**
+     * URL ảnh chứng minh giao hàng (bắt buộc khi newStatus = DELIVERED)
+     */
+    private String podImageUrl;
+
+    public UpdateOrderStatusRequest toUpdateRequest() {
+        return UpdateOrderStatusRequest.builder()
+                .newStatus(newStatus)
+                .cancelReason(cancelReason)
+                .podImageUrl(podImageUrl)
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.grocery.server.order.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO: BulkUpdateOrderStatusRequest
+ * Mô tả: Cập nhật trạng thái nhiều đơn trong 1 request (vd: xác nhận loạt đơn đầu ca)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUpdateOrderStatusRequest {
+
+    public static final int MAX_ITEMS = 200;
+
+    @NotEmpty(message = "Danh sách đơn hàng không được để trống")
+    @Size(max = MAX_ITEMS, message = "Tối đa " + MAX_ITEMS + " đơn hàng mỗi lần")
+    private List<@Valid @NotNull BulkUpdateOrderStatusItemRequest> items;
+}
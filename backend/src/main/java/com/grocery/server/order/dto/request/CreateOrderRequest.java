@@ -1,6 +1,8 @@
 package com.grocery.server.order.dto.request;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -32,11 +34,27 @@ public class CreateOrderRequest {
     @NotBlank(message = "Địa chỉ giao hàng không được để trống")
     private String deliveryAddress;
 
+    /**
+     * Tọa độ giao hàng (tùy chọn) - dùng để gợi ý đơn cho shipper gần nhất
+     */
+    @DecimalMin(value = "-90.0", message = "Vĩ độ không hợp lệ")
+    @DecimalMax(value = "90.0", message = "Vĩ độ không hợp lệ")
+    private Double deliveryLat;
+
+    @DecimalMin(value = "-180.0", message = "Kinh độ không hợp lệ")
+    @DecimalMax(value = "180.0", message = "Kinh độ không hợp lệ")
+    private Double deliveryLng;
+
     /**
      * Phí vận chuyển (tùy chọn, FE tính theo khoảng cách)
      */
     private java.math.BigDecimal shippingFee;
 
+    /**
+     * Phiên giữ hàng từ POST /orders/holds (tùy chọn) - hàng đang giữ được chuyển thành trừ kho khi tạo đơn
+     */
+    private String holdId;
+
     /**
      * Danh sách sản phẩm trong đơn hàng
      */
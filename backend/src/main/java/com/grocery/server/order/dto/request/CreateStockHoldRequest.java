@@ -0,0 +1,28 @@
+package com.grocery.server.order.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO: CreateStockHoldRequest
+ * Mô tả: Giữ hàng cho giỏ hàng khi khách bắt đầu checkout (trước khi tạo đơn / thanh toán)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreateStockHoldRequest {
+
+    /**
+     * Các biến thể cần giữ (cùng cấu trúc dòng hàng của CreateOrderRequest)
+     */
+    @NotEmpty(message = "Phải có ít nhất một sản phẩm để giữ hàng")
+    @Valid
+    private List<CreateOrderItemRequest> items;
+}
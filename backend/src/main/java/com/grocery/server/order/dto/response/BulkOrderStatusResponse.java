@@ -0,0 +1,56 @@
+package com.grocery.server.order.dto.response;
+
+import com.grocery.server.order.entity.Order.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO: Kết quả cập nhật trạng thái hàng loạt (theo thứ tự các dòng trong request)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusResponse {
+
+    private int requested;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<ItemResult> results;
+
+    /**
+     * Kết quả của 1 đơn
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+
+        private Long orderId;
+
+        private boolean success;
+
+        /**
+         * Trạng thái trước khi cập nhật (null nếu không tìm thấy đơn)
+         */
+        private OrderStatus previousStatus;
+
+        /**
+         * Trạng thái hiện tại sau khi xử lý
+         */
+        private OrderStatus currentStatus;
+
+        /**
+         * Lý do thất bại
+         */
+        private String message;
+    }
+}
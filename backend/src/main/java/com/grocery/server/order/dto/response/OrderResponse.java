@@ -95,6 +95,12 @@ public class OrderResponse {
      */
     private String deliveryAddress;
 
+    /**
+     * Tọa độ giao hàng (nếu khách có chọn trên bản đồ)
+     */
+    private Double deliveryLat;
+    private Double deliveryLng;
+
     /**
      * Ảnh chứng minh giao hàng (nếu có)
      */
@@ -124,4 +130,9 @@ public class OrderResponse {
      * Danh sách cửa hàng trong đơn (dùng cho đơn liên cửa hàng)
      */
     private List<StoreInfoResponse> stores;
+
+    /**
+     * Phiên bản đơn hàng (tăng mỗi lần đơn thay đổi)
+     */
+    private Long version;
 }
@@ -0,0 +1,32 @@
+package com.grocery.server.order.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO: StockHoldResponse
+ * Mô tả: Phiên giữ hàng của khách (POST /api/orders/holds) - gửi holdId khi tạo đơn
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockHoldResponse {
+
+    private String holdId;
+
+    /**
+     * Quá thời điểm này hàng được tự động nhả
+     */
+    private LocalDateTime expiresAt;
+
+    /**
+     * productUnitMappingId → số lượng đang giữ (đã gộp)
+     */
+    private Map<Long, Integer> items;
+}
@@ -0,0 +1,33 @@
+package com.grocery.server.order.dto.response;
+
+import com.grocery.server.order.entity.Order.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO: StoreOrderCountsResponse
+ * Mô tả: Số đơn theo trạng thái của 1 cửa hàng (badge dashboard cửa hàng)
+ * Trả về qua GET /api/orders/my-store-orders/counts và push qua WebSocket /user/queue/store/order-counts
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreOrderCountsResponse {
+
+    private Long storeId;
+
+    /**
+     * Đủ mọi trạng thái (trạng thái chưa có đơn = 0)
+     */
+    private Map<OrderStatus, Long> counts;
+
+    /**
+     * Thời điểm snapshot (epoch millis)
+     */
+    private Long timestamp;
+}
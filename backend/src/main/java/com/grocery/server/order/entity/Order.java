@@ -21,7 +21,14 @@ import java.util.List;
  * Mô tả: Bảng đơn hàng
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination (created_at, id) - xem OrderRepository.*AfterCursor
+        @Index(name = "idx_orders_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_customer_created", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_shipper_created", columnList = "shipper_id, created_at, id"),
+        @Index(name = "idx_orders_store_created", columnList = "store_id, created_at, id"),
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -86,6 +93,15 @@ public class Order {
     @Column(name = "delivery_address", nullable = false)
     private String deliveryAddress;
 
+    /**
+     * Tọa độ giao hàng (tùy chọn, FE lấy từ bản đồ khi đặt hàng)
+     */
+    @Column(name = "delivery_lat")
+    private Double deliveryLat;
+
+    @Column(name = "delivery_lng")
+    private Double deliveryLng;
+
     /**
      * Ảnh bằng chứng giao hàng (POD - Proof of Delivery)
      * Tài xế chụp khi giao hàng tới nơi
@@ -99,6 +115,15 @@ public class Order {
     @Column(name = "cancel_reason")
     private String cancelReason;
 
+    /**
+     * Optimistic locking: tăng mỗi lần đơn thay đổi
+     * Chuyển trạng thái dùng compare-and-set theo (status, version) - xem OrderTransitionService
+     * DEFAULT 0 để ddl-auto điền sẵn cho các đơn cũ khi thêm cột
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     /**
      * Thời gian đặt hàng
      */
@@ -0,0 +1,69 @@
+package com.grocery.server.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity: order_participants
+ * Mô tả: Tập người tham gia của đơn hàng (khách hàng, shipper, chủ các cửa hàng liên quan)
+ *
+ * Thay cho việc đi order → orderItems → productUnitMapping → product → store → owner
+ * (nhiều lazy load / dòng) mỗi lần kiểm tra quyền chuyển trạng thái: 1 query theo order_id.
+ *
+ * - CUSTOMER, STORE_OWNER: ghi khi tạo đơn (OrderService.createOrder)
+ * - SHIPPER: ghi khi shipper nhận đơn (OrderTransitionService.assignShipper)
+ * - Dữ liệu cũ được backfill bởi OrderParticipantsBackfillMigration
+ */
+@Entity
+@Table(name = "order_participants",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_participant", columnNames = {"order_id", "user_id", "role"}),
+        indexes = @Index(name = "idx_order_participants_user", columnList = "user_id, role"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderParticipant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Đơn hàng
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    /**
+     * Người tham gia
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Vai trò trong đơn
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ParticipantRole role;
+
+    public enum ParticipantRole {
+        CUSTOMER,
+        SHIPPER,
+        STORE_OWNER
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().getName().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+}
@@ -0,0 +1,74 @@
+package com.grocery.server.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity: order_stores
+ * Mô tả: Bảng liên kết (denormalized) đơn hàng ↔ cửa hàng có sản phẩm trong đơn
+ *
+ * Thay cho điều kiện "o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId"
+ * (JOIN 4 bảng + DISTINCT, không index nào dùng được) bằng lookup theo index (store_id, ...).
+ *
+ * - Ghi khi tạo đơn (OrderService.createOrder), 1 dòng / cửa hàng liên quan
+ * - status, created_at copy từ orders; status được đồng bộ mỗi khi đơn đổi trạng thái
+ * - Dữ liệu cũ được backfill bởi OrderStoresBackfillMigration
+ */
+@Entity
+@Table(name = "order_stores",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_store", columnNames = {"order_id", "store_id"}),
+        indexes = {
+                @Index(name = "idx_order_stores_store_created", columnList = "store_id, created_at, order_id"),
+                @Index(name = "idx_order_stores_store_status", columnList = "store_id, status, created_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Đơn hàng
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    /**
+     * Cửa hàng có sản phẩm trong đơn
+     */
+    @Column(name = "store_id", nullable = false)
+    private Long storeId;
+
+    /**
+     * Trạng thái đơn (bản sao của orders.status)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Order.OrderStatus status;
+
+    /**
+     * Thời gian đặt hàng (bản sao của orders.created_at)
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public int hashCode() {
+        return getClass().getName().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+}
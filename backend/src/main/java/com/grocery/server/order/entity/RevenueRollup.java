@@ -0,0 +1,104 @@
+package com.grocery.server.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entity: revenue_rollups
+ * Mô tả: Doanh thu / số đơn đã tổng hợp sẵn theo ngày và theo tháng
+ *
+ * - store_id = 0: toàn hệ thống (revenue = tổng total_amount của đơn DELIVERED)
+ * - store_id > 0: từng cửa hàng (revenue = tổng tiền hàng của cửa hàng đó trong đơn DELIVERED)
+ * - Đơn được gom theo ngày/tháng đặt hàng (orders.created_at)
+ *
+ * Cập nhật cộng dồn bởi RevenueRollupService khi tạo đơn / đơn chuyển sang DELIVERED, CANCELLED.
+ * Có thể dựng lại toàn bộ từ bảng orders bằng RevenueRollupService.rebuild().
+ */
+@Entity
+@Table(name = "revenue_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup",
+                columnNames = {"granularity", "store_id", "period_start"}),
+        indexes = @Index(name = "idx_revenue_rollups_period", columnList = "period_start"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevenueRollup {
+
+    /** store_id dùng cho dòng tổng toàn hệ thống */
+    public static final long GLOBAL_STORE_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Độ chi tiết: DAY hoặc MONTH
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularity granularity;
+
+    /**
+     * Ngày đầu kỳ (DAY: chính ngày đó, MONTH: ngày 1 của tháng)
+     */
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    /**
+     * Cửa hàng (0 = toàn hệ thống)
+     */
+    @Column(name = "store_id", nullable = false)
+    private Long storeId;
+
+    /**
+     * Doanh thu từ đơn đã giao (VNĐ)
+     */
+    @Column(nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    /**
+     * Số đơn được tạo trong kỳ
+     */
+    @Column(name = "order_count", nullable = false)
+    @Builder.Default
+    private Long orderCount = 0L;
+
+    /**
+     * Số đơn đã giao thành công
+     */
+    @Column(name = "delivered_count", nullable = false)
+    @Builder.Default
+    private Long deliveredCount = 0L;
+
+    /**
+     * Số đơn bị hủy
+     */
+    @Column(name = "cancelled_count", nullable = false)
+    @Builder.Default
+    private Long cancelledCount = 0L;
+
+    @Override
+    public int hashCode() {
+        return getClass().getName().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+
+    // ========== ENUMS ==========
+
+    public enum Granularity {
+        DAY,
+        MONTH
+    }
+}
@@ -0,0 +1,31 @@
+package com.grocery.server.order.repository;
+
+import com.grocery.server.order.entity.OrderParticipant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository: OrderParticipantRepository
+ * Mô tả: Đọc/ghi tập người tham gia của đơn hàng
+ */
+@Repository
+public interface OrderParticipantRepository extends JpaRepository<OrderParticipant, Long> {
+
+    /**
+     * Tất cả người tham gia của 1 đơn
+     * SQL: SELECT user_id, role FROM order_participants WHERE order_id = ?
+     */
+    @Query("SELECT op FROM OrderParticipant op WHERE op.order.id = :orderId")
+    List<OrderParticipant> findByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Người tham gia của cả lô đơn (1 query cho thông báo theo lô)
+     */
+    @Query("SELECT op FROM OrderParticipant op WHERE op.order.id IN :orderIds")
+    List<OrderParticipant> findByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
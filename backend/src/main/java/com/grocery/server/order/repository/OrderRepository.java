@@ -2,14 +2,19 @@ package com.grocery.server.order.repository;
 
 import com.grocery.server.order.entity.Order;
 import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.user.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,12 +41,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     /**
      * Lấy tất cả đơn hàng của một cửa hàng (hoặc chứa sản phẩm của cửa hàng đó)
+     * Lookup qua order_stores, index (store_id, created_at, order_id)
      * @param storeId ID cửa hàng
      * @return Danh sách đơn hàng, sắp xếp theo thời gian mới nhất
      */
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN o.orderItems oi " +
-           "WHERE o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId " +
-           "ORDER BY o.createdAt DESC")
+    @Query("SELECT o FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId " +
+           "ORDER BY os.createdAt DESC")
     List<Order> findByStoreId(@Param("storeId") Long storeId);
 
     /**
@@ -51,19 +57,25 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param storeId ID cửa hàng
      * @return Danh sách đơn hàng đã thanh toán
      */
-    @Query("SELECT DISTINCT o FROM Order o JOIN o.payments p LEFT JOIN o.orderItems oi " +
-           "WHERE (o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId) " +
-           "AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS')) " +
-           "ORDER BY o.createdAt DESC")
+    @Query("SELECT o FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId " +
+           "AND EXISTS (SELECT 1 FROM Payment p WHERE p.order = o " +
+           "       AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS'))) " +
+           "ORDER BY os.createdAt DESC")
     List<Order> findPaidOrdersByStoreId(@Param("storeId") Long storeId);
 
     /**
      * Lấy đơn hàng đã thanh toán của cửa hàng - CÓ PHÂN TRANG
      */
-    @Query("SELECT DISTINCT o FROM Order o JOIN o.payments p LEFT JOIN o.orderItems oi " +
-           "WHERE (o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId) " +
-           "AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS')) " +
-           "ORDER BY o.createdAt DESC")
+    @Query(value = "SELECT o FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId " +
+           "AND EXISTS (SELECT 1 FROM Payment p WHERE p.order = o " +
+           "       AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS'))) " +
+           "ORDER BY os.createdAt DESC",
+           countQuery = "SELECT COUNT(os) FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId " +
+           "AND EXISTS (SELECT 1 FROM Payment p WHERE p.order = o " +
+           "       AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS')))")
     Page<Order> findPaidOrdersByStoreId(@Param("storeId") Long storeId, Pageable pageable);
 
     /**
@@ -86,9 +98,9 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param status Trạng thái đơn hàng
      * @return Danh sách đơn hàng
      */
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN o.orderItems oi " +
-           "WHERE (o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId) " +
-           "AND o.status = :status ORDER BY o.createdAt DESC")
+    @Query("SELECT o FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId AND os.status = :status " +
+           "ORDER BY os.createdAt DESC")
     List<Order> findByStoreIdAndStatus(@Param("storeId") Long storeId, @Param("status") OrderStatus status);
 
     /**
@@ -106,9 +118,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param status Trạng thái
      * @return Số lượng đơn hàng
      */
-    @Query("SELECT COUNT(DISTINCT o) FROM Order o LEFT JOIN o.orderItems oi " +
-           "WHERE (o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId) " +
-           "AND o.status = :status")
+    @Query("SELECT COUNT(os) FROM OrderStore os " +
+           "WHERE os.storeId = :storeId AND os.status = :status")
     Long countByStoreIdAndStatus(@Param("storeId") Long storeId, @Param("status") OrderStatus status);
 
     /**
@@ -131,8 +142,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "ORDER BY o.createdAt ASC")
     Page<Order> findAvailableOrdersForShippers(Pageable pageable);
 
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN o.orderItems oi " +
-           "WHERE (:storeId IS NULL OR o.store.id = :storeId OR oi.productUnitMapping.product.store.id = :storeId) " +
+    /**
+     * Admin: tất cả đơn hàng có bộ lọc - CÓ PHÂN TRANG
+     * Lọc cửa hàng bằng semi-join vào order_stores (không còn JOIN order_items + DISTINCT)
+     */
+    @Query("SELECT o FROM Order o " +
+           "WHERE (:storeId IS NULL OR o.id IN (SELECT os.order.id FROM OrderStore os WHERE os.storeId = :storeId)) " +
            "AND (:status IS NULL OR o.status = :status) " +
            "AND (:from IS NULL OR o.createdAt >= :from) " +
            "AND (:to IS NULL OR o.createdAt <= :to) " +
@@ -143,6 +158,97 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
                                    @Param("to") LocalDateTime to,
                                    Pageable pageable);
 
+    // ========== KEYSET (CURSOR) PAGINATION ==========
+    // Khóa (created_at, id): trang 500 tốn chi phí như trang 1, không có OFFSET và COUNT.
+    // Lọc theo cửa hàng qua order_stores, lọc thanh toán dùng EXISTS thay cho JOIN + DISTINCT.
+    // Pageable chỉ dùng để truyền LIMIT (kiểu trả về List → Spring Data không chạy COUNT).
+
+    /**
+     * Đơn hàng của khách hàng theo cursor (mới nhất trước)
+     * Index: idx_orders_customer_created (customer_id, created_at, id)
+     */
+    @Query("SELECT o FROM Order o WHERE o.customer.id = :customerId " +
+           "AND (o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByCustomerIdAfterCursor(@Param("customerId") Long customerId,
+                                            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                            @Param("cursorId") Long cursorId,
+                                            Pageable limit);
+
+    /**
+     * Đơn hàng của tài xế theo cursor (mới nhất trước)
+     * Index: idx_orders_shipper_created (shipper_id, created_at, id)
+     */
+    @Query("SELECT o FROM Order o WHERE o.shipper.id = :shipperId " +
+           "AND (o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByShipperIdAfterCursor(@Param("shipperId") Long shipperId,
+                                           @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                           @Param("cursorId") Long cursorId,
+                                           Pageable limit);
+
+    /**
+     * Đơn hàng đã thanh toán của cửa hàng theo cursor (mới nhất trước)
+     * Điều kiện thanh toán giống findPaidOrdersByStoreId
+     * Index: idx_order_stores_store_created (store_id, created_at, order_id)
+     */
+    @Query("SELECT o FROM OrderStore os JOIN os.order o " +
+           "WHERE os.storeId = :storeId " +
+           "AND EXISTS (SELECT 1 FROM Payment p WHERE p.order = o " +
+           "       AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS'))) " +
+           "AND (os.createdAt < :cursorCreatedAt OR (os.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+           "ORDER BY os.createdAt DESC, o.id DESC")
+    List<Order> findPaidOrdersByStoreIdAfterCursor(@Param("storeId") Long storeId,
+                                                   @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                   @Param("cursorId") Long cursorId,
+                                                   Pageable limit);
+
+    /**
+     * Đơn chờ shipper nhận theo cursor (cũ nhất trước - giống findAvailableOrdersForShippers)
+     * Index: idx_orders_status_created (status, created_at, id)
+     */
+    @Query("SELECT o FROM Order o " +
+           "WHERE o.status = 'CONFIRMED' AND o.shipper IS NULL " +
+           "AND EXISTS (SELECT 1 FROM Payment p WHERE p.order = o " +
+           "       AND (p.paymentMethod = 'COD' OR (p.paymentMethod = 'MOMO' AND p.status = 'SUCCESS'))) " +
+           "AND (o.createdAt > :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id > :cursorId)) " +
+           "ORDER BY o.createdAt ASC, o.id ASC")
+    List<Order> findAvailableOrdersForShippersAfterCursor(@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                          @Param("cursorId") Long cursorId,
+                                                          Pageable limit);
+
+    /**
+     * Admin: tất cả đơn hàng có bộ lọc theo cursor (mới nhất trước)
+     * Bộ lọc giống findAllWithFilters
+     */
+    @Query("SELECT o FROM Order o " +
+           "WHERE (:storeId IS NULL OR o.id IN (SELECT os.order.id FROM OrderStore os WHERE os.storeId = :storeId)) " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) " +
+           "AND (:to IS NULL OR o.createdAt <= :to) " +
+           "AND (o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findAllWithFiltersAfterCursor(@Param("storeId") Long storeId,
+                                              @Param("status") OrderStatus status,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                              @Param("cursorId") Long cursorId,
+                                              Pageable limit);
+
+    /**
+     * Admin: đếm đơn hàng theo bộ lọc (chỉ chạy khi client yêu cầu includeCount)
+     */
+    @Query("SELECT COUNT(o) FROM Order o " +
+           "WHERE (:storeId IS NULL OR o.id IN (SELECT os.order.id FROM OrderStore os WHERE os.storeId = :storeId)) " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) " +
+           "AND (:to IS NULL OR o.createdAt <= :to)")
+    long countWithFilters(@Param("storeId") Long storeId,
+                          @Param("status") OrderStatus status,
+                          @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+
     /**
      * Tính tổng doanh thu từ các đơn hàng đã giao thành công (DELIVERED)
      * @return Tổng doanh thu (BigDecimal)
@@ -203,6 +309,19 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "WHERE o.id = :orderId")
     Optional<Order> findByIdWithFullDetails(@Param("orderId") Long orderId);
 
+    /**
+     * Như findByIdWithFullDetails nhưng cho cả lô đơn (cập nhật trạng thái hàng loạt) - 1 query
+     */
+    @Query("SELECT DISTINCT o FROM Order o " +
+           "LEFT JOIN FETCH o.customer " +
+           "LEFT JOIN FETCH o.shipper " +
+           "LEFT JOIN FETCH o.orderItems oi " +
+           "LEFT JOIN FETCH oi.productUnitMapping pum " +
+           "LEFT JOIN FETCH pum.product p " +
+           "LEFT JOIN FETCH p.store " +
+           "WHERE o.id IN :orderIds")
+    List<Order> findAllByIdWithFullDetails(@Param("orderIds") Collection<Long> orderIds);
+
     /**
      * Lấy danh sách đơn hàng theo customer với đầy đủ JOIN FETCH
      * Dùng cho mapToOrderResponse batch - tránh N+1
@@ -231,4 +350,90 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "WHERE o.shipper.id = :shipperId " +
            "ORDER BY o.createdAt DESC")
     List<Order> findByShipperIdWithDetails(@Param("shipperId") Long shipperId);
+
+    // ========== COMPARE-AND-SET STATE TRANSITIONS ==========
+
+    /**
+     * Chuyển trạng thái nếu đơn vẫn ở (expectedStatus, expectedVersion)
+     * SQL: UPDATE orders SET status = ?, version = version + 1 ... WHERE id = ? AND status = ? AND version = ?
+     * @return 1 nếu thành công, 0 nếu đơn đã bị người khác thay đổi
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :newStatus, o.version = o.version + 1, " +
+           "o.cancelReason = COALESCE(:cancelReason, o.cancelReason), " +
+           "o.podImageUrl = COALESCE(:podImageUrl, o.podImageUrl) " +
+           "WHERE o.id = :orderId AND o.status = :expectedStatus AND o.version = :expectedVersion")
+    int compareAndSetStatus(@Param("orderId") Long orderId,
+                            @Param("expectedStatus") OrderStatus expectedStatus,
+                            @Param("expectedVersion") Long expectedVersion,
+                            @Param("newStatus") OrderStatus newStatus,
+                            @Param("cancelReason") String cancelReason,
+                            @Param("podImageUrl") String podImageUrl);
+
+    /**
+     * Gán shipper + chuyển trạng thái nếu đơn vẫn ở (expectedStatus, expectedVersion) và chưa có shipper
+     * @return 1 nếu thành công, 0 nếu đơn đã có người nhận / bị thay đổi
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.shipper = :shipper, o.status = :newStatus, o.version = o.version + 1 " +
+           "WHERE o.id = :orderId AND o.status = :expectedStatus AND o.version = :expectedVersion " +
+           "AND o.shipper IS NULL")
+    int compareAndSetShipper(@Param("orderId") Long orderId,
+                             @Param("expectedStatus") OrderStatus expectedStatus,
+                             @Param("expectedVersion") Long expectedVersion,
+                             @Param("shipper") User shipper,
+                             @Param("newStatus") OrderStatus newStatus);
+
+    /**
+     * Trạng thái hiện tại (dùng để báo conflict)
+     */
+    @Query("SELECT o.status FROM Order o WHERE o.id = :orderId")
+    Optional<OrderStatus> findStatusById(@Param("orderId") Long orderId);
+
+    /**
+     * Khóa 1 đơn (SELECT ... FOR UPDATE) - callback thanh toán xếp hàng với job hết hạn đơn
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") Long orderId);
+
+    // ========== HẾT HẠN ĐƠN PENDING ==========
+
+    /**
+     * (id, createdAt) của các đơn PENDING chưa thanh toán - dựng lại timing wheel lúc khởi động
+     * Index: idx_orders_status_created (status, created_at, id) → range scan
+     * Đơn đã thanh toán online (payment_status = SUCCESS) chờ cửa hàng xác nhận, không tự hủy
+     */
+    @Query("SELECT o.id, o.createdAt FROM Order o WHERE o.status = 'PENDING' " +
+           "AND o.paymentStatus <> com.grocery.server.payment.entity.Payment.PaymentStatus.SUCCESS")
+    List<Object[]> findPendingDeadlines();
+
+    /**
+     * ID đơn PENDING chưa thanh toán tạo trước mốc cutoff (quét bù định kỳ, cũng theo idx_orders_status_created)
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status = 'PENDING' AND o.createdAt < :cutoff " +
+           "AND o.paymentStatus <> com.grocery.server.payment.entity.Payment.PaymentStatus.SUCCESS ORDER BY o.createdAt ASC")
+    List<Long> findPendingIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Khóa các đơn còn PENDING, chưa thanh toán và đã quá hạn trong lô (SELECT ... FOR UPDATE)
+     * Đơn đã được xác nhận / hủy / thanh toán trong lúc chờ sẽ không còn trong kết quả
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :orderIds AND o.status = 'PENDING' AND o.createdAt <= :cutoff " +
+           "AND o.paymentStatus <> com.grocery.server.payment.entity.Payment.PaymentStatus.SUCCESS")
+    List<Order> lockExpirablePending(@Param("orderIds") Collection<Long> orderIds,
+                                     @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Hủy cả lô đơn PENDING đã khóa
+     * SQL: UPDATE orders SET status = 'CANCELLED', cancel_reason = ?, version = version + 1
+     *      WHERE id IN (...) AND status = 'PENDING' AND payment_status <> 'SUCCESS'
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = com.grocery.server.order.entity.Order.OrderStatus.CANCELLED, " +
+           "o.cancelReason = :cancelReason, o.version = o.version + 1 " +
+           "WHERE o.id IN :orderIds AND o.status = com.grocery.server.order.entity.Order.OrderStatus.PENDING " +
+           "AND o.paymentStatus <> com.grocery.server.payment.entity.Payment.PaymentStatus.SUCCESS")
+    int cancelPendingIn(@Param("orderIds") Collection<Long> orderIds, @Param("cancelReason") String cancelReason);
 }
@@ -0,0 +1,52 @@
+package com.grocery.server.order.repository;
+
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderStore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository: OrderStoreRepository
+ * Mô tả: Ghi/đồng bộ bảng liên kết order_stores
+ * (các truy vấn đọc theo cửa hàng nằm trong OrderRepository)
+ */
+@Repository
+public interface OrderStoreRepository extends JpaRepository<OrderStore, Long> {
+
+    /**
+     * Đồng bộ trạng thái cho tất cả cửa hàng của 1 đơn
+     * SQL: UPDATE order_stores SET status = ? WHERE order_id = ?
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OrderStore os SET os.status = :status WHERE os.order.id = :orderId")
+    int updateStatusByOrderId(@Param("orderId") Long orderId, @Param("status") OrderStatus status);
+
+    /**
+     * Đồng bộ trạng thái cho cả lô đơn
+     * SQL: UPDATE order_stores SET status = ? WHERE order_id IN (...)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OrderStore os SET os.status = :status WHERE os.order.id IN :orderIds")
+    int updateStatusByOrderIdIn(@Param("orderIds") Collection<Long> orderIds, @Param("status") OrderStatus status);
+
+    /**
+     * Các cửa hàng của 1 đơn
+     * SQL: SELECT store_id FROM order_stores WHERE order_id = ?
+     */
+    @Query("SELECT os.storeId FROM OrderStore os WHERE os.order.id = :orderId")
+    List<Long> findStoreIdsByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Đếm đơn theo (cửa hàng, trạng thái) cho nhiều cửa hàng trong 1 query (index store_id, status)
+     * @return Danh sách [storeId, status, count]
+     */
+    @Query("SELECT os.storeId, os.status, COUNT(os) FROM OrderStore os " +
+           "WHERE os.storeId IN :storeIds GROUP BY os.storeId, os.status")
+    List<Object[]> countByStoreIdInGroupByStatus(@Param("storeIds") Collection<Long> storeIds);
+}
@@ -0,0 +1,33 @@
+package com.grocery.server.order.repository;
+
+import com.grocery.server.order.entity.RevenueRollup;
+import com.grocery.server.order.entity.RevenueRollup.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository: RevenueRollupRepository
+ * Mô tả: Đọc số liệu doanh thu đã tổng hợp (ghi cộng dồn nằm trong RevenueRollupService)
+ */
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, Long> {
+
+    /**
+     * Lấy các kỳ từ ngày from trở đi của 1 cửa hàng (0 = toàn hệ thống)
+     */
+    List<RevenueRollup> findByGranularityAndStoreIdAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(
+            Granularity granularity, Long storeId, LocalDate from);
+
+    /**
+     * Tổng doanh thu và tổng số đơn từ trước đến nay (cộng các dòng theo tháng)
+     * @return [SUM(revenue), SUM(order_count)]
+     */
+    @Query("SELECT COALESCE(SUM(r.revenue), 0), COALESCE(SUM(r.orderCount), 0) FROM RevenueRollup r " +
+           "WHERE r.granularity = 'MONTH' AND r.storeId = :storeId")
+    List<Object[]> sumAllTime(@Param("storeId") Long storeId);
+}
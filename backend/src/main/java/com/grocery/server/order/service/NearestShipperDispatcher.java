@@ -0,0 +1,250 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.dto.OrderCreatedEvent;
+import com.grocery.server.messaging.dto.ShipperLocationEvent;
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service: NearestShipperDispatcher
+ * Mục đích: Gửi đơn mới cho các shipper gần nhất trước, thay vì broadcast cho tất cả
+ *
+ * Flow khi có đơn mới (order:created):
+ * 1. Điểm gốc = tọa độ cửa hàng (điểm lấy hàng), không có thì dùng tọa độ giao hàng
+ * 2. Vòng 1: K shipper gần nhất trong bán kính đầu tiên → /user/queue/orders/new
+ * 3. Hết app.dispatch.offer-timeout-ms mà chưa ai nhận → nới bán kính, gửi cho K shipper kế tiếp
+ *    (không gửi lại cho shipper đã được offer)
+ * 4. Hết các vòng (hoặc đơn không có tọa độ) → broadcast /topic/orders/new như trước
+ *
+ * Offer bị hủy khi đơn được nhận hoặc đổi trạng thái (RedisOrderEventListener gọi cancel)
+ *
+ * Vị trí shipper:
+ * - App gửi vị trí định kỳ → updateLocation: cập nhật ShipperLocationIndex local
+ *   và publish location:shipper:{id} để các instance khác đồng bộ
+ */
+@Service
+@Slf4j
+public class NearestShipperDispatcher {
+
+    private static final String USER_OFFER_DESTINATION = "/queue/orders/new";
+    private static final String BROADCAST_DESTINATION = "/topic/orders/new";
+
+    private final ShipperLocationIndex locationIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RedisMessagePublisher redisMessagePublisher;
+    private final int offerSize;
+    private final double[] ringRadiiKm;
+    private final long offerTimeoutMs;
+
+    private final Counter offersSent;
+    private final Counter broadcastFallbacks;
+
+    private final Map<Long, PendingOffer> activeOffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "shipper-dispatch-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public NearestShipperDispatcher(ShipperLocationIndex locationIndex,
+                                    SimpMessagingTemplate messagingTemplate,
+                                    RedisMessagePublisher redisMessagePublisher,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.dispatch.offer-size:5}") int offerSize,
+                                    @Value("${app.dispatch.ring-radii-km:2,5,10}") double[] ringRadiiKm,
+                                    @Value("${app.dispatch.offer-timeout-ms:20000}") long offerTimeoutMs) {
+        this.locationIndex = locationIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.offerSize = Math.max(1, offerSize);
+        this.ringRadiiKm = Arrays.stream(ringRadiiKm).sorted().toArray();
+        this.offerTimeoutMs = offerTimeoutMs;
+
+        this.offersSent = Counter.builder("dispatch.offers.sent")
+                .description("Số lượt offer đơn mới gửi riêng cho shipper gần")
+                .register(meterRegistry);
+        this.broadcastFallbacks = Counter.builder("dispatch.offers.broadcast")
+                .description("Số đơn phải broadcast cho tất cả shipper (không có tọa độ / hết vòng)")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        activeOffers.clear();
+    }
+
+    // ========== VỊ TRÍ SHIPPER ==========
+
+    /**
+     * Shipper gửi vị trí hiện tại
+     */
+    public void updateLocation(Long shipperId, String phoneNumber, double lat, double lng) {
+        long now = System.currentTimeMillis();
+        locationIndex.update(shipperId, phoneNumber, lat, lng, now);
+        redisMessagePublisher.publish("location:shipper:" + shipperId, ShipperLocationEvent.builder()
+                .timestamp(now)
+                .shipperId(shipperId)
+                .phoneNumber(phoneNumber)
+                .lat(lat)
+                .lng(lng)
+                .online(true)
+                .build());
+    }
+
+    /**
+     * Shipper tắt nhận đơn
+     */
+    public void goOffline(Long shipperId) {
+        locationIndex.remove(shipperId);
+        publishOffline(shipperId);
+    }
+
+    /**
+     * WebSocket disconnect: chỉ biết principal (số điện thoại)
+     */
+    public void goOfflineByPrincipal(String phoneNumber) {
+        Long shipperId = locationIndex.removeByPrincipal(phoneNumber);
+        if (shipperId != null) {
+            publishOffline(shipperId);
+        }
+    }
+
+    /**
+     * Áp dụng vị trí đồng bộ từ instance khác (Redis Pub/Sub)
+     */
+    public void applyLocationEvent(ShipperLocationEvent event) {
+        if (event.getShipperId() == null) {
+            return;
+        }
+        if (event.isOnline() && event.getLat() != null && event.getLng() != null) {
+            long timestamp = event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis();
+            locationIndex.update(event.getShipperId(), event.getPhoneNumber(), event.getLat(), event.getLng(), timestamp);
+        } else if (!event.isOnline()) {
+            locationIndex.remove(event.getShipperId());
+        }
+    }
+
+    private void publishOffline(Long shipperId) {
+        redisMessagePublisher.publish("location:shipper:" + shipperId, ShipperLocationEvent.builder()
+                .timestamp(System.currentTimeMillis())
+                .shipperId(shipperId)
+                .online(false)
+                .build());
+    }
+
+    // ========== OFFER ĐƠN MỚI ==========
+
+    /**
+     * Gửi đơn mới cho shipper gần nhất (vòng đầu tiên)
+     */
+    public void dispatch(OrderCreatedEvent event) {
+        Double lat = event.getPickupLat() != null ? event.getPickupLat() : event.getDeliveryLat();
+        Double lng = event.getPickupLat() != null ? event.getPickupLng() : event.getDeliveryLng();
+
+        if (lat == null || lng == null || ringRadiiKm.length == 0) {
+            broadcast(event);
+            return;
+        }
+
+        PendingOffer offer = new PendingOffer(event, lat, lng);
+        if (activeOffers.putIfAbsent(event.getOrderId(), offer) != null) {
+            // Event trùng (at-least-once) → đã đang offer
+            return;
+        }
+        offerNextRing(offer);
+    }
+
+    /**
+     * Dừng offer khi đơn đã có người nhận / đổi trạng thái
+     */
+    public void cancel(Long orderId) {
+        PendingOffer offer = activeOffers.remove(orderId);
+        if (offer != null) {
+            synchronized (offer) {
+                offer.cancelled = true;
+                if (offer.timeout != null) {
+                    offer.timeout.cancel(false);
+                }
+            }
+            log.debug("Stopped nearest-shipper offers for order {}", orderId);
+        }
+    }
+
+    private void offerNextRing(PendingOffer offer) {
+        synchronized (offer) {
+            if (offer.cancelled) {
+                return;
+            }
+
+            // Vòng không có shipper nào thì nới tiếp ngay, không chờ timeout
+            while (offer.ring < ringRadiiKm.length) {
+                double radiusKm = ringRadiiKm[offer.ring++];
+                List<ShipperLocationIndex.NearbyShipper> nearby =
+                        locationIndex.findNearest(offer.lat, offer.lng, radiusKm, offerSize, offer.offered);
+                if (nearby.isEmpty()) {
+                    continue;
+                }
+
+                for (ShipperLocationIndex.NearbyShipper shipper : nearby) {
+                    offer.offered.add(shipper.position().shipperId());
+                    if (shipper.position().principal() != null) {
+                        messagingTemplate.convertAndSendToUser(
+                                shipper.position().principal(), USER_OFFER_DESTINATION, offer.event);
+                    }
+                }
+                offersSent.increment(nearby.size());
+                log.info("Offered order {} to {} shippers within {} km", offer.event.getOrderId(), nearby.size(), radiusKm);
+
+                offer.timeout = timer.schedule(() -> offerNextRing(offer), offerTimeoutMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            // Hết vòng → broadcast như trước để đơn không bị bỏ quên
+            activeOffers.remove(offer.event.getOrderId(), offer);
+            offer.cancelled = true;
+            broadcast(offer.event);
+        }
+    }
+
+    private void broadcast(OrderCreatedEvent event) {
+        broadcastFallbacks.increment();
+        messagingTemplate.convertAndSend(BROADCAST_DESTINATION, event);
+    }
+
+    /**
+     * Trạng thái offer của 1 đơn - chỉ sửa trong synchronized (offer)
+     */
+    private static final class PendingOffer {
+        private final OrderCreatedEvent event;
+        private final double lat;
+        private final double lng;
+        private final Set<Long> offered = new HashSet<>();
+        private int ring;
+        private boolean cancelled;
+        private ScheduledFuture<?> timeout;
+
+        private PendingOffer(OrderCreatedEvent event, double lat, double lng) {
+            this.event = event;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+}
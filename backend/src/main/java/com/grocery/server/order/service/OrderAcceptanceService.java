@@ -1,7 +1,7 @@
 package com.grocery.server.order.service;
 
 import com.grocery.server.messaging.dto.OrderAcceptedEvent;
-import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.messaging.service.OrderOutboxService;
 import com.grocery.server.order.entity.Order;
 import com.grocery.server.order.repository.OrderRepository;
 import com.grocery.server.user.entity.User;
@@ -22,18 +22,16 @@ import java.time.LocalDateTime;
  * 
  * Flow:
  * 1. Shipper gửi request nhận đơn
- * 2. Try acquire distributed lock (Redis SET NX)
- * 3. Nếu lock thành công:
- *    - Double-check order status (còn PENDING không)
- *    - Cập nhật order với shipperId
- *    - Đổi status thành CONFIRMED
- *    - Publish event đến tất cả clients
- * 4. Nếu lock thất bại: Return 409 Conflict
+ * 2. Đọc order, kiểm tra còn PENDING và chưa có shipper
+ * 3. Compare-and-set (OrderTransitionService): gán shipper + CONFIRMED
+ *    WHERE status = PENDING AND version = ? AND shipper_id IS NULL
+ * 4. Thành công: publish event đến tất cả clients
+ * 5. 0 row: shipper khác đã nhận trước → rejected
  * 
  * Race Condition Handling:
  * - 2 shipper cùng accept 1 order cùng lúc
- * - Chỉ 1 ngườicó lock sẽ thành công
- * - Ngườicòn lại nhận 409 Conflict
+ * - Chỉ 1 UPDATE khớp điều kiện, không cần Redis lock (không tốn round-trip)
+ * - Ngườicòn lại nhận rejected (409 Conflict)
  */
 @Service
 @RequiredArgsConstructor
@@ -42,8 +40,8 @@ public class OrderAcceptanceService {
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final OrderLockService orderLockService;
-    private final RedisMessagePublisher messagePublisher;
+    private final OrderTransitionService orderTransitionService;
+    private final OrderOutboxService orderOutboxService;
 
     /**
      * Shipper nhận đơn hàng
@@ -59,49 +57,36 @@ public class OrderAcceptanceService {
         // Bước 1: Validate shipper tồn tại và có role SHIPPER
         User shipper = validateShipper(shipperId);
 
-        // Bước 2: Try acquire distributed lock
-        OrderLockService.LockToken lockToken = orderLockService.tryLock(orderId);
-        
-        if (lockToken == null) {
-            log.warn("Order {} is already being processed by another shipper", orderId);
-            return OrderAcceptanceResult.rejected("Order is being processed by another shipper");
-        }
-
-        try {
-            // Bước 3: Double-check order status (tránh race condition)
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new ResponseStatusException(
-                            HttpStatus.NOT_FOUND, "Order not found: " + orderId));
-
-            if (order.getStatus() != Order.OrderStatus.PENDING) {
-                log.warn("Order {} is no longer available. Current status: {}", 
-                        orderId, order.getStatus());
-                return OrderAcceptanceResult.rejected(
-                        "Order is no longer available. Status: " + order.getStatus());
-            }
-
-            // Bước 4: Validate shipper chưa nhận đơn nào khác (optional)
-            // TODO: Kiểm tra shipper có đang giao đơn nào không
+        // Bước 2: Đọc trạng thái hiện tại (status, version)
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Order not found: " + orderId));
 
-            // Bước 5: Cập nhật order
-            order.setShipper(shipper);
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            orderRepository.save(order);
+        if (order.getStatus() != Order.OrderStatus.PENDING || order.getShipper() != null) {
+            log.warn("Order {} is no longer available. Current status: {}", 
+                    orderId, order.getStatus());
+            return OrderAcceptanceResult.rejected(
+                    "Order is no longer available. Status: " + order.getStatus());
+        }
 
-            log.info("Order {} successfully accepted by shipper {}", orderId, shipperId);
+        // Bước 3: Compare-and-set - chỉ 1 shipper có UPDATE khớp (status, version, shipper IS NULL)
+        OrderTransitionResult transition = orderTransitionService.assignShipper(
+                order, shipper, Order.OrderStatus.CONFIRMED);
+        if (!transition.isApplied()) {
+            log.warn("Order {} was taken by another shipper (now {})", orderId, transition.currentStatus());
+            return OrderAcceptanceResult.rejected(
+                    "Order is no longer available. Status: " + transition.currentStatus());
+        }
 
-            // Bước 6: Publish event
-            publishOrderAcceptedEvent(order, shipper);
+        // UPDATE bulk đã detach entity → cập nhật bản trong bộ nhớ để trả về / publish
+        order.setShipper(shipper);
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        log.info("Order {} successfully accepted by shipper {}", orderId, shipperId);
 
-            return OrderAcceptanceResult.success(order, shipper);
+        // Bước 4: Publish event
+        publishOrderAcceptedEvent(order, shipper);
 
-        } catch (Exception e) {
-            log.error("Error accepting order {}: {}", orderId, e.getMessage());
-            throw e;
-        } finally {
-            // Bước 7: Release lock (luôn thực hiện)
-            orderLockService.unlock(lockToken);
-        }
+        return OrderAcceptanceResult.success(order, shipper);
     }
 
     /**
@@ -121,26 +106,23 @@ public class OrderAcceptanceService {
     }
 
     /**
-     * Publish OrderAcceptedEvent đến Redis Pub/Sub
+     * Ghi OrderAcceptedEvent vào outbox (publish Redis sau khi commit)
      */
     private void publishOrderAcceptedEvent(Order order, User shipper) {
         OrderAcceptedEvent event = OrderAcceptedEvent.builder()
                 .orderId(order.getId())
                 .customerId(order.getCustomer().getId())
-                .storeId(order.getStore().getId())
+                .storeId(order.getStore() != null ? order.getStore().getId() : null)
                 .shipperId(shipper.getId())
                 .shipperName(shipper.getFullName())
                 .shipperPhone(shipper.getPhoneNumber())
                 .acceptedAt(LocalDateTime.now())
                 .build();
 
-        // Publish đến Redis
-        messagePublisher.publishOrderEvent("accepted", order.getId(), event);
-        
-        // Cũng publish đến general channel
-        messagePublisher.publish("order:accepted:" + order.getId(), event);
+        // Ghi vào outbox cùng transaction, OrderOutboxRelay sẽ publish lên order:accepted:{id}
+        orderOutboxService.enqueue("accepted", order.getId(), event);
 
-        log.debug("Published OrderAcceptedEvent for order {}", order.getId());
+        log.debug("Enqueued OrderAcceptedEvent for order {}", order.getId());
     }
 
     /**
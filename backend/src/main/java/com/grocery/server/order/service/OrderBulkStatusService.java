@@ -0,0 +1,357 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.dto.OrderStatusChangedEvent;
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.notification.document.Notification;
+import com.grocery.server.notification.service.NotificationService;
+import com.grocery.server.order.dto.request.BulkUpdateOrderStatusItemRequest;
+import com.grocery.server.order.dto.request.BulkUpdateOrderStatusRequest;
+import com.grocery.server.order.dto.request.UpdateOrderStatusRequest;
+import com.grocery.server.order.dto.response.BulkOrderStatusResponse;
+import com.grocery.server.order.dto.response.BulkOrderStatusResponse.ItemResult;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.UnauthorizedException;
+import com.grocery.server.shared.jdbc.ConditionalBatchUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service: OrderBulkStatusService
+ * Mục đích: Cập nhật trạng thái nhiều đơn trong 1 request (chủ cửa hàng xác nhận loạt đơn đầu ca, admin xử lý hàng loạt)
+ *
+ * Số câu lệnh không phụ thuộc số đơn:
+ * 1. Load toàn bộ đơn (JOIN FETCH items → store) + order_participants: 2 query IN
+ * 2. Validate từng dòng bằng OrderStateMachine (lỗi của 1 dòng không ảnh hưởng dòng khác)
+ * 3. Compare-and-set (status, version) cho cả lô trong 1 JDBC batch, cùng 1 batch cho order_stores
+ * 4. Event "status" ghi outbox bằng INSERT nhiều dòng
+ * 5. Thông báo gộp: mỗi người nhận 1 thông báo cho tất cả đơn của họ trong lô
+ *
+ * Kết quả trả về theo đúng thứ tự các dòng trong request
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBulkStatusService {
+
+    private static final String CAS_STATUS_SQL =
+            "UPDATE orders SET status = ?, version = version + 1, " +
+            "cancel_reason = COALESCE(?, cancel_reason), pod_image_url = COALESCE(?, pod_image_url) " +
+            "WHERE id = ? AND status = ? AND version = ?";
+
+    private static final String ORDER_STORES_STATUS_SQL =
+            "UPDATE order_stores SET status = ? WHERE order_id = ?";
+
+    private static final String CURRENT_STATUS_SQL =
+            "SELECT id, status FROM orders WHERE id IN (:orderIds)";
+
+    private final OrderRepository orderRepository;
+    private final OrderParticipantRepository orderParticipantRepository;
+    private final OrderStateMachine orderStateMachine;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderOutboxService orderOutboxService;
+    private final NotificationService notificationService;
+    private final StoreOrderCounterService storeOrderCounterService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Dòng đã qua validate, chờ ghi
+     */
+    private record Planned(int index, Order order, OrderStateMachine.Transition transition,
+                           BulkUpdateOrderStatusItemRequest item) {
+    }
+
+    /**
+     * Cập nhật trạng thái hàng loạt
+     *
+     * @param userId ID người thực hiện
+     * @param admin  true nếu người thực hiện là ADMIN
+     */
+    @Transactional
+    public BulkOrderStatusResponse updateStatuses(BulkUpdateOrderStatusRequest request, Long userId, boolean admin) {
+        List<BulkUpdateOrderStatusItemRequest> items = request.getItems();
+        Set<Long> orderIds = items.stream()
+                .map(BulkUpdateOrderStatusItemRequest::getOrderId)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        // 1. Load theo lô
+        Map<Long, Order> orders = orderRepository.findAllByIdWithFullDetails(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        Map<Long, List<OrderParticipant>> participantRows = orderParticipantRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(p -> p.getOrder().getId()));
+
+        // 2. Validate từng dòng
+        ItemResult[] results = new ItemResult[items.size()];
+        List<Planned> planned = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkUpdateOrderStatusItemRequest item = items.get(i);
+            Order order = orders.get(item.getOrderId());
+            if (!seen.add(item.getOrderId())) {
+                results[i] = failure(item.getOrderId(), order, "Đơn hàng bị lặp lại trong yêu cầu");
+                continue;
+            }
+            if (order == null) {
+                results[i] = failure(item.getOrderId(), null, "Không tìm thấy đơn hàng");
+                continue;
+            }
+            if (item.getNewStatus() == OrderStatus.PICKING_UP) {
+                // Cần gán shipper → chỉ qua API nhận đơn
+                results[i] = failure(item.getOrderId(), order, "Không thể chuyển sang PICKING_UP bằng cập nhật hàng loạt");
+                continue;
+            }
+
+            UpdateOrderStatusRequest single = item.toUpdateRequest();
+            try {
+                OrderParticipants participants = OrderParticipants.of(
+                        participantRows.getOrDefault(order.getId(), List.of()));
+                OrderStateMachine.Transition transition = orderStateMachine.resolve(
+                        order.getStatus(), item.getNewStatus(), userId, admin, participants, single);
+                planned.add(new Planned(i, order, transition, item));
+            } catch (BadRequestException | UnauthorizedException e) {
+                results[i] = failure(item.getOrderId(), order, e.getMessage());
+            }
+        }
+
+        // 3. Compare-and-set cả lô
+        List<Planned> applied = applyTransitions(planned, results);
+
+        // 4. Side effect, event, thông báo cho các đơn đã cập nhật
+        if (!applied.isEmpty()) {
+            applySideEffects(applied);
+            publishEvents(applied);
+            sendNotifications(applied, userId);
+        }
+
+        int succeeded = applied.size();
+        log.info("Bulk status update by user {}: {}/{} orders updated", userId, succeeded, items.size());
+        return BulkOrderStatusResponse.builder()
+                .requested(items.size())
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .results(List.of(results))
+                .build();
+    }
+
+    private List<Planned> applyTransitions(List<Planned> planned, ItemResult[] results) {
+        if (planned.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object[]> casArgs = new ArrayList<>(planned.size());
+        for (Planned p : planned) {
+            casArgs.add(new Object[]{
+                    p.item().getNewStatus().name(), p.item().getCancelReason(), p.item().getPodImageUrl(),
+                    p.order().getId(), p.order().getStatus().name(), p.order().getVersion()});
+        }
+        // Driver có thể trả SUCCESS_NO_INFO (-2) cho cả lô → ConditionalBatchUpdate chạy lại từng câu để lấy số dòng thật
+        int[] updated = ConditionalBatchUpdate.execute(jdbcTemplate, CAS_STATUS_SQL, casArgs);
+
+        List<Planned> applied = new ArrayList<>();
+        List<Planned> conflicts = new ArrayList<>();
+        for (int i = 0; i < planned.size(); i++) {
+            (updated[i] > 0 ? applied : conflicts).add(planned.get(i));
+        }
+
+        if (!applied.isEmpty()) {
+            jdbcTemplate.batchUpdate(ORDER_STORES_STATUS_SQL, applied.stream()
+                    .map(p -> new Object[]{p.item().getNewStatus().name(), p.order().getId()})
+                    .toList());
+        }
+        for (Planned p : applied) {
+            storeOrderCounterService.recordTransition(storeIds(p.order()), p.order().getStatus(), p.item().getNewStatus());
+            results[p.index()] = ItemResult.builder()
+                    .orderId(p.order().getId())
+                    .success(true)
+                    .previousStatus(p.order().getStatus())
+                    .currentStatus(p.item().getNewStatus())
+                    .build();
+        }
+
+        // Bị request khác cập nhật trước → báo trạng thái hiện tại (1 query cho cả lô)
+        if (!conflicts.isEmpty()) {
+            Map<Long, OrderStatus> current = loadCurrentStatuses(conflicts.stream().map(p -> p.order().getId()).toList());
+            for (Planned p : conflicts) {
+                OrderTransitionResult conflict = OrderTransitionResult.conflict(
+                        p.order().getId(), p.order().getStatus(), p.item().getNewStatus(), current.get(p.order().getId()));
+                results[p.index()] = ItemResult.builder()
+                        .orderId(p.order().getId())
+                        .success(false)
+                        .previousStatus(p.order().getStatus())
+                        .currentStatus(conflict.currentStatus())
+                        .message(conflict.conflictMessage())
+                        .build();
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * CANCELLED: cộng cancelled_count theo lô; transition khác chạy side effect của state machine
+     */
+    private void applySideEffects(List<Planned> applied) {
+        Map<Long, LocalDateTime> cancelledCreatedAt = new LinkedHashMap<>();
+        Map<Long, Set<Long>> cancelledStores = new HashMap<>();
+        for (Planned p : applied) {
+            if (p.item().getNewStatus() == OrderStatus.CANCELLED) {
+                cancelledCreatedAt.put(p.order().getId(), p.order().getCreatedAt());
+                cancelledStores.put(p.order().getId(), storeIds(p.order()));
+            } else {
+                orderStateMachine.applySideEffects(p.transition(), p.order());
+            }
+        }
+        if (!cancelledCreatedAt.isEmpty()) {
+            revenueRollupService.recordCancelled(cancelledCreatedAt, cancelledStores);
+        }
+    }
+
+    private void publishEvents(List<Planned> applied) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, OrderStatusChangedEvent> events = new LinkedHashMap<>();
+        for (Planned p : applied) {
+            Order order = p.order();
+            OrderStatus newStatus = p.item().getNewStatus();
+            events.put(order.getId(), OrderStatusChangedEvent.builder()
+                    .eventType("ORDER_STATUS_CHANGED")
+                    .timestamp(System.currentTimeMillis())
+                    .orderId(order.getId())
+                    .customerId(order.getCustomer().getId())
+                    .storeId(order.getStore() != null ? order.getStore().getId() : null)
+                    .shipperId(order.getShipper() != null ? order.getShipper().getId() : null)
+                    .oldStatus(order.getStatus())
+                    .newStatus(newStatus)
+                    .statusDescription(newStatus.name())
+                    .changedAt(now)
+                    .reason(p.item().getCancelReason())
+                    .build());
+        }
+        orderOutboxService.enqueueAll("status", events);
+    }
+
+    /**
+     * Gộp thông báo theo người nhận: khách hàng (mọi trạng thái), chủ cửa hàng (DELIVERED / CANCELLED)
+     * Người thực hiện không nhận thông báo về thao tác của chính mình
+     */
+    private void sendNotifications(List<Planned> applied, Long actorId) {
+        Map<Long, List<Planned>> byRecipient = new TreeMap<>();
+        for (Planned p : applied) {
+            OrderStatus newStatus = p.item().getNewStatus();
+            Set<Long> recipients = new HashSet<>();
+            recipients.add(p.order().getCustomer().getId());
+            if (newStatus == OrderStatus.DELIVERED || newStatus == OrderStatus.CANCELLED) {
+                p.order().getOrderItems().stream()
+                        .map(oi -> oi.getProductUnitMapping().getProduct().getStore().getOwner())
+                        .filter(java.util.Objects::nonNull)
+                        .forEach(owner -> recipients.add(owner.getId()));
+            }
+            recipients.remove(actorId);
+            recipients.forEach(id -> byRecipient.computeIfAbsent(id, r -> new ArrayList<>()).add(p));
+        }
+
+        byRecipient.forEach((recipientId, changes) -> {
+            Planned first = changes.get(0);
+            if (changes.size() == 1) {
+                OrderStatus status = first.item().getNewStatus();
+                Long orderId = first.order().getId();
+                notificationService.enqueue(recipientId, notificationType(status),
+                        "Đơn hàng #" + orderId + " " + statusLabel(status),
+                        first.item().getCancelReason() != null
+                                ? "Lý do: " + first.item().getCancelReason()
+                                : "Trạng thái mới: " + status.name(),
+                        orderId, "ORDER");
+                return;
+            }
+
+            Map<OrderStatus, List<Long>> byStatus = new EnumMap<>(OrderStatus.class);
+            changes.forEach(p -> byStatus.computeIfAbsent(p.item().getNewStatus(), s -> new ArrayList<>())
+                    .add(p.order().getId()));
+            OrderStatus dominant = byStatus.entrySet().stream()
+                    .max(Map.Entry.comparingByValue((a, b) -> Integer.compare(a.size(), b.size())))
+                    .map(Map.Entry::getKey)
+                    .orElse(first.item().getNewStatus());
+            String body = byStatus.entrySet().stream()
+                    .map(e -> e.getValue().stream().map(id -> "#" + id).collect(Collectors.joining(", "))
+                            + " " + statusLabel(e.getKey()))
+                    .collect(Collectors.joining("; "));
+
+            notificationService.enqueue(recipientId, notificationType(dominant),
+                    changes.size() + " đơn hàng đã được cập nhật",
+                    body, first.order().getId(), "ORDER");
+        });
+    }
+
+    private Map<Long, OrderStatus> loadCurrentStatuses(Collection<Long> orderIds) {
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        namedJdbcTemplate.query(CURRENT_STATUS_SQL, new MapSqlParameterSource("orderIds", orderIds), rs -> {
+            statuses.put(rs.getLong("id"), OrderStatus.valueOf(rs.getString("status")));
+        });
+        return statuses;
+    }
+
+    private static Set<Long> storeIds(Order order) {
+        Set<Long> storeIds = new TreeSet<>();
+        for (OrderItem item : order.getOrderItems()) {
+            storeIds.add(item.getProductUnitMapping().getProduct().getStore().getId());
+        }
+        return storeIds;
+    }
+
+    private static ItemResult failure(Long orderId, Order order, String message) {
+        OrderStatus status = order != null ? order.getStatus() : null;
+        return ItemResult.builder()
+                .orderId(orderId)
+                .success(false)
+                .previousStatus(status)
+                .currentStatus(status)
+                .message(message)
+                .build();
+    }
+
+    private static String notificationType(OrderStatus status) {
+        return switch (status) {
+            case CONFIRMED -> Notification.ORDER_CONFIRMED;
+            case PICKING_UP -> Notification.ORDER_PICKING_UP;
+            case DELIVERING -> Notification.ORDER_DELIVERING;
+            case DELIVERED -> Notification.ORDER_DELIVERED;
+            case CANCELLED -> Notification.ORDER_CANCELLED;
+            default -> Notification.ORDER_CREATED;
+        };
+    }
+
+    private static String statusLabel(OrderStatus status) {
+        return switch (status) {
+            case CONFIRMED -> "đã được xác nhận";
+            case PICKING_UP -> "đang được lấy hàng";
+            case DELIVERING -> "đang được giao";
+            case DELIVERED -> "đã giao thành công";
+            case CANCELLED -> "đã bị hủy";
+            default -> "đã được cập nhật";
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package com.grocery.server.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.order.dto.response.OrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Component: OrderDetailCache
+ * Mục đích: Cache OrderResponse của GET /orders/{id} (tránh JOIN FETCH 6 bảng mỗi lần app refresh màn hình theo dõi đơn)
+ *
+ * Key: orderId, entry giữ kèm version của đơn:
+ * - put chỉ ghi đè khi version mới >= version đang cache (reader chậm không ghi đè bản mới hơn)
+ * - Load bắt đầu trước 1 lần invalidate thì bỏ kết quả (có thể là snapshot cũ)
+ *
+ * Invalidate:
+ * - Cùng node: sau khi transaction ghi outbox commit (OrderOutboxService gọi evictAfterCommit)
+ * - Node khác: event order:status / order:accepted / order:paid qua Redis (RedisOrderEventListener)
+ * - Thay đổi không đi qua outbox (payment PENDING/FAILED, ảnh POD): publish order:invalidate:{id}
+ * - TTL app.order.detail-cache.ttl-seconds làm chặn trên cho dữ liệu phụ (tên khách, cửa hàng...)
+ *
+ * Metrics: cache.gets/cache.puts... (name=orderDetails), order.detail-cache.entry.age (độ cũ khi trả từ cache),
+ * order.detail-cache.stale.rejected (kết quả load bị bỏ do đã có invalidate)
+ */
+@Component
+public class OrderDetailCache {
+
+    private static final String INVALIDATE_CHANNEL = "order:invalidate:";
+
+    private record CachedOrder(long version, OrderResponse response, long cachedAtMillis) {
+    }
+
+    private final RedisMessagePublisher redisMessagePublisher;
+    private final Cache<Long, CachedOrder> cache;
+    /** orderId → thời điểm (nanoTime) invalidate gần nhất */
+    private final Cache<Long, Long> invalidations;
+
+    private final DistributionSummary entryAge;
+    private final Counter staleRejected;
+
+    public OrderDetailCache(RedisMessagePublisher redisMessagePublisher,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.order.detail-cache.max-size:10000}") long maxSize,
+                            @Value("${app.order.detail-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        // Chỉ cần nhớ lâu hơn thời gian 1 lần load
+        this.invalidations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orderDetails");
+        this.entryAge = DistributionSummary.builder("order.detail-cache.entry.age")
+                .description("Tuổi (ms) của OrderResponse khi trả từ cache")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.staleRejected = Counter.builder("order.detail-cache.stale.rejected")
+                .description("Số kết quả load bị bỏ vì đơn vừa bị invalidate trong lúc load")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return OrderResponse đã cache, null nếu miss
+     */
+    public OrderResponse get(Long orderId) {
+        CachedOrder cached = cache.getIfPresent(orderId);
+        if (cached == null) {
+            return null;
+        }
+        entryAge.record(System.currentTimeMillis() - cached.cachedAtMillis());
+        return cached.response();
+    }
+
+    /**
+     * Mốc bắt đầu load (truyền lại cho put)
+     */
+    public long beginLoad() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Lưu kết quả load nếu không có invalidate nào xảy ra sau loadStartedAt
+     */
+    public void put(Long orderId, OrderResponse response, long loadStartedAt) {
+        Long invalidatedAt = invalidations.getIfPresent(orderId);
+        if (invalidatedAt != null && invalidatedAt - loadStartedAt >= 0) {
+            staleRejected.increment();
+            return;
+        }
+        long version = response.getVersion() != null ? response.getVersion() : 0L;
+        CachedOrder fresh = new CachedOrder(version, response, System.currentTimeMillis());
+        cache.asMap().merge(orderId, fresh, (current, candidate) ->
+                current.version() > candidate.version() ? current : candidate);
+    }
+
+    /**
+     * Gỡ entry ngay (event từ Redis)
+     */
+    public void evict(Long orderId) {
+        invalidations.put(orderId, System.nanoTime());
+        cache.invalidate(orderId);
+    }
+
+    /**
+     * Gỡ entry sau khi transaction hiện tại commit (trước commit thì reader vẫn đọc được bản cũ)
+     */
+    public void evictAfterCommit(Collection<Long> orderIds) {
+        runAfterCommit(() -> orderIds.forEach(this::evict));
+    }
+
+    public void evictAfterCommit(Long orderId) {
+        evictAfterCommit(List.of(orderId));
+    }
+
+    /**
+     * Thay đổi không có event outbox: gỡ local sau commit và báo các node khác qua Redis
+     */
+    public void invalidateAfterCommit(Long orderId) {
+        runAfterCommit(() -> {
+            evict(orderId);
+            redisMessagePublisher.publish(INVALIDATE_CHANNEL + orderId, Map.of("orderId", orderId));
+        });
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
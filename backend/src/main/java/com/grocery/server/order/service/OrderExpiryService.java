@@ -0,0 +1,396 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.dto.OrderStatusChangedEvent;
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.notification.document.Notification;
+import com.grocery.server.notification.service.NotificationService;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service: OrderExpiryService
+ * Mục đích: Tự động hủy đơn PENDING quá hạn xác nhận và hoàn kho, không cần cron quét cả bảng orders
+ *
+ * Timing wheel (hashed wheel trong bộ nhớ):
+ * - Vòng gồm wheel-size ô, mỗi ô ứng với 1 tick (app.order.expiry.tick-ms)
+ * - Đơn mới → deadline = createdAt + ttl, đặt vào ô (deadlineTick mod wheel-size) sau khi transaction commit
+ * - Mỗi tick chỉ duyệt ô hiện tại: entry đến hạn được gom lại, entry của vòng sau giữ nguyên
+ * - Khởi động: dựng lại wheel từ các đơn PENDING (index idx_orders_status_created)
+ * - Đơn đã được xác nhận / hủy / thanh toán không cần gỡ khỏi wheel: lúc đến hạn, câu SELECT ... FOR UPDATE
+ *   chỉ trả lại đơn vẫn còn PENDING và payment_status <> SUCCESS
+ * - Đơn đã thanh toán online (MoMo/VNPay) không bao giờ tự hủy: cửa hàng vẫn phải xác nhận / hủy (và hoàn tiền)
+ *
+ * Hủy theo lô (tối đa app.order.expiry.batch-size đơn / transaction):
+ * 1. Khóa các đơn còn PENDING, chưa thanh toán và đã quá hạn
+ * 2. 1 UPDATE orders + 1 UPDATE order_stores cho cả lô
+ * 3. Gộp số lượng order_items theo biến thể → hoàn kho bằng 1 JDBC batch
+ * 4. revenue_rollups: cancelled_count theo ngày tạo đơn, 1 batch / ngày
+ * 5. Event "status" cho từng đơn ghi vào outbox bằng INSERT nhiều dòng
+ * 6. Thông báo: mỗi khách 1 thông báo / đơn, mỗi chủ cửa hàng 1 thông báo gộp / lô
+ *
+ * Quét bù (app.order.expiry.sweep-interval-ms): range scan trên index (status, created_at)
+ * cho đơn tạo ở instance khác mà instance đó đã dừng trước khi kịp hủy
+ */
+@Service
+@Slf4j
+public class OrderExpiryService {
+
+    static final String EXPIRED_REASON = "Đơn hàng quá hạn xác nhận, hệ thống tự động hủy";
+
+    private static final String ITEM_QUANTITIES_SQL =
+            "SELECT product_unit_mapping_id, SUM(quantity) AS quantity FROM order_items " +
+            "WHERE order_id IN (:orderIds) GROUP BY product_unit_mapping_id";
+
+    private static final String ORDER_STORES_SQL =
+            "SELECT order_id, store_id FROM order_stores WHERE order_id IN (:orderIds)";
+
+    private final OrderRepository orderRepository;
+    private final OrderStoreRepository orderStoreRepository;
+    private final OrderParticipantRepository orderParticipantRepository;
+    private final StockReservationService stockReservationService;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderOutboxService orderOutboxService;
+    private final NotificationService notificationService;
+    private final StoreOrderCounterService storeOrderCounterService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final int batchSize;
+    private final int mask;
+
+    private final ConcurrentLinkedQueue<Entry>[] wheel;
+    /** orderId → deadline (ms) đang có trong wheel, tránh đặt trùng */
+    private final Map<Long, Long> scheduled = new ConcurrentHashMap<>();
+    private final Counter expiredCounter;
+
+    /** Tick cuối cùng đã xử lý - chỉ đọc/ghi trên thread của wheel */
+    private long lastTick;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-expiry-wheel");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @SuppressWarnings("unchecked")
+    public OrderExpiryService(OrderRepository orderRepository,
+                              OrderStoreRepository orderStoreRepository,
+                              OrderParticipantRepository orderParticipantRepository,
+                              StockReservationService stockReservationService,
+                              RevenueRollupService revenueRollupService,
+                              OrderOutboxService orderOutboxService,
+                              NotificationService notificationService,
+                              StoreOrderCounterService storeOrderCounterService,
+                              NamedParameterJdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.order.expiry.ttl-minutes:15}") long ttlMinutes,
+                              @Value("${app.order.expiry.tick-ms:1000}") long tickMillis,
+                              @Value("${app.order.expiry.wheel-size:512}") int wheelSize,
+                              @Value("${app.order.expiry.batch-size:200}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.orderStoreRepository = orderStoreRepository;
+        this.orderParticipantRepository = orderParticipantRepository;
+        this.stockReservationService = stockReservationService;
+        this.revenueRollupService = revenueRollupService;
+        this.orderOutboxService = orderOutboxService;
+        this.notificationService = notificationService;
+        this.storeOrderCounterService = storeOrderCounterService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.tickMillis = Math.max(10, tickMillis);
+        this.batchSize = Math.max(1, batchSize);
+
+        // Số ô làm tròn lên lũy thừa của 2 → lấy ô bằng phép AND
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.mask = size - 1;
+        this.wheel = new ConcurrentLinkedQueue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = System.currentTimeMillis() / this.tickMillis;
+
+        this.expiredCounter = Counter.builder("order.expiry.cancelled")
+                .description("Số đơn PENDING bị hủy tự động do quá hạn xác nhận")
+                .register(meterRegistry);
+        Gauge.builder("order.expiry.scheduled", scheduled, Map::size)
+                .description("Số đơn PENDING đang chờ hết hạn trong timing wheel")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Dựng lại wheel từ database rồi bắt đầu chạy tick
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<Object[]> pending = orderRepository.findPendingDeadlines();
+        for (Object[] row : pending) {
+            schedule((Long) row[0], (LocalDateTime) row[1]);
+        }
+        log.info("Order expiry wheel rebuilt with {} pending orders", pending.size());
+        ticker.scheduleAtFixedRate(this::safeTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Đặt lịch hết hạn cho đơn sau khi transaction tạo đơn commit
+     * (rollback thì đơn không tồn tại, không cần đặt lịch)
+     */
+    public void scheduleAfterCommit(Long orderId, LocalDateTime createdAt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(orderId, createdAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(orderId, createdAt);
+            }
+        });
+    }
+
+    /**
+     * Hạn xác nhận của đơn (createdAt + ttl) - nguồn duy nhất cho deadline hiển thị cho client
+     */
+    public LocalDateTime deadlineFor(LocalDateTime createdAt) {
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        return created.plusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+    }
+
+    /**
+     * Đặt đơn vào ô ứng với deadline = createdAt + ttl
+     */
+    public void schedule(Long orderId, LocalDateTime createdAt) {
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        long deadline = created.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + ttlMillis;
+        if (scheduled.putIfAbsent(orderId, deadline) != null) {
+            return;
+        }
+        // Đã quá hạn (vd: lúc dựng lại sau khi restart) → xử lý ở tick kế tiếp
+        long tick = Math.max(deadline / tickMillis, System.currentTimeMillis() / tickMillis + 1);
+        wheel[(int) (tick & mask)].offer(new Entry(orderId, deadline));
+    }
+
+    /**
+     * Quét bù trên index: đơn quá hạn nhưng không có trong wheel của instance nào còn sống
+     */
+    @Scheduled(fixedDelayString = "${app.order.expiry.sweep-interval-ms:300000}",
+               initialDelayString = "${app.order.expiry.sweep-interval-ms:300000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        int total = 0;
+        List<Long> ids;
+        do {
+            ids = orderRepository.findPendingIdsCreatedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int expired = expireBatch(ids);
+            total += expired;
+            if (expired == 0) {
+                // Cả trang bị khóa / đổi trạng thái bởi giao dịch khác → để lần quét sau
+                break;
+            }
+        } while (ids.size() == batchSize);
+
+        if (total > 0) {
+            log.info("Expiry sweep cancelled {} stale PENDING orders", total);
+        }
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (Exception e) {
+            log.error("Order expiry tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Xử lý các ô từ lastTick + 1 tới tick hiện tại (bù khi thread bị trễ)
+     */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+        if (currentTick <= lastTick) {
+            return;
+        }
+        // Trễ hơn 1 vòng thì mỗi ô chỉ cần duyệt 1 lần
+        long from = Math.max(lastTick + 1, currentTick - mask);
+        List<Long> due = new ArrayList<>();
+        for (long t = from; t <= currentTick; t++) {
+            Iterator<Entry> it = wheel[(int) (t & mask)].iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.deadline() <= now) {
+                    it.remove();
+                    scheduled.remove(entry.orderId(), entry.deadline());
+                    due.add(entry.orderId());
+                }
+            }
+        }
+        lastTick = currentTick;
+
+        for (int i = 0; i < due.size(); i += batchSize) {
+            expireBatch(due.subList(i, Math.min(due.size(), i + batchSize)));
+        }
+    }
+
+    /**
+     * Hủy 1 lô đơn trong 1 transaction
+     *
+     * @return Số đơn thực sự bị hủy (đơn đã đổi trạng thái được bỏ qua)
+     */
+    int expireBatch(List<Long> orderIds) {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        Integer expired = transactionTemplate.execute(status -> {
+            List<Order> orders = orderRepository.lockExpirablePending(orderIds, cutoff);
+            if (orders.isEmpty()) {
+                return 0;
+            }
+
+            // Chụp dữ liệu cần cho event trước khi UPDATE (clearAutomatically detach entity)
+            Map<Long, LocalDateTime> createdAt = new LinkedHashMap<>();
+            Map<Long, OrderStatusChangedEvent> events = new LinkedHashMap<>();
+            LocalDateTime now = LocalDateTime.now();
+            for (Order order : orders) {
+                createdAt.put(order.getId(), order.getCreatedAt());
+                events.put(order.getId(), OrderStatusChangedEvent.builder()
+                        .eventType("ORDER_STATUS_CHANGED")
+                        .timestamp(System.currentTimeMillis())
+                        .orderId(order.getId())
+                        .customerId(order.getCustomer().getId())
+                        .storeId(order.getStore() != null ? order.getStore().getId() : null)
+                        .oldStatus(OrderStatus.PENDING)
+                        .newStatus(OrderStatus.CANCELLED)
+                        .statusDescription(OrderStatus.CANCELLED.name())
+                        .changedAt(now)
+                        .reason(EXPIRED_REASON)
+                        .build());
+            }
+            Set<Long> ids = createdAt.keySet();
+
+            orderRepository.cancelPendingIn(ids, EXPIRED_REASON);
+            orderStoreRepository.updateStatusByOrderIdIn(ids, OrderStatus.CANCELLED);
+            stockReservationService.restoreStock(loadItemQuantities(ids));
+            Map<Long, List<Long>> orderStores = loadOrderStores(ids);
+            revenueRollupService.recordCancelled(createdAt, orderStores);
+            orderStores.values().forEach(storeIds ->
+                    storeOrderCounterService.recordTransition(storeIds, OrderStatus.PENDING, OrderStatus.CANCELLED));
+            orderOutboxService.enqueueAll("status", events);
+            notifyParticipants(ids);
+            return ids.size();
+        });
+
+        int count = expired != null ? expired : 0;
+        if (count > 0) {
+            expiredCounter.increment(count);
+            log.info("Expired {} PENDING orders (batch of {})", count, orderIds.size());
+        }
+        return count;
+    }
+
+    private Map<Long, Integer> loadItemQuantities(Collection<Long> orderIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(ITEM_QUANTITIES_SQL, new MapSqlParameterSource("orderIds", orderIds), rs -> {
+            quantities.put(rs.getLong("product_unit_mapping_id"), rs.getBigDecimal("quantity").intValue());
+        });
+        return quantities;
+    }
+
+    private Map<Long, List<Long>> loadOrderStores(Collection<Long> orderIds) {
+        Map<Long, List<Long>> storeIds = new HashMap<>();
+        jdbcTemplate.query(ORDER_STORES_SQL, new MapSqlParameterSource("orderIds", orderIds), rs -> {
+            storeIds.computeIfAbsent(rs.getLong("order_id"), id -> new ArrayList<>()).add(rs.getLong("store_id"));
+        });
+        return storeIds;
+    }
+
+    /**
+     * Khách: 1 thông báo / đơn; chủ cửa hàng: 1 thông báo gộp cho các đơn của mình trong lô
+     */
+    private void notifyParticipants(Collection<Long> orderIds) {
+        Map<Long, Set<Long>> ownerOrders = new TreeMap<>();
+        for (OrderParticipant participant : orderParticipantRepository.findByOrderIdIn(orderIds)) {
+            Long orderId = participant.getOrder().getId();
+            switch (participant.getRole()) {
+                case CUSTOMER -> notificationService.enqueue(
+                        participant.getUserId(), Notification.ORDER_CANCELLED,
+                        "Đơn hàng #" + orderId + " đã bị hủy",
+                        "Lý do: " + EXPIRED_REASON,
+                        orderId, "ORDER");
+                case STORE_OWNER -> ownerOrders
+                        .computeIfAbsent(participant.getUserId(), id -> new TreeSet<>())
+                        .add(orderId);
+                default -> {
+                }
+            }
+        }
+
+        ownerOrders.forEach((ownerId, ids) -> {
+            Long firstId = ids.iterator().next();
+            if (ids.size() == 1) {
+                notificationService.enqueue(
+                        ownerId, Notification.ORDER_CANCELLED,
+                        "Đơn hàng #" + firstId + " bị hủy",
+                        "Lý do: " + EXPIRED_REASON,
+                        firstId, "ORDER");
+            } else {
+                notificationService.enqueue(
+                        ownerId, Notification.ORDER_CANCELLED,
+                        ids.size() + " đơn hàng bị hủy do quá hạn xác nhận",
+                        "Các đơn: " + String.join(", ", ids.stream().map(id -> "#" + id).toList()),
+                        firstId, "ORDER");
+            }
+        });
+    }
+
+    private record Entry(Long orderId, long deadline) {
+    }
+}
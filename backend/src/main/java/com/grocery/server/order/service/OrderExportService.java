@@ -0,0 +1,358 @@
+package com.grocery.server.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service: OrderExportService
+ * Mục đích: Xuất toàn bộ đơn hàng (admin/kế toán) với bộ nhớ không đổi
+ *
+ * - 1 câu SQL phẳng (đơn × dòng hàng), JOIN sẵn khách hàng, shipper, sản phẩm, cửa hàng
+ *   → không có lazy load, không có entity trong persistence context
+ * - Đọc bằng streaming result set (fetch size Integer.MIN_VALUE với MySQL Connector/J:
+ *   driver trả từng dòng thay vì nạp cả kết quả vào heap)
+ * - Ghi thẳng ra response:
+ *   + NDJSON: 1 dòng JSON / đơn hàng, kèm mảng items (gom các dòng liên tiếp cùng order_id)
+ *   + CSV (gzip): 1 dòng / sản phẩm trong đơn, cột đơn hàng lặp lại
+ * - Flush mỗi flushEvery đơn để client nhận dữ liệu dần
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+
+    private static final String EXPORT_SQL =
+            "SELECT o.id, o.created_at, o.status, o.payment_status, o.total_amount, o.shipping_fee, " +
+            "o.delivery_address, o.cancel_reason, " +
+            "c.id AS customer_id, c.full_name AS customer_name, c.phone_number AS customer_phone, " +
+            "sh.id AS shipper_id, sh.full_name AS shipper_name, " +
+            "(SELECT pay.payment_method FROM payments pay WHERE pay.order_id = o.id ORDER BY pay.id LIMIT 1) AS payment_method, " +
+            "oi.id AS item_id, oi.quantity, oi.unit_price, " +
+            "p.id AS product_id, p.name AS product_name, " +
+            "COALESCE(NULLIF(pum.unit_label, ''), u.name) AS unit_name, " +
+            "s.id AS store_id, s.store_name " +
+            "FROM orders o " +
+            "JOIN users c ON c.id = o.customer_id " +
+            "LEFT JOIN users sh ON sh.id = o.shipper_id " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+            "LEFT JOIN product_unit_mappings pum ON pum.id = oi.product_unit_mapping_id " +
+            "LEFT JOIN units u ON u.id = pum.unit_id " +
+            "LEFT JOIN products p ON p.id = pum.product_id " +
+            "LEFT JOIN stores s ON s.id = p.store_id ";
+
+    private static final String[] CSV_HEADER = {
+            "order_id", "created_at", "status", "payment_status", "payment_method",
+            "total_amount", "shipping_fee", "delivery_address", "cancel_reason",
+            "customer_id", "customer_name", "customer_phone", "shipper_id", "shipper_name",
+            "item_id", "store_id", "store_name", "product_id", "product_name", "unit_name",
+            "quantity", "unit_price", "subtotal"
+    };
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int flushEvery;
+
+    public OrderExportService(DataSource dataSource,
+                              ObjectMapper objectMapper,
+                              @Value("${app.export.fetch-size:-2147483648}") int fetchSize,
+                              @Value("${app.export.flush-every:500}") int flushEvery) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Định dạng file xuất
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "orders.ndjson"),
+        CSV("application/gzip", "orders.csv.gz");
+
+        private final String contentType;
+        private final String fileName;
+
+        Format(String contentType, String fileName) {
+            this.contentType = contentType;
+            this.fileName = fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /**
+     * Xuất đơn hàng theo bộ lọc ra output stream
+     *
+     * @param format  NDJSON hoặc CSV (gzip)
+     * @param storeId Lọc theo cửa hàng (qua order_stores), null = tất cả
+     * @param status  Lọc theo trạng thái, null = tất cả
+     * @param from    created_at >= from (null = không giới hạn)
+     * @param to      created_at <= to (null = không giới hạn)
+     * @param out     Output stream của response (không đóng ở đây)
+     * @return Số đơn hàng đã xuất
+     */
+    public long export(Format format, Long storeId, OrderStatus status,
+                       LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL).append("WHERE 1 = 1 ");
+        List<Object> args = new ArrayList<>();
+        if (storeId != null) {
+            sql.append("AND o.id IN (SELECT os.order_id FROM order_stores os WHERE os.store_id = ?) ");
+            args.add(storeId);
+        }
+        if (status != null) {
+            sql.append("AND o.status = ? ");
+            args.add(status.name());
+        }
+        if (from != null) {
+            sql.append("AND o.created_at >= ? ");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append("AND o.created_at <= ? ");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append("ORDER BY o.id, oi.id");
+
+        long start = System.currentTimeMillis();
+        OutputStream target = format == Format.CSV ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        ExportWriter exportWriter = format == Format.CSV ? new CsvExportWriter(writer) : new NdjsonExportWriter(writer);
+
+        try {
+            exportWriter.begin();
+            streamingJdbcTemplate.query(sql.toString(), rs -> {
+                try {
+                    exportWriter.row(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+            exportWriter.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        log.info("Exported {} orders as {} in {} ms", exportWriter.orderCount, format, System.currentTimeMillis() - start);
+        return exportWriter.orderCount;
+    }
+
+    // ========== WRITERS ==========
+
+    /**
+     * Ghi theo từng dòng của result set, đếm đơn theo sự thay đổi order_id
+     */
+    private abstract class ExportWriter {
+        protected final Writer writer;
+        protected long orderCount;
+        protected Long currentOrderId;
+
+        ExportWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void begin() throws IOException {
+        }
+
+        void row(ResultSet rs) throws SQLException, IOException {
+            long orderId = rs.getLong("id");
+            if (currentOrderId == null || currentOrderId != orderId) {
+                if (currentOrderId != null) {
+                    orderFinished();
+                }
+                currentOrderId = orderId;
+                orderCount++;
+                orderStarted(rs);
+            }
+            if (rs.getObject("item_id") != null) {
+                item(rs);
+            }
+        }
+
+        void end() throws IOException {
+            if (currentOrderId != null) {
+                orderFinished();
+            }
+        }
+
+        protected void orderFinished() throws IOException {
+            if (orderCount % flushEvery == 0) {
+                writer.flush();
+            }
+        }
+
+        protected abstract void orderStarted(ResultSet rs) throws SQLException, IOException;
+
+        protected abstract void item(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private class NdjsonExportWriter extends ExportWriter {
+        private Map<String, Object> order;
+        private List<Map<String, Object>> items;
+
+        NdjsonExportWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        protected void orderStarted(ResultSet rs) throws SQLException {
+            order = new LinkedHashMap<>();
+            order.put("id", rs.getLong("id"));
+            order.put("createdAt", toIso(rs.getTimestamp("created_at")));
+            order.put("status", rs.getString("status"));
+            order.put("paymentStatus", rs.getString("payment_status"));
+            order.put("paymentMethod", rs.getString("payment_method"));
+            order.put("totalAmount", rs.getBigDecimal("total_amount"));
+            order.put("shippingFee", rs.getBigDecimal("shipping_fee"));
+            order.put("deliveryAddress", rs.getString("delivery_address"));
+            order.put("cancelReason", rs.getString("cancel_reason"));
+            order.put("customerId", rs.getLong("customer_id"));
+            order.put("customerName", rs.getString("customer_name"));
+            order.put("customerPhone", rs.getString("customer_phone"));
+            order.put("shipperId", rs.getObject("shipper_id") != null ? rs.getLong("shipper_id") : null);
+            order.put("shipperName", rs.getString("shipper_name"));
+            items = new ArrayList<>();
+            order.put("items", items);
+        }
+
+        @Override
+        protected void item(ResultSet rs) throws SQLException {
+            Map<String, Object> item = new LinkedHashMap<>();
+            BigDecimal quantity = rs.getBigDecimal("quantity");
+            BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+            item.put("id", rs.getLong("item_id"));
+            item.put("storeId", rs.getObject("store_id") != null ? rs.getLong("store_id") : null);
+            item.put("storeName", rs.getString("store_name"));
+            item.put("productId", rs.getObject("product_id") != null ? rs.getLong("product_id") : null);
+            item.put("productName", rs.getString("product_name"));
+            item.put("unitName", rs.getString("unit_name"));
+            item.put("quantity", quantity);
+            item.put("unitPrice", unitPrice);
+            item.put("subtotal", quantity != null && unitPrice != null ? quantity.multiply(unitPrice) : null);
+            items.add(item);
+        }
+
+        @Override
+        protected void orderFinished() throws IOException {
+            writer.write(objectMapper.writeValueAsString(order));
+            writer.write('\n');
+            order = null;
+            items = null;
+            super.orderFinished();
+        }
+    }
+
+    private class CsvExportWriter extends ExportWriter {
+        private final String[] orderColumns = new String[14];
+
+        CsvExportWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void begin() throws IOException {
+            writeLine(CSV_HEADER);
+        }
+
+        @Override
+        protected void orderStarted(ResultSet rs) throws SQLException, IOException {
+            orderColumns[0] = rs.getString("id");
+            orderColumns[1] = toIso(rs.getTimestamp("created_at"));
+            orderColumns[2] = rs.getString("status");
+            orderColumns[3] = rs.getString("payment_status");
+            orderColumns[4] = rs.getString("payment_method");
+            orderColumns[5] = toPlain(rs.getBigDecimal("total_amount"));
+            orderColumns[6] = toPlain(rs.getBigDecimal("shipping_fee"));
+            orderColumns[7] = rs.getString("delivery_address");
+            orderColumns[8] = rs.getString("cancel_reason");
+            orderColumns[9] = rs.getString("customer_id");
+            orderColumns[10] = rs.getString("customer_name");
+            orderColumns[11] = rs.getString("customer_phone");
+            orderColumns[12] = rs.getString("shipper_id");
+            orderColumns[13] = rs.getString("shipper_name");
+            if (rs.getObject("item_id") == null) {
+                // Đơn không có dòng hàng: vẫn xuất 1 dòng với cột sản phẩm trống
+                String[] line = new String[CSV_HEADER.length];
+                System.arraycopy(orderColumns, 0, line, 0, orderColumns.length);
+                writeLine(line);
+            }
+        }
+
+        @Override
+        protected void item(ResultSet rs) throws SQLException, IOException {
+            BigDecimal quantity = rs.getBigDecimal("quantity");
+            BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+            String[] line = new String[CSV_HEADER.length];
+            System.arraycopy(orderColumns, 0, line, 0, orderColumns.length);
+            line[14] = rs.getString("item_id");
+            line[15] = rs.getString("store_id");
+            line[16] = rs.getString("store_name");
+            line[17] = rs.getString("product_id");
+            line[18] = rs.getString("product_name");
+            line[19] = rs.getString("unit_name");
+            line[20] = toPlain(quantity);
+            line[21] = toPlain(unitPrice);
+            line[22] = quantity != null && unitPrice != null ? toPlain(quantity.multiply(unitPrice)) : null;
+            writeLine(line);
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escapeCsv(values[i]));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String toIso(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+
+    private static String toPlain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.entity.OrderParticipant.ParticipantRole;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tập người tham gia của 1 đơn, load từ order_participants trong 1 query
+ * Dùng cho kiểm tra quyền O(1) trong OrderStateMachine
+ */
+public record OrderParticipants(Long customerId, Long shipperId, Set<Long> storeOwnerIds) {
+
+    public static OrderParticipants of(Collection<OrderParticipant> rows) {
+        Long customerId = null;
+        Long shipperId = null;
+        Set<Long> storeOwnerIds = new HashSet<>();
+        for (OrderParticipant row : rows) {
+            switch (row.getRole()) {
+                case CUSTOMER -> customerId = row.getUserId();
+                case SHIPPER -> shipperId = row.getUserId();
+                case STORE_OWNER -> storeOwnerIds.add(row.getUserId());
+            }
+        }
+        return new OrderParticipants(customerId, shipperId, Set.copyOf(storeOwnerIds));
+    }
+
+    public boolean isCustomer(Long userId) {
+        return userId != null && userId.equals(customerId);
+    }
+
+    public boolean isAssignedShipper(Long userId) {
+        return userId != null && userId.equals(shipperId);
+    }
+
+    public boolean isStoreOwner(Long userId) {
+        return userId != null && storeOwnerIds.contains(userId);
+    }
+
+    public boolean has(ParticipantRole role, Long userId) {
+        return switch (role) {
+            case CUSTOMER -> isCustomer(userId);
+            case SHIPPER -> isAssignedShipper(userId);
+            case STORE_OWNER -> isStoreOwner(userId);
+        };
+    }
+}
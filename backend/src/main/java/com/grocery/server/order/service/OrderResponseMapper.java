@@ -0,0 +1,84 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.response.OrderItemResponse;
+import com.grocery.server.order.dto.response.OrderResponse;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.store.entity.Store;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Component: OrderResponseMapper
+ * Mục đích: Map Order entity sang OrderResponse DTO
+ * Dùng chung cho OrderService và ShipperDispatchBoard (tránh phụ thuộc vòng)
+ * Lưu ý: cần chạy trong transaction vì đọc các quan hệ LAZY (items, product, store, payments)
+ */
+@Component
+public class OrderResponseMapper {
+
+    /**
+     * Map Order entity sang OrderResponse DTO
+     */
+    public OrderResponse toResponse(Order order) {
+        List<OrderItemResponse> items = order.getOrderItems().stream()
+                .map(item -> OrderItemResponse.builder()
+                        .id(item.getId())
+                        .productId(item.getProductUnitMapping().getProduct().getId())
+                        .productName(item.getProductUnitMapping().getProduct().getName())
+                        .productImageUrl(item.getProductUnitMapping().getProduct().getImageUrl())
+                        .unitName(item.getProductUnitMapping().getDisplayUnitName())
+                        .unitPrice(item.getUnitPrice())
+                        .quantity(item.getQuantity())
+                        .subtotal(item.getSubtotal())
+                        .build())
+                .collect(Collectors.toList());
+
+        List<Store> involvedStores = order.getOrderItems().stream()
+                .map(oi -> oi.getProductUnitMapping().getProduct().getStore())
+                .distinct().collect(Collectors.toList());
+
+        boolean isMultiStore = involvedStores.size() > 1;
+        Long storeId = isMultiStore ? null : (involvedStores.isEmpty() ? null : involvedStores.get(0).getId());
+        String storeName = isMultiStore ? "Đơn hàng liên cửa hàng" : (involvedStores.isEmpty() ? "Nhiều cửa hàng" : involvedStores.get(0).getStoreName());
+        String storeAddress = isMultiStore ? "Nhiều địa chỉ" : (involvedStores.isEmpty() ? "" : involvedStores.get(0).getAddress());
+
+        List<com.grocery.server.order.dto.response.StoreInfoResponse> storeInfos = involvedStores.stream()
+                .map(s -> com.grocery.server.order.dto.response.StoreInfoResponse.builder()
+                        .id(s.getId())
+                        .name(s.getStoreName())
+                        .address(s.getAddress())
+                        .build())
+                .collect(Collectors.toList());
+
+        return OrderResponse.builder()
+                .id(order.getId())
+                .customerId(order.getCustomer().getId())
+                .customerName(order.getCustomer().getFullName())
+                .customerPhone(order.getCustomer().getPhoneNumber())
+                .storeId(storeId)
+                .storeName(storeName)
+                .storeAddress(storeAddress)
+                .shipperId(order.getShipper() != null ? order.getShipper().getId() : null)
+                .shipperName(order.getShipper() != null ? order.getShipper().getFullName() : null)
+                .shipperPhone(order.getShipper() != null ? order.getShipper().getPhoneNumber() : null)
+                .status(order.getStatus())
+                .totalAmount(order.getTotalAmount())
+                .shippingFee(order.getShippingFee())
+                .grandTotal(order.getTotalAmount().add(order.getShippingFee()))
+                .deliveryAddress(order.getDeliveryAddress())
+                .deliveryLat(order.getDeliveryLat())
+                .deliveryLng(order.getDeliveryLng())
+                .podImageUrl(order.getPodImageUrl())
+                .cancelReason(order.getCancelReason())
+                .createdAt(order.getCreatedAt())
+                .items(items)
+                .paymentMethod(order.getPayments() != null && !order.getPayments().isEmpty()
+                        ? order.getPayments().get(0).getPaymentMethod().name()
+                        : null)
+                .stores(storeInfos)
+                .version(order.getVersion())
+                .build();
+    }
+}
@@ -3,22 +3,29 @@ package com.grocery.server.order.service;
 import com.grocery.server.messaging.dto.OrderAcceptedEvent;
 import com.grocery.server.messaging.dto.OrderCreatedEvent;
 import com.grocery.server.messaging.dto.OrderStatusChangedEvent;
-import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.order.dto.cursor.OrderCursor;
+import com.grocery.server.order.dto.request.CreateOrderItemRequest;
 import com.grocery.server.order.dto.request.CreateOrderRequest;
 import com.grocery.server.order.dto.request.UpdateOrderStatusRequest;
-import com.grocery.server.order.dto.response.OrderItemResponse;
 import com.grocery.server.order.dto.response.OrderResponse;
 import com.grocery.server.order.dto.response.OrderStatisticsResponse;
 import com.grocery.server.order.dto.response.OrderStatisticsResponse.MonthlyRevenueDto;
 import com.grocery.server.order.entity.Order;
 import com.grocery.server.order.entity.Order.OrderStatus;
 import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.order.entity.RevenueRollup;
 import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import com.grocery.server.order.repository.RevenueRollupRepository;
 import com.grocery.server.product.entity.ProductUnitMapping;
-import com.grocery.server.product.repository.ProductRepository;
+import com.grocery.server.shared.dto.CursorPage;
 import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ConflictException;
 import com.grocery.server.shared.exception.ResourceNotFoundException;
-import com.grocery.server.shared.exception.UnauthorizedException;
 import com.grocery.server.store.entity.Store;
 import com.grocery.server.store.repository.StoreRepository;
 import com.grocery.server.user.entity.User;
@@ -33,7 +40,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -52,9 +61,21 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final StoreRepository storeRepository;
-    private final ProductRepository productRepository;
-    private final RedisMessagePublisher messagePublisher;
+    private final OrderOutboxService orderOutboxService;
     private final NotificationService notificationService;
+    private final StockReservationService stockReservationService;
+    private final StockHoldService stockHoldService;
+    private final OrderStoreRepository orderStoreRepository;
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderResponseMapper orderResponseMapper;
+    private final ShipperDispatchBoard shipperDispatchBoard;
+    private final OrderTransitionService orderTransitionService;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderParticipantRepository orderParticipantRepository;
+    private final OrderExpiryService orderExpiryService;
+    private final OrderDetailCache orderDetailCache;
+    private final StoreOrderCounterService storeOrderCounterService;
 
     // Phí ship cố định (VNĐ) - Có thể cấu hình trong application.properties sau
     private static final BigDecimal SHIPPING_FEE = new BigDecimal("15000.00");
@@ -66,6 +87,7 @@ public class OrderService {
      * @param customerId ID khách hàng
      * @return Thông tin đơn hàng vừa tạo
      */
+    @Transactional
     public OrderResponse createOrder(CreateOrderRequest request, Long customerId) {
         log.info("Khách hàng {} đang tạo đơn hàng liên cửa hàng", customerId);
 
@@ -91,16 +113,25 @@ public class OrderService {
                 .customer(customer)
                 .status(OrderStatus.PENDING)
                 .deliveryAddress(request.getDeliveryAddress())
+                .deliveryLat(request.getDeliveryLat())
+                .deliveryLng(request.getDeliveryLng())
                 .shippingFee(shippingFee)
                 .build();
 
+        // Load tất cả biến thể trong 1 query thay vì 1 query / dòng
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(
+                request.getItems().stream()
+                        .map(CreateOrderItemRequest::getProductUnitMappingId)
+                        .collect(Collectors.toList()));
+        Map<Long, Integer> deductions = new LinkedHashMap<>();
+
+        // Hàng khách đang giữ (holdId) được chuyển thành trừ kho; hàng khách khác đang giữ thì không được bán
+        StockHoldService.StockHold hold = stockHoldService.findActiveHold(request.getHoldId(), customerId);
+        Map<Long, Integer> heldByOthers = stockHoldService.heldByOthers(mappings.keySet(), hold);
+
         for (var itemRequest : request.getItems()) {
             BigDecimal requestedQuantity = itemRequest.getQuantity();
-
-            // Validate ProductUnitMapping
-            ProductUnitMapping productUnitMapping = productRepository.findProductUnitMappingById(itemRequest.getProductUnitMappingId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                    "Không tìm thấy biến thể sản phẩm ID: " + itemRequest.getProductUnitMappingId()));
+            ProductUnitMapping productUnitMapping = mappings.get(itemRequest.getProductUnitMappingId());
 
             Store itemStore = productUnitMapping.getProduct().getStore();
             if (!involvedStores.contains(itemStore)) {
@@ -111,12 +142,13 @@ public class OrderService {
                 throw new BadRequestException("Cửa hàng '" + itemStore.getStoreName() + "' hiện không hoạt động");
             }
 
-            // Kiểm tra tồn kho
-            BigDecimal availableStock = BigDecimal.valueOf(productUnitMapping.getStockQuantity());
-            if (availableStock.compareTo(requestedQuantity) < 0) {
+            // Kiểm tra sơ bộ tồn kho có thể bán (kiểm tra chính xác nằm ở UPDATE có điều kiện)
+            int availableToSell = Math.max(0, productUnitMapping.getStockQuantity()
+                    - heldByOthers.getOrDefault(productUnitMapping.getId(), 0));
+            if (BigDecimal.valueOf(availableToSell).compareTo(requestedQuantity) < 0) {
                 throw new BadRequestException(
                 "Sản phẩm '" + productUnitMapping.getProduct().getName() + " - " + productUnitMapping.getDisplayUnitName() +
-                    "' chỉ còn " + productUnitMapping.getStockQuantity() + " (yêu cầu: " + requestedQuantity + ")"
+                    "' chỉ còn " + availableToSell + " (yêu cầu: " + requestedQuantity + ")"
                 );
             }
 
@@ -139,10 +171,14 @@ public class OrderService {
             orderItems.add(orderItem);
             totalAmount = totalAmount.add(orderItem.getSubtotal());
 
-            // Trừ tồn kho
-            productUnitMapping.setStockQuantity(productUnitMapping.getStockQuantity() - deductedStock);
+            deductions.merge(productUnitMapping.getId(), deductedStock, Integer::sum);
         }
 
+        // Trừ tồn kho cho cả giỏ trong 1 batch, thiếu hàng → rollback toàn bộ đơn
+        // Phần người khác đang giữ đọc cùng lúc với claim (nguyên tử); hold của khách được nhả sau commit
+        Map<Long, Integer> reserved = stockHoldService.claimForOrder(deductions, hold);
+        stockReservationService.deductStock(deductions, mappings, reserved);
+
         // Gán store chính (nếu chỉ có 1 cửa hàng thì gán, nếu nhiều thì để null hoặc gán cửa hàng đầu tiên)
         if (!involvedStores.isEmpty()) {
             order.setStore(involvedStores.get(0));
@@ -154,12 +190,42 @@ public class OrderService {
         // Lưu đơn hàng
         Order savedOrder = orderRepository.save(order);
         log.info("Đã tạo đơn hàng #{} (liên cửa hàng) với tổng tiền: {} VNĐ", savedOrder.getId(), totalAmount);
+
+        // Ghi bảng liên kết order_stores (1 dòng / cửa hàng) cho các truy vấn phía cửa hàng
+        List<Long> involvedStoreIds = involvedStores.stream()
+                .filter(java.util.Objects::nonNull)
+                .map(Store::getId)
+                .collect(Collectors.toList());
+        orderStoreRepository.saveAll(involvedStoreIds.stream()
+                .map(storeId -> OrderStore.builder()
+                        .order(savedOrder)
+                        .storeId(storeId)
+                        .status(savedOrder.getStatus())
+                        .createdAt(savedOrder.getCreatedAt())
+                        .build())
+                .collect(Collectors.toList()));
+        // Tập người tham gia (khách + chủ các cửa hàng) cho kiểm tra quyền chuyển trạng thái
+        List<OrderParticipant> participants = new ArrayList<>();
+        participants.add(OrderParticipant.builder()
+                .order(savedOrder).userId(customer.getId()).role(OrderParticipant.ParticipantRole.CUSTOMER).build());
+        involvedStores.stream()
+                .map(Store::getOwner)
+                .filter(java.util.Objects::nonNull)
+                .map(User::getId)
+                .distinct()
+                .forEach(ownerId -> participants.add(OrderParticipant.builder()
+                        .order(savedOrder).userId(ownerId).role(OrderParticipant.ParticipantRole.STORE_OWNER).build()));
+        orderParticipantRepository.saveAll(participants);
+        revenueRollupService.recordOrderCreated(savedOrder, involvedStoreIds);
+        storeOrderCounterService.recordCreated(involvedStoreIds, savedOrder.getStatus());
         publishOrderCreatedEvent(savedOrder);
+        // Chưa được xác nhận trong thời hạn → tự động hủy, hoàn kho
+        orderExpiryService.scheduleAfterCommit(savedOrder.getId(), savedOrder.getCreatedAt());
 
         // Thông báo đến TẤT CẢ Store owner liên quan
         for (Store s : involvedStores) {
             if (s.getOwner() != null) {
-                notificationService.createAndSend(
+                notificationService.enqueue(
                     s.getOwner().getId(),
                     Notification.ORDER_CREATED,
                     "Đơn hàng mới #" + savedOrder.getId(),
@@ -182,9 +248,17 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long orderId) {
+        OrderResponse cached = orderDetailCache.get(orderId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadStartedAt = orderDetailCache.beginLoad();
         Order order = orderRepository.findByIdWithFullDetails(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
-        return mapToOrderResponse(order);
+        OrderResponse response = mapToOrderResponse(order);
+        orderDetailCache.put(orderId, response, loadStartedAt);
+        return response;
     }
 
     /**
@@ -261,14 +335,12 @@ public class OrderService {
     /**
      * Lấy danh sách đơn hàng có thể nhận (cho tài xế)
      * 
+     * Đọc từ ShipperDispatchBoard (bộ nhớ), không query database
+     *
      * @return Danh sách đơn hàng đang chờ tài xế
      */
-    @Transactional(readOnly = true)
     public List<OrderResponse> getAvailableOrders() {
-        List<Order> orders = orderRepository.findAvailableOrdersForShippers();
-        return orders.stream()
-                .map(this::mapToOrderResponse)
-                .collect(Collectors.toList());
+        return shipperDispatchBoard.getAvailableOrders();
     }
 
     /**
@@ -344,11 +416,120 @@ public class OrderService {
     /**
      * Lấy đơn hàng có thể nhận (cho tài xế) - CÓ PHÂN TRANG
      */
-    @Transactional(readOnly = true)
     public Page<OrderResponse> getAvailableOrdersPaginated(int page, int size) {
-        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, size));
-        Page<Order> ordersPage = orderRepository.findAvailableOrdersForShippers(pageable);
-        return ordersPage.map(this::mapToOrderResponse);
+        return shipperDispatchBoard.getAvailableOrders(page, size);
+    }
+
+    // ========== KEYSET (CURSOR) PAGINATION ==========
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /**
+     * Admin: tất cả đơn hàng theo cursor, có bộ lọc
+     * COUNT chỉ chạy khi includeCount = true
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getAllOrdersByCursor(String cursor, int size,
+                                                          Long storeId, Order.OrderStatus status,
+                                                          LocalDateTime from, LocalDateTime to,
+                                                          boolean includeCount) {
+        OrderCursor c = OrderCursor.decode(cursor, false);
+        int limit = clampCursorPageSize(size);
+        List<Order> orders = orderRepository.findAllWithFiltersAfterCursor(
+                storeId, status, from, to, c.createdAt(), c.id(), PageRequest.of(0, limit + 1));
+        Long total = includeCount ? orderRepository.countWithFilters(storeId, status, from, to) : null;
+        return toCursorPage(orders, limit, total);
+    }
+
+    /**
+     * Đơn hàng của khách hàng theo cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByCustomerByCursor(Long customerId, String cursor, int size) {
+        OrderCursor c = OrderCursor.decode(cursor, false);
+        int limit = clampCursorPageSize(size);
+        List<Order> orders = orderRepository.findByCustomerIdAfterCursor(
+                customerId, c.createdAt(), c.id(), PageRequest.of(0, limit + 1));
+        return toCursorPage(orders, limit, null);
+    }
+
+    /**
+     * Đơn hàng đã thanh toán của cửa hàng theo cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByStoreOwnerByCursor(Long userId, String cursor, int size) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy user"));
+
+        if (!user.getRole().equals(User.UserRole.STORE)) {
+            throw new BadRequestException("Chỉ cửa hàng mới có thể xem đơn hàng của mình");
+        }
+
+        Store store = user.getStore();
+        if (store == null) {
+            throw new ResourceNotFoundException("User này chưa có cửa hàng");
+        }
+
+        OrderCursor c = OrderCursor.decode(cursor, false);
+        int limit = clampCursorPageSize(size);
+        List<Order> orders = orderRepository.findPaidOrdersByStoreIdAfterCursor(
+                store.getId(), c.createdAt(), c.id(), PageRequest.of(0, limit + 1));
+        return toCursorPage(orders, limit, null);
+    }
+
+    /**
+     * Đơn hàng của tài xế theo cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByShipperByCursor(Long shipperId, String cursor, int size) {
+        OrderCursor c = OrderCursor.decode(cursor, false);
+        int limit = clampCursorPageSize(size);
+        List<Order> orders = orderRepository.findByShipperIdAfterCursor(
+                shipperId, c.createdAt(), c.id(), PageRequest.of(0, limit + 1));
+        return toCursorPage(orders, limit, null);
+    }
+
+    /**
+     * Đơn hàng có thể nhận (cho tài xế) theo cursor - cũ nhất trước
+     */
+    public CursorPage<OrderResponse> getAvailableOrdersByCursor(String cursor, int size) {
+        OrderCursor c = OrderCursor.decode(cursor, true);
+        int limit = clampCursorPageSize(size);
+        List<OrderResponse> items = shipperDispatchBoard.getAvailableOrdersAfter(c, limit + 1);
+
+        boolean hasMore = items.size() > limit;
+        List<OrderResponse> page = hasMore ? items.subList(0, limit) : items;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderResponse last = page.get(page.size() - 1);
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return CursorPage.<OrderResponse>builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private int clampCursorPageSize(int size) {
+        return Math.min(Math.max(1, size), MAX_CURSOR_PAGE_SIZE);
+    }
+
+    /**
+     * Query lấy limit + 1 dòng: có dòng dư → còn trang sau, cursor = dòng cuối của trang hiện tại
+     */
+    private CursorPage<OrderResponse> toCursorPage(List<Order> orders, int limit, Long total) {
+        boolean hasMore = orders.size() > limit;
+        List<Order> page = hasMore ? orders.subList(0, limit) : orders;
+        String nextCursor = hasMore ? OrderCursor.of(page.get(page.size() - 1)).encode() : null;
+
+        return CursorPage.<OrderResponse>builder()
+                .items(page.stream().map(this::mapToOrderResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .totalElements(total)
+                .build();
     }
 
     /**
@@ -359,40 +540,27 @@ public class OrderService {
      * @param userId  ID người thực hiện
      * @return Thông tin đơn hàng sau khi cập nhật
      */
+    @Transactional
     public OrderResponse updateOrderStatus(Long orderId, UpdateOrderStatusRequest request, Long userId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng"));
-
-        // Validate state transition
-        validateStatusTransition(order, request.getNewStatus(), user);
+        // Validate theo bảng transition + tập người tham gia (1 query, không lazy load theo từng item)
+        OrderParticipants participants = OrderParticipants.of(orderParticipantRepository.findByOrderId(orderId));
+        OrderStateMachine.Transition stateTransition = orderStateMachine.resolve(
+                order.getStatus(), request.getNewStatus(), userId, participants, request);
 
-        // Validate required fields
-        if (request.getNewStatus() == OrderStatus.CANCELLED &&
-                (request.getCancelReason() == null || request.getCancelReason().isBlank())) {
-            throw new BadRequestException("Lý do hủy đơn không được để trống");
-        }
-
-        if (request.getNewStatus() == OrderStatus.DELIVERED &&
-                (request.getPodImageUrl() == null || request.getPodImageUrl().isBlank())) {
-            throw new BadRequestException("Ảnh chứng minh giao hàng không được để trống");
-        }
-
-        // Cập nhật trạng thái
+        // Cập nhật trạng thái: compare-and-set theo (status, version) vừa validate
         OrderStatus oldStatus = order.getStatus();
-        order.setStatus(request.getNewStatus());
-
-        if (request.getCancelReason() != null) {
-            order.setCancelReason(request.getCancelReason());
-        }
-
-        if (request.getPodImageUrl() != null) {
-            order.setPodImageUrl(request.getPodImageUrl());
+        OrderTransitionResult transition = orderTransitionService.changeStatus(
+                order, request.getNewStatus(), request.getCancelReason(), request.getPodImageUrl());
+        if (!transition.isApplied()) {
+            throw new ConflictException(transition.conflictMessage());
         }
 
-        orderRepository.save(order);
+        order = orderRepository.findByIdWithFullDetails(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
+        orderStateMachine.applySideEffects(stateTransition, order);
         log.info("Đơn hàng #{} đã chuyển từ {} sang {}", orderId, oldStatus, request.getNewStatus());
         publishOrderStatusChangedEvent(order, oldStatus, request.getNewStatus(), request.getCancelReason());
         sendOrderNotifications(order, request.getNewStatus(), request.getCancelReason());
@@ -407,6 +575,7 @@ public class OrderService {
      * @param shipperId ID tài xế
      * @return Thông tin đơn hàng
      */
+    @Transactional
     public OrderResponse assignShipper(Long orderId, Long shipperId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
@@ -426,16 +595,20 @@ public class OrderService {
             throw new BadRequestException("Chỉ tài xế mới có thể nhận đơn");
         }
 
-        order.setShipper(shipper);
-        order.setStatus(OrderStatus.PICKING_UP);
+        // 2 shipper cùng nhận: chỉ 1 UPDATE khớp (status, version, shipper IS NULL)
+        OrderTransitionResult transition = orderTransitionService.assignShipper(order, shipper, OrderStatus.PICKING_UP);
+        if (!transition.isApplied()) {
+            throw new ConflictException("Đơn hàng đã có tài xế khác nhận");
+        }
 
-        orderRepository.save(order);
+        order = orderRepository.findByIdWithFullDetails(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng"));
         log.info("Tài xế {} đã nhận đơn hàng #{}", shipper.getFullName(), orderId);
         publishOrderAcceptedEvent(order, shipper);
         publishOrderStatusChangedEvent(order, OrderStatus.CONFIRMED, OrderStatus.PICKING_UP, null);
 
         // Thông báo cho khách hàng và tài xế
-        notificationService.createAndSend(
+        notificationService.enqueue(
             order.getCustomer().getId(), Notification.SHIPPER_ASSIGNED,
             "Shipper đã nhận đơn của bạn",
             "Shipper " + shipper.getFullName() + " (" + shipper.getPhoneNumber() + ") đang chuẩn bị đi lấy hàng",
@@ -447,7 +620,7 @@ public class OrderService {
 
         for (Store s : involvedStores) {
             if (s.getOwner() != null) {
-                notificationService.createAndSend(
+                notificationService.enqueue(
                     s.getOwner().getId(), Notification.SHIPPER_ASSIGNED,
                     "Có shipper nhận đơn #" + orderId,
                     "Shipper " + shipper.getFullName() + " đã nhận đơn hàng",
@@ -469,6 +642,13 @@ public class OrderService {
                 .distinct().limit(2).collect(Collectors.joining(", ")) + "...)"
             : (order.getStore() != null ? order.getStore().getStoreName() : "Nhiều cửa hàng");
 
+        // Điểm lấy hàng: cửa hàng đầu tiên trong đơn đã có tọa độ
+        Store pickup = order.getOrderItems().stream()
+            .map(oi -> oi.getProductUnitMapping().getProduct().getStore())
+            .filter(s -> s.getLatitude() != null && s.getLongitude() != null)
+            .findFirst()
+            .orElse(null);
+
         OrderCreatedEvent event = OrderCreatedEvent.builder()
             .eventType("ORDER_CREATED")
             .timestamp(System.currentTimeMillis())
@@ -479,15 +659,15 @@ public class OrderService {
             .totalAmount(order.getTotalAmount())
             .shippingFee(order.getShippingFee())
             .deliveryAddress(order.getDeliveryAddress())
-            .deliveryLat(null)
-            .deliveryLng(null)
+            .deliveryLat(order.getDeliveryLat())
+            .deliveryLng(order.getDeliveryLng())
+            .pickupLat(pickup != null ? pickup.getLatitude() : null)
+            .pickupLng(pickup != null ? pickup.getLongitude() : null)
             .createdAt(order.getCreatedAt())
-            .expiresAt(order.getCreatedAt() != null
-                ? order.getCreatedAt().plusMinutes(15)
-                : LocalDateTime.now().plusMinutes(15))
+            .expiresAt(orderExpiryService.deadlineFor(order.getCreatedAt()))
             .build();
 
-        messagePublisher.publishOrderEvent("created", order.getId(), event);
+        orderOutboxService.enqueue("created", order.getId(), event);
         }
 
         private void publishOrderAcceptedEvent(Order order, User shipper) {
@@ -503,7 +683,7 @@ public class OrderService {
             .acceptedAt(LocalDateTime.now())
             .build();
 
-        messagePublisher.publishOrderEvent("accepted", order.getId(), event);
+        orderOutboxService.enqueue("accepted", order.getId(), event);
         }
 
         private void publishOrderStatusChangedEvent(
@@ -525,7 +705,7 @@ public class OrderService {
             .reason(reason)
             .build();
 
-        messagePublisher.publishOrderEvent("status", order.getId(), event);
+        orderOutboxService.enqueue("status", order.getId(), event);
         }
 
     private void sendOrderNotifications(Order order, OrderStatus newStatus, String reason) {
@@ -540,31 +720,31 @@ public class OrderService {
         String storeDisplay = isMultiStore ? "Các cửa hàng" : (involvedStores.isEmpty() ? "Cửa hàng" : involvedStores.get(0).getStoreName());
 
         switch (newStatus) {
-            case CONFIRMED -> notificationService.createAndSend(
+            case CONFIRMED -> notificationService.enqueue(
                 customerId, Notification.ORDER_CONFIRMED,
                 "Đơn hàng #" + orderId + " đã được xác nhận",
                 storeDisplay + " đã xác nhận đơn của bạn",
                 orderId, "ORDER");
 
-            case PICKING_UP -> notificationService.createAndSend(
+            case PICKING_UP -> notificationService.enqueue(
                 customerId, Notification.ORDER_PICKING_UP,
                 "Shipper đang lấy hàng",
                 "Shipper " + order.getShipper().getFullName() + " đang đến các cửa hàng để lấy hàng",
                 orderId, "ORDER");
 
-            case DELIVERING -> notificationService.createAndSend(
+            case DELIVERING -> notificationService.enqueue(
                 customerId, Notification.ORDER_DELIVERING,
                 "Đơn hàng đang trên đường giao",
                 "Shipper " + order.getShipper().getFullName() + " đang giao hàng đến bạn",
                 orderId, "ORDER");
 
-            case DELIVERED -> notificationService.createAndSend(
+            case DELIVERED -> notificationService.enqueue(
                     customerId, Notification.ORDER_DELIVERED,
                     "Giao hàng thành công! 🎉",
                     "Đơn hàng #" + orderId + " đã được giao. Hãy đánh giá trải nghiệm của bạn!",
                     orderId, "ORDER");
 
-            case CANCELLED -> notificationService.createAndSend(
+            case CANCELLED -> notificationService.enqueue(
                     customerId, Notification.ORDER_CANCELLED,
                     "Đơn hàng #" + orderId + " đã bị hủy",
                     reason != null ? "Lý do: " + reason : "Đơn hàng của bạn đã bị hủy",
@@ -579,13 +759,13 @@ public class OrderService {
             Long storeOwnerId = store.getOwner().getId();
 
             if (newStatus == OrderStatus.DELIVERED) {
-                notificationService.createAndSend(
+                notificationService.enqueue(
                     storeOwnerId, Notification.ORDER_DELIVERED,
                     "Đơn hàng #" + orderId + " hoàn thành",
                     "Shipper đã giao thành công phần sản phẩm của bạn cho khách hàng " + order.getCustomer().getFullName(),
                     orderId, "ORDER");
             } else if (newStatus == OrderStatus.CANCELLED) {
-                notificationService.createAndSend(
+                notificationService.enqueue(
                     storeOwnerId, Notification.ORDER_CANCELLED,
                     "Đơn hàng #" + orderId + " bị hủy",
                     reason != null ? "Lý do: " + reason : "Đơn hàng đã bị hủy",
@@ -594,176 +774,35 @@ public class OrderService {
         }
     }
 
-    /**
-     * Validate chuyển trạng thái có hợp lệ không
-     * State Machine:
-     * - PENDING → CONFIRMED (Store owner)
-     * - PENDING → CANCELLED (Customer/Store)
-     * - CONFIRMED → PICKING_UP (Shipper - khi nhận đơn)
-     * - CONFIRMED → CANCELLED (Customer/Store)
-     * - PICKING_UP → DELIVERING (Shipper)
-     * - DELIVERING → DELIVERED (Shipper)
-     * - DELIVERING → CANCELLED (Không được phép - đã lấy hàng rồi)
-     */
-    private void validateStatusTransition(Order order, OrderStatus newStatus, User user) {
-        OrderStatus currentStatus = order.getStatus();
-
-        // Không cho phép chuyển sang trạng thái hiện tại
-        if (currentStatus == newStatus) {
-            throw new BadRequestException("Đơn hàng đã ở trạng thái " + newStatus);
-        }
-
-        // Validate theo role
-        switch (currentStatus) {
-            case PENDING:
-                if (newStatus == OrderStatus.CONFIRMED) {
-                    // Check if user is owner of at least one involved store
-                    boolean isAuthorizedStoreOwner = order.getOrderItems().stream()
-                        .map(oi -> oi.getProductUnitMapping().getProduct().getStore().getOwner())
-                        .anyMatch(owner -> owner != null && owner.getId().equals(user.getId()));
-                        
-                    if (!user.getRole().equals(User.UserRole.STORE) || !isAuthorizedStoreOwner) {
-                        throw new UnauthorizedException("Chỉ chủ cửa hàng liên quan mới có thể xác nhận đơn hàng");
-                    }
-                } else if (newStatus == OrderStatus.CANCELLED) {
-                    // Customer hoặc Store có thể hủy
-                    boolean isCustomer = order.getCustomer().getId().equals(user.getId());
-                    boolean isAuthorizedStoreOwner = order.getOrderItems().stream()
-                        .map(oi -> oi.getProductUnitMapping().getProduct().getStore().getOwner())
-                        .anyMatch(owner -> owner != null && owner.getId().equals(user.getId()));
-
-                    if (!isCustomer && !isAuthorizedStoreOwner) {
-                        throw new UnauthorizedException("Bạn không có quyền hủy đơn hàng này");
-                    }
-                } else {
-                    throw new BadRequestException(
-                            "Đơn hàng chỉ có thể chuyển từ PENDING sang CONFIRMED hoặc CANCELLED");
-                }
-                break;
-
-            case CONFIRMED:
-                if (newStatus == OrderStatus.PICKING_UP) {
-                    // Tự động chuyển khi shipper nhận đơn (không cần validate ở đây)
-                } else if (newStatus == OrderStatus.CANCELLED) {
-                    // Không cho phép hủy khi đã CONFIRMED
-                    throw new BadRequestException(
-                            "Đơn hàng đã được xác nhận, không thể hủy. Vui lòng liên hệ cửa hàng.");
-                } else {
-                    throw new BadRequestException(
-                            "Đơn hàng chỉ có thể chuyển từ CONFIRMED sang PICKING_UP");
-                }
-                break;
-
-            case PICKING_UP:
-                if (newStatus == OrderStatus.DELIVERING) {
-                    // Chỉ shipper nhận đơn mới được chuyển
-                    if (order.getShipper() == null || !order.getShipper().getId().equals(user.getId())) {
-                        throw new UnauthorizedException("Chỉ tài xế nhận đơn mới có thể cập nhật trạng thái");
-                    }
-                } else {
-                    throw new BadRequestException(
-                            "Đơn hàng chỉ có thể chuyển từ PICKING_UP sang DELIVERING");
-                }
-                break;
-
-            case DELIVERING:
-                if (newStatus == OrderStatus.DELIVERED) {
-                    // Chỉ shipper nhận đơn mới được chuyển
-                    if (order.getShipper() == null || !order.getShipper().getId().equals(user.getId())) {
-                        throw new UnauthorizedException("Chỉ tài xế nhận đơn mới có thể cập nhật trạng thái");
-                    }
-                } else {
-                    throw new BadRequestException(
-                            "Đơn hàng đang giao không thể hủy. Chỉ có thể chuyển sang DELIVERED");
-                }
-                break;
-
-            case DELIVERED:
-            case CANCELLED:
-                throw new BadRequestException("Đơn hàng đã hoàn tất/hủy, không thể thay đổi trạng thái");
-
-            default:
-                throw new BadRequestException("Trạng thái không hợp lệ");
-        }
-    }
-
     /**
      * Map Order entity sang OrderResponse DTO
      */
     private OrderResponse mapToOrderResponse(Order order) {
-        List<OrderItemResponse> items = order.getOrderItems().stream()
-                .map(item -> OrderItemResponse.builder()
-                        .id(item.getId())
-                        .productId(item.getProductUnitMapping().getProduct().getId())
-                        .productName(item.getProductUnitMapping().getProduct().getName())
-                        .productImageUrl(item.getProductUnitMapping().getProduct().getImageUrl())
-                        .unitName(item.getProductUnitMapping().getDisplayUnitName())
-                        .unitPrice(item.getUnitPrice())
-                        .quantity(item.getQuantity())
-                        .subtotal(item.getSubtotal())
-                        .build())
-                .collect(Collectors.toList());
-
-        List<Store> involvedStores = order.getOrderItems().stream()
-                .map(oi -> oi.getProductUnitMapping().getProduct().getStore())
-                .distinct().collect(Collectors.toList());
-
-        boolean isMultiStore = involvedStores.size() > 1;
-        Long storeId = isMultiStore ? null : (involvedStores.isEmpty() ? null : involvedStores.get(0).getId());
-        String storeName = isMultiStore ? "Đơn hàng liên cửa hàng" : (involvedStores.isEmpty() ? "Nhiều cửa hàng" : involvedStores.get(0).getStoreName());
-        String storeAddress = isMultiStore ? "Nhiều địa chỉ" : (involvedStores.isEmpty() ? "" : involvedStores.get(0).getAddress());
-
-        List<com.grocery.server.order.dto.response.StoreInfoResponse> storeInfos = involvedStores.stream()
-                .map(s -> com.grocery.server.order.dto.response.StoreInfoResponse.builder()
-                        .id(s.getId())
-                        .name(s.getStoreName())
-                        .address(s.getAddress())
-                        .build())
-                .collect(Collectors.toList());
-
-        return OrderResponse.builder()
-                .id(order.getId())
-                .customerId(order.getCustomer().getId())
-                .customerName(order.getCustomer().getFullName())
-                .customerPhone(order.getCustomer().getPhoneNumber())
-                .storeId(storeId)
-                .storeName(storeName)
-                .storeAddress(storeAddress)
-                .shipperId(order.getShipper() != null ? order.getShipper().getId() : null)
-                .shipperName(order.getShipper() != null ? order.getShipper().getFullName() : null)
-                .shipperPhone(order.getShipper() != null ? order.getShipper().getPhoneNumber() : null)
-                .status(order.getStatus())
-                .totalAmount(order.getTotalAmount())
-                .shippingFee(order.getShippingFee())
-                .grandTotal(order.getTotalAmount().add(order.getShippingFee()))
-                .deliveryAddress(order.getDeliveryAddress())
-                .podImageUrl(order.getPodImageUrl())
-                .cancelReason(order.getCancelReason())
-                .createdAt(order.getCreatedAt())
-                .items(items)
-                .paymentMethod(order.getPayments() != null && !order.getPayments().isEmpty()
-                        ? order.getPayments().get(0).getPaymentMethod().name()
-                        : null)
-                .stores(storeInfos)
-                .build();
+        return orderResponseMapper.toResponse(order);
     }
 
     /**
      * Lấy thống kê đơn hàng cho Dashboard Admin
      */
+    @Transactional(readOnly = true)
     public OrderStatisticsResponse getOrderStatistics() {
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-
-        // Tháng hiện tại
-        java.time.LocalDateTime currentMonthStart = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        java.time.LocalDateTime nextMonthStart = currentMonthStart.plusMonths(1);
-        java.math.BigDecimal currentMonthRevenue = orderRepository.getRevenueBetween(currentMonthStart, nextMonthStart);
-        if (currentMonthRevenue == null) currentMonthRevenue = java.math.BigDecimal.ZERO;
-
-        // Tháng trước
-        java.time.LocalDateTime prevMonthStart = currentMonthStart.minusMonths(1);
-        java.math.BigDecimal previousMonthRevenue = orderRepository.getRevenueBetween(prevMonthStart, currentMonthStart);
-        if (previousMonthRevenue == null) previousMonthRevenue = java.math.BigDecimal.ZERO;
+        // Đọc từ revenue_rollups (toàn hệ thống, theo tháng): tối đa 12 dòng + 1 query SUM, không quét bảng orders
+        java.time.LocalDate currentMonth = java.time.LocalDate.now().withDayOfMonth(1);
+        java.time.LocalDate previousMonth = currentMonth.minusMonths(1);
+
+        List<RevenueRollup> months = revenueRollupRepository
+                .findByGranularityAndStoreIdAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(
+                        RevenueRollup.Granularity.MONTH, RevenueRollup.GLOBAL_STORE_ID, currentMonth.minusMonths(11));
+
+        java.math.BigDecimal currentMonthRevenue = java.math.BigDecimal.ZERO;
+        java.math.BigDecimal previousMonthRevenue = java.math.BigDecimal.ZERO;
+        for (RevenueRollup rollup : months) {
+            if (rollup.getPeriodStart().equals(currentMonth)) {
+                currentMonthRevenue = rollup.getRevenue();
+            } else if (rollup.getPeriodStart().equals(previousMonth)) {
+                previousMonthRevenue = rollup.getRevenue();
+            }
+        }
 
         // % tăng trưởng
         Double growth = 0.0;
@@ -774,30 +813,28 @@ public class OrderService {
                     .doubleValue();
         }
 
-        // Doanh thu 12 tháng
-        List<Object[]> monthlyData = orderRepository.getMonthlyRevenueLast12Months();
-        List<MonthlyRevenueDto> monthlyRevenue = monthlyData.stream()
-                .map(row -> {
-                    String month = (String) row[0];
-                    String monthLabel = month;
-                    try {
-                        String[] parts = month.split("-");
-                        monthLabel = parts[1] + "/" + parts[0];
-                    } catch (Exception ignored) {}
-                    return MonthlyRevenueDto.builder()
-                            .month(month)
-                            .monthLabel(monthLabel)
-                            .revenue(row[1] != null ? (java.math.BigDecimal) row[1] : java.math.BigDecimal.ZERO)
-                            .orderCount(row[2] != null ? ((Number) row[2]).longValue() : 0L)
-                            .build();
-                })
+        // Doanh thu 12 tháng gần nhất, gồm tháng hiện tại (chỉ các tháng có đơn đã giao)
+        java.time.format.DateTimeFormatter monthFormat = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM");
+        java.time.format.DateTimeFormatter labelFormat = java.time.format.DateTimeFormatter.ofPattern("MM/yyyy");
+        List<MonthlyRevenueDto> monthlyRevenue = months.stream()
+                .filter(rollup -> rollup.getDeliveredCount() > 0)
+                .map(rollup -> MonthlyRevenueDto.builder()
+                        .month(rollup.getPeriodStart().format(monthFormat))
+                        .monthLabel(rollup.getPeriodStart().format(labelFormat))
+                        .revenue(rollup.getRevenue())
+                        .orderCount(rollup.getDeliveredCount())
+                        .build())
                 .collect(Collectors.toList());
 
         // Tổng doanh thu và tổng đơn
-        java.math.BigDecimal totalRevenue = orderRepository.getTotalRevenue();
-        if (totalRevenue == null) totalRevenue = java.math.BigDecimal.ZERO;
-
-        Long totalOrders = orderRepository.count();
+        java.math.BigDecimal totalRevenue = java.math.BigDecimal.ZERO;
+        Long totalOrders = 0L;
+        List<Object[]> totals = revenueRollupRepository.sumAllTime(RevenueRollup.GLOBAL_STORE_ID);
+        if (!totals.isEmpty() && totals.get(0) != null) {
+            Object[] row = totals.get(0);
+            totalRevenue = row[0] != null ? new java.math.BigDecimal(row[0].toString()) : java.math.BigDecimal.ZERO;
+            totalOrders = row[1] != null ? ((Number) row[1]).longValue() : 0L;
+        }
 
         return OrderStatisticsResponse.builder()
                 .currentMonthRevenue(currentMonthRevenue)
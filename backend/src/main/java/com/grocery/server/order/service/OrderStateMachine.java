@@ -0,0 +1,196 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.request.UpdateOrderStatusRequest;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.UnauthorizedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Component: OrderStateMachine
+ * Mục đích: Bảng chuyển trạng thái đơn hàng khai báo (from, to, ai được phép, guard, side effect)
+ *
+ * Thay cho switch lớn trong OrderService.validateStatusTransition:
+ * - Tra cứu transition: EnumMap[from][to] → O(1)
+ * - Kiểm tra quyền: OrderParticipants (load 1 query từ order_participants) → O(1)
+ * - Thêm trạng thái mới = thêm dòng trong bảng, không sửa logic kiểm tra
+ *
+ * Bảng hiện tại:
+ *   PENDING    → CONFIRMED   chủ cửa hàng liên quan / admin (cập nhật hàng loạt)
+ *   PENDING    → CANCELLED   khách hàng / chủ cửa hàng liên quan / admin, cần lý do hủy
+ *   CONFIRMED  → PICKING_UP  (shipper nhận đơn)
+ *   PICKING_UP → DELIVERING  shipper đã nhận đơn
+ *   DELIVERING → DELIVERED   shipper đã nhận đơn, cần ảnh POD
+ */
+@Component
+public class OrderStateMachine {
+
+    /**
+     * Ai được thực hiện transition (so với tập người tham gia của đơn)
+     */
+    public enum Actor {
+        CUSTOMER,
+        STORE_OWNER,
+        ASSIGNED_SHIPPER,
+        ADMIN,
+        ANY_USER
+    }
+
+    /**
+     * Điều kiện trên dữ liệu request (ném BadRequestException nếu không đạt)
+     */
+    @FunctionalInterface
+    public interface Guard {
+        void check(UpdateOrderStatusRequest request);
+    }
+
+    /**
+     * Tác động chạy trong transaction sau khi chuyển trạng thái thành công
+     */
+    @FunctionalInterface
+    public interface SideEffect {
+        void apply(Order order);
+    }
+
+    public record Transition(OrderStatus from,
+                             OrderStatus to,
+                             Set<Actor> actors,
+                             String forbiddenMessage,
+                             List<Guard> guards,
+                             List<SideEffect> effects) {
+    }
+
+    private static final Guard REQUIRE_CANCEL_REASON = request -> {
+        if (request.getCancelReason() == null || request.getCancelReason().isBlank()) {
+            throw new BadRequestException("Lý do hủy đơn không được để trống");
+        }
+    };
+
+    private static final Guard REQUIRE_POD_IMAGE = request -> {
+        if (request.getPodImageUrl() == null || request.getPodImageUrl().isBlank()) {
+            throw new BadRequestException("Ảnh chứng minh giao hàng không được để trống");
+        }
+    };
+
+    private static final String ASSIGNED_SHIPPER_ONLY = "Chỉ tài xế nhận đơn mới có thể cập nhật trạng thái";
+
+    private final Map<OrderStatus, Map<OrderStatus, Transition>> transitions = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, Map<OrderStatus, String>> rejections = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, String> invalidTargetMessages = new EnumMap<>(OrderStatus.class);
+
+    public OrderStateMachine(RevenueRollupService revenueRollupService) {
+        allow(OrderStatus.PENDING, OrderStatus.CONFIRMED, EnumSet.of(Actor.STORE_OWNER, Actor.ADMIN),
+                "Chỉ chủ cửa hàng liên quan mới có thể xác nhận đơn hàng",
+                List.of(), List.of());
+        allow(OrderStatus.PENDING, OrderStatus.CANCELLED, EnumSet.of(Actor.CUSTOMER, Actor.STORE_OWNER, Actor.ADMIN),
+                "Bạn không có quyền hủy đơn hàng này",
+                List.of(REQUIRE_CANCEL_REASON), List.of(revenueRollupService::recordCancelled));
+        // Tự động chuyển khi shipper nhận đơn
+        allow(OrderStatus.CONFIRMED, OrderStatus.PICKING_UP, EnumSet.of(Actor.ANY_USER),
+                null, List.of(), List.of());
+        allow(OrderStatus.PICKING_UP, OrderStatus.DELIVERING, EnumSet.of(Actor.ASSIGNED_SHIPPER),
+                ASSIGNED_SHIPPER_ONLY, List.of(), List.of());
+        allow(OrderStatus.DELIVERING, OrderStatus.DELIVERED, EnumSet.of(Actor.ASSIGNED_SHIPPER),
+                ASSIGNED_SHIPPER_ONLY, List.of(REQUIRE_POD_IMAGE), List.of(revenueRollupService::recordDelivered));
+
+        reject(OrderStatus.CONFIRMED, OrderStatus.CANCELLED,
+                "Đơn hàng đã được xác nhận, không thể hủy. Vui lòng liên hệ cửa hàng.");
+
+        invalidTargetMessages.put(OrderStatus.PENDING, "Đơn hàng chỉ có thể chuyển từ PENDING sang CONFIRMED hoặc CANCELLED");
+        invalidTargetMessages.put(OrderStatus.CONFIRMED, "Đơn hàng chỉ có thể chuyển từ CONFIRMED sang PICKING_UP");
+        invalidTargetMessages.put(OrderStatus.PICKING_UP, "Đơn hàng chỉ có thể chuyển từ PICKING_UP sang DELIVERING");
+        invalidTargetMessages.put(OrderStatus.DELIVERING, "Đơn hàng đang giao không thể hủy. Chỉ có thể chuyển sang DELIVERED");
+        invalidTargetMessages.put(OrderStatus.DELIVERED, "Đơn hàng đã hoàn tất/hủy, không thể thay đổi trạng thái");
+        invalidTargetMessages.put(OrderStatus.CANCELLED, "Đơn hàng đã hoàn tất/hủy, không thể thay đổi trạng thái");
+    }
+
+    /**
+     * Tìm và kiểm tra transition cho user
+     *
+     * @return Transition hợp lệ
+     * @throws BadRequestException   nếu không có transition / guard không đạt
+     * @throws UnauthorizedException nếu user không thuộc nhóm được phép
+     */
+    public Transition resolve(OrderStatus current, OrderStatus target, Long userId,
+                              OrderParticipants participants, UpdateOrderStatusRequest request) {
+        return resolve(current, target, userId, false, participants, request);
+    }
+
+    /**
+     * Như trên, admin = true thì được thực hiện các transition có Actor.ADMIN
+     */
+    public Transition resolve(OrderStatus current, OrderStatus target, Long userId, boolean admin,
+                              OrderParticipants participants, UpdateOrderStatusRequest request) {
+        if (current == target) {
+            throw new BadRequestException("Đơn hàng đã ở trạng thái " + target);
+        }
+
+        Transition transition = transitions.getOrDefault(current, Map.of()).get(target);
+        if (transition == null) {
+            String message = rejections.getOrDefault(current, Map.of()).get(target);
+            throw new BadRequestException(message != null
+                    ? message
+                    : invalidTargetMessages.getOrDefault(current, "Trạng thái không hợp lệ"));
+        }
+
+        if (!isAllowed(transition.actors(), userId, admin, participants)) {
+            throw new UnauthorizedException(transition.forbiddenMessage());
+        }
+
+        for (Guard guard : transition.guards()) {
+            guard.check(request);
+        }
+        return transition;
+    }
+
+    /**
+     * Chạy side effect của transition (trong transaction của caller)
+     */
+    public void applySideEffects(Transition transition, Order order) {
+        for (SideEffect effect : transition.effects()) {
+            effect.apply(order);
+        }
+    }
+
+    /**
+     * Các trạng thái có thể chuyển tới từ trạng thái hiện tại
+     */
+    public Set<OrderStatus> targetsFrom(OrderStatus from) {
+        Map<OrderStatus, Transition> targets = transitions.get(from);
+        return targets == null ? Collections.emptySet() : Collections.unmodifiableSet(targets.keySet());
+    }
+
+    private boolean isAllowed(Set<Actor> actors, Long userId, boolean admin, OrderParticipants participants) {
+        for (Actor actor : actors) {
+            boolean allowed = switch (actor) {
+                case ANY_USER -> true;
+                case CUSTOMER -> participants.isCustomer(userId);
+                case STORE_OWNER -> participants.isStoreOwner(userId);
+                case ASSIGNED_SHIPPER -> participants.isAssignedShipper(userId);
+                case ADMIN -> admin;
+            };
+            if (allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void allow(OrderStatus from, OrderStatus to, Set<Actor> actors, String forbiddenMessage,
+                       List<Guard> guards, List<SideEffect> effects) {
+        transitions.computeIfAbsent(from, s -> new EnumMap<>(OrderStatus.class))
+                .put(to, new Transition(from, to, Collections.unmodifiableSet(actors), forbiddenMessage, guards, effects));
+    }
+
+    private void reject(OrderStatus from, OrderStatus to, String message) {
+        rejections.computeIfAbsent(from, s -> new EnumMap<>(OrderStatus.class)).put(to, message);
+    }
+}
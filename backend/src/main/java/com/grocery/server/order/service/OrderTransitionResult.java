@@ -0,0 +1,46 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.entity.Order.OrderStatus;
+
+/**
+ * Kết quả chuyển trạng thái đơn hàng bằng compare-and-set
+ *
+ * - APPLIED: UPDATE khớp (status, version) → đã chuyển
+ * - CONFLICT: đơn đã bị request khác thay đổi giữa lúc đọc và lúc ghi
+ *   (currentStatus = trạng thái hiện tại, null nếu đơn không còn tồn tại)
+ */
+public record OrderTransitionResult(Outcome outcome,
+                                    Long orderId,
+                                    OrderStatus fromStatus,
+                                    OrderStatus toStatus,
+                                    OrderStatus currentStatus) {
+
+    public enum Outcome {
+        APPLIED,
+        CONFLICT
+    }
+
+    public static OrderTransitionResult applied(Long orderId, OrderStatus fromStatus, OrderStatus toStatus) {
+        return new OrderTransitionResult(Outcome.APPLIED, orderId, fromStatus, toStatus, toStatus);
+    }
+
+    public static OrderTransitionResult conflict(Long orderId, OrderStatus fromStatus, OrderStatus toStatus,
+                                                 OrderStatus currentStatus) {
+        return new OrderTransitionResult(Outcome.CONFLICT, orderId, fromStatus, toStatus, currentStatus);
+    }
+
+    public boolean isApplied() {
+        return outcome == Outcome.APPLIED;
+    }
+
+    /**
+     * Thông báo cho client khi conflict
+     */
+    public String conflictMessage() {
+        if (currentStatus == null) {
+            return "Đơn hàng #" + orderId + " không còn tồn tại";
+        }
+        return "Đơn hàng #" + orderId + " vừa được cập nhật bởi người khác (trạng thái hiện tại: "
+                + currentStatus + "), vui lòng tải lại";
+    }
+}
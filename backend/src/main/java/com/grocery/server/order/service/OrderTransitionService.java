@@ -0,0 +1,88 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import com.grocery.server.user.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service: OrderTransitionService
+ * Mục đích: Chuyển trạng thái đơn hàng bằng compare-and-set thay vì load → sửa → save()
+ *
+ * Flow:
+ * 1. Caller load đơn, validate quyền / luồng trạng thái trên bản đọc được (status, version)
+ * 2. UPDATE orders ... WHERE id = ? AND status = ? AND version = ? (1 câu lệnh)
+ * 3. 0 row → request khác đã đổi đơn trước → OrderTransitionResult.CONFLICT, không ghi đè
+ * 4. 1 row → đồng bộ order_stores.status (và order_participants khi gán shipper) trong cùng transaction,
+ *    cập nhật counter đơn theo cửa hàng (StoreOrderCounterService, áp dụng sau commit)
+ *
+ * Race Condition Handling:
+ * - Khách hủy / cửa hàng xác nhận cùng lúc, 2 shipper cùng nhận đơn: chỉ 1 UPDATE khớp
+ * - Không cần distributed lock: MySQL lock row trong lúc UPDATE là đủ
+ *
+ * Lưu ý: UPDATE bulk clear persistence context → caller load lại đơn nếu cần dữ liệu mới
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderTransitionService {
+
+    private final OrderRepository orderRepository;
+    private final OrderStoreRepository orderStoreRepository;
+    private final OrderParticipantRepository orderParticipantRepository;
+    private final StoreOrderCounterService storeOrderCounterService;
+
+    /**
+     * Chuyển trạng thái (kèm lý do hủy / ảnh POD nếu có)
+     *
+     * @param order Đơn đã load (status, version dùng làm điều kiện)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OrderTransitionResult changeStatus(Order order, OrderStatus newStatus, String cancelReason, String podImageUrl) {
+        int updated = orderRepository.compareAndSetStatus(
+                order.getId(), order.getStatus(), order.getVersion(), newStatus, cancelReason, podImageUrl);
+        return complete(order, newStatus, updated);
+    }
+
+    /**
+     * Gán shipper cho đơn chưa có người nhận và chuyển trạng thái
+     *
+     * @param order Đơn đã load (status, version dùng làm điều kiện)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OrderTransitionResult assignShipper(Order order, User shipper, OrderStatus newStatus) {
+        int updated = orderRepository.compareAndSetShipper(
+                order.getId(), order.getStatus(), order.getVersion(), shipper, newStatus);
+        OrderTransitionResult result = complete(order, newStatus, updated);
+        if (result.isApplied()) {
+            orderParticipantRepository.save(OrderParticipant.builder()
+                    .order(orderRepository.getReferenceById(order.getId()))
+                    .userId(shipper.getId())
+                    .role(OrderParticipant.ParticipantRole.SHIPPER)
+                    .build());
+        }
+        return result;
+    }
+
+    private OrderTransitionResult complete(Order order, OrderStatus newStatus, int updated) {
+        if (updated == 1) {
+            orderStoreRepository.updateStatusByOrderId(order.getId(), newStatus);
+            storeOrderCounterService.recordTransition(
+                    orderStoreRepository.findStoreIdsByOrderId(order.getId()), order.getStatus(), newStatus);
+            return OrderTransitionResult.applied(order.getId(), order.getStatus(), newStatus);
+        }
+
+        OrderStatus current = orderRepository.findStatusById(order.getId()).orElse(null);
+        log.warn("Order {} transition {} -> {} lost the race (now {})",
+                order.getId(), order.getStatus(), newStatus, current);
+        return OrderTransitionResult.conflict(order.getId(), order.getStatus(), newStatus, current);
+    }
+}
@@ -0,0 +1,249 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.RevenueRollup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service: RevenueRollupService
+ * Mục đích: Duy trì bảng revenue_rollups để thống kê không phải quét bảng orders
+ *
+ * Cập nhật cộng dồn (cùng transaction với đơn hàng):
+ * - Tạo đơn       → order_count + 1
+ * - DELIVERED     → revenue + tiền, delivered_count + 1
+ * - CANCELLED     → cancelled_count + 1
+ * Mỗi lần ghi là 1 JDBC batch UPSERT (INSERT ... ON DUPLICATE KEY UPDATE)
+ * cho 2 độ chi tiết (DAY, MONTH) × (toàn hệ thống + từng cửa hàng của đơn).
+ *
+ * Dựng lại toàn bộ: rebuild() - chạy lúc khởi động nếu bảng trống và định kỳ hằng đêm để sửa lệch,
+ * từng tháng 1 transaction ngắn để không chặn ghi cộng dồn của cả bảng.
+ */
+@Service
+@Slf4j
+public class RevenueRollupService {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO revenue_rollups (granularity, period_start, store_id, revenue, order_count, delivered_count, cancelled_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), " +
+            "order_count = order_count + VALUES(order_count), " +
+            "delivered_count = delivered_count + VALUES(delivered_count), " +
+            "cancelled_count = cancelled_count + VALUES(cancelled_count)";
+
+    /** Tiền hàng của từng cửa hàng trong từng đơn tạo trong [?, ?) */
+    private static final String STORE_SUBTOTALS =
+            "SELECT oi.order_id, p.store_id, SUM(oi.quantity * oi.unit_price) AS subtotal " +
+            "FROM orders so " +
+            "JOIN order_items oi ON oi.order_id = so.id " +
+            "JOIN product_unit_mappings pum ON pum.id = oi.product_unit_mapping_id " +
+            "JOIN products p ON p.id = pum.product_id " +
+            "WHERE so.created_at >= ? AND so.created_at < ? " +
+            "GROUP BY oi.order_id, p.store_id";
+
+    private static final String REBUILD_GLOBAL_DAYS_SQL =
+            "INSERT INTO revenue_rollups (granularity, period_start, store_id, revenue, order_count, delivered_count, cancelled_count) " +
+            "SELECT 'DAY', DATE(o.created_at), 0, " +
+            "COALESCE(SUM(CASE WHEN o.status = 'DELIVERED' THEN o.total_amount ELSE 0 END), 0), " +
+            "COUNT(*), " +
+            "SUM(CASE WHEN o.status = 'DELIVERED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END) " +
+            "FROM orders o WHERE o.created_at >= ? AND o.created_at < ? " +
+            "GROUP BY DATE(o.created_at)";
+
+    private static final String REBUILD_STORE_DAYS_SQL =
+            "INSERT INTO revenue_rollups (granularity, period_start, store_id, revenue, order_count, delivered_count, cancelled_count) " +
+            "SELECT 'DAY', DATE(o.created_at), st.store_id, " +
+            "COALESCE(SUM(CASE WHEN o.status = 'DELIVERED' THEN st.subtotal ELSE 0 END), 0), " +
+            "COUNT(*), " +
+            "SUM(CASE WHEN o.status = 'DELIVERED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END) " +
+            "FROM orders o JOIN (" + STORE_SUBTOTALS + ") st ON st.order_id = o.id " +
+            "GROUP BY DATE(o.created_at), st.store_id";
+
+    /** Dòng MONTH được cộng từ các dòng DAY vừa dựng của tháng */
+    private static final String REBUILD_MONTH_SQL =
+            "INSERT INTO revenue_rollups (granularity, period_start, store_id, revenue, order_count, delivered_count, cancelled_count) " +
+            "SELECT 'MONTH', ?, r.store_id, " +
+            "SUM(r.revenue), SUM(r.order_count), SUM(r.delivered_count), SUM(r.cancelled_count) " +
+            "FROM revenue_rollups r WHERE r.granularity = 'DAY' AND r.period_start >= ? AND r.period_start < ? " +
+            "GROUP BY r.store_id";
+
+    /** Dùng index idx_revenue_rollups_period → chỉ khóa các dòng của tháng đang dựng */
+    private static final String DELETE_PERIOD_SQL =
+            "DELETE FROM revenue_rollups WHERE period_start >= ? AND period_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public RevenueRollupService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Đơn mới được tạo
+     *
+     * @param order    Đơn đã lưu (có createdAt)
+     * @param storeIds Các cửa hàng có sản phẩm trong đơn
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrderCreated(Order order, Iterable<Long> storeIds) {
+        Map<Long, Delta> deltas = new TreeMap<>();
+        deltas.put(RevenueRollup.GLOBAL_STORE_ID, new Delta(BigDecimal.ZERO, 1, 0, 0));
+        for (Long storeId : storeIds) {
+            deltas.put(storeId, new Delta(BigDecimal.ZERO, 1, 0, 0));
+        }
+        apply(order.getCreatedAt(), deltas);
+    }
+
+    /**
+     * Đơn chuyển sang DELIVERED: cộng doanh thu (toàn hệ thống = total_amount, cửa hàng = tiền hàng của cửa hàng)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelivered(Order order) {
+        Map<Long, Delta> deltas = new TreeMap<>();
+        deltas.put(RevenueRollup.GLOBAL_STORE_ID, new Delta(order.getTotalAmount(), 0, 1, 0));
+        storeSubtotals(order).forEach((storeId, subtotal) ->
+                deltas.put(storeId, new Delta(subtotal, 0, 1, 0)));
+        apply(order.getCreatedAt(), deltas);
+    }
+
+    /**
+     * Đơn chuyển sang CANCELLED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancelled(Order order) {
+        Map<Long, Delta> deltas = new TreeMap<>();
+        deltas.put(RevenueRollup.GLOBAL_STORE_ID, new Delta(BigDecimal.ZERO, 0, 0, 1));
+        storeSubtotals(order).keySet().forEach(storeId ->
+                deltas.put(storeId, new Delta(BigDecimal.ZERO, 0, 0, 1)));
+        apply(order.getCreatedAt(), deltas);
+    }
+
+    /**
+     * Cả lô đơn chuyển sang CANCELLED (hết hạn xác nhận)
+     * Gộp theo ngày tạo đơn → mỗi ngày 1 JDBC batch thay vì mỗi đơn 1 batch
+     *
+     * @param createdAt ID đơn → thời điểm tạo
+     * @param storeIds  ID đơn → các cửa hàng của đơn (từ order_stores)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancelled(Map<Long, LocalDateTime> createdAt, Map<Long, ? extends Collection<Long>> storeIds) {
+        Map<LocalDate, Map<Long, Delta>> byDay = new TreeMap<>();
+        createdAt.forEach((orderId, created) -> {
+            LocalDate day = (created != null ? created : LocalDateTime.now()).toLocalDate();
+            Map<Long, Delta> deltas = byDay.computeIfAbsent(day, d -> new TreeMap<>());
+            deltas.merge(RevenueRollup.GLOBAL_STORE_ID, new Delta(BigDecimal.ZERO, 0, 0, 1), Delta::plus);
+            Collection<Long> stores = storeIds.get(orderId);
+            if (stores != null) {
+                stores.forEach(storeId -> deltas.merge(storeId, new Delta(BigDecimal.ZERO, 0, 0, 1), Delta::plus));
+            }
+        });
+        byDay.forEach((day, deltas) -> apply(day.atStartOfDay(), deltas));
+    }
+
+    /**
+     * Dựng lại toàn bộ revenue_rollups từ bảng orders, mỗi tháng 1 transaction
+     * (xóa dòng DAY + MONTH của tháng → INSERT ... SELECT từ đơn tạo trong tháng → cộng dòng MONTH)
+     *
+     * - Chỉ khóa dòng rollup và dòng orders của tháng đang dựng: cập nhật cộng dồn của tháng khác
+     *   không phải chờ, của tháng đó chờ tối đa 1 chunk
+     * - INSERT ... SELECT giữ shared lock trên các dòng orders đã đọc → cập nhật trạng thái chạy song song
+     *   chờ chunk commit rồi mới cộng vào dòng vừa dựng, không bị đếm thiếu/thừa
+     * - Dòng rollup nằm ngoài khoảng tháng có đơn bị xóa trong 1 transaction riêng
+     */
+    @Scheduled(cron = "${app.statistics.rollup-rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate[] range = jdbcTemplate.queryForObject(
+                "SELECT MIN(created_at), MAX(created_at) FROM orders",
+                (rs, rowNum) -> new LocalDate[]{
+                        monthOf(rs.getObject(1, LocalDateTime.class), currentMonth),
+                        monthOf(rs.getObject(2, LocalDateTime.class), currentMonth)});
+        LocalDate firstMonth = range[0];
+        LocalDate lastMonth = range[1].isAfter(currentMonth) ? range[1] : currentMonth;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_PERIOD_SQL, LocalDate.of(1970, 1, 1), firstMonth);
+            jdbcTemplate.update("DELETE FROM revenue_rollups WHERE period_start >= ?", lastMonth.plusMonths(1));
+        });
+
+        int months = 0;
+        int rows = 0;
+        for (LocalDate month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            LocalDate periodStart = month;
+            Integer inserted = transactionTemplate.execute(status -> rebuildMonth(periodStart));
+            rows += inserted != null ? inserted : 0;
+            months++;
+        }
+        log.info("Rebuilt revenue_rollups: {} months, {} rows in {} ms",
+                months, rows, System.currentTimeMillis() - start);
+    }
+
+    private int rebuildMonth(LocalDate month) {
+        LocalDate nextMonth = month.plusMonths(1);
+        LocalDateTime from = month.atStartOfDay();
+        LocalDateTime to = nextMonth.atStartOfDay();
+
+        jdbcTemplate.update(DELETE_PERIOD_SQL, month, nextMonth);
+        int rows = jdbcTemplate.update(REBUILD_GLOBAL_DAYS_SQL, from, to);
+        rows += jdbcTemplate.update(REBUILD_STORE_DAYS_SQL, from, to);
+        rows += jdbcTemplate.update(REBUILD_MONTH_SQL, month, month, nextMonth);
+        return rows;
+    }
+
+    private static LocalDate monthOf(LocalDateTime createdAt, LocalDate fallback) {
+        return createdAt != null ? createdAt.toLocalDate().withDayOfMonth(1) : fallback;
+    }
+
+    private void apply(LocalDateTime createdAt, Map<Long, Delta> deltas) {
+        LocalDate day = (createdAt != null ? createdAt : LocalDateTime.now()).toLocalDate();
+        LocalDate month = day.withDayOfMonth(1);
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size() * 2);
+        for (RevenueRollup.Granularity granularity : RevenueRollup.Granularity.values()) {
+            LocalDate periodStart = granularity == RevenueRollup.Granularity.DAY ? day : month;
+            // Thứ tự (granularity, store_id) cố định để các transaction không deadlock lẫn nhau
+            deltas.forEach((storeId, d) -> batchArgs.add(new Object[]{
+                    granularity.name(), periodStart, storeId, d.revenue(), d.orders(), d.delivered(), d.cancelled()}));
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batchArgs);
+    }
+
+    private Map<Long, BigDecimal> storeSubtotals(Order order) {
+        Map<Long, BigDecimal> subtotals = new TreeMap<>();
+        if (order.getOrderItems() == null) {
+            return subtotals;
+        }
+        for (OrderItem item : order.getOrderItems()) {
+            Long storeId = item.getProductUnitMapping().getProduct().getStore().getId();
+            subtotals.merge(storeId, item.getSubtotal(), BigDecimal::add);
+        }
+        return subtotals;
+    }
+
+    private record Delta(BigDecimal revenue, long orders, long delivered, long cancelled) {
+        Delta plus(Delta other) {
+            return new Delta(revenue.add(other.revenue), orders + other.orders,
+                    delivered + other.delivered, cancelled + other.cancelled);
+        }
+    }
+}
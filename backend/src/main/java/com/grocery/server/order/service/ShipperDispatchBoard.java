@@ -0,0 +1,346 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.dto.OrderStatusChangedEvent;
+import com.grocery.server.order.dto.cursor.OrderCursor;
+import com.grocery.server.order.dto.response.OrderResponse;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.payment.entity.Payment;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Component: ShipperDispatchBoard
+ * Mục đích: Danh sách đơn chờ shipper nhận, giữ sẵn trong bộ nhớ
+ *
+ * Đơn nằm trên bảng khi: CONFIRMED + chưa có shipper + đã thanh toán (COD hoặc MOMO SUCCESS)
+ * - giống điều kiện của OrderRepository.findAvailableOrdersForShippers
+ * - sắp xếp theo thời gian tạo (cũ nhất trước), giữ sẵn OrderResponse đã map
+ *
+ * Cập nhật:
+ * - Seed lúc khởi động và reconcile định kỳ từ database (bù event bị mất của Redis Pub/Sub)
+ * - Cùng node: OrderOutboxService gọi applyAfterCommit sau khi transaction ghi event commit
+ *   (không phụ thuộc Redis - chạy cả khi spring.redis.enabled=false)
+ * - Node khác: event từ RedisOrderEventListener:
+ *   + order:status → CONFIRMED: nạp lại đơn (1 query theo ID); trạng thái khác: gỡ khỏi bảng
+ *   + order:paid   → nạp lại đơn
+ *   + order:accepted → gỡ khỏi bảng
+ * - Cùng 1 thay đổi có thể được áp dụng 2 lần (local + Pub/Sub): refresh / remove đều idempotent
+ * - Đọc database (refresh / reconcile) chạy ngoài lock: đơn bị thay đổi trong lúc đọc (VD vừa được nhận → remove)
+ *   được đánh số thứ tự; kết quả đọc cũ hơn thay đổi đó bị bỏ qua cho đơn này → đơn đã nhận không quay lại bảng
+ *
+ * Đọc: shipper polling chỉ trả về snapshot bất biến (volatile), không chạm database
+ */
+@Component
+@Slf4j
+public class ShipperDispatchBoard {
+
+    private static final Comparator<OrderResponse> CREATION_ORDER = Comparator
+            .comparing((OrderResponse o) -> o.getCreatedAt() != null ? o.getCreatedAt() : LocalDateTime.MIN)
+            .thenComparing(OrderResponse::getId);
+
+    private final OrderRepository orderRepository;
+    private final OrderResponseMapper orderResponseMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    /** orderId → OrderResponse, chỉ sửa trong synchronized */
+    private final TreeMap<Long, OrderResponse> entries = new TreeMap<>();
+
+    /** Snapshot đã sắp xếp theo thời gian tạo, thay mới sau mỗi lần sửa */
+    private volatile List<OrderResponse> snapshot = List.of();
+
+    /** Số thứ tự thay đổi, tăng mỗi lần 1 đơn được sửa - chỉ đọc/ghi trong synchronized */
+    private long sequence;
+    /** Số lần đọc database đang chạy; khác 0 thì ghi lại changedAt */
+    private int readsInFlight;
+    /** orderId → sequence của thay đổi gần nhất trong lúc có lần đọc đang chạy (xóa khi không còn lần đọc nào) */
+    private final Map<Long, Long> changedAt = new HashMap<>();
+
+    public ShipperDispatchBoard(OrderRepository orderRepository,
+                                OrderResponseMapper orderResponseMapper,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderResponseMapper = orderResponseMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("dispatch.board.size", this, board -> board.snapshot.size())
+                .description("Số đơn đang chờ shipper nhận trên dispatch board")
+                .register(meterRegistry);
+    }
+
+    // ========== ĐỌC ==========
+
+    /**
+     * Tất cả đơn chờ nhận (cũ nhất trước)
+     */
+    public List<OrderResponse> getAvailableOrders() {
+        return snapshot;
+    }
+
+    /**
+     * Phân trang theo page/size
+     */
+    public Page<OrderResponse> getAvailableOrders(int page, int size) {
+        List<OrderResponse> current = snapshot;
+        PageRequest pageRequest = PageRequest.of(Math.max(0, page), Math.max(1, size));
+        int from = (int) Math.min(pageRequest.getOffset(), current.size());
+        int to = Math.min(from + pageRequest.getPageSize(), current.size());
+        return new PageImpl<>(current.subList(from, to), pageRequest, current.size());
+    }
+
+    /**
+     * Phân trang theo cursor (created_at, id) tăng dần
+     *
+     * @param limit Số phần tử tối đa (caller truyền limit + 1 để biết còn trang sau)
+     */
+    public List<OrderResponse> getAvailableOrdersAfter(OrderCursor cursor, int limit) {
+        List<OrderResponse> current = snapshot;
+        OrderResponse probe = OrderResponse.builder().id(cursor.id()).createdAt(cursor.createdAt()).build();
+        int index = Collections.binarySearch(current, probe, CREATION_ORDER);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        return current.subList(from, Math.min(from + limit, current.size()));
+    }
+
+    // ========== CẬP NHẬT THEO EVENT ==========
+
+    /**
+     * Nạp lại 1 đơn từ database: đủ điều kiện thì đưa lên bảng, không thì gỡ xuống
+     */
+    public void refresh(Long orderId) {
+        refresh(List.of(orderId));
+    }
+
+    /**
+     * Nạp lại cả lô đơn trong 1 query (cập nhật trạng thái hàng loạt)
+     */
+    public void refresh(Collection<Long> orderIds) {
+        long started = beginRead();
+        Map<Long, OrderResponse> available = null;
+        try {
+            available = readOnlyTransaction.execute(status ->
+                    orderRepository.findAllByIdWithFullDetails(orderIds).stream()
+                            .filter(this::isAvailable)
+                            .map(orderResponseMapper::toResponse)
+                            .collect(Collectors.toMap(OrderResponse::getId, Function.identity(), (a, b) -> a)));
+        } finally {
+            synchronized (this) {
+                if (available != null) {
+                    for (Long orderId : orderIds) {
+                        // Đã có thay đổi mới hơn lần đọc này (remove / refresh khác) → giữ nguyên
+                        if (changedSince(orderId, started)) {
+                            continue;
+                        }
+                        OrderResponse response = available.get(orderId);
+                        if (response != null) {
+                            entries.put(orderId, response);
+                        } else {
+                            entries.remove(orderId);
+                        }
+                        markChanged(orderId);
+                    }
+                    publishSnapshot();
+                }
+                endRead();
+            }
+        }
+        if (available != null) {
+            log.debug("Dispatch board refreshed {} orders ({} available)", orderIds.size(), available.size());
+        }
+    }
+
+    /**
+     * Gỡ đơn khỏi bảng (đã có shipper nhận / chuyển trạng thái khác)
+     */
+    public void remove(Long orderId) {
+        remove(List.of(orderId));
+    }
+
+    public void remove(Collection<Long> orderIds) {
+        synchronized (this) {
+            boolean changed = false;
+            for (Long orderId : orderIds) {
+                changed |= entries.remove(orderId) != null;
+                markChanged(orderId);
+            }
+            if (changed) {
+                publishSnapshot();
+                log.debug("Dispatch board removed orders {}", orderIds);
+            }
+        }
+    }
+
+    /**
+     * Áp dụng event đơn hàng lên bảng của node này sau khi transaction ghi outbox commit
+     * (cùng quy tắc với RedisOrderEventListener)
+     *
+     * @param eventType Loại event outbox (created, accepted, status, paid)
+     * @param events    orderId → event
+     */
+    public void applyAfterCommit(String eventType, Map<Long, ?> events) {
+        List<Long> toRefresh = new ArrayList<>();
+        List<Long> toRemove = new ArrayList<>();
+        events.forEach((orderId, event) -> {
+            switch (eventType) {
+                case "paid" -> toRefresh.add(orderId);
+                case "accepted" -> toRemove.add(orderId);
+                case "status" -> {
+                    if (event instanceof OrderStatusChangedEvent changed
+                            && changed.getNewStatus() == Order.OrderStatus.CONFIRMED) {
+                        toRefresh.add(orderId);
+                    } else {
+                        toRemove.add(orderId);
+                    }
+                }
+                default -> {
+                    // created: đơn PENDING chưa lên bảng
+                }
+            }
+        });
+        if (toRefresh.isEmpty() && toRemove.isEmpty()) {
+            return;
+        }
+
+        Runnable action = () -> {
+            try {
+                remove(toRemove);
+                if (!toRefresh.isEmpty()) {
+                    refresh(toRefresh);
+                }
+            } catch (Exception e) {
+                // Transaction đã commit; reconcile định kỳ sẽ sửa lại bảng
+                log.warn("Dispatch board local update failed: {}", e.getMessage());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // ========== SEED / RECONCILE ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    /**
+     * Đồng bộ toàn bộ bảng với database
+     */
+    @Scheduled(fixedDelayString = "${app.dispatch.reconcile-interval-ms:30000}",
+               initialDelayString = "${app.dispatch.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        long started = beginRead();
+        List<OrderResponse> available = null;
+        try {
+            available = readOnlyTransaction.execute(status ->
+                    orderRepository.findAvailableOrdersForShippers().stream()
+                            .map(orderResponseMapper::toResponse)
+                            .toList());
+        } catch (Exception e) {
+            log.warn("Dispatch board reconcile failed: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                if (available != null) {
+                    Map<Long, OrderResponse> fresh = new HashMap<>();
+                    available.forEach(order -> fresh.put(order.getId(), order));
+                    // Đơn thay đổi trong lúc đọc: trạng thái hiện tại của bảng mới hơn snapshot
+                    changedAt.forEach((orderId, at) -> {
+                        if (at > started) {
+                            OrderResponse current = entries.get(orderId);
+                            if (current != null) {
+                                fresh.put(orderId, current);
+                            } else {
+                                fresh.remove(orderId);
+                            }
+                        }
+                    });
+                    entries.clear();
+                    entries.putAll(fresh);
+                    publishSnapshot();
+                }
+                endRead();
+            }
+        }
+        if (available != null) {
+            log.debug("Dispatch board reconciled: {} available orders", available.size());
+        }
+    }
+
+    private synchronized long beginRead() {
+        readsInFlight++;
+        return sequence;
+    }
+
+    /**
+     * Gọi trong synchronized
+     */
+    private void endRead() {
+        if (--readsInFlight == 0) {
+            changedAt.clear();
+        }
+    }
+
+    /**
+     * Gọi trong synchronized
+     */
+    private void markChanged(Long orderId) {
+        sequence++;
+        if (readsInFlight > 0) {
+            changedAt.put(orderId, sequence);
+        }
+    }
+
+    private boolean changedSince(Long orderId, long started) {
+        Long at = changedAt.get(orderId);
+        return at != null && at > started;
+    }
+
+    private void publishSnapshot() {
+        List<OrderResponse> sorted = new ArrayList<>(entries.values());
+        sorted.sort(CREATION_ORDER);
+        snapshot = Collections.unmodifiableList(sorted);
+    }
+
+    private boolean isAvailable(Order order) {
+        if (order.getStatus() != Order.OrderStatus.CONFIRMED || order.getShipper() != null) {
+            return false;
+        }
+        // Giống điều kiện thanh toán của findAvailableOrdersForShippers
+        return order.getPayments() != null && order.getPayments().stream().anyMatch(p ->
+                p.getPaymentMethod() == Payment.PaymentMethod.COD
+                        || (p.getPaymentMethod() == Payment.PaymentMethod.MOMO && p.getStatus() == Payment.PaymentStatus.SUCCESS));
+    }
+}
@@ -0,0 +1,217 @@
+package com.grocery.server.order.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Component: ShipperLocationIndex
+ * Mục đích: Chỉ mục không gian (grid) vị trí gần nhất của các shipper đang online
+ *
+ * Cấu trúc:
+ * - Chia bản đồ thành ô lưới CELL_DEGREES x CELL_DEGREES (~1.1 km ở Việt Nam)
+ * - cells: ô lưới → tập shipperId đang ở trong ô
+ * - positions: shipperId → vị trí mới nhất (kèm ô hiện tại)
+ *
+ * Tìm K shipper gần nhất trong bán kính R:
+ * - Chỉ duyệt các ô nằm trong bounding box của R thay vì toàn bộ shipper
+ * - Lọc theo khoảng cách thực (haversine), bỏ vị trí quá cũ (shipper coi như offline)
+ *
+ * Vị trí cũ hơn app.dispatch.location-ttl-ms bị dọn định kỳ
+ */
+@Component
+@Slf4j
+public class ShipperLocationIndex {
+
+    private static final double CELL_DEGREES = 0.01;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    /**
+     * Vị trí shipper
+     *
+     * @param principal Số điện thoại (principal WebSocket) để gửi offer qua /user/queue
+     */
+    public record ShipperPosition(Long shipperId, String principal, double lat, double lng,
+                                  long cell, long updatedAt) {
+    }
+
+    /**
+     * Kết quả tìm kiếm: shipper kèm khoảng cách (km)
+     */
+    public record NearbyShipper(ShipperPosition position, double distanceKm) {
+    }
+
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+    private final Map<Long, ShipperPosition> positions = new ConcurrentHashMap<>();
+    private final Map<String, Long> principals = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public ShipperLocationIndex(@Value("${app.dispatch.location-ttl-ms:120000}") long ttlMillis,
+                                MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlMillis;
+        Gauge.builder("dispatch.shippers.online", positions, Map::size)
+                .description("Số shipper có vị trí còn hiệu lực trong chỉ mục")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cập nhật vị trí shipper
+     * Bỏ qua bản cập nhật cũ hơn vị trí đang có (event Pub/Sub có thể tới sai thứ tự)
+     */
+    public void update(Long shipperId, String principal, double lat, double lng, long timestamp) {
+        long cell = cellOf(lat, lng);
+        positions.compute(shipperId, (id, current) -> {
+            if (current != null && current.updatedAt() > timestamp) {
+                return current;
+            }
+            if (current != null && current.cell() != cell) {
+                removeFromCell(current.cell(), id);
+            }
+            // Thêm trong compute của ô để không đua với removeFromCell đang xóa ô rỗng
+            cells.compute(cell, (c, members) -> {
+                Set<Long> target = members != null ? members : ConcurrentHashMap.newKeySet();
+                target.add(id);
+                return target;
+            });
+            return new ShipperPosition(id, principal, lat, lng, cell, timestamp);
+        });
+        if (principal != null) {
+            principals.put(principal, shipperId);
+        }
+    }
+
+    /**
+     * Gỡ shipper khỏi chỉ mục (offline)
+     */
+    public void remove(Long shipperId) {
+        positions.computeIfPresent(shipperId, (id, current) -> {
+            removeFromCell(current.cell(), id);
+            if (current.principal() != null) {
+                principals.remove(current.principal(), id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Gỡ shipper theo principal (WebSocket disconnect chỉ biết số điện thoại)
+     *
+     * @return ID shipper đã gỡ, null nếu không có trong chỉ mục
+     */
+    public Long removeByPrincipal(String principal) {
+        Long shipperId = principals.get(principal);
+        if (shipperId != null) {
+            remove(shipperId);
+        }
+        return shipperId;
+    }
+
+    /**
+     * Tìm tối đa limit shipper gần nhất trong bán kính radiusKm
+     *
+     * @param exclude Shipper đã được offer trước đó (không trả lại)
+     * @return Danh sách sắp xếp theo khoảng cách tăng dần
+     */
+    public List<NearbyShipper> findNearest(double lat, double lng, double radiusKm, int limit,
+                                           Collection<Long> exclude) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double lngSpan = radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+        long minRow = row(lat - latSpan);
+        long maxRow = row(lat + latSpan);
+        long minCol = col(lng - lngSpan);
+        long maxCol = col(lng + lngSpan);
+        long freshAfter = System.currentTimeMillis() - ttlMillis;
+
+        List<NearbyShipper> found = new ArrayList<>();
+        for (long r = minRow; r <= maxRow; r++) {
+            for (long c = minCol; c <= maxCol; c++) {
+                Set<Long> members = cells.get(pack(r, c));
+                if (members == null) {
+                    continue;
+                }
+                for (Long shipperId : members) {
+                    if (exclude.contains(shipperId)) {
+                        continue;
+                    }
+                    ShipperPosition position = positions.get(shipperId);
+                    if (position == null || position.updatedAt() < freshAfter) {
+                        continue;
+                    }
+                    double distance = distanceKm(lat, lng, position.lat(), position.lng());
+                    if (distance <= radiusKm) {
+                        found.add(new NearbyShipper(position, distance));
+                    }
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(NearbyShipper::distanceKm));
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Dọn vị trí quá hạn (app không gửi ping nữa)
+     */
+    @Scheduled(fixedDelayString = "${app.dispatch.location-purge-interval-ms:60000}")
+    public void purgeStale() {
+        long freshAfter = System.currentTimeMillis() - ttlMillis;
+        int before = positions.size();
+        positions.values().stream()
+                .filter(p -> p.updatedAt() < freshAfter)
+                .map(ShipperPosition::shipperId)
+                .toList()
+                .forEach(this::remove);
+        int purged = before - positions.size();
+        if (purged > 0) {
+            log.debug("Purged {} stale shipper locations", purged);
+        }
+    }
+
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    private void removeFromCell(long cell, Long shipperId) {
+        cells.computeIfPresent(cell, (c, members) -> {
+            members.remove(shipperId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private static long cellOf(double lat, double lng) {
+        return pack(row(lat), col(lng));
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor((lat + 90.0) / CELL_DEGREES);
+    }
+
+    private static long col(double lng) {
+        return (long) Math.floor((lng + 180.0) / CELL_DEGREES);
+    }
+
+    private static long pack(long row, long col) {
+        return (row << 32) | (col & 0xffffffffL);
+    }
+}
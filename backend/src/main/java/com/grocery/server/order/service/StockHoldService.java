@@ -0,0 +1,600 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.request.CreateOrderItemRequest;
+import com.grocery.server.order.dto.request.CreateStockHoldRequest;
+import com.grocery.server.order.dto.response.StockHoldResponse;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.UnauthorizedException;
+import com.grocery.server.store.entity.Store;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service: StockHoldService
+ * Mục đích: Giữ hàng có thời hạn từ lúc khách bắt đầu checkout tới khi tạo đơn
+ * (khoảng chuyển sang MoMo / VNPay), để hàng không bị người khác mua mất giữa chừng
+ *
+ * - Khách giữ hàng cho giỏ → hold (TTL app.stock-hold.ttl-ms); mỗi khách 1 hold, hold mới thay hold cũ
+ * - Có thể bán = stock_quantity - tổng đang giữ của biến thể: tra 1 phần tử map / 1 field hash (O(1)),
+ *   không lock dòng product_unit_mappings
+ * - Tạo đơn: claimForOrder ghi phần sắp trừ kho vào registry như 1 hold tạm (claim) và trả phần người KHÁC
+ *   đang giữ trong cùng 1 bước; UPDATE trừ kho chừa lại đúng phần đó. Claim được nhả khi transaction kết thúc,
+ *   commit thì hold của khách cũng được nhả (đã chuyển thành trừ kho). Rollback → hold giữ nguyên tới khi hết hạn
+ * - Hết hạn: thread nền quét mỗi app.stock-hold.sweep-interval-ms, nhả hold (và claim bị bỏ lại) quá hạn
+ *
+ * Tồn kho khi giữ hàng là ảnh chụp lúc đọc → sau khi ghi hold, tồn kho được đọc lại (không lock):
+ * đơn nào commit trước thời điểm ghi hold thì hiện ra ở lần đọc này, đơn nào bắt đầu sau thì thấy hold qua claim.
+ * Hold vượt tồn kho → bị nhả và từ chối. Chặn bán âm kho vẫn là UPDATE có điều kiện của StockReservationService
+ *
+ * Không có Redis (1 instance): các map trong bộ nhớ, ghi dưới 1 monitor (chỉ thao tác map, không I/O)
+ *
+ * Redis (nhiều instance):
+ * - stock:held (hash mappingId → tổng đang giữ), stock:hold:id:{holdId} (hash mappingId → số lượng, customer),
+ *   stock:hold:expiry (zset theo thời điểm hết hạn), stock:hold:customer:{id} → holdId
+ * - Tạo / claim / nhả bằng Lua script: kiểm tra và cộng tổng đang giữ trong 1 bước nguyên tử giữa các node
+ * - Node nào cũng quét zset; nhả là idempotent (ZREM thành công mới trừ tổng)
+ *
+ * Metrics: stock.hold (result=created|rejected|converted|released|expired)
+ */
+@Service
+@Slf4j
+public class StockHoldService {
+
+    private static final String HELD_KEY = "stock:held";
+    private static final String EXPIRY_KEY = "stock:hold:expiry";
+    private static final String HOLD_PREFIX = "stock:hold:id:";
+    private static final String CUSTOMER_PREFIX = "stock:hold:customer:";
+    private static final String CUSTOMER_FIELD = "customer";
+    private static final int SWEEP_BATCH = 500;
+
+    /**
+     * Claim của node bị dừng giữa transaction được quét sau thời gian này
+     */
+    private static final long CLAIM_TTL_MS = 60_000;
+
+    /**
+     * KEYS: stock:held, stock:hold:expiry; ARGV[1..2]: tiền tố key hold / key khách
+     */
+    private static final String RELEASE_FUNCTION =
+            "local function release(id) " +
+            "  if redis.call('zrem', KEYS[2], id) == 0 then return 0 end " +
+            "  local key = ARGV[1] .. id " +
+            "  local fields = redis.call('hgetall', key) " +
+            "  for i = 1, #fields, 2 do " +
+            "    if fields[i] == '" + CUSTOMER_FIELD + "' then " +
+            "      local owner = ARGV[2] .. fields[i + 1] " +
+            "      if redis.call('get', owner) == id then redis.call('del', owner) end " +
+            "    elseif redis.call('hincrby', KEYS[1], fields[i], -tonumber(fields[i + 1])) <= 0 then " +
+            "      redis.call('hdel', KEYS[1], fields[i]) " +
+            "    end " +
+            "  end " +
+            "  redis.call('del', key) " +
+            "  return 1 " +
+            "end ";
+
+    /**
+     * ARGV[3]: holdId → 1 nếu đã nhả, 0 nếu không còn
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            RELEASE_FUNCTION + "return release(ARGV[3])", Long.class);
+
+    /**
+     * ARGV[3]: holdId, ARGV[4]: customerId, ARGV[5]: hết hạn (epoch ms), từ ARGV[6]: bộ ba mappingId, số lượng, tồn kho
+     * → 0 nếu đã giữ, ngược lại mappingId không đủ hàng
+     */
+    private static final RedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>(
+            RELEASE_FUNCTION +
+            "local previous = redis.call('get', ARGV[2] .. ARGV[4]) " +
+            "if previous then release(previous) end " +
+            "for i = 6, #ARGV, 3 do " +
+            "  local held = tonumber(redis.call('hget', KEYS[1], ARGV[i]) or '0') " +
+            "  if tonumber(ARGV[i + 2]) - held < tonumber(ARGV[i + 1]) then return tonumber(ARGV[i]) end " +
+            "end " +
+            "local key = ARGV[1] .. ARGV[3] " +
+            "for i = 6, #ARGV, 3 do " +
+            "  redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "  redis.call('hset', key, ARGV[i], ARGV[i + 1]) " +
+            "end " +
+            "redis.call('hset', key, '" + CUSTOMER_FIELD + "', ARGV[4]) " +
+            "redis.call('zadd', KEYS[2], ARGV[5], ARGV[3]) " +
+            "redis.call('set', ARGV[2] .. ARGV[4], ARGV[3]) " +
+            "return 0", Long.class);
+
+    /**
+     * ARGV[3]: claimId, ARGV[4]: holdId của khách ('' nếu không có), ARGV[5]: bây giờ, ARGV[6]: hết hạn claim (epoch ms),
+     * từ ARGV[7]: cặp mappingId, số lượng trừ kho
+     * → phần người khác đang giữ của từng mapping (theo thứ tự ARGV); phần vượt hold của khách được cộng vào claim
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local own = {} " +
+            "if ARGV[4] ~= '' and tonumber(redis.call('zscore', KEYS[2], ARGV[4]) or '0') > tonumber(ARGV[5]) then " +
+            "  local fields = redis.call('hgetall', ARGV[1] .. ARGV[4]) " +
+            "  for i = 1, #fields, 2 do own[fields[i]] = tonumber(fields[i + 1]) end " +
+            "end " +
+            "local key = ARGV[1] .. ARGV[3] " +
+            "local others = {} " +
+            "for i = 7, #ARGV, 2 do " +
+            "  local mine = own[ARGV[i]] or 0 " +
+            "  others[#others + 1] = tonumber(redis.call('hget', KEYS[1], ARGV[i]) or '0') - mine " +
+            "  local extra = tonumber(ARGV[i + 1]) - mine " +
+            "  if extra > 0 then " +
+            "    redis.call('hincrby', KEYS[1], ARGV[i], extra) " +
+            "    redis.call('hset', key, ARGV[i], extra) " +
+            "  end " +
+            "end " +
+            "if redis.call('exists', key) == 1 then redis.call('zadd', KEYS[2], ARGV[6], ARGV[3]) end " +
+            "return others", List.class);
+
+    /**
+     * 1 phiên giữ hàng (customerId null: claim của đơn đang tạo)
+     *
+     * @param quantities mappingId → số lượng đang giữ
+     * @param expiresAt  Thời điểm hết hạn (epoch ms)
+     */
+    public record StockHold(String id, Long customerId, Map<Long, Integer> quantities, long expiresAt) {
+    }
+
+    private final StockReservationService stockReservationService;
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlMs;
+    private final long sweepIntervalMs;
+
+    // Không có Redis
+    private final Map<Long, Integer> localHeld = new ConcurrentHashMap<>();
+    private final Map<String, StockHold> localHolds = new ConcurrentHashMap<>();
+    private final Map<Long, String> localHoldByCustomer = new ConcurrentHashMap<>();
+
+    private final Counter createdCounter;
+    private final Counter rejectedCounter;
+    private final Counter convertedCounter;
+    private final Counter releasedCounter;
+    private final Counter expiredCounter;
+
+    private volatile boolean sweepFailing;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stock-hold-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public StockHoldService(StockReservationService stockReservationService,
+                            @Autowired(required = false) StringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.stock-hold.ttl-ms:600000}") long ttlMs,
+                            @Value("${app.stock-hold.sweep-interval-ms:1000}") long sweepIntervalMs) {
+        this.stockReservationService = stockReservationService;
+        this.redisTemplate = redisTemplate;
+        this.ttlMs = ttlMs;
+        this.sweepIntervalMs = sweepIntervalMs;
+        this.createdCounter = counter(meterRegistry, "created");
+        this.rejectedCounter = counter(meterRegistry, "rejected");
+        this.convertedCounter = counter(meterRegistry, "converted");
+        this.releasedCounter = counter(meterRegistry, "released");
+        this.expiredCounter = counter(meterRegistry, "expired");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("stock.hold")
+                .description("Số phiên giữ hàng checkout theo kết quả")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweepExpired, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // ========== GIỮ HÀNG ==========
+
+    /**
+     * Giữ hàng cho giỏ của khách (thay hold cũ của khách nếu có; hold mới bị từ chối thì hold cũ cũng đã được nhả)
+     *
+     * @throws BadRequestException nếu biến thể không đủ hàng sau khi trừ phần người khác đang giữ
+     */
+    public StockHoldResponse createHold(CreateStockHoldRequest request, Long customerId) {
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(
+                request.getItems().stream().map(CreateOrderItemRequest::getProductUnitMappingId).toList());
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CreateOrderItemRequest item : request.getItems()) {
+            ProductUnitMapping mapping = mappings.get(item.getProductUnitMappingId());
+            Store store = mapping.getProduct().getStore();
+            if (store != null && !store.getIsOpen()) {
+                throw new BadRequestException("Cửa hàng '" + store.getStoreName() + "' hiện không hoạt động");
+            }
+            int quantity;
+            try {
+                quantity = item.getQuantity().intValueExact();
+            } catch (ArithmeticException ex) {
+                throw new BadRequestException(
+                        "Số lượng đặt cho biến thể phải là số nguyên do tồn kho hiện được quản lý theo đơn vị nguyên");
+            }
+            quantities.merge(mapping.getId(), quantity, Integer::sum);
+        }
+
+        Map<Long, Integer> stock = new HashMap<>();
+        mappings.forEach((mappingId, mapping) -> stock.put(mappingId, mapping.getStockQuantity()));
+        StockHold hold = new StockHold(UUID.randomUUID().toString(), customerId, Map.copyOf(quantities),
+                System.currentTimeMillis() + ttlMs);
+        Long rejected = redisTemplate != null ? createInRedis(hold, stock) : createLocal(hold, stock);
+
+        if (rejected == null) {
+            // Ảnh chụp tồn kho có thể đã cũ: đọc lại sau khi hold đã hiện trong registry
+            stock.putAll(stockReservationService.currentStock(quantities.keySet()));
+            rejected = overcommitted(quantities.keySet(), stock);
+            if (rejected != null) {
+                releaseHold(hold.id());
+            }
+        }
+        if (rejected != null) {
+            rejectedCounter.increment();
+            ProductUnitMapping mapping = mappings.get(rejected);
+            int available = Math.max(0, stock.getOrDefault(rejected, 0) - heldQuantity(rejected));
+            throw new BadRequestException("Sản phẩm '" + mapping.getProduct().getName() + " - " +
+                    mapping.getDisplayUnitName() + "' chỉ còn " + available +
+                    " có thể đặt (yêu cầu: " + quantities.get(rejected) + ")");
+        }
+
+        createdCounter.increment();
+        log.debug("Customer {} holds {} variants until {}", customerId, quantities.size(), hold.expiresAt());
+        return StockHoldResponse.builder()
+                .holdId(hold.id())
+                .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAt()), ZoneId.systemDefault()))
+                .items(quantities)
+                .build();
+    }
+
+    /**
+     * @return mappingId có tổng đang giữ vượt tồn kho, null nếu không có
+     */
+    private Long overcommitted(Collection<Long> mappingIds, Map<Long, Integer> stock) {
+        Map<Long, Integer> held = heldQuantities(mappingIds);
+        for (Long mappingId : mappingIds) {
+            if (stock.getOrDefault(mappingId, 0) < held.getOrDefault(mappingId, 0)) {
+                return mappingId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hold còn hiệu lực của khách, null nếu không còn (hết hạn / đã dùng)
+     *
+     * @throws UnauthorizedException nếu hold thuộc khách khác
+     */
+    public StockHold findActiveHold(String holdId, Long customerId) {
+        if (holdId == null || holdId.isBlank()) {
+            return null;
+        }
+        StockHold hold = redisTemplate != null ? findInRedis(holdId) : localHolds.get(holdId);
+        if (hold == null || hold.customerId() == null || hold.expiresAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        if (!hold.customerId().equals(customerId)) {
+            throw new UnauthorizedException("Bạn không có quyền dùng phiên giữ hàng này");
+        }
+        return hold;
+    }
+
+    /**
+     * Khách hủy checkout: nhả hàng ngay
+     */
+    public void release(String holdId, Long customerId) {
+        StockHold hold = findActiveHold(holdId, customerId);
+        if (hold != null && releaseHold(hold.id())) {
+            releasedCounter.increment();
+        }
+    }
+
+    // ========== TẠO ĐƠN ==========
+
+    /**
+     * Ghi phần sắp trừ kho của đơn vào registry (claim) trước UPDATE trừ kho, bắt buộc trong transaction tạo đơn
+     * - Phần nằm trong hold của khách không cộng thêm; phần vượt hold được cộng như 1 hold tạm
+     * - Hold tạo song song thấy claim → không được giữ lại số hàng đơn này sắp trừ
+     * - Transaction kết thúc: claim được nhả (commit thì tồn kho đã giảm); commit → hold của khách cũng được nhả
+     * Redis lỗi → coi như không ai giữ (tồn kho vẫn được chặn bởi UPDATE có điều kiện)
+     *
+     * @param deductions mappingId → số lượng trừ kho (đã gộp)
+     * @param ownHold    Hold của khách (findActiveHold), có thể null
+     * @return mappingId → số lượng người khác đang giữ, truyền cho StockReservationService.deductStock
+     */
+    public Map<Long, Integer> claimForOrder(Map<Long, Integer> deductions, StockHold ownHold) {
+        StockHold claim = new StockHold(UUID.randomUUID().toString(), null, Map.copyOf(deductions),
+                System.currentTimeMillis() + CLAIM_TTL_MS);
+        Map<Long, Integer> heldByOthers;
+        try {
+            heldByOthers = redisTemplate != null ? claimInRedis(claim, ownHold) : claimLocal(claim, ownHold);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to claim held stock in Redis: {}", ex.getMessage());
+            heldByOthers = new HashMap<>();
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (ownHold != null && releaseQuietly(ownHold.id())) {
+                    convertedCounter.increment();
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                releaseQuietly(claim.id());
+            }
+        });
+        return heldByOthers;
+    }
+
+    /**
+     * Sau commit / rollback: lỗi chỉ log, phần còn lại được nhả khi hết hạn
+     */
+    private boolean releaseQuietly(String holdId) {
+        try {
+            return releaseHold(holdId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to release stock hold {}: {}", holdId, ex.getMessage());
+            return false;
+        }
+    }
+
+    // ========== CÓ THỂ BÁN ==========
+
+    /**
+     * Số lượng người khác đang giữ của các biến thể (trừ phần của hold truyền vào)
+     * Redis lỗi → coi như không ai giữ
+     */
+    public Map<Long, Integer> heldByOthers(Collection<Long> mappingIds, StockHold ownHold) {
+        Map<Long, Integer> held = heldQuantities(mappingIds);
+        if (ownHold != null) {
+            ownHold.quantities().forEach((mappingId, quantity) ->
+                    held.computeIfPresent(mappingId, (id, total) -> total > quantity ? total - quantity : null));
+        }
+        return held;
+    }
+
+    private int heldQuantity(Long mappingId) {
+        return heldQuantities(List.of(mappingId)).getOrDefault(mappingId, 0);
+    }
+
+    private Map<Long, Integer> heldQuantities(Collection<Long> mappingIds) {
+        Map<Long, Integer> held = new HashMap<>();
+        if (mappingIds.isEmpty()) {
+            return held;
+        }
+        if (redisTemplate == null) {
+            for (Long mappingId : mappingIds) {
+                Integer quantity = localHeld.get(mappingId);
+                if (quantity != null) {
+                    held.put(mappingId, quantity);
+                }
+            }
+            return held;
+        }
+        List<Long> ids = new ArrayList<>(mappingIds);
+        try {
+            List<Object> values = redisTemplate.opsForHash()
+                    .multiGet(HELD_KEY, ids.stream().map(id -> (Object) id.toString()).toList());
+            for (int i = 0; i < ids.size(); i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    held.put(ids.get(i), Integer.parseInt(value.toString()));
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to read held stock from Redis: {}", ex.getMessage());
+        }
+        return held;
+    }
+
+    // ========== HẾT HẠN ==========
+
+    /**
+     * @return Số hold của khách đã nhả (claim bị bỏ lại không được đếm)
+     */
+    int sweepExpired() {
+        try {
+            long now = System.currentTimeMillis();
+            int expired = 0;
+            if (redisTemplate == null) {
+                for (StockHold hold : localHolds.values()) {
+                    if (hold.expiresAt() <= now && releaseHold(hold.id()) && hold.customerId() != null) {
+                        expired++;
+                    }
+                }
+            } else {
+                Set<String> ids = redisTemplate.opsForZSet().rangeByScore(EXPIRY_KEY, 0, now, 0, SWEEP_BATCH);
+                for (String id : ids != null ? ids : Set.<String>of()) {
+                    if (releaseHold(id)) {
+                        expired++;
+                    }
+                }
+            }
+            if (expired > 0) {
+                expiredCounter.increment(expired);
+                log.debug("Released {} expired stock holds", expired);
+            }
+            sweepFailing = false;
+            return expired;
+        } catch (RuntimeException ex) {
+            // Chỉ log lần đầu của chuỗi lỗi (quét chạy mỗi giây)
+            if (!sweepFailing) {
+                log.warn("Stock hold sweep failed: {}", ex.getMessage());
+            }
+            sweepFailing = true;
+            return 0;
+        }
+    }
+
+    // ========== LƯU TRỮ ==========
+
+    private boolean releaseHold(String holdId) {
+        if (redisTemplate != null) {
+            Long released = redisTemplate.execute(RELEASE_SCRIPT, List.of(HELD_KEY, EXPIRY_KEY),
+                    HOLD_PREFIX, CUSTOMER_PREFIX, holdId);
+            return released != null && released == 1L;
+        }
+        synchronized (this) {
+            return releaseLocal(holdId);
+        }
+    }
+
+    /**
+     * Gọi khi đang giữ monitor
+     */
+    private boolean releaseLocal(String holdId) {
+        StockHold hold = localHolds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        hold.quantities().forEach((mappingId, quantity) ->
+                localHeld.computeIfPresent(mappingId, (id, total) -> total > quantity ? total - quantity : null));
+        if (hold.customerId() != null) {
+            localHoldByCustomer.remove(hold.customerId(), holdId);
+        }
+        return true;
+    }
+
+    /**
+     * @return mappingId không đủ hàng, null nếu đã giữ
+     */
+    private Long createLocal(StockHold hold, Map<Long, Integer> stock) {
+        synchronized (this) {
+            String previous = localHoldByCustomer.get(hold.customerId());
+            if (previous != null) {
+                releaseLocal(previous);
+            }
+            for (Map.Entry<Long, Integer> entry : hold.quantities().entrySet()) {
+                if (stock.get(entry.getKey()) - localHeld.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+                    return entry.getKey();
+                }
+            }
+            hold.quantities().forEach((mappingId, quantity) -> localHeld.merge(mappingId, quantity, Integer::sum));
+            localHolds.put(hold.id(), hold);
+            localHoldByCustomer.put(hold.customerId(), hold.id());
+            return null;
+        }
+    }
+
+    private Long createInRedis(StockHold hold, Map<Long, Integer> stock) {
+        List<String> args = new ArrayList<>();
+        args.add(HOLD_PREFIX);
+        args.add(CUSTOMER_PREFIX);
+        args.add(hold.id());
+        args.add(hold.customerId().toString());
+        args.add(Long.toString(hold.expiresAt()));
+        hold.quantities().forEach((mappingId, quantity) -> {
+            args.add(mappingId.toString());
+            args.add(quantity.toString());
+            args.add(stock.get(mappingId).toString());
+        });
+        Long rejected = redisTemplate.execute(CREATE_SCRIPT, List.of(HELD_KEY, EXPIRY_KEY), args.toArray());
+        return rejected == null || rejected == 0L ? null : rejected;
+    }
+
+    /**
+     * @return mappingId → phần người khác đang giữ
+     */
+    private Map<Long, Integer> claimLocal(StockHold claim, StockHold ownHold) {
+        synchronized (this) {
+            StockHold own = ownHold != null ? localHolds.get(ownHold.id()) : null;
+            if (own != null && own.expiresAt() <= System.currentTimeMillis()) {
+                own = null;
+            }
+            Map<Long, Integer> heldByOthers = new HashMap<>();
+            Map<Long, Integer> extra = new HashMap<>();
+            for (Map.Entry<Long, Integer> entry : claim.quantities().entrySet()) {
+                int mine = own != null ? own.quantities().getOrDefault(entry.getKey(), 0) : 0;
+                int others = localHeld.getOrDefault(entry.getKey(), 0) - mine;
+                if (others > 0) {
+                    heldByOthers.put(entry.getKey(), others);
+                }
+                if (entry.getValue() > mine) {
+                    extra.put(entry.getKey(), entry.getValue() - mine);
+                }
+            }
+            if (!extra.isEmpty()) {
+                extra.forEach((mappingId, quantity) -> localHeld.merge(mappingId, quantity, Integer::sum));
+                localHolds.put(claim.id(), new StockHold(claim.id(), null, Map.copyOf(extra), claim.expiresAt()));
+            }
+            return heldByOthers;
+        }
+    }
+
+    private Map<Long, Integer> claimInRedis(StockHold claim, StockHold ownHold) {
+        List<Long> ids = new ArrayList<>(claim.quantities().keySet());
+        List<String> args = new ArrayList<>();
+        args.add(HOLD_PREFIX);
+        args.add(CUSTOMER_PREFIX);
+        args.add(claim.id());
+        args.add(ownHold != null ? ownHold.id() : "");
+        args.add(Long.toString(System.currentTimeMillis()));
+        args.add(Long.toString(claim.expiresAt()));
+        for (Long mappingId : ids) {
+            args.add(mappingId.toString());
+            args.add(claim.quantities().get(mappingId).toString());
+        }
+        List<?> others = redisTemplate.execute(CLAIM_SCRIPT, List.of(HELD_KEY, EXPIRY_KEY), args.toArray());
+        Map<Long, Integer> heldByOthers = new HashMap<>();
+        for (int i = 0; others != null && i < ids.size(); i++) {
+            int quantity = ((Number) others.get(i)).intValue();
+            if (quantity > 0) {
+                heldByOthers.put(ids.get(i), quantity);
+            }
+        }
+        return heldByOthers;
+    }
+
+    private StockHold findInRedis(String holdId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(HOLD_PREFIX + holdId);
+        Double expiresAt = redisTemplate.opsForZSet().score(EXPIRY_KEY, holdId);
+        if (fields.isEmpty() || expiresAt == null || !fields.containsKey(CUSTOMER_FIELD)) {
+            return null;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        fields.forEach((field, value) -> {
+            if (!CUSTOMER_FIELD.equals(field)) {
+                quantities.put(Long.valueOf(field.toString()), Integer.valueOf(value.toString()));
+            }
+        });
+        return new StockHold(holdId, Long.valueOf(fields.get(CUSTOMER_FIELD).toString()),
+                Map.copyOf(quantities), expiresAt.longValue());
+    }
+}
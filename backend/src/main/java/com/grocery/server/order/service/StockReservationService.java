@@ -0,0 +1,201 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.repository.ProductRepository;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ResourceNotFoundException;
+import com.grocery.server.shared.jdbc.ConditionalBatchUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service: StockReservationService
+ * Mục đích: Trừ tồn kho cho đơn hàng theo lô, nguyên tử ở tầng database
+ *
+ * Flow:
+ * 1. Load tất cả ProductUnitMapping của giỏ hàng trong 1 query IN (kèm product, store)
+ * 2. Gộp số lượng theo mapping (giỏ có thể có 2 dòng cùng 1 biến thể)
+ * 3. Trừ kho bằng UPDATE có điều kiện, gửi 1 JDBC batch:
+ *    UPDATE ... SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?
+ * 4. Dòng nào update 0 row → hết hàng → ném BadRequestException, transaction rollback toàn bộ đơn
+ *    (driver không trả số dòng cho batch → ConditionalBatchUpdate chạy lại từng câu để biết chính xác)
+ * Hàng khách khác đang giữ (StockHoldService) được chừa lại: điều kiện là stock_quantity >= số lượng + phần đang giữ
+ *
+ * Race Condition Handling:
+ * - Điều kiện stock_quantity >= ? được MySQL kiểm tra trên row đã lock → không thể bán âm kho
+ * - Update theo thứ tự ID tăng dần → 2 checkout cùng lúc không deadlock lẫn nhau
+ *
+ * Hoàn kho (đơn bị hủy): restoreStock - cũng 1 JDBC batch, cùng thứ tự ID
+ * Tồn kho hiển thị trong danh sách sản phẩm → bump ETag của các cửa hàng liên quan sau commit,
+ * đọc lại tồn kho đã commit của các biến thể và cập nhật vào ProductSearchIndex
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService {
+
+    private static final String DEDUCT_STOCK_SQL =
+            "UPDATE product_unit_mappings SET stock_quantity = stock_quantity - ?, updated_at = NOW() " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String CURRENT_STOCK_SQL =
+            "SELECT id, stock_quantity FROM product_unit_mappings WHERE id IN (:ids)";
+
+    private static final String RESTORE_STOCK_SQL =
+            "UPDATE product_unit_mappings SET stock_quantity = stock_quantity + ?, updated_at = NOW() WHERE id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ResourceVersionService resourceVersionService;
+    private final ProductSearchIndex productSearchIndex;
+
+    /**
+     * Load các mapping theo ID trong 1 query
+     *
+     * @param mappingIds ID các biến thể trong giỏ hàng
+     * @return Map ID → ProductUnitMapping (đã fetch product, store, owner)
+     * @throws ResourceNotFoundException nếu có ID không tồn tại
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ProductUnitMapping> loadMappings(Collection<Long> mappingIds) {
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(mappingIds);
+        Map<Long, ProductUnitMapping> result = new HashMap<>();
+        for (ProductUnitMapping mapping : productRepository.findProductUnitMappingsWithStoreByIdIn(ids)) {
+            result.put(mapping.getId(), mapping);
+        }
+
+        for (Long id : ids) {
+            if (!result.containsKey(id)) {
+                throw new ResourceNotFoundException("Không tìm thấy biến thể sản phẩm ID: " + id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Trừ tồn kho cho toàn bộ giỏ hàng trong 1 JDBC batch
+     * Bắt buộc chạy trong transaction của caller để rollback cùng đơn hàng khi có lỗi
+     *
+     * @param quantities Map mappingId → số lượng cần trừ (đã gộp)
+     * @param mappings   Mapping đã load từ loadMappings (dùng để báo lỗi)
+     * @param reserved   Map mappingId → số lượng khách khác đang giữ (StockHoldService), phải còn lại sau khi trừ
+     * @throws BadRequestException nếu có biến thể không đủ hàng
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deductStock(Map<Long, Integer> quantities, Map<Long, ProductUnitMapping> mappings,
+                            Map<Long, Integer> reserved) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        // Thứ tự ID cố định để tránh deadlock giữa các checkout song song
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Object[]> batchArgs = new ArrayList<>(ordered.size());
+        List<Long> orderedIds = new ArrayList<>(ordered.size());
+        ordered.forEach((mappingId, quantity) -> {
+            batchArgs.add(new Object[]{quantity, mappingId, quantity + reserved.getOrDefault(mappingId, 0)});
+            orderedIds.add(mappingId);
+        });
+
+        int[] updated = ConditionalBatchUpdate.execute(jdbcTemplate, DEDUCT_STOCK_SQL, batchArgs);
+
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Long mappingId = orderedIds.get(i);
+                ProductUnitMapping mapping = mappings.get(mappingId);
+                log.warn("Stock reservation failed for mapping {} (requested {})", mappingId, ordered.get(mappingId));
+                throw new BadRequestException(buildOutOfStockMessage(mapping, mappingId, ordered.get(mappingId)));
+            }
+        }
+
+        mappings.values().stream()
+                .map(mapping -> mapping.getProduct().getStore().getId())
+                .distinct()
+                .forEach(storeId -> resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(storeId)));
+        reindexStockAfterCommit(orderedIds);
+        log.debug("Reserved stock for {} variants in one batch", updated.length);
+    }
+
+    /**
+     * Cộng lại tồn kho cho các đơn bị hủy trong 1 JDBC batch
+     * Bắt buộc chạy trong transaction của caller (cùng transaction hủy đơn)
+     *
+     * @param quantities Map mappingId → số lượng hoàn lại (đã gộp)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restoreStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        new TreeMap<>(quantities).forEach((mappingId, quantity) ->
+                batchArgs.add(new Object[]{quantity, mappingId}));
+        jdbcTemplate.batchUpdate(RESTORE_STOCK_SQL, batchArgs);
+        productRepository.findStoreIdsByProductUnitMappingIdIn(quantities.keySet())
+                .forEach(storeId -> resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(storeId)));
+        reindexStockAfterCommit(List.copyOf(quantities.keySet()));
+
+        log.debug("Restored stock for {} variants in one batch", batchArgs.size());
+    }
+
+    /**
+     * Tồn kho hiện tại của các biến thể, đọc không khóa dòng (không chạy trong transaction → luôn thấy bản đã commit)
+     * Dùng để kiểm tra lại hold vừa tạo (StockHoldService)
+     *
+     * @return Map mappingId → stock_quantity
+     */
+    public Map<Long, Integer> currentStock(Collection<Long> mappingIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (mappingIds.isEmpty()) {
+            return stock;
+        }
+        namedJdbcTemplate.query(CURRENT_STOCK_SQL, new MapSqlParameterSource("ids", mappingIds), rs -> {
+            stock.put(rs.getLong("id"), rs.getInt("stock_quantity"));
+        });
+        return stock;
+    }
+
+    /**
+     * Sau commit: 1 query theo khóa chính lấy tồn kho mới → ProductSearchIndex (lỗi chỉ log, rebuild định kỳ bù lại)
+     */
+    private void reindexStockAfterCommit(List<Long> mappingIds) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    productSearchIndex.updateStock(currentStock(mappingIds));
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to update indexed stock of {} variants: {}", mappingIds.size(), ex.getMessage());
+                }
+            }
+        });
+    }
+
+    private String buildOutOfStockMessage(ProductUnitMapping mapping, Long mappingId, Integer requested) {
+        if (mapping == null) {
+            return "Biến thể sản phẩm ID " + mappingId + " không đủ hàng (yêu cầu: " + requested + ")";
+        }
+        return "Sản phẩm '" + mapping.getProduct().getName() + " - " + mapping.getDisplayUnitName() +
+                "' không đủ hàng (yêu cầu: " + requested + ")";
+    }
+}
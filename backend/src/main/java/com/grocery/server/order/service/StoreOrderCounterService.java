@@ -0,0 +1,467 @@
+package com.grocery.server.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.order.dto.response.StoreOrderCountsResponse;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import com.grocery.server.shared.exception.ResourceNotFoundException;
+import com.grocery.server.store.repository.StoreRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Service: StoreOrderCounterService
+ * Mục đích: Đếm số đơn theo (cửa hàng, trạng thái) trong bộ nhớ cho badge dashboard cửa hàng
+ * (thay cho COUNT trên order_stores mỗi lần màn hình dashboard load / refresh)
+ *
+ * Lưu trữ:
+ * - Không có Redis (1 instance): Caffeine storeId → AtomicLongArray (index = OrderStatus.ordinal())
+ * - Có Redis: hash store:order-counts:{storeId}, field = tên trạng thái, HINCRBY khi đơn đổi trạng thái;
+ *   field _synced chỉ được ghi khi nạp từ database → hash chỉ có increment (chưa nạp) coi như chưa có
+ * - Ghi giá trị đếm từ database vào hash (nạp lần đầu / reconcile) bằng Lua compare-and-set: hash đã bị HINCRBY
+ *   kể từ lúc đọc thì bỏ qua lần ghi này (lần đọc / reconcile sau thử lại) → không ghi đè increment đồng thời
+ * - Cửa hàng chưa có counter: nạp lần đầu bằng 1 query GROUP BY trên index (store_id, status)
+ *
+ * Cập nhật (gọi trong transaction ghi trạng thái):
+ * - recordCreated: đơn mới cho các cửa hàng của đơn
+ * - recordTransition: from → to cho các cửa hàng của đơn
+ * - Delta gom theo transaction, áp dụng 1 lần sau commit (rollback thì bỏ) → bulk / expiry chỉ 1 lần ghi
+ *
+ * Reconcile: app.order.store-counters.reconcile-interval-ms, đếm lại các cửa hàng đang theo dõi
+ * (bù delta bị mất khi Redis lỗi / race lúc nạp lần đầu), metric order.store-counters.drift
+ *
+ * Push: snapshot mới gửi đến chủ cửa hàng qua /user/queue/store/order-counts - chỉ cửa hàng đã nạp counter
+ * (không ai xem thì không đếm từ database chỉ để push)
+ * (có Redis: publish store:counters:{storeId} để node đang giữ WebSocket của chủ cửa hàng gửi)
+ */
+@Service
+@Slf4j
+public class StoreOrderCounterService {
+
+    public static final String COUNTS_CHANNEL = "store:counters:";
+    private static final String USER_DESTINATION = "/queue/store/order-counts";
+    private static final String KEY_PREFIX = "store:order-counts:";
+    private static final String SYNCED_FIELD = "_synced";
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final int RECONCILE_CHUNK = 500;
+
+    /**
+     * KEYS[1]: hash counter; ARGV[1]: giá trị _synced; từ ARGV[2]: bộ ba field, giá trị đã đọc, giá trị mới
+     * → 1 nếu đã ghi, 0 nếu hash đã đổi kể từ lúc đọc
+     */
+    private static final RedisScript<Long> SYNC_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 3 do " +
+            "  if tonumber(redis.call('hget', KEYS[1], ARGV[i]) or '0') ~= tonumber(ARGV[i + 1]) then return 0 end " +
+            "end " +
+            "for i = 2, #ARGV, 3 do " +
+            "  redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 2]) " +
+            "end " +
+            "redis.call('hset', KEYS[1], '" + SYNCED_FIELD + "', ARGV[1]) " +
+            "return 1", Long.class);
+
+    /** Key bind delta của transaction hiện tại */
+    private final Object transactionKey = new Object();
+
+    private final OrderStoreRepository orderStoreRepository;
+    private final StoreRepository storeRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RedisMessagePublisher redisMessagePublisher;
+    private final StringRedisTemplate redisTemplate;
+
+    /** Không có Redis: counter của các cửa hàng đang được xem */
+    private final Cache<Long, AtomicLongArray> localCounts;
+    /** Có Redis: các cửa hàng node này đang phục vụ (để reconcile) */
+    private final Cache<Long, Boolean> trackedStores;
+    private final Cache<Long, String> ownerPhones;
+    private final Cache<Long, Long> storeIdsByOwner;
+
+    private final Counter drift;
+
+    @Autowired
+    public StoreOrderCounterService(OrderStoreRepository orderStoreRepository,
+                                    StoreRepository storeRepository,
+                                    SimpMessagingTemplate messagingTemplate,
+                                    RedisMessagePublisher redisMessagePublisher,
+                                    @Autowired(required = false) StringRedisTemplate redisTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.order.store-counters.idle-minutes:60}") long idleMinutes) {
+        this.orderStoreRepository = orderStoreRepository;
+        this.storeRepository = storeRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.redisTemplate = redisTemplate;
+
+        Duration idle = Duration.ofMinutes(idleMinutes);
+        this.localCounts = Caffeine.newBuilder().expireAfterAccess(idle).build();
+        this.trackedStores = Caffeine.newBuilder().expireAfterAccess(idle).build();
+        this.ownerPhones = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(Duration.ofMinutes(10)).build();
+        this.storeIdsByOwner = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(Duration.ofMinutes(10)).build();
+
+        this.drift = Counter.builder("order.store-counters.drift")
+                .description("Số cửa hàng có counter lệch với database khi reconcile")
+                .register(meterRegistry);
+
+        if (redisTemplate == null) {
+            log.warn("Redis is disabled. StoreOrderCounterService will keep counters in memory.");
+        }
+    }
+
+    // ========== GHI (trong transaction) ==========
+
+    /**
+     * Đơn mới tạo: +1 vào status của mỗi cửa hàng
+     */
+    public void recordCreated(Collection<Long> storeIds, OrderStatus status) {
+        Map<Long, long[]> deltas = new LinkedHashMap<>();
+        for (Long storeId : storeIds) {
+            deltas.computeIfAbsent(storeId, id -> new long[STATUSES.length])[status.ordinal()]++;
+        }
+        enqueue(deltas);
+    }
+
+    /**
+     * Đơn đổi trạng thái: -1 ở from, +1 ở to cho mỗi cửa hàng của đơn
+     */
+    public void recordTransition(Collection<Long> storeIds, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        Map<Long, long[]> deltas = new LinkedHashMap<>();
+        for (Long storeId : storeIds) {
+            long[] delta = deltas.computeIfAbsent(storeId, id -> new long[STATUSES.length]);
+            delta[from.ordinal()]--;
+            delta[to.ordinal()]++;
+        }
+        enqueue(deltas);
+    }
+
+    /**
+     * Gộp vào delta của transaction hiện tại (áp dụng sau commit); ngoài transaction thì áp dụng ngay
+     */
+    @SuppressWarnings("unchecked")
+    private void enqueue(Map<Long, long[]> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(deltas);
+            return;
+        }
+
+        Map<Long, long[]> pending = (Map<Long, long[]>) TransactionSynchronizationManager.getResource(transactionKey);
+        if (pending == null) {
+            Map<Long, long[]> bound = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(transactionKey, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(bound);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(transactionKey);
+                }
+            });
+            pending = bound;
+        }
+        for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+            long[] target = pending.computeIfAbsent(entry.getKey(), id -> new long[STATUSES.length]);
+            long[] delta = entry.getValue();
+            for (int i = 0; i < delta.length; i++) {
+                target[i] += delta[i];
+            }
+        }
+    }
+
+    private void apply(Map<Long, long[]> deltas) {
+        try {
+            if (redisTemplate != null) {
+                applyRedis(deltas);
+            } else {
+                applyLocal(deltas);
+            }
+        } catch (RuntimeException ex) {
+            // Đơn đã commit, counter lệch thì reconcile sửa
+            log.warn("Failed to apply store order counter deltas for stores {}: {}", deltas.keySet(), ex.getMessage());
+            return;
+        }
+        deltas.keySet().forEach(this::pushSnapshot);
+    }
+
+    /**
+     * Chỉ cập nhật cửa hàng đã nạp; cửa hàng chưa nạp sẽ đếm từ database (đã gồm thay đổi này)
+     */
+    private void applyLocal(Map<Long, long[]> deltas) {
+        deltas.forEach((storeId, delta) -> {
+            AtomicLongArray counts = localCounts.getIfPresent(storeId);
+            if (counts == null) {
+                return;
+            }
+            for (int i = 0; i < delta.length; i++) {
+                if (delta[i] != 0) {
+                    counts.addAndGet(i, delta[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * HINCRBY cho mọi (cửa hàng, trạng thái) trong 1 pipeline
+     */
+    private void applyRedis(Map<Long, long[]> deltas) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                deltas.forEach((storeId, delta) -> {
+                    for (int i = 0; i < delta.length; i++) {
+                        if (delta[i] != 0) {
+                            operations.opsForHash().increment(KEY_PREFIX + storeId, STATUSES[i].name(), delta[i]);
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    // ========== ĐỌC ==========
+
+    /**
+     * Counter của cửa hàng do user (chủ cửa hàng) sở hữu
+     */
+    public StoreOrderCountsResponse getCountsForOwner(Long ownerId) {
+        Long storeId = storeIdsByOwner.get(ownerId, id -> storeRepository.findIdByOwnerId(id).orElse(null));
+        if (storeId == null) {
+            throw new ResourceNotFoundException("User này chưa có cửa hàng");
+        }
+        return getCounts(storeId);
+    }
+
+    public StoreOrderCountsResponse getCounts(Long storeId) {
+        long[] counts = redisTemplate != null ? readRedis(storeId) : readLocal(storeId);
+        return toResponse(storeId, counts);
+    }
+
+    private long[] readLocal(Long storeId) {
+        return snapshot(localCounts.get(storeId, id -> new AtomicLongArray(countFromDatabase(id))));
+    }
+
+    private long[] readRedis(Long storeId) {
+        trackedStores.put(storeId, Boolean.TRUE);
+        try {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(KEY_PREFIX + storeId);
+            long[] held = parse(hash);
+            if (hash.containsKey(SYNCED_FIELD)) {
+                return held;
+            }
+            long[] counts = countFromDatabase(storeId);
+            if (!writeRedis(storeId, held, counts)) {
+                log.debug("Store {} counters changed while loading, will load again on next read", storeId);
+            }
+            return counts;
+        } catch (DataAccessException ex) {
+            log.warn("Redis unavailable for store {} counters, counting from database: {}", storeId, ex.getMessage());
+            return countFromDatabase(storeId);
+        }
+    }
+
+    /**
+     * Counter đang giữ của cửa hàng, null nếu chưa nạp (không đọc database)
+     */
+    private long[] loadedCounts(Long storeId) {
+        if (redisTemplate == null) {
+            AtomicLongArray counts = localCounts.getIfPresent(storeId);
+            return counts != null ? snapshot(counts) : null;
+        }
+        Map<Object, Object> hash = redisTemplate.opsForHash().entries(KEY_PREFIX + storeId);
+        return hash.containsKey(SYNCED_FIELD) ? parse(hash) : null;
+    }
+
+    /**
+     * Ghi counts vào hash nếu hash vẫn đúng bằng expected (giá trị đã đọc)
+     *
+     * @return false nếu có HINCRBY xen vào kể từ lúc đọc (không ghi gì)
+     */
+    private boolean writeRedis(Long storeId, long[] expected, long[] counts) {
+        List<Object> args = new ArrayList<>(1 + STATUSES.length * 3);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        for (OrderStatus status : STATUSES) {
+            args.add(status.name());
+            args.add(String.valueOf(expected[status.ordinal()]));
+            args.add(String.valueOf(counts[status.ordinal()]));
+        }
+        Long written = redisTemplate.execute(SYNC_SCRIPT, List.of(KEY_PREFIX + storeId), args.toArray());
+        return written != null && written == 1L;
+    }
+
+    private static long[] parse(Map<Object, Object> hash) {
+        long[] counts = new long[STATUSES.length];
+        for (OrderStatus status : STATUSES) {
+            Object value = hash.get(status.name());
+            counts[status.ordinal()] = value != null ? Long.parseLong(value.toString()) : 0L;
+        }
+        return counts;
+    }
+
+    private static long[] snapshot(AtomicLongArray counts) {
+        long[] snapshot = new long[STATUSES.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    private long[] countFromDatabase(Long storeId) {
+        return countFromDatabase(List.of(storeId)).getOrDefault(storeId, new long[STATUSES.length]);
+    }
+
+    private Map<Long, long[]> countFromDatabase(Collection<Long> storeIds) {
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Long storeId : storeIds) {
+            counts.put(storeId, new long[STATUSES.length]);
+        }
+        for (Object[] row : orderStoreRepository.countByStoreIdInGroupByStatus(storeIds)) {
+            counts.get((Long) row[0])[((OrderStatus) row[1]).ordinal()] = (Long) row[2];
+        }
+        return counts;
+    }
+
+    // ========== RECONCILE ==========
+
+    /**
+     * Đếm lại các cửa hàng đang theo dõi, sửa và push những cửa hàng bị lệch
+     */
+    @Scheduled(fixedDelayString = "${app.order.store-counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.order.store-counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        List<Long> storeIds = new ArrayList<>(redisTemplate != null
+                ? trackedStores.asMap().keySet()
+                : localCounts.asMap().keySet());
+        int drifted = 0;
+        try {
+            for (int from = 0; from < storeIds.size(); from += RECONCILE_CHUNK) {
+                List<Long> chunk = storeIds.subList(from, Math.min(from + RECONCILE_CHUNK, storeIds.size()));
+                for (Map.Entry<Long, long[]> entry : countFromDatabase(chunk).entrySet()) {
+                    if (reconcileStore(entry.getKey(), entry.getValue())) {
+                        drifted++;
+                        pushSnapshot(entry.getKey());
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Store order counter reconcile failed: {}", ex.getMessage());
+        }
+        if (drifted > 0) {
+            drift.increment(drifted);
+            log.info("Reconciled order counters: {} of {} stores drifted", drifted, storeIds.size());
+        }
+    }
+
+    /**
+     * @return true nếu counter đang giữ khác database
+     */
+    private boolean reconcileStore(Long storeId, long[] actual) {
+        if (redisTemplate == null) {
+            AtomicLongArray counts = localCounts.getIfPresent(storeId);
+            if (counts == null) {
+                return false;
+            }
+            boolean changed = false;
+            for (int i = 0; i < actual.length; i++) {
+                if (counts.getAndSet(i, actual[i]) != actual[i]) {
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+
+        List<Object> current = redisTemplate.opsForHash().multiGet(KEY_PREFIX + storeId,
+                Arrays.stream(STATUSES).<Object>map(OrderStatus::name).toList());
+        long[] held = new long[STATUSES.length];
+        for (OrderStatus status : STATUSES) {
+            Object value = current.get(status.ordinal());
+            held[status.ordinal()] = value != null ? Long.parseLong(value.toString()) : 0L;
+        }
+        if (Arrays.equals(held, actual)) {
+            return false;
+        }
+        if (!writeRedis(storeId, held, actual)) {
+            // Có đơn đổi trạng thái xen vào: giá trị đếm đã cũ, để lần reconcile sau
+            log.debug("Store {} counters changed during reconcile, skipped", storeId);
+            return false;
+        }
+        return true;
+    }
+
+    // ========== PUSH ==========
+
+    private void pushSnapshot(Long storeId) {
+        try {
+            long[] counts = loadedCounts(storeId);
+            if (counts == null) {
+                return;
+            }
+            StoreOrderCountsResponse snapshot = toResponse(storeId, counts);
+            if (redisTemplate != null) {
+                redisMessagePublisher.publish(COUNTS_CHANNEL + storeId, snapshot);
+            } else {
+                deliver(snapshot);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to push order counters of store {}: {}", storeId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Gửi snapshot đến chủ cửa hàng đang kết nối WebSocket với node này
+     * (gọi trực tiếp khi không có Redis, hoặc từ RedisOrderEventListener)
+     */
+    public void deliver(StoreOrderCountsResponse snapshot) {
+        String principal = ownerPhones.get(snapshot.getStoreId(),
+                id -> storeRepository.findOwnerPhoneNumberById(id).orElse(null));
+        if (principal != null) {
+            messagingTemplate.convertAndSendToUser(principal, USER_DESTINATION, snapshot);
+        }
+    }
+
+    private static StoreOrderCountsResponse toResponse(Long storeId, long[] counts) {
+        Map<OrderStatus, Long> byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : STATUSES) {
+            byStatus.put(status, counts[status.ordinal()]);
+        }
+        return StoreOrderCountsResponse.builder()
+                .storeId(storeId)
+                .counts(byStatus)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+}
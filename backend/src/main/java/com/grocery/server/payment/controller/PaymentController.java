@@ -1,11 +1,13 @@
 package com.grocery.server.payment.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.grocery.server.payment.dto.InitiatePaymentRequest;
 import com.grocery.server.payment.dto.InitiatePaymentResponse;
 import com.grocery.server.payment.dto.PaymentStatusResponse;
 import com.grocery.server.payment.entity.Payment;
 import com.grocery.server.payment.service.PaymentService;
 import com.grocery.server.payment.config.PaymentProperties;
+import com.grocery.server.shared.idempotency.IdempotencyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -22,21 +24,32 @@ public class PaymentController {
     private final com.grocery.server.payment.provider.MomoClient momoClient;
     private final com.grocery.server.payment.provider.VnPayClient vnpayClient;
     private final PaymentProperties paymentProperties;
+    private final IdempotencyService idempotencyService;
 
+    /**
+     * POST /api/payments/initiate
+     * Optional Idempotency-Key header: retries with the same key get the first payment back
+     * instead of creating another Payment row
+     */
     @PostMapping("/initiate")
-    public ResponseEntity<?> initiate(@RequestBody InitiatePaymentRequest req) {
-        Payment.PaymentMethod method = Payment.PaymentMethod.valueOf(req.getPaymentMethod());
-        Payment payment = paymentService.initiatePayment(req.getOrderId(), method);
-
-        String redirect = "";
-        switch (method) {
-            case MOMO -> redirect = momoClient.createPaymentUrl(payment);
-            case VNPAY -> redirect = vnpayClient.createPaymentUrl(payment, null);
-            case COD -> redirect = "";  // COD: no redirect needed, client will handle payment locally
-            default -> redirect = "";
-        }
-
-        return ResponseEntity.ok(new InitiatePaymentResponse(payment.getId(), redirect));
+    public ResponseEntity<InitiatePaymentResponse> initiate(
+            @RequestBody InitiatePaymentRequest req,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("payments.initiate", idempotencyKey, req,
+                new TypeReference<InitiatePaymentResponse>() { }, () -> {
+                    Payment.PaymentMethod method = Payment.PaymentMethod.valueOf(req.getPaymentMethod());
+                    Payment payment = paymentService.initiatePayment(req.getOrderId(), method);
+
+                    String redirect = "";
+                    switch (method) {
+                        case MOMO -> redirect = momoClient.createPaymentUrl(payment);
+                        case VNPAY -> redirect = vnpayClient.createPaymentUrl(payment, null);
+                        case COD -> redirect = "";  // COD: no redirect needed, client will handle payment locally
+                        default -> redirect = "";
+                    }
+
+                    return ResponseEntity.ok(new InitiatePaymentResponse(payment.getId(), redirect));
+                });
     }
 
     /**
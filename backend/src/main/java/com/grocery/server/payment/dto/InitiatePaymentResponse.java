@@ -2,10 +2,12 @@ package com.grocery.server.payment.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class InitiatePaymentResponse implements Serializable {
     private Long paymentId;
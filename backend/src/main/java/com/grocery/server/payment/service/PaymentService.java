@@ -1,7 +1,10 @@
 package com.grocery.server.payment.service;
 
+import com.grocery.server.messaging.dto.OrderPaidEvent;
+import com.grocery.server.messaging.service.OrderOutboxService;
 import com.grocery.server.order.entity.Order;
 import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.service.OrderDetailCache;
 import com.grocery.server.payment.entity.Payment;
 import com.grocery.server.payment.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +13,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import com.grocery.server.notification.service.NotificationService;
 import com.grocery.server.payment.provider.MomoClient;
 import com.grocery.server.payment.provider.VnPayClient;
-import lombok.RequiredArgsConstructor;
+import com.grocery.server.shared.exception.ConflictException;
 
 @Service
 @RequiredArgsConstructor
@@ -24,14 +29,20 @@ public class PaymentService {
     private final OrderRepository orderRepository;
     private final MomoClient momoClient;
     private final VnPayClient vnpayClient;
+    private final OrderOutboxService orderOutboxService;
+    private final OrderDetailCache orderDetailCache;
+    private final NotificationService notificationService;
 
     /**
      * Tạo bản ghi payment và trả về URL redirect tới cổng thanh toán (stub)
      */
     @Transactional
     public Payment initiatePayment(Long orderId, Payment.PaymentMethod method) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            throw new ConflictException("Đơn hàng đã bị hủy, không thể thanh toán");
+        }
 
         BigDecimal amount = order.getTotalAmount().add(order.getShippingFee());
 
@@ -57,6 +68,10 @@ public class PaymentService {
             order.setPaymentStatus(Payment.PaymentStatus.SUCCESS);
             orderRepository.save(order);
             log.info("Order {} payment status updated to SUCCESS for COD", orderId);
+            publishOrderPaidEvent(order, saved);
+        } else {
+            // Payment PENDING không có event outbox → tự báo để cache chi tiết đơn không giữ danh sách payment cũ
+            orderDetailCache.invalidateAfterCommit(orderId);
         }
 
         return saved;
@@ -69,14 +84,20 @@ public class PaymentService {
     /**
      * Xử lý callback từ cổng thanh toán
      * Idempotent: nếu payment đã được xử lý (status != PENDING), bỏ qua
-     * 
+     *
+     * Khóa đơn (FOR UPDATE) trước khi xử lý để xếp hàng với OrderExpiryService:
+     * - Callback đến trước: đơn có payment_status = SUCCESS, job hết hạn bỏ qua
+     * - Đơn đã bị hủy (hết hạn / khách hủy) mà cổng báo thành công: ghi nhận payment (cần hoàn tiền),
+     *   không đánh dấu đơn đã thanh toán, không phát OrderPaidEvent, báo cho khách
+     *
      * Lưu ý: Khi update payments.status, DB Trigger sẽ tự động sync vào orders.payment_status
-     * Không cần cập nhật order.payment_status trong code - trigger làm việc này
      */
     @Transactional
     public void handlePaymentResult(Long paymentId, boolean success, String transactionCode) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new IllegalArgumentException("Payment not found"));
+        Order order = orderRepository.findByIdForUpdate(payment.getOrder().getId())
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
 
         // Idempotency check: chỉ xử lý nếu payment vẫn PENDING
         // Nếu đã xử lý trước đó (SUCCESS/FAILED), bỏ qua
@@ -86,24 +107,51 @@ public class PaymentService {
             return;
         }
 
-        if (success) {
+        if (success && order.getStatus() == Order.OrderStatus.CANCELLED) {
+            payment.setStatus(Payment.PaymentStatus.SUCCESS);
+            payment.setTransactionCode(transactionCode);
+            paymentRepository.save(payment);
+            log.error("Payment #{} ({}) SUCCESS for CANCELLED order #{} - refund required",
+                    paymentId, transactionCode, order.getId());
+            notificationService.enqueue(order.getCustomer().getId(), "PAYMENT_REFUND_REQUIRED",
+                    "Thanh toán cho đơn hàng đã hủy",
+                    "Đơn hàng #" + order.getId() + " đã bị hủy trước khi nhận được thanh toán. " +
+                    "Số tiền " + payment.getAmount() + "đ sẽ được hoàn lại.",
+                    order.getId(), "ORDER");
+            orderDetailCache.invalidateAfterCommit(order.getId());
+        } else if (success) {
             payment.setStatus(Payment.PaymentStatus.SUCCESS);
             payment.setTransactionCode(transactionCode);
             paymentRepository.save(payment);
 
-            Order order = payment.getOrder();
             order.setPaymentStatus(Payment.PaymentStatus.SUCCESS);
             orderRepository.save(order);
             log.info("Payment #{} SUCCESS, order #{} payment_status updated to SUCCESS", paymentId, order.getId());
+            publishOrderPaidEvent(order, payment);
         } else {
             payment.setStatus(Payment.PaymentStatus.FAILED);
             payment.setTransactionCode(transactionCode);
             paymentRepository.save(payment);
 
-            Order order = payment.getOrder();
             order.setPaymentStatus(Payment.PaymentStatus.FAILED);
             orderRepository.save(order);
             log.info("Payment #{} FAILED, order #{} payment_status updated to FAILED", paymentId, order.getId());
+            orderDetailCache.invalidateAfterCommit(order.getId());
         }
     }
+
+    /**
+     * Ghi OrderPaidEvent vào outbox (publish lên order:paid:{id} sau khi commit)
+     */
+    private void publishOrderPaidEvent(Order order, Payment payment) {
+        OrderPaidEvent event = OrderPaidEvent.builder()
+                .timestamp(System.currentTimeMillis())
+                .orderId(order.getId())
+                .customerId(order.getCustomer().getId())
+                .paymentId(payment.getId())
+                .paymentMethod(payment.getPaymentMethod())
+                .paidAt(LocalDateTime.now())
+                .build();
+        orderOutboxService.enqueue("paid", order.getId(), event);
+    }
 }
@@ -5,9 +5,11 @@ import com.grocery.server.product.dto.request.UpdateCategoryRequest;
 import com.grocery.server.product.dto.response.CategoryResponse;
 import com.grocery.server.product.service.CategoryService;
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,6 +30,7 @@ import java.util.List;
 public class CategoryController {
     
     private final CategoryService categoryService;
+    private final ResourceVersionService resourceVersionService;
     
     // ========== PUBLIC ENDPOINTS ==========
     
@@ -36,16 +39,15 @@ public class CategoryController {
      * Lấy danh sách tất cả categories
      * 
      * Public endpoint (không cần authentication)
+     * Hỗ trợ If-None-Match → 304 khi danh mục chưa đổi
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getAllCategories() {
-        log.info("GET /api/categories - Get all categories");
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
-        List<CategoryResponse> categories = categoryService.getAllCategories();
-        
-        return ResponseEntity.ok(
-                ApiResponse.success("Lấy danh sách danh mục thành công", categories)
-        );
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success("Lấy danh sách danh mục thành công", categoryService.getAllCategories()),
+                ResourceVersionService.CATEGORIES);
     }
     
     /**
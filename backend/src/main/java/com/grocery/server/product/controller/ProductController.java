@@ -2,17 +2,29 @@ package com.grocery.server.product.controller;
 
 import com.grocery.server.product.dto.request.CreateProductRequest;
 import com.grocery.server.product.dto.request.UpdateProductRequest;
+import com.grocery.server.product.dto.response.ProductImportResponse;
 import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.dto.response.SuggestionResponse;
+import com.grocery.server.product.search.ProductSuggestionIndex;
+import com.grocery.server.product.service.ProductImportService;
 import com.grocery.server.product.service.ProductService;
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.dto.CursorPage;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -28,14 +40,18 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final ResourceVersionService resourceVersionService;
     
     // ========== PUBLIC ENDPOINTS ==========
     
     /**
      * GET /api/products
-     * Lấy danh sách tất cả products
+     * Lấy danh sách tất cả products (tối đa 200 sản phẩm mới nhất)
      * 
      * Public endpoint (không cần authentication)
+     * Catalog đầy đủ: dùng GET /api/products/catalog (phân trang theo cursor)
      */
     @GetMapping
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getAllProducts() {
@@ -48,6 +64,34 @@ public class ProductController {
         );
     }
     
+    /**
+     * GET /api/products/catalog
+     * Catalog sản phẩm phân trang theo cursor (mới nhất trước)
+     * 
+     * Public endpoint
+     * Query param: cursor (nextCursor của trang trước), size (mặc định 20, tối đa 100),
+     *              storeId, categoryId, minPrice, maxPrice, inStock (chỉ sản phẩm còn hàng),
+     *              includeHidden (cần storeId; chỉ chủ cửa hàng / ADMIN: gồm sản phẩm ẩn và cửa hàng đang đóng)
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getCatalog(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "false") boolean includeHidden) {
+        
+        CursorPage<ProductResponse> products = productService.getCatalog(
+                cursor, size, storeId, categoryId, minPrice, maxPrice, inStock, includeHidden);
+        
+        return ResponseEntity.ok(
+                ApiResponse.success("Lấy danh sách sản phẩm thành công", products)
+        );
+    }
+    
     /**
      * GET /api/products/{id}
      * Lấy thông tin chi tiết product
@@ -69,26 +113,26 @@ public class ProductController {
     
     /**
      * GET /api/products/store/{storeId}
-     * Lấy products theo store
+     * Lấy products theo store (tối đa 200 sản phẩm mới nhất)
+     * Danh sách đầy đủ cho chủ cửa hàng: GET /api/products/catalog?storeId=&includeHidden=true
      * 
      * Public endpoint
+     * Hỗ trợ If-None-Match → 304 khi sản phẩm của cửa hàng chưa đổi
      */
     @GetMapping("/store/{storeId}")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getProductsByStore(
-            @PathVariable Long storeId) {
-        
-        log.info("GET /api/products/store/{} - Get products by store", storeId);
-        
-        List<ProductResponse> products = productService.getProductsByStore(storeId);
+            @PathVariable Long storeId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
-        return ResponseEntity.ok(
-                ApiResponse.success("Lấy danh sách sản phẩm theo cửa hàng thành công", products)
-        );
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success("Lấy danh sách sản phẩm theo cửa hàng thành công",
+                        productService.getProductsByStore(storeId)),
+                ResourceVersionService.CATEGORIES, ResourceVersionService.storeProducts(storeId));
     }
     
     /**
      * GET /api/products/category/{categoryId}
-     * Lấy products theo category
+     * Lấy products theo category (tối đa 200 sản phẩm mới nhất)
      * 
      * Public endpoint
      */
@@ -110,34 +154,83 @@ public class ProductController {
      * Lấy products đang available theo store
      * 
      * Public endpoint
+     * Hỗ trợ If-None-Match → 304 khi sản phẩm của cửa hàng chưa đổi
      */
     @GetMapping("/store/{storeId}/available")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getAvailableProductsByStore(
-            @PathVariable Long storeId) {
-        
-        log.info("GET /api/products/store/{}/available - Get available products by store", storeId);
+            @PathVariable Long storeId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
-        List<ProductResponse> products = productService.getAvailableProductsByStore(storeId);
-        
-        return ResponseEntity.ok(
-                ApiResponse.success("Lấy danh sách sản phẩm còn hàng thành công", products)
-        );
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success("Lấy danh sách sản phẩm còn hàng thành công",
+                        productService.getAvailableProductsByStore(storeId)),
+                ResourceVersionService.CATEGORIES, ResourceVersionService.storeProducts(storeId));
     }
     
     /**
      * GET /api/products/search
-     * Tìm kiếm products theo keyword
+     * Tìm kiếm products theo keyword (không phân biệt dấu, từ cuối khớp tiền tố, xếp theo độ liên quan)
      * 
      * Public endpoint
-     * Query param: keyword
+     * Query param: keyword, storeId, categoryId, includeClosed (mặc định false), page, size (tối đa 100)
      */
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(
-            @RequestParam String keyword) {
+            @RequestParam String keyword,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean includeClosed,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         
         log.info("GET /api/products/search?keyword={}", keyword);
         
-        List<ProductResponse> products = productService.searchProducts(keyword);
+        List<ProductResponse> products = productService
+                .searchProducts(keyword, storeId, categoryId, includeClosed, page, size)
+                .getContent();
+        
+        return ResponseEntity.ok(
+                ApiResponse.success("Tìm kiếm sản phẩm thành công", products)
+        );
+    }
+    
+    /**
+     * GET /api/products/suggest
+     * Gợi ý khi gõ trong ô tìm kiếm (tên sản phẩm, cửa hàng, danh mục), xếp theo độ phổ biến
+     * 
+     * Public endpoint
+     * Query param: q (không phân biệt dấu), limit (mặc định 8, tối đa 10)
+     * Trả lời từ trie trong bộ nhớ - client nên gọi endpoint này mỗi phím thay cho /search
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        
+        List<SuggestionResponse> suggestions = productSuggestionIndex.suggest(q, limit);
+        
+        return ResponseEntity.ok(ApiResponse.success("Lấy gợi ý thành công", suggestions));
+    }
+    
+    /**
+     * GET /api/products/search/paged
+     * Như /search nhưng trả về Page (kèm totalElements, totalPages)
+     * 
+     * Public endpoint
+     */
+    @GetMapping("/search/paged")
+    public ResponseEntity<ApiResponse<Page<ProductResponse>>> searchProductsPaged(
+            @RequestParam(defaultValue = "") String keyword,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean includeClosed,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        log.info("GET /api/products/search/paged?keyword={}&page={}&size={}", keyword, page, size);
+        
+        Page<ProductResponse> products = productService
+                .searchProducts(keyword, storeId, categoryId, includeClosed, page, size);
         
         return ResponseEntity.ok(
                 ApiResponse.success("Tìm kiếm sản phẩm thành công", products)
@@ -166,6 +259,31 @@ public class ProductController {
                 .body(ApiResponse.success("Tạo sản phẩm thành công", product));
     }
     
+    /**
+     * POST /api/products/import?format=csv|ndjson&dryRun=false
+     * Import sản phẩm hàng loạt từ file (multipart, field "file")
+     * 
+     * Authorization: Bearer token (STORE role)
+     * - format: mặc định theo đuôi file (.csv / .ndjson / .jsonl)
+     * - dryRun=true: chỉ kiểm tra, trả báo cáo lỗi, không lưu
+     * - Dòng lỗi bị bỏ qua và trả về trong errors (số dòng + lý do), các dòng hợp lệ vẫn được lưu
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('STORE')")
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProducts(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+        
+        ProductImportService.Format importFormat = ProductImportService.Format.resolve(format, file.getOriginalFilename());
+        log.info("POST /api/products/import - {} ({} bytes), format={}, dryRun={}",
+                file.getOriginalFilename(), file.getSize(), importFormat, dryRun);
+        
+        ProductImportResponse result = productImportService.importProducts(importFormat, file.getInputStream(), dryRun);
+        
+        return ResponseEntity.ok(ApiResponse.success("Import sản phẩm hoàn tất", result));
+    }
+    
     /**
      * PUT /api/products/{id}
      * Cập nhật product
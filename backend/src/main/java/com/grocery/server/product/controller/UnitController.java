@@ -4,61 +4,71 @@ import com.grocery.server.product.dto.response.UnitCategoryResponse;
 import com.grocery.server.product.dto.response.UnitResponse;
 import com.grocery.server.product.entity.Unit;
 import com.grocery.server.product.entity.UnitCategory;
-import com.grocery.server.product.repository.UnitCategoryRepository;
-import com.grocery.server.product.repository.UnitRepository;
+import com.grocery.server.product.service.UnitCatalog;
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Controller: UnitController
+ * Mục đích: Danh mục đơn vị tính (public, gần như không đổi) - đọc từ UnitCatalog trong bộ nhớ
+ * Các endpoint danh sách hỗ trợ If-None-Match → 304 (version units của ResourceVersionService)
+ */
 @RestController
 @RequestMapping("/units")
 @RequiredArgsConstructor
 public class UnitController {
 
-    private final UnitRepository unitRepository;
-    private final UnitCategoryRepository unitCategoryRepository;
+    private final UnitCatalog unitCatalog;
+    private final ResourceVersionService resourceVersionService;
 
     @GetMapping("/categories")
-    @Cacheable(value = "unitCategories", key = "'all'")
-    public ResponseEntity<ApiResponse<List<UnitCategoryResponse>>> getAllCategories() {
-        List<UnitCategoryResponse> categories = unitCategoryRepository.findByIsActiveTrueOrderByDisplayOrderAsc()
-                .stream()
-                .map(this::mapToCategoryResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(categories));
+    public ResponseEntity<ApiResponse<List<UnitCategoryResponse>>> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success(unitCatalog.getActiveCategories()
+                        .stream()
+                        .map(this::mapToCategoryResponse)
+                        .collect(Collectors.toList())),
+                ResourceVersionService.UNITS);
     }
 
     @GetMapping("/categories/{categoryId}/units")
-    @Cacheable(value = "units", key = "#categoryId")
-    public ResponseEntity<ApiResponse<List<UnitResponse>>> getUnitsByCategory(@PathVariable Long categoryId) {
-        List<UnitResponse> units = unitRepository.findByCategoryIdAndIsActiveTrueOrderByDisplayOrderAsc(categoryId)
-                .stream()
-                .map(this::mapToUnitResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(units));
+    public ResponseEntity<ApiResponse<List<UnitResponse>>> getUnitsByCategory(
+            @PathVariable Long categoryId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success(unitCatalog.getActiveUnits(categoryId)
+                        .stream()
+                        .map(this::mapToUnitResponse)
+                        .collect(Collectors.toList())),
+                ResourceVersionService.UNITS);
     }
 
     @GetMapping
-    @Cacheable(value = "units", key = "'all'")
-    public ResponseEntity<ApiResponse<List<UnitResponse>>> getAllUnits() {
-        List<UnitResponse> units = unitRepository.findByIsActiveTrueOrderByDisplayOrderAsc()
-                .stream()
-                .map(this::mapToUnitResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(units));
+    public ResponseEntity<ApiResponse<List<UnitResponse>>> getAllUnits(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success(unitCatalog.getActiveUnits()
+                        .stream()
+                        .map(this::mapToUnitResponse)
+                        .collect(Collectors.toList())),
+                ResourceVersionService.UNITS);
     }
 
     @GetMapping("/{code}")
     public ResponseEntity<ApiResponse<UnitResponse>> getUnitByCode(@PathVariable String code) {
-        return unitRepository.findByCode(code)
+        return unitCatalog.findByCode(code)
                 .map(unit -> ResponseEntity.ok(ApiResponse.success(mapToUnitResponse(unit))))
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -0,0 +1,41 @@
+package com.grocery.server.product.dto.cursor;
+
+import com.grocery.server.shared.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination catalog sản phẩm, khóa id (mới nhất trước)
+ *
+ * - Encode: base64url("{id}") → client coi như chuỗi opaque
+ * - id tăng dần theo thời gian tạo → "mới nhất trước" = id DESC, không cần tie-breaker
+ * - FIRST: sentinel cho trang đầu, để dùng chung 1 câu query
+ */
+public record ProductCursor(Long id) {
+
+    public static final ProductCursor FIRST = new ProductCursor(Long.MAX_VALUE);
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã cursor từ client
+     *
+     * @param cursor Chuỗi cursor (null/blank = trang đầu)
+     * @throws BadRequestException nếu cursor không hợp lệ
+     */
+    public static ProductCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return new ProductCursor(Long.parseLong(raw));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.grocery.server.product.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO: ProductImportResponse
+ * Mô tả: Kết quả import sản phẩm hàng loạt (POST /api/products/import) kèm báo cáo lỗi theo dòng
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportResponse {
+
+    /**
+     * CSV | NDJSON
+     */
+    private String format;
+
+    /**
+     * true: chỉ kiểm tra, không ghi database
+     */
+    private boolean dryRun;
+
+    /**
+     * Số sản phẩm đọc được từ file (CSV: nhiều dòng đơn vị của 1 sản phẩm tính là 1)
+     */
+    private int totalProducts;
+
+    /**
+     * Số sản phẩm đã lưu (dryRun: số sản phẩm hợp lệ)
+     */
+    private int importedProducts;
+
+    /**
+     * Số đơn vị bán (ProductUnitMapping) đã lưu
+     */
+    private int importedUnits;
+
+    private int failedProducts;
+
+    private long durationMs;
+
+    /**
+     * Lỗi theo dòng, tối đa app.product-import.max-errors phần tử
+     */
+    private List<RowError> errors;
+
+    /**
+     * true nếu có nhiều lỗi hơn số phần tử trong errors
+     */
+    private boolean errorsTruncated;
+
+    /**
+     * Nested DTO: 1 sản phẩm bị bỏ qua
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RowError {
+
+        /**
+         * Dòng trong file (bắt đầu từ 1, CSV tính cả dòng tiêu đề)
+         */
+        private int line;
+
+        private String name;
+
+        private String message;
+    }
+}
@@ -34,7 +34,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class ProductResponse {
     
     private Long id;
@@ -58,7 +58,7 @@ public class ProductResponse {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    @Builder
+    @Builder(toBuilder = true)
     public static class ProductUnitResponse {
         private Long id;
         private String unitCode;
@@ -0,0 +1,34 @@
+package com.grocery.server.product.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO: SuggestionResponse
+ * Mô tả: 1 gợi ý cho ô tìm kiếm (GET /api/products/suggest) - payload nhỏ, không kèm đơn vị / giá
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SuggestionResponse {
+
+    /**
+     * Text hiển thị (có dấu)
+     */
+    private String text;
+
+    /**
+     * PRODUCT | STORE | CATEGORY
+     */
+    private String type;
+
+    /**
+     * ID cửa hàng / danh mục (PRODUCT: null, client tìm theo text)
+     */
+    private Long id;
+}
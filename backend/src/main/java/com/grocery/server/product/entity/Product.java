@@ -16,7 +16,11 @@ import java.util.List;
  * Lưu ý: Giá và variant nằm ở bảng product_unit_mappings
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Keyset pagination catalog: lọc theo cửa hàng / danh mục rồi ORDER BY id DESC
+        @Index(name = "idx_products_store_id", columnList = "store_id, id"),
+        @Index(name = "idx_products_category_id", columnList = "category_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
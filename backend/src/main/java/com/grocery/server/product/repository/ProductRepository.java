@@ -1,11 +1,14 @@
 package com.grocery.server.product.repository;
 
 import com.grocery.server.product.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -81,37 +84,65 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findAvailableProductsByStore(@Param("storeId") Long storeId);
     
     /**
-     * Tìm kiếm sản phẩm theo từ khóa (Full-text search)
+     * Toàn bộ sản phẩm AVAILABLE kèm store, category, units (dựng ProductSearchIndex)
+     * Gồm cả cửa hàng đang đóng (index lọc theo trạng thái mở cửa lúc tìm kiếm)
      */
     @Query("SELECT DISTINCT p FROM Product p " +
+           "JOIN FETCH p.store s " +
+           "LEFT JOIN FETCH p.category c " +
            "LEFT JOIN FETCH p.productUnitMappings pum " +
            "LEFT JOIN FETCH pum.unit u " +
-           "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "AND p.status = 'AVAILABLE' " +
-           "AND p.store.isOpen = true")
-    List<Product> searchByKeyword(@Param("keyword") String keyword);
-    
-    /**
-     * Tìm sản phẩm theo category và fetch cả units (EAGER loading)
+           "WHERE p.status = 'AVAILABLE'")
+    List<Product> findAllForSearchIndex();
+    
+    // ========== CATALOG (KEYSET PAGINATION, 2 PHA) ==========
+    
+    /**
+     * Pha 1: ID sản phẩm theo bộ lọc, sau cursor (mới nhất trước)
+     * Chỉ đọc cột của products (+ EXISTS trên product_unit_mappings khi lọc giá / còn hàng)
+     * → không kéo cả bảng mapping vào bộ nhớ như JOIN FETCH toàn bộ
+     * Index: idx_products_store_id (store_id, id), idx_products_category_id (category_id, id)
+     *
+     * @param variantFilter true nếu có lọc minPrice / maxPrice / inStock (bật điều kiện EXISTS)
+     * @param limit         PageRequest.of(0, size + 1)
+     */
+    @Query("SELECT p.id FROM Product p " +
+           "WHERE p.id < :cursorId " +
+           "AND (:includeClosed = true OR p.store.isOpen = true) " +
+           "AND (:includeHidden = true OR p.status <> 'HIDDEN') " +
+           "AND (:storeId IS NULL OR p.store.id = :storeId) " +
+           "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
+           "AND (:inStock = false OR p.status = 'AVAILABLE') " +
+           "AND (:variantFilter = false OR EXISTS (SELECT 1 FROM ProductUnitMapping pum " +
+           "       WHERE pum.product = p AND pum.isActive = true " +
+           "       AND (:minPrice IS NULL OR pum.price >= :minPrice) " +
+           "       AND (:maxPrice IS NULL OR pum.price <= :maxPrice) " +
+           "       AND (:inStock = false OR pum.stockQuantity > 0))) " +
+           "ORDER BY p.id DESC")
+    List<Long> findCatalogIdsAfterCursor(@Param("storeId") Long storeId,
+                                         @Param("categoryId") Long categoryId,
+                                         @Param("minPrice") BigDecimal minPrice,
+                                         @Param("maxPrice") BigDecimal maxPrice,
+                                         @Param("inStock") boolean inStock,
+                                         @Param("variantFilter") boolean variantFilter,
+                                         @Param("includeClosed") boolean includeClosed,
+                                         @Param("includeHidden") boolean includeHidden,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable limit);
+    
+    /**
+     * Pha 2: nạp sản phẩm của 1 trang kèm store, category, units trong 1 query
+     * (thứ tự không đảm bảo - service sắp lại theo thứ tự ID của pha 1)
      */
     @Query("SELECT DISTINCT p FROM Product p " +
+           "JOIN FETCH p.store s " +
+           "LEFT JOIN FETCH p.category c " +
            "LEFT JOIN FETCH p.productUnitMappings pum " +
            "LEFT JOIN FETCH pum.unit u " +
-           "WHERE p.category.id = :categoryId " +
-           "AND p.store.isOpen = true")
-    List<Product> findByCategoryIdWithUnits(@Param("categoryId") Long categoryId);
+           "WHERE p.id IN :ids")
+    List<Product> findAllWithUnitsByIdIn(@Param("ids") Collection<Long> ids);
+    
     
-    /**
-     * Tìm sản phẩm còn hàng của 1 cửa hàng và fetch cả units
-     */
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "LEFT JOIN FETCH p.productUnitMappings pum " +
-           "LEFT JOIN FETCH pum.unit u " +
-           "WHERE p.store.id = :storeId " +
-           "AND p.status = 'AVAILABLE' " +
-           "AND p.store.isOpen = true " +
-           "ORDER BY p.name ASC")
-    List<Product> findAvailableProductsByStoreWithUnits(@Param("storeId") Long storeId);
     
     /**
      * Tìm sản phẩm theo ID và fetch cả units
@@ -129,7 +160,27 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     @Query("SELECT pum FROM ProductUnitMapping pum WHERE pum.id = :productUnitMappingId")
     java.util.Optional<com.grocery.server.product.entity.ProductUnitMapping> findProductUnitMappingById(@Param("productUnitMappingId") Long productUnitMappingId);
-    
+
+    /**
+     * Tìm nhiều ProductUnitMapping trong 1 query (dùng cho StockReservationService)
+     * JOIN FETCH unit, product, store, owner để không phát sinh lazy load khi tạo đơn
+     * @param ids Danh sách ID của product_unit_mappings
+     * @return Các mapping tìm thấy (ID không tồn tại sẽ không có trong kết quả)
+     */
+    @Query("SELECT pum FROM ProductUnitMapping pum " +
+           "LEFT JOIN FETCH pum.unit u " +
+           "JOIN FETCH pum.product p " +
+           "JOIN FETCH p.store s " +
+           "LEFT JOIN FETCH s.owner " +
+           "WHERE pum.id IN :ids")
+    List<com.grocery.server.product.entity.ProductUnitMapping> findProductUnitMappingsWithStoreByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    /**
+     * Cửa hàng sở hữu các biến thể (dùng để bump ETag danh sách sản phẩm khi hoàn kho)
+     */
+    @Query("SELECT DISTINCT pum.product.store.id FROM ProductUnitMapping pum WHERE pum.id IN :ids")
+    List<Long> findStoreIdsByProductUnitMappingIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Lấy top sản phẩm bán chạy (dựa vào số lượng order_items)
      */
@@ -154,13 +205,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "LEFT JOIN FETCH pum.unit u " +
            "WHERE p.store.id = :storeId")
     List<Product> findByStoreIdWithUnits(@Param("storeId") Long storeId);
-    
-    /**
-     * Tìm tất cả sản phẩm và fetch cả units
-     */
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "LEFT JOIN FETCH p.productUnitMappings pum " +
-           "LEFT JOIN FETCH pum.unit u " +
-           "WHERE p.store.isOpen = true")
-    List<Product> findAllWithUnits();
 }
@@ -2,6 +2,7 @@ package com.grocery.server.product.repository;
 
 import com.grocery.server.product.entity.Unit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,4 +24,10 @@ public interface UnitRepository extends JpaRepository<Unit, Long> {
     List<Unit> findByCategoryIdAndIsActiveTrueOrderByDisplayOrderAsc(Long categoryId);
     
     boolean existsByCode(String code);
+    
+    /**
+     * Toàn bộ đơn vị kèm category (UnitCatalog nạp 1 lần)
+     */
+    @Query("SELECT u FROM Unit u LEFT JOIN FETCH u.category")
+    List<Unit> findAllWithCategory();
 }
\ No newline at end of file
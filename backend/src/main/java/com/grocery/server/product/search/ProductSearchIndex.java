@@ -0,0 +1,550 @@
+package com.grocery.server.product.search;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.dto.response.ProductResponse.ProductUnitResponse;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.repository.ProductRepository;
+import com.grocery.server.product.service.ProductResponseMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Component: ProductSearchIndex
+ * Mục đích: Chỉ mục tìm kiếm sản phẩm trong bộ nhớ (thay cho LIKE '%keyword%' quét toàn bảng mỗi lần gõ phím)
+ *
+ * Index:
+ * - Inverted index term → (productId → tf có trọng số) trên tên (x3), danh mục (x2), tên cửa hàng, mô tả
+ * - Term đã bỏ dấu (VietnameseTextAnalyzer) → "rau cai" khớp "rau cải"
+ * - Chỉ sản phẩm AVAILABLE; giữ sẵn ProductResponse → xếp hạng / lọc / phân trang không chạm MySQL
+ * - Tồn kho đổi theo từng đơn: StockReservationService gọi updateStock sau commit (tồn kho đã commit của các biến thể
+ *   vừa trừ / hoàn), publish search:stock cho node khác → tìm kiếm không đọc tồn kho từ database
+ *
+ * Query:
+ * - Mọi từ của query đều phải khớp (AND); từ cuối khớp theo tiền tố (gõ dở "rau ca" → "rau cai", "rau cang cua")
+ * - Xếp hạng BM25 (k1 = 1.2, b = 0.75), khớp tiền tố nhân hệ số 0.7
+ * - Lọc theo cửa hàng, danh mục, cửa hàng đang mở; phân trang
+ *
+ * Cập nhật:
+ * - ProductService / StoreService gọi *AfterCommit → áp dụng sau commit, publish search:product:{id} / search:store:{id}
+ *   để các node khác nạp lại từ database (RedisOrderEventListener)
+ * - search:stock mang sẵn giá trị tồn kho tuyệt đối → node nhận chỉ ghi đè, nhận lặp (kể cả node gửi) không sai
+ * - Rebuild toàn bộ lúc khởi động và định kỳ (app.search.rebuild-interval-ms): bù event bị mất;
+ *   thay đổi trong lúc rebuild được nạp lại sau khi swap
+ *
+ * Mọi thay đổi của index được chuyển tiếp sang ProductSuggestionIndex (gợi ý typeahead)
+ *
+ * Metrics: product.search.latency (histogram), product.search.documents
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    public static final String PRODUCT_CHANNEL = "search:product:";
+    public static final String STORE_CHANNEL = "search:store:";
+    public static final String STOCK_CHANNEL = "search:stock";
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float STORE_WEIGHT = 1.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * 1 sản phẩm đã index
+     */
+    private record Document(Long productId, Long storeId, Long categoryId, boolean storeOpen,
+                            String sortName, float length, Map<String, Float> terms, ProductResponse response) {
+    }
+
+    /**
+     * Toàn bộ trạng thái index - chỉ đọc/ghi khi giữ lock
+     */
+    private static final class Segment {
+        final Map<Long, Document> documents = new HashMap<>();
+        final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+        /** mappingId (ProductUnitResponse.id) → productId */
+        final Map<Long, Long> productByMapping = new HashMap<>();
+        double totalLength;
+
+        void put(Document document) {
+            remove(document.productId());
+            documents.put(document.productId(), document);
+            unitIds(document).forEach(mappingId -> productByMapping.put(mappingId, document.productId()));
+            totalLength += document.length();
+            document.terms().forEach((term, tf) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(document.productId(), tf));
+        }
+
+        void remove(Long productId) {
+            Document old = documents.remove(productId);
+            if (old == null) {
+                return;
+            }
+            unitIds(old).forEach(productByMapping::remove);
+            totalLength -= old.length();
+            for (String term : old.terms().keySet()) {
+                Map<Long, Float> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(productId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        private static List<Long> unitIds(Document document) {
+            List<ProductUnitResponse> units = document.response().getUnits();
+            return units == null ? List.of() : units.stream().map(ProductUnitResponse::getId).toList();
+        }
+
+        void removeStore(Long storeId) {
+            documents.values().stream()
+                    .filter(d -> storeId.equals(d.storeId()))
+                    .map(Document::productId)
+                    .toList()
+                    .forEach(this::remove);
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductResponseMapper productResponseMapper;
+    private final RedisMessagePublisher redisMessagePublisher;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer searchLatency;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    private volatile boolean ready;
+    /** Khác null khi đang rebuild: sản phẩm / cửa hàng thay đổi trong lúc đó (nạp lại sau khi swap) */
+    private Set<Long> dirtyProducts;
+    private Set<Long> dirtyStores;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              ProductResponseMapper productResponseMapper,
+                              RedisMessagePublisher redisMessagePublisher,
+                              ProductSuggestionIndex productSuggestionIndex,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.productResponseMapper = productResponseMapper;
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.productSuggestionIndex = productSuggestionIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.searchLatency = Timer.builder("product.search.latency")
+                .description("Thời gian tìm kiếm sản phẩm trên index trong bộ nhớ")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("product.search.documents", this, ProductSearchIndex::size)
+                .description("Số sản phẩm đang có trong index tìm kiếm")
+                .register(meterRegistry);
+    }
+
+    // ========== TÌM KIẾM ==========
+
+    /**
+     * Tìm sản phẩm theo từ khóa (rỗng = chỉ lọc, sắp theo tên)
+     *
+     * @param storeId       Lọc theo cửa hàng (null = tất cả)
+     * @param categoryId    Lọc theo danh mục (null = tất cả)
+     * @param includeClosed true = gồm cả sản phẩm của cửa hàng đang đóng
+     */
+    public Page<ProductResponse> search(String keyword, Long storeId, Long categoryId, boolean includeClosed,
+                                        int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        return searchLatency.record(() -> {
+            List<String> tokens = VietnameseTextAnalyzer.tokenize(keyword);
+            Predicate<Document> filter = d -> (includeClosed || d.storeOpen())
+                    && (storeId == null || storeId.equals(d.storeId()))
+                    && (categoryId == null || categoryId.equals(d.categoryId()));
+
+            List<ProductResponse> content;
+            int total;
+            lock.readLock().lock();
+            try {
+                List<Document> hits = tokens.isEmpty()
+                        ? browse(filter)
+                        : rank(tokens, filter);
+                int from = (int) Math.min(pageable.getOffset(), hits.size());
+                int to = Math.min(from + pageable.getPageSize(), hits.size());
+                content = hits.subList(from, to).stream()
+                        .map(Document::response)
+                        .toList();
+                total = hits.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+            return new PageImpl<>(content, pageable, total);
+        });
+    }
+
+    private List<Document> browse(Predicate<Document> filter) {
+        return segment.documents.values().stream()
+                .filter(filter)
+                .sorted(Comparator.comparing(Document::sortName).thenComparing(Document::productId))
+                .toList();
+    }
+
+    private List<Document> rank(List<String> tokens, Predicate<Document> filter) {
+        Map<Long, Double> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            Map<Long, Double> tokenScores = scoreToken(tokens.get(i), i == tokens.size() - 1);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Long, Double> combined = new HashMap<>();
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    Double score = tokenScores.get(entry.getKey());
+                    if (score != null) {
+                        combined.put(entry.getKey(), entry.getValue() + score);
+                    }
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Map<Long, Double> finalScores = scores;
+        return finalScores.keySet().stream()
+                .map(segment.documents::get)
+                .filter(filter)
+                .sorted(Comparator.<Document>comparingDouble(d -> finalScores.get(d.productId())).reversed()
+                        .thenComparing(Document::productId))
+                .toList();
+    }
+
+    /**
+     * Điểm BM25 của 1 từ query; từ cuối còn khớp các term bắt đầu bằng nó (lấy điểm cao nhất mỗi sản phẩm)
+     */
+    private Map<Long, Double> scoreToken(String token, boolean allowPrefix) {
+        Map<Long, Double> scores = new HashMap<>();
+        int n = segment.documents.size();
+        if (n == 0) {
+            return scores;
+        }
+        double avgLength = segment.totalLength / n;
+
+        Map<Long, Float> exact = segment.postings.get(token);
+        if (exact != null) {
+            accumulate(scores, exact, n, avgLength, 1.0);
+        }
+        if (allowPrefix) {
+            int expansions = 0;
+            NavigableMap<String, Map<Long, Float>> tail = segment.postings.tailMap(token, false);
+            for (Map.Entry<String, Map<Long, Float>> entry : tail.entrySet()) {
+                if (!entry.getKey().startsWith(token) || ++expansions > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                accumulate(scores, entry.getValue(), n, avgLength, PREFIX_FACTOR);
+            }
+        }
+        return scores;
+    }
+
+    private void accumulate(Map<Long, Double> scores, Map<Long, Float> posting, int n, double avgLength, double factor) {
+        double idf = Math.log(1 + (n - posting.size() + 0.5) / (posting.size() + 0.5));
+        posting.forEach((productId, tf) -> {
+            Document document = segment.documents.get(productId);
+            double norm = K1 * (1 - B + B * document.length() / avgLength);
+            double score = factor * idf * (tf * (K1 + 1)) / (tf + norm);
+            scores.merge(productId, score, Math::max);
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== CẬP NHẬT TỪ SERVICE (trong transaction) ==========
+
+    /**
+     * Index lại sản phẩm sau commit (sản phẩm không còn AVAILABLE thì gỡ khỏi index)
+     * Phải gọi trong transaction vì đọc các quan hệ LAZY
+     */
+    public void indexAfterCommit(Product product) {
+        Long productId = product.getId();
+        Document document = toDocument(product);
+        runAfterCommit(() -> {
+            applyLocal(productId, document);
+            redisMessagePublisher.publish(PRODUCT_CHANNEL + productId, Map.of("productId", productId));
+        });
+    }
+
+    public void removeAfterCommit(Long productId) {
+        runAfterCommit(() -> {
+            applyLocal(productId, null);
+            redisMessagePublisher.publish(PRODUCT_CHANNEL + productId, Map.of("productId", productId));
+        });
+    }
+
+    /**
+     * Cửa hàng đổi tên / mở-đóng / bị xóa: nạp lại toàn bộ sản phẩm của cửa hàng sau commit
+     */
+    public void reindexStoreAfterCommit(Long storeId) {
+        runAfterCommit(() -> {
+            refreshStore(storeId);
+            redisMessagePublisher.publish(STORE_CHANNEL + storeId, Map.of("storeId", storeId));
+        });
+    }
+
+    /**
+     * Tồn kho đã commit của các biến thể vừa trừ / hoàn kho (gọi sau commit)
+     *
+     * @param stock Map mappingId → stock_quantity
+     */
+    public void updateStock(Map<Long, Integer> stock) {
+        if (stock.isEmpty()) {
+            return;
+        }
+        applyStock(stock);
+        redisMessagePublisher.publish(STOCK_CHANNEL, Map.of("stock", stock));
+    }
+
+    // ========== NẠP LẠI TỪ DATABASE (event từ node khác) ==========
+
+    public void refresh(Long productId) {
+        Document document = readOnlyTransaction.execute(status -> productRepository.findByIdWithUnits(productId)
+                .map(this::toDocument)
+                .orElse(null));
+        applyLocal(productId, document);
+    }
+
+    public void refreshStore(Long storeId) {
+        List<Document> documents = readOnlyTransaction.execute(status -> productRepository.findByStoreIdWithUnits(storeId)
+                .stream()
+                .map(this::toDocument)
+                .filter(d -> d != null)
+                .toList());
+        lock.writeLock().lock();
+        try {
+            segment.removeStore(storeId);
+            productSuggestionIndex.removeStore(storeId);
+            if (documents != null) {
+                documents.forEach(segment::put);
+                documents.forEach(d -> productSuggestionIndex.put(toCatalogEntry(d)));
+            }
+            if (dirtyStores != null) {
+                dirtyStores.add(storeId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ghi đè tồn kho trong ProductResponse đã index (biến thể không có trong index thì bỏ qua)
+     * Không đụng tới postings: tồn kho không tham gia tìm kiếm / xếp hạng
+     */
+    public void applyStock(Map<Long, Integer> stock) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Map<Long, Integer>> byProduct = new HashMap<>();
+            stock.forEach((mappingId, quantity) -> {
+                Long productId = segment.productByMapping.get(mappingId);
+                if (productId != null) {
+                    byProduct.computeIfAbsent(productId, id -> new HashMap<>()).put(mappingId, quantity);
+                }
+            });
+            byProduct.forEach((productId, quantities) -> {
+                Document document = segment.documents.get(productId);
+                ProductResponse response = document.response().toBuilder()
+                        .units(document.response().getUnits().stream()
+                                .map(unit -> quantities.containsKey(unit.getId())
+                                        ? unit.toBuilder().stockQuantity(quantities.get(unit.getId())).build()
+                                        : unit)
+                                .toList())
+                        .build();
+                segment.documents.put(productId, new Document(document.productId(), document.storeId(),
+                        document.categoryId(), document.storeOpen(), document.sortName(), document.length(),
+                        document.terms(), response));
+                if (dirtyProducts != null) {
+                    dirtyProducts.add(productId);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyLocal(Long productId, Document document) {
+        lock.writeLock().lock();
+        try {
+            if (document != null) {
+                segment.put(document);
+                productSuggestionIndex.put(toCatalogEntry(document));
+            } else {
+                segment.remove(productId);
+                productSuggestionIndex.remove(productId);
+            }
+            if (dirtyProducts != null) {
+                dirtyProducts.add(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ========== REBUILD ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ database rồi swap
+     */
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval-ms:600000}",
+               initialDelayString = "${app.search.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            dirtyProducts = new HashSet<>();
+            dirtyStores = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<Long> changedProducts;
+        Set<Long> changedStores;
+        try {
+            long started = System.currentTimeMillis();
+            Segment fresh = new Segment();
+            readOnlyTransaction.executeWithoutResult(status ->
+                    productRepository.findAllForSearchIndex().stream()
+                            .map(this::toDocument)
+                            .filter(d -> d != null)
+                            .forEach(fresh::put));
+
+            lock.writeLock().lock();
+            try {
+                segment = fresh;
+                ready = true;
+                productSuggestionIndex.replaceAll(fresh.documents.values().stream()
+                        .map(ProductSearchIndex::toCatalogEntry)
+                        .toList());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product search index rebuilt: {} products, {} terms in {} ms",
+                    fresh.documents.size(), fresh.postings.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException ex) {
+            log.error("Product search index rebuild failed: {}", ex.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedProducts = dirtyProducts;
+                changedStores = dirtyStores;
+                dirtyProducts = null;
+                dirtyStores = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Snapshot có thể đã cũ với các thay đổi commit trong lúc rebuild
+        changedStores.forEach(this::refreshStore);
+        changedProducts.forEach(this::refresh);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * @return null nếu sản phẩm không được tìm thấy khi tìm kiếm (không AVAILABLE / không có cửa hàng)
+     */
+    private Document toDocument(Product product) {
+        if (product.getStatus() != Product.ProductStatus.AVAILABLE || product.getStore() == null) {
+            return null;
+        }
+        Map<String, Float> terms = new HashMap<>();
+        float length = 0;
+        length += addField(terms, product.getName(), NAME_WEIGHT);
+        length += addField(terms, product.getCategory() != null ? product.getCategory().getName() : null, CATEGORY_WEIGHT);
+        length += addField(terms, product.getStore().getStoreName(), STORE_WEIGHT);
+        length += addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        return new Document(
+                product.getId(),
+                product.getStore().getId(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                !Boolean.FALSE.equals(product.getStore().getIsOpen()),
+                VietnameseTextAnalyzer.fold(product.getName()),
+                length,
+                terms,
+                productResponseMapper.toResponse(product));
+    }
+
+    private static ProductSuggestionIndex.CatalogEntry toCatalogEntry(Document document) {
+        ProductResponse response = document.response();
+        return new ProductSuggestionIndex.CatalogEntry(document.productId(), response.getName(),
+                document.storeId(), response.getStoreName(),
+                document.categoryId(), response.getCategoryName(), document.storeOpen());
+    }
+
+    private static float addField(Map<String, Float> terms, String text, float weight) {
+        List<String> tokens = VietnameseTextAnalyzer.tokenize(text);
+        for (String token : tokens) {
+            terms.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,238 @@
+package com.grocery.server.product.search;
+
+import com.grocery.server.product.dto.response.SuggestionResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Component: ProductSuggestionIndex
+ * Mục đích: Gợi ý khi gõ (typeahead) cho ô tìm kiếm, thay cho gọi /products/search mỗi phím
+ *
+ * Nguồn:
+ * - Sản phẩm của cửa hàng đang mở (tên sản phẩm, tên cửa hàng, tên danh mục) do ProductSearchIndex đẩy sang
+ *   mỗi khi index thay đổi (cùng đường cập nhật sau commit / Redis / rebuild)
+ * - Trọng số: số đơn có sản phẩm / số đơn của cửa hàng (nạp định kỳ), danh mục = số sản phẩm đang bán
+ * - Sản phẩm trùng tên (bỏ dấu) ở nhiều cửa hàng gộp thành 1 gợi ý, cộng trọng số
+ *
+ * Build: thay đổi chỉ đánh dấu dirty; thread nền dựng SuggestionTrie mới từ bộ nhớ
+ * (sau app.suggest.rebuild-delay-ms) rồi swap bằng 1 phép gán volatile → đọc không lock, không chạm database
+ *
+ * Metrics: product.suggest.latency, product.suggest.entries
+ */
+@Component
+@Slf4j
+public class ProductSuggestionIndex {
+
+    public static final int MAX_LIMIT = SuggestionTrie.MAX_K;
+
+    private static final String PRODUCT_POPULARITY_SQL =
+            "SELECT pum.product_id, COUNT(DISTINCT oi.order_id) FROM order_items oi " +
+            "JOIN product_unit_mappings pum ON pum.id = oi.product_unit_mapping_id " +
+            "GROUP BY pum.product_id";
+    private static final String STORE_POPULARITY_SQL =
+            "SELECT store_id, COUNT(*) FROM order_stores GROUP BY store_id";
+
+    /**
+     * Sản phẩm trong catalog (dạng gọn, đủ để dựng gợi ý)
+     */
+    public record CatalogEntry(Long productId, String productName, Long storeId, String storeName,
+                               Long categoryId, String categoryName, boolean storeOpen) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer suggestLatency;
+    private final long rebuildDelayMs;
+
+    private final Map<Long, CatalogEntry> catalog = new ConcurrentHashMap<>();
+    private volatile Map<Long, Long> productPopularity = Map.of();
+    private volatile Map<Long, Long> storePopularity = Map.of();
+    private volatile SuggestionTrie trie = SuggestionTrie.EMPTY;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "suggestion-trie-builder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ProductSuggestionIndex(JdbcTemplate jdbcTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.suggest.rebuild-delay-ms:1000}") long rebuildDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.suggestLatency = Timer.builder("product.suggest.latency")
+                .description("Thời gian tra gợi ý trên trie trong bộ nhớ")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("product.suggest.entries", this, index -> index.trie.size())
+                .description("Số gợi ý trong trie đang phục vụ")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        builder.scheduleWithFixedDelay(this::rebuildIfDirty, rebuildDelayMs, rebuildDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    // ========== ĐỌC ==========
+
+    /**
+     * Top gợi ý cho chuỗi đang gõ (không phân biệt dấu)
+     */
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        return suggestLatency.record(() -> {
+            String prefix = String.join(" ", VietnameseTextAnalyzer.tokenize(query));
+            if (prefix.isEmpty()) {
+                return List.of();
+            }
+            return trie.complete(prefix, Math.min(Math.max(limit, 1), MAX_LIMIT));
+        });
+    }
+
+    // ========== CẬP NHẬT (từ ProductSearchIndex) ==========
+
+    public void put(CatalogEntry entry) {
+        catalog.put(entry.productId(), entry);
+        dirty.set(true);
+    }
+
+    public void remove(Long productId) {
+        if (catalog.remove(productId) != null) {
+            dirty.set(true);
+        }
+    }
+
+    public void removeStore(Long storeId) {
+        if (catalog.values().removeIf(entry -> storeId.equals(entry.storeId()))) {
+            dirty.set(true);
+        }
+    }
+
+    public void replaceAll(Collection<CatalogEntry> entries) {
+        Map<Long, CatalogEntry> fresh = new HashMap<>();
+        entries.forEach(entry -> fresh.put(entry.productId(), entry));
+        catalog.keySet().retainAll(fresh.keySet());
+        catalog.putAll(fresh);
+        dirty.set(true);
+    }
+
+    /**
+     * Nạp lại độ phổ biến từ lịch sử đơn hàng (2 query GROUP BY)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-refresh-ms:3600000}",
+               initialDelayString = "${app.suggest.popularity-refresh-ms:3600000}")
+    public void reloadPopularity() {
+        try {
+            productPopularity = loadCounts(PRODUCT_POPULARITY_SQL);
+            storePopularity = loadCounts(STORE_POPULARITY_SQL);
+            dirty.set(true);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to load suggestion popularity: {}", ex.getMessage());
+        }
+    }
+
+    private Map<Long, Long> loadCounts(String sql) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getLong(1), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    // ========== BUILD ==========
+
+    private void rebuildIfDirty() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            SuggestionTrie fresh = SuggestionTrie.build(collectEntries());
+            trie = fresh;
+            log.debug("Suggestion trie rebuilt: {} entries in {} µs",
+                    fresh.size(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+        } catch (RuntimeException ex) {
+            dirty.set(true);
+            log.error("Suggestion trie rebuild failed: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Gộp catalog thành gợi ý: sản phẩm theo tên bỏ dấu, cửa hàng theo ID, danh mục theo ID
+     */
+    private List<SuggestionTrie.Entry> collectEntries() {
+        Map<Long, Long> products = productPopularity;
+        Map<Long, Long> stores = storePopularity;
+
+        Map<String, SuggestionResponse> productByName = new LinkedHashMap<>();
+        Map<String, Long> productWeight = new HashMap<>();
+        Map<String, Long> productBest = new HashMap<>();
+        Map<Long, SuggestionResponse> storeSuggestions = new LinkedHashMap<>();
+        Map<Long, SuggestionResponse> categorySuggestions = new LinkedHashMap<>();
+        Map<Long, Long> categoryWeight = new HashMap<>();
+
+        for (CatalogEntry entry : catalog.values()) {
+            if (!entry.storeOpen()) {
+                continue;
+            }
+            String key = VietnameseTextAnalyzer.fold(entry.productName()).trim();
+            if (!key.isEmpty()) {
+                // Dùng text (có dấu) của sản phẩm bán chạy nhất trong nhóm trùng tên
+                long popularity = products.getOrDefault(entry.productId(), 0L);
+                productWeight.merge(key, popularity + 1, Long::sum);
+                if (popularity >= productBest.getOrDefault(key, -1L)) {
+                    productBest.put(key, popularity);
+                    productByName.put(key, SuggestionResponse.builder()
+                            .text(entry.productName()).type("PRODUCT").build());
+                }
+            }
+            if (entry.storeName() != null) {
+                storeSuggestions.computeIfAbsent(entry.storeId(), id -> SuggestionResponse.builder()
+                        .text(entry.storeName()).type("STORE").id(id).build());
+            }
+            if (entry.categoryId() != null && entry.categoryName() != null) {
+                categorySuggestions.computeIfAbsent(entry.categoryId(), id -> SuggestionResponse.builder()
+                        .text(entry.categoryName()).type("CATEGORY").id(id).build());
+                categoryWeight.merge(entry.categoryId(), 1L, Long::sum);
+            }
+        }
+
+        List<SuggestionTrie.Entry> entries = new ArrayList<>();
+        productByName.forEach((key, suggestion) ->
+                entries.add(new SuggestionTrie.Entry(suggestion, productWeight.get(key))));
+        storeSuggestions.forEach((storeId, suggestion) ->
+                entries.add(new SuggestionTrie.Entry(suggestion, stores.getOrDefault(storeId, 0L) + 1)));
+        categorySuggestions.forEach((categoryId, suggestion) ->
+                entries.add(new SuggestionTrie.Entry(suggestion, categoryWeight.get(categoryId))));
+        return entries;
+    }
+}
@@ -0,0 +1,172 @@
+package com.grocery.server.product.search;
+
+import com.grocery.server.product.dto.response.SuggestionResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Radix trie bất biến cho gợi ý tìm kiếm (typeahead)
+ *
+ * - Key: text đã bỏ dấu, các từ nối bằng 1 khoảng trắng; mỗi entry được chèn ở mọi vị trí đầu từ
+ *   ("rau cai ngot", "cai ngot", "ngot") → gõ "cai" vẫn gợi ý "Rau cải ngọt"
+ * - Cạnh nén (mỗi cạnh là 1 chuỗi), con sắp theo ký tự đầu → tìm con bằng binary search
+ * - Mỗi node giữ sẵn top-K entry (theo weight) của cả cây con → lookup = đi theo prefix rồi trả mảng có sẵn
+ * - Không bao giờ sửa sau khi build: đọc không cần lock, thay cả cây bằng 1 phép gán
+ */
+final class SuggestionTrie {
+
+    static final int MAX_K = 10;
+
+    static final SuggestionTrie EMPTY = build(List.of());
+
+    /**
+     * 1 gợi ý kèm trọng số (độ phổ biến)
+     */
+    record Entry(SuggestionResponse suggestion, long weight) {
+    }
+
+    private static final class Node {
+        final String label;
+        final Node[] children;
+        final int[] top;
+
+        Node(String label, Node[] children, int[] top) {
+            this.label = label;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    private record Key(String text, int entry) {
+    }
+
+    private final Entry[] entries;
+    private final Node root;
+
+    private SuggestionTrie(Entry[] entries, Node root) {
+        this.entries = entries;
+        this.root = root;
+    }
+
+    static SuggestionTrie build(List<Entry> entryList) {
+        Entry[] entries = entryList.toArray(new Entry[0]);
+        // Thứ hạng cố định: weight giảm dần, rồi text tăng dần → top-K của mọi node nhất quán
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> -entries[i].weight())
+                .thenComparing(i -> entries[i].suggestion().getText()));
+        Entry[] ranked = new Entry[entries.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            ranked[rank] = entries[order[rank]];
+        }
+
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < ranked.length; i++) {
+            List<String> tokens = VietnameseTextAnalyzer.tokenize(ranked[i].suggestion().getText());
+            for (int start = 0; start < tokens.size(); start++) {
+                keys.add(new Key(String.join(" ", tokens.subList(start, tokens.size())), i));
+            }
+        }
+        keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::entry));
+
+        return new SuggestionTrie(ranked, buildNode("", keys, 0, keys.size(), 0));
+    }
+
+    /**
+     * Dựng node cho các key [lo, hi) đã sort, cùng tiền tố độ dài depth
+     * (index entry chính là thứ hạng → top-K = K index nhỏ nhất trong cây con)
+     */
+    private static Node buildNode(String label, List<Key> keys, int lo, int hi, int depth) {
+        List<Node> children = new ArrayList<>();
+        List<Integer> candidates = new ArrayList<>();
+
+        int i = lo;
+        while (i < hi && keys.get(i).text().length() == depth) {
+            candidates.add(keys.get(i).entry());
+            i++;
+        }
+        while (i < hi) {
+            char c = keys.get(i).text().charAt(depth);
+            int j = i + 1;
+            while (j < hi && keys.get(j).text().charAt(depth) == c) {
+                j++;
+            }
+            String first = keys.get(i).text();
+            String last = keys.get(j - 1).text();
+            int end = depth + 1;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            Node child = buildNode(first.substring(depth, end), keys, i, j, end);
+            children.add(child);
+            for (int entry : child.top) {
+                candidates.add(entry);
+            }
+            i = j;
+        }
+
+        int[] top = candidates.stream().mapToInt(Integer::intValue).sorted().distinct().limit(MAX_K).toArray();
+        return new Node(label, children.toArray(new Node[0]), top);
+    }
+
+    /**
+     * Top gợi ý cho prefix đã chuẩn hóa (bỏ dấu, từ cách nhau 1 khoảng trắng)
+     */
+    List<SuggestionResponse> complete(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = findChild(node, prefix.charAt(i));
+            if (child == null) {
+                return List.of();
+            }
+            int remaining = prefix.length() - i;
+            if (remaining <= child.label.length()) {
+                if (!child.label.startsWith(prefix.substring(i))) {
+                    return List.of();
+                }
+                node = child;
+                break;
+            }
+            if (!prefix.startsWith(child.label, i)) {
+                return List.of();
+            }
+            i += child.label.length();
+            node = child;
+        }
+
+        int count = Math.min(limit, node.top.length);
+        List<SuggestionResponse> result = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            result.add(entries[node.top[k]].suggestion());
+        }
+        return result;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    private static Node findChild(Node node, char c) {
+        Node[] children = node.children;
+        int lo = 0;
+        int hi = children.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char first = children[mid].label.charAt(0);
+            if (first < c) {
+                lo = mid + 1;
+            } else if (first > c) {
+                hi = mid - 1;
+            } else {
+                return children[mid];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.grocery.server.product.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utility: VietnameseTextAnalyzer
+ * Mục đích: Chuẩn hóa và tách từ tiếng Việt cho chỉ mục tìm kiếm sản phẩm
+ *
+ * - Bỏ dấu: NFD rồi xóa combining mark, đ/Đ → d ("Rau cải" → "rau cai")
+ * - Chữ thường, tách theo ký tự không phải chữ/số ("Sữa tươi 1L" → [sua, tuoi, 1l])
+ * - Dùng chung cho lúc index và lúc query → "rau cai" khớp "rau cải"
+ */
+public final class VietnameseTextAnalyzer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private VietnameseTextAnalyzer() {
+    }
+
+    /**
+     * Bỏ dấu + chữ thường
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Bỏ dấu rồi tách từ
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -7,6 +7,7 @@ import com.grocery.server.product.entity.Category;
 import com.grocery.server.product.repository.CategoryRepository;
 import com.grocery.server.shared.exception.BadRequestException;
 import com.grocery.server.shared.exception.ResourceNotFoundException;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
@@ -27,6 +28,7 @@ import java.util.stream.Collectors;
 public class CategoryService {
     
     private final CategoryRepository categoryRepository;
+    private final ResourceVersionService resourceVersionService;
     
     /**
      * Lấy tất cả categories (Public)
@@ -73,6 +75,7 @@ public class CategoryService {
         
         Category savedCategory = categoryRepository.save(category);
         log.info("Created new category: {}", savedCategory.getName());
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.CATEGORIES);
         
         return CategoryResponse.fromEntity(savedCategory);
     }
@@ -100,6 +103,8 @@ public class CategoryService {
         
         Category updatedCategory = categoryRepository.save(category);
         log.info("Updated category: {}", categoryId);
+        // Tên danh mục nằm trong danh sách sản phẩm → ETag sản phẩm của mọi cửa hàng cũng đổi
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.CATEGORIES);
         
         return CategoryResponse.fromEntity(updatedCategory);
     }
@@ -121,5 +126,6 @@ public class CategoryService {
         
         categoryRepository.delete(category);
         log.info("Deleted category: {}", categoryId);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.CATEGORIES);
     }
 }
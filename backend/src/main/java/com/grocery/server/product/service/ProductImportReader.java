@@ -0,0 +1,275 @@
+package com.grocery.server.product.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.product.dto.request.CreateProductRequest;
+import com.grocery.server.shared.exception.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đọc file import sản phẩm từng dòng (không nạp cả file vào bộ nhớ)
+ *
+ * NDJSON: 1 dòng = 1 sản phẩm, cùng cấu trúc CreateProductRequest, thêm "category" (tên hoặc ID danh mục) thay cho categoryId
+ * CSV (UTF-8, dòng đầu là tiêu đề, không phân biệt hoa thường / dấu gạch dưới):
+ *   name, category, categoryId, description, imageUrl, unitCode, unitName, baseQuantity, baseUnit, price, stockQuantity
+ *   - 1 dòng = 1 đơn vị bán; dòng để trống cột name = thêm đơn vị cho sản phẩm ở dòng trên
+ *   - Ô có dấu phẩy / xuống dòng đặt trong ngoặc kép, "" = 1 dấu ngoặc kép
+ *
+ * Lỗi cú pháp của 1 sản phẩm trả về trong ImportRow.error (không dừng cả file);
+ * file không đọc được (thiếu cột bắt buộc...) → BadRequestException
+ */
+final class ProductImportReader implements Closeable {
+
+    /**
+     * 1 sản phẩm đọc từ file
+     *
+     * @param line     Dòng bắt đầu của sản phẩm
+     * @param product  Dữ liệu đã parse (NDJSON lỗi cú pháp: null)
+     * @param category Tên hoặc ID danh mục dạng text (null nếu không có)
+     * @param error    Lỗi cú pháp (null nếu parse được)
+     */
+    record ImportRow(int line, CreateProductRequest product, String category, String error) {
+    }
+
+    private final ProductImportService.Format format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+
+    private int lineNumber;
+
+    // CSV
+    private Map<String, Integer> columns;
+    private ImportRow pending;
+    private String pendingError;
+    private boolean eof;
+
+    ProductImportReader(ProductImportService.Format format, InputStream in, ObjectMapper objectMapper) {
+        this.format = format;
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Sản phẩm tiếp theo, null khi hết file
+     */
+    ImportRow next() throws IOException {
+        return format == ProductImportService.Format.CSV ? nextCsv() : nextNdjson();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ========== NDJSON ==========
+
+    private ImportRow nextNdjson() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1) {
+                line = stripBom(line);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (node == null || !node.isObject()) {
+                    return new ImportRow(lineNumber, null, null, "Mỗi dòng phải là 1 object JSON");
+                }
+                CreateProductRequest product = objectMapper.treeToValue(node, CreateProductRequest.class);
+                JsonNode category = node.get("category");
+                String categoryText = category != null && !category.isNull() ? category.asText() : null;
+                return new ImportRow(lineNumber, product, categoryText, null);
+            } catch (JsonProcessingException ex) {
+                return new ImportRow(lineNumber, null, null, "JSON không hợp lệ: " + ex.getOriginalMessage());
+            }
+        }
+        return null;
+    }
+
+    // ========== CSV ==========
+
+    private ImportRow nextCsv() throws IOException {
+        if (columns == null) {
+            readHeader();
+        }
+        while (!eof) {
+            int recordLine = lineNumber + 1;
+            List<String> record = readRecord();
+            if (record == null) {
+                eof = true;
+                break;
+            }
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+
+            String name = cell(record, "name");
+            if (name == null && pending != null) {
+                addUnit(record, recordLine);
+                continue;
+            }
+
+            ImportRow completed = takePending();
+            String category = cell(record, "category");
+            pending = new ImportRow(recordLine, CreateProductRequest.builder()
+                    .name(name)
+                    .description(cell(record, "description"))
+                    .imageUrl(cell(record, "imageurl"))
+                    .units(new ArrayList<>())
+                    .build(),
+                    category != null ? category : cell(record, "categoryid"),
+                    null);
+            pendingError = name == null ? "Thiếu tên sản phẩm" : null;
+            addUnit(record, recordLine);
+            if (completed != null) {
+                return completed;
+            }
+        }
+        return takePending();
+    }
+
+    private ImportRow takePending() {
+        ImportRow row = pending;
+        pending = null;
+        if (row == null || pendingError == null) {
+            return row;
+        }
+        return new ImportRow(row.line(), row.product(), row.category(), pendingError);
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new BadRequestException("File rỗng");
+        }
+        columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String key = (i == 0 ? stripBom(header.get(i)) : header.get(i))
+                    .trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "");
+            columns.putIfAbsent(key, i);
+        }
+        for (String required : List.of("name", "price")) {
+            if (!columns.containsKey(required)) {
+                throw new BadRequestException("File CSV thiếu cột bắt buộc: " + required);
+            }
+        }
+        if (!columns.containsKey("unitcode") && !columns.containsKey("unitname")) {
+            throw new BadRequestException("File CSV thiếu cột unitCode / unitName");
+        }
+    }
+
+    private void addUnit(List<String> record, int recordLine) {
+        if (pendingError != null) {
+            return;
+        }
+        try {
+            pending.product().getUnits().add(CreateProductRequest.ProductUnitRequest.builder()
+                    .unitCode(cell(record, "unitcode"))
+                    .unitName(cell(record, "unitname"))
+                    .baseQuantity(parseDouble(cell(record, "basequantity"), "baseQuantity"))
+                    .baseUnit(cell(record, "baseunit"))
+                    .price(parseDouble(cell(record, "price"), "price"))
+                    .stockQuantity(parseInteger(cell(record, "stockquantity")))
+                    .build());
+        } catch (IllegalArgumentException ex) {
+            pendingError = "Dòng " + recordLine + ": " + ex.getMessage();
+        }
+    }
+
+    private String cell(List<String> record, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Double parseDouble(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(column + " không phải là số: " + value);
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("stockQuantity không phải là số nguyên: " + value);
+        }
+    }
+
+    /**
+     * Đọc 1 bản ghi CSV (có thể trải qua nhiều dòng nếu ô trong ngoặc kép chứa xuống dòng), null khi hết file
+     */
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        lineNumber++;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int following = reader.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (following != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String stripBom(String text) {
+        return !text.isEmpty() && text.charAt(0) == '\uFEFF' ? text.substring(1) : text;
+    }
+}
@@ -0,0 +1,483 @@
+package com.grocery.server.product.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.product.dto.request.CreateProductRequest;
+import com.grocery.server.product.dto.response.ProductImportResponse;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.repository.CategoryRepository;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.product.search.VietnameseTextAnalyzer;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ResourceNotFoundException;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.store.repository.StoreRepository;
+import com.grocery.server.user.entity.User;
+import com.grocery.server.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service: ProductImportService
+ * Mục đích: Cửa hàng import sản phẩm hàng loạt từ file CSV / NDJSON (thay cho gọi POST /products từng sản phẩm)
+ *
+ * - Đọc file từng dòng (ProductImportReader), chỉ giữ 1 chunk sản phẩm trong bộ nhớ
+ * - Kiểm tra trong bộ nhớ, không query theo dòng:
+ *   + Ràng buộc của CreateProductRequest (Bean Validation)
+ *   + Danh mục: nạp cả bảng categories 1 lần (tra theo ID hoặc tên bỏ dấu)
+ *   + Đơn vị: UnitCatalog + cùng quy tắc với tạo sản phẩm (ProductUnitResolver)
+ *   + Tên sản phẩm trùng với sản phẩm đã có của cửa hàng hoặc dòng trước trong file (bỏ dấu) → bỏ qua dòng
+ * - Ghi bằng JDBC, mỗi chunk (app.product-import.chunk-size sản phẩm) là 1 transaction:
+ *   + products: 1 câu INSERT nhiều dòng → InnoDB cấp 1 dải ID AUTO_INCREMENT liên tiếp, đọc lại qua generated keys
+ *   + product_unit_mappings: INSERT nhiều dòng dùng các ID vừa cấp
+ *   Chunk lỗi khi ghi → rollback riêng chunk đó, các sản phẩm trong chunk vào báo cáo lỗi, chunk sau vẫn chạy
+ * - Xong: nạp lại index tìm kiếm của cửa hàng 1 lần + bump ETag danh sách sản phẩm
+ *
+ * Metrics: product.import.products (result=imported|failed)
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    private static final String PRODUCT_COLUMNS =
+            "INSERT INTO products (store_id, category_id, name, description, image_url, status) VALUES ";
+    private static final String PRODUCT_VALUES = "(?, ?, ?, ?, ?, ?)";
+    private static final String MAPPING_COLUMNS =
+            "INSERT INTO product_unit_mappings (product_id, unit_id, unit_label, price, stock_quantity, " +
+            "base_quantity, base_unit, is_default, is_active, created_at, updated_at) VALUES ";
+    private static final String MAPPING_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Số dòng tối đa của 1 câu INSERT product_unit_mappings (11 tham số / dòng)
+     */
+    private static final int MAPPING_ROWS_PER_STATEMENT = 1000;
+
+    /**
+     * Định dạng file import
+     */
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Theo tham số format, nếu không có thì theo đuôi file (.csv / .ndjson / .jsonl)
+         */
+        public static Format resolve(String format, String fileName) {
+            String value = format;
+            if (value == null || value.isBlank()) {
+                String name = fileName != null ? fileName.toLowerCase() : "";
+                value = name.endsWith(".ndjson") || name.endsWith(".jsonl") ? "ndjson" : "csv";
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Định dạng không hợp lệ: " + format + ". Dùng csv hoặc ndjson.");
+            }
+        }
+    }
+
+    private record PreparedUnit(Long unitId, String unitLabel, BigDecimal price, int stockQuantity,
+                                BigDecimal baseQuantity, String baseUnit, boolean isDefault) {
+    }
+
+    private record PreparedProduct(int line, String name, String nameKey, Long categoryId, String description,
+                                   String imageUrl, List<PreparedUnit> units) {
+    }
+
+    /**
+     * Trạng thái của 1 lần import
+     */
+    private static final class ImportContext {
+        final Long storeId;
+        final Map<Long, Category> categoriesById;
+        final Map<String, Category> categoriesByName;
+        final Set<String> productNames;
+        final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+        int totalProducts;
+        int importedProducts;
+        int importedUnits;
+        int failedProducts;
+        boolean errorsTruncated;
+
+        ImportContext(Long storeId, Map<Long, Category> categoriesById,
+                      Map<String, Category> categoriesByName, Set<String> productNames) {
+            this.storeId = storeId;
+            this.categoriesById = categoriesById;
+            this.categoriesByName = categoriesByName;
+            this.productNames = productNames;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final CategoryRepository categoryRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final ProductUnitResolver productUnitResolver;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersionService resourceVersionService;
+    private final Counter importedCounter;
+    private final Counter failedCounter;
+    private final int chunkSize;
+    private final int maxProducts;
+    private final int maxErrors;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                CategoryRepository categoryRepository,
+                                StoreRepository storeRepository,
+                                UserRepository userRepository,
+                                ProductUnitResolver productUnitResolver,
+                                ProductSearchIndex productSearchIndex,
+                                ResourceVersionService resourceVersionService,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.product-import.chunk-size:500}") int chunkSize,
+                                @Value("${app.product-import.max-products:50000}") int maxProducts,
+                                @Value("${app.product-import.max-errors:1000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.categoryRepository = categoryRepository;
+        this.storeRepository = storeRepository;
+        this.userRepository = userRepository;
+        this.productUnitResolver = productUnitResolver;
+        this.productSearchIndex = productSearchIndex;
+        this.resourceVersionService = resourceVersionService;
+        this.importedCounter = Counter.builder("product.import.products")
+                .description("Số sản phẩm import hàng loạt")
+                .tag("result", "imported")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("product.import.products")
+                .description("Số sản phẩm import hàng loạt")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxProducts = maxProducts;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Import sản phẩm cho cửa hàng của user hiện tại (Store owner only)
+     *
+     * @param format CSV hoặc NDJSON
+     * @param in     Nội dung file (đóng ở đây)
+     * @param dryRun true: chỉ kiểm tra, trả báo cáo lỗi, không ghi database
+     */
+    public ProductImportResponse importProducts(Format format, InputStream in, boolean dryRun) throws IOException {
+        long started = System.currentTimeMillis();
+        User currentUser = getCurrentUser();
+        Store store = storeRepository.findByOwnerId(currentUser.getId())
+                .orElseThrow(() -> new BadRequestException("Bạn chưa có cửa hàng"));
+
+        ImportContext ctx = new ImportContext(store.getId(), new HashMap<>(), new HashMap<>(),
+                loadProductNames(store.getId()));
+        for (Category category : categoryRepository.findAll()) {
+            ctx.categoriesById.put(category.getId(), category);
+            ctx.categoriesByName.putIfAbsent(foldKey(category.getName()), category);
+        }
+
+        List<PreparedProduct> chunk = new ArrayList<>(chunkSize);
+        try (ProductImportReader reader = new ProductImportReader(format, in, objectMapper)) {
+            ProductImportReader.ImportRow row;
+            while ((row = reader.next()) != null) {
+                if (ctx.totalProducts >= maxProducts) {
+                    addError(ctx, row.line(), null, "Vượt quá " + maxProducts + " sản phẩm / lần import, phần còn lại bị bỏ qua");
+                    break;
+                }
+                ctx.totalProducts++;
+                PreparedProduct prepared = prepare(row, ctx);
+                if (prepared == null) {
+                    continue;
+                }
+                chunk.add(prepared);
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, ctx, dryRun);
+                    chunk.clear();
+                }
+            }
+        }
+        flush(chunk, ctx, dryRun);
+
+        if (!dryRun && ctx.importedProducts > 0) {
+            resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(store.getId()));
+            try {
+                productSearchIndex.reindexStoreAfterCommit(store.getId());
+            } catch (RuntimeException ex) {
+                // Dữ liệu đã commit; node khác bắt kịp ở lần rebuild định kỳ của index
+                log.warn("Failed to broadcast search reindex after import for store {}: {}", store.getId(), ex.getMessage());
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - started;
+        log.info("Product import ({}{}) for store {}: {} imported, {} failed, {} units in {} ms",
+                format, dryRun ? ", dry run" : "", store.getId(), ctx.importedProducts, ctx.failedProducts,
+                ctx.importedUnits, durationMs);
+
+        return ProductImportResponse.builder()
+                .format(format.name())
+                .dryRun(dryRun)
+                .totalProducts(ctx.totalProducts)
+                .importedProducts(ctx.importedProducts)
+                .importedUnits(ctx.importedUnits)
+                .failedProducts(ctx.failedProducts)
+                .durationMs(durationMs)
+                .errors(ctx.errors)
+                .errorsTruncated(ctx.errorsTruncated)
+                .build();
+    }
+
+    // ========== KIỂM TRA ==========
+
+    /**
+     * Dựng sản phẩm sẵn sàng ghi, null nếu dòng lỗi (lỗi đã ghi vào báo cáo)
+     */
+    private PreparedProduct prepare(ProductImportReader.ImportRow row, ImportContext ctx) {
+        CreateProductRequest request = row.product();
+        String name = request != null && request.getName() != null ? request.getName().trim() : null;
+        if (row.error() != null) {
+            return fail(ctx, row.line(), name, row.error());
+        }
+
+        Set<ConstraintViolation<CreateProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return fail(ctx, row.line(), name, message);
+        }
+
+        Category category;
+        try {
+            category = resolveCategory(request.getCategoryId(), row.category(), ctx);
+        } catch (BadRequestException ex) {
+            return fail(ctx, row.line(), name, ex.getMessage());
+        }
+
+        String nameKey = foldKey(name);
+        if (ctx.productNames.contains(nameKey)) {
+            return fail(ctx, row.line(), name, "Sản phẩm đã có trong cửa hàng hoặc trùng với dòng trước");
+        }
+
+        List<PreparedUnit> units = new ArrayList<>(request.getUnits().size());
+        for (int i = 0; i < request.getUnits().size(); i++) {
+            CreateProductRequest.ProductUnitRequest unitReq = request.getUnits().get(i);
+            if (unitReq.getPrice() == null || unitReq.getPrice() <= 0) {
+                return fail(ctx, row.line(), name, "Giá của đơn vị " + unitReq.getUnitName() + " phải lớn hơn 0");
+            }
+            if (unitReq.getStockQuantity() != null && unitReq.getStockQuantity() < 0) {
+                return fail(ctx, row.line(), name, "Tồn kho của đơn vị " + unitReq.getUnitName() + " không được âm");
+            }
+            try {
+                Unit unit = productUnitResolver.resolveUnit(unitReq.getUnitCode(), unitReq.getUnitName());
+                Double inputQuantity = unitReq.getBaseQuantity();
+                BigDecimal baseQuantity = productUnitResolver.resolveBaseQuantity(inputQuantity, unit);
+                units.add(new PreparedUnit(
+                        unit.getId(),
+                        productUnitResolver.resolveUnitLabel(unitReq.getUnitName(), unit, inputQuantity),
+                        BigDecimal.valueOf(unitReq.getPrice()),
+                        unitReq.getStockQuantity() != null ? unitReq.getStockQuantity() : 0,
+                        baseQuantity,
+                        productUnitResolver.resolveBaseUnit(unitReq.getBaseUnit(), unit, baseQuantity),
+                        i == 0));
+            } catch (BadRequestException | ResourceNotFoundException ex) {
+                return fail(ctx, row.line(), name, ex.getMessage());
+            }
+        }
+
+        ctx.productNames.add(nameKey);
+        return new PreparedProduct(row.line(), name, nameKey, category != null ? category.getId() : null,
+                request.getDescription(), request.getImageUrl(), units);
+    }
+
+    /**
+     * categoryId (NDJSON) hoặc cột category: ID, hoặc tên (không phân biệt hoa thường / dấu); không có → không danh mục
+     */
+    private Category resolveCategory(Long categoryId, String categoryText, ImportContext ctx) {
+        if (categoryId == null && (categoryText == null || categoryText.isBlank())) {
+            return null;
+        }
+        Category category;
+        if (categoryId != null) {
+            category = ctx.categoriesById.get(categoryId);
+        } else {
+            category = ctx.categoriesByName.get(foldKey(categoryText));
+            if (category == null && categoryText.trim().matches("\\d{1,18}")) {
+                category = ctx.categoriesById.get(Long.valueOf(categoryText.trim()));
+            }
+        }
+        if (category == null) {
+            throw new BadRequestException("Danh mục không tồn tại: " + (categoryId != null ? categoryId : categoryText));
+        }
+        return category;
+    }
+
+    private PreparedProduct fail(ImportContext ctx, int line, String name, String message) {
+        ctx.failedProducts++;
+        failedCounter.increment();
+        addError(ctx, line, name, message);
+        return null;
+    }
+
+    private void addError(ImportContext ctx, int line, String name, String message) {
+        if (ctx.errors.size() >= maxErrors) {
+            ctx.errorsTruncated = true;
+            return;
+        }
+        ctx.errors.add(ProductImportResponse.RowError.builder()
+                .line(line)
+                .name(name)
+                .message(message)
+                .build());
+    }
+
+    // ========== GHI ==========
+
+    private void flush(List<PreparedProduct> chunk, ImportContext ctx, boolean dryRun) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int units = chunk.stream().mapToInt(p -> p.units().size()).sum();
+        if (!dryRun) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertChunk(ctx.storeId, chunk));
+            } catch (RuntimeException ex) {
+                log.warn("Product import chunk of {} products failed for store {}: {}",
+                        chunk.size(), ctx.storeId, ex.getMessage());
+                for (PreparedProduct product : chunk) {
+                    ctx.productNames.remove(product.nameKey());
+                    fail(ctx, product.line(), product.name(), "Lỗi lưu dữ liệu, vui lòng thử lại");
+                }
+                return;
+            }
+        }
+        ctx.importedProducts += chunk.size();
+        ctx.importedUnits += units;
+        importedCounter.increment(chunk.size());
+    }
+
+    private void insertChunk(Long storeId, List<PreparedProduct> chunk) {
+        List<Long> ids = insertProducts(storeId, chunk);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(MAPPING_ROWS_PER_STATEMENT);
+        for (int i = 0; i < chunk.size(); i++) {
+            for (PreparedUnit unit : chunk.get(i).units()) {
+                rows.add(new Object[]{ids.get(i), unit.unitId(), unit.unitLabel(), unit.price(), unit.stockQuantity(),
+                        unit.baseQuantity(), unit.baseUnit(), unit.isDefault(), true, now, now});
+                if (rows.size() == MAPPING_ROWS_PER_STATEMENT) {
+                    insertMappings(rows);
+                    rows.clear();
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            insertMappings(rows);
+        }
+    }
+
+    /**
+     * 1 câu INSERT cho cả chunk, trả ID theo đúng thứ tự các dòng
+     */
+    private List<Long> insertProducts(Long storeId, List<PreparedProduct> chunk) {
+        String sql = PRODUCT_COLUMNS + String.join(", ", Collections.nCopies(chunk.size(), PRODUCT_VALUES));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int index = 1;
+            for (PreparedProduct product : chunk) {
+                ps.setLong(index++, storeId);
+                if (product.categoryId() != null) {
+                    ps.setLong(index++, product.categoryId());
+                } else {
+                    ps.setNull(index++, Types.BIGINT);
+                }
+                ps.setString(index++, product.name());
+                ps.setString(index++, product.description());
+                ps.setString(index++, product.imageUrl());
+                ps.setString(index++, Product.ProductStatus.AVAILABLE.name());
+            }
+            return ps;
+        }, keyHolder);
+
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (Map<String, Object> key : keyHolder.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        if (ids.size() != chunk.size()) {
+            throw new IllegalStateException("Expected " + chunk.size() + " generated product ids, got " + ids.size());
+        }
+        return ids;
+    }
+
+    private void insertMappings(List<Object[]> rows) {
+        String sql = MAPPING_COLUMNS + String.join(", ", Collections.nCopies(rows.size(), MAPPING_VALUES));
+        Object[] args = new Object[rows.size() * rows.get(0).length];
+        int index = 0;
+        for (Object[] row : rows) {
+            System.arraycopy(row, 0, args, index, row.length);
+            index += row.length;
+        }
+        jdbcTemplate.update(sql, args);
+    }
+
+    // ========== HELPER ==========
+
+    private Set<String> loadProductNames(Long storeId) {
+        Set<String> names = new HashSet<>();
+        jdbcTemplate.query("SELECT name FROM products WHERE store_id = ?",
+                rs -> {
+                    names.add(foldKey(rs.getString(1)));
+                },
+                storeId);
+        return names;
+    }
+
+    private static String foldKey(String text) {
+        return text == null ? "" : VietnameseTextAnalyzer.fold(text).trim();
+    }
+
+    /**
+     * Helper: Lấy current user từ SecurityContext
+     */
+    private User getCurrentUser() {
+        String phoneNumber = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByPhoneNumber(phoneNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "phoneNumber", phoneNumber));
+    }
+}
@@ -0,0 +1,59 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Component: ProductResponseMapper
+ * Mục đích: Map Product entity sang ProductResponse DTO
+ * Tách khỏi ProductService để dùng lại và đo hiệu năng riêng (benchmark)
+ * Lưu ý: cần chạy trong transaction vì đọc các quan hệ LAZY (store, category, unit mappings)
+ */
+@Component
+public class ProductResponseMapper {
+
+    /**
+     * Map Product entity sang ProductResponse DTO (chỉ gồm các biến thể đang bán)
+     */
+    public ProductResponse toResponse(Product product) {
+        // Lấy danh sách productUnitMappings và chuyển đổi sang response
+        List<ProductUnitMapping> mappings = product.getProductUnitMappings();
+        if (mappings == null) {
+            mappings = new ArrayList<>();
+        }
+        
+        List<ProductResponse.ProductUnitResponse> unitResponses = mappings.stream()
+                .filter(mapping -> mapping != null && mapping.getIsActive())
+                .map(mapping -> ProductResponse.ProductUnitResponse.builder()
+                        .id(mapping.getId())
+                    .unitCode(mapping.getUnit() != null ? mapping.getUnit().getCode() : null)
+                        .unitName(mapping.getUnitLabel() != null ? mapping.getUnitLabel() : 
+                                  (mapping.getUnit() != null ? mapping.getUnit().getName() : ""))
+                    .baseQuantity(mapping.getBaseQuantity())
+                    .baseUnit(mapping.getBaseUnit())
+                    .requiresQuantityInput(mapping.getUnit() != null
+                        && Boolean.TRUE.equals(mapping.getUnit().getRequiresQuantityInput()))
+                        .price(mapping.getPrice())
+                        .stockQuantity(mapping.getStockQuantity())
+                        .build())
+                .collect(Collectors.toList());
+        
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .imageUrl(product.getImageUrl())
+                .storeName(product.getStore().getStoreName())
+                .storeAddress(product.getStore().getAddress())
+                .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
+                .status(product.getStatus().name())
+                .units(unitResponses)
+                .build();
+    }
+}
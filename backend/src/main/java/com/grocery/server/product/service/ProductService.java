@@ -1,5 +1,7 @@
 package com.grocery.server.product.service;
 
+import com.grocery.server.order.service.StockHoldService;
+import com.grocery.server.product.dto.cursor.ProductCursor;
 import com.grocery.server.product.dto.request.CreateProductRequest;
 import com.grocery.server.product.dto.request.UpdateProductRequest;
 import com.grocery.server.product.dto.response.ProductResponse;
@@ -9,7 +11,9 @@ import com.grocery.server.product.entity.ProductUnitMapping;
 import com.grocery.server.product.entity.Unit;
 import com.grocery.server.product.repository.CategoryRepository;
 import com.grocery.server.product.repository.ProductRepository;
-import com.grocery.server.product.repository.UnitRepository;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.dto.CursorPage;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import com.grocery.server.shared.exception.BadRequestException;
 import com.grocery.server.shared.exception.ResourceNotFoundException;
 import com.grocery.server.shared.exception.UnauthorizedException;
@@ -19,17 +23,21 @@ import com.grocery.server.user.entity.User;
 import com.grocery.server.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,35 +52,101 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final StoreRepository storeRepository;
-    private final UnitRepository unitRepository;
+    private final ProductUnitResolver productUnitResolver;
     private final UserRepository userRepository;
+    private final ProductResponseMapper productResponseMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final StockHoldService stockHoldService;
+    private final ResourceVersionService resourceVersionService;
+    
+    // ========== CATALOG (KEYSET PAGINATION) ==========
+    
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+    
+    /**
+     * Trần số sản phẩm của các endpoint danh sách cũ (trả List, không phân trang)
+     * Catalog lớn hơn phải dùng getCatalog (cursor)
+     */
+    public static final int MAX_LEGACY_LIST_SIZE = 200;
+    
+    /**
+     * Catalog sản phẩm theo cursor (Public), mới nhất trước
+     * Bộ lọc: cửa hàng, danh mục, khoảng giá (theo biến thể đang bán), còn hàng
+     * Chỉ gồm cửa hàng đang mở, bỏ sản phẩm HIDDEN
+     * includeHidden = true: chủ cửa hàng (hoặc ADMIN) duyệt toàn bộ sản phẩm của storeId,
+     * gồm cả sản phẩm ẩn và khi cửa hàng đang đóng (không bị giới hạn MAX_LEGACY_LIST_SIZE)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> getCatalog(String cursor, int size, Long storeId, Long categoryId,
+                                                  BigDecimal minPrice, BigDecimal maxPrice, boolean inStock,
+                                                  boolean includeHidden) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new BadRequestException("minPrice không được lớn hơn maxPrice");
+        }
+        if (includeHidden) {
+            checkCanViewHidden(storeId);
+        }
+        ProductCursor c = ProductCursor.decode(cursor);
+        int limit = Math.min(Math.max(1, size), MAX_CATALOG_PAGE_SIZE);
+        
+        List<Long> ids = productRepository.findCatalogIdsAfterCursor(
+                storeId, categoryId, minPrice, maxPrice, inStock,
+                minPrice != null || maxPrice != null || inStock,
+                includeHidden, includeHidden, c.id(), PageRequest.of(0, limit + 1));
+        
+        // Query lấy limit + 1 ID: có ID dư → còn trang sau, cursor = ID cuối của trang hiện tại
+        boolean hasMore = ids.size() > limit;
+        List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+        String nextCursor = hasMore ? new ProductCursor(pageIds.get(pageIds.size() - 1)).encode() : null;
+        
+        return CursorPage.<ProductResponse>builder()
+                .items(loadInOrder(pageIds))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+    
+    /**
+     * Sản phẩm ẩn / cửa hàng đóng chỉ hiện cho chủ cửa hàng hoặc ADMIN
+     */
+    private void checkCanViewHidden(Long storeId) {
+        if (storeId == null) {
+            throw new BadRequestException("includeHidden yêu cầu storeId");
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            throw new UnauthorizedException("Vui lòng đăng nhập để xem sản phẩm ẩn của cửa hàng");
+        }
+        Store store = storeRepository.findById(storeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Store", "id", storeId));
+        User currentUser = getCurrentUser();
+        if (currentUser.getRole() != User.UserRole.ADMIN
+                && !store.getOwner().getId().equals(currentUser.getId())) {
+            throw new UnauthorizedException("Bạn không có quyền xem sản phẩm ẩn của cửa hàng này");
+        }
+    }
     
     /**
      * Lấy tất cả products (Public)
+     * Tối đa MAX_LEGACY_LIST_SIZE sản phẩm mới nhất - catalog đầy đủ dùng getCatalog
      */
     @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
-        // Sử dụng JOIN FETCH để lấy cả units trong 1 query
-        List<Product> products = productRepository.findAllWithUnits();
+        List<ProductResponse> products = loadLegacyList(null, null, false, true);
         log.info("Get all products, total: {}", products.size());
-        
-        return products.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return products;
     }
     
     /**
      * Lấy products theo store ID (Public)
+     * Gồm cả sản phẩm ẩn và cửa hàng đang đóng (màn hình quản lý của chủ cửa hàng)
+     * Tối đa MAX_LEGACY_LIST_SIZE - cửa hàng lớn hơn dùng getCatalog với includeHidden
      */
     @Transactional(readOnly = true)
     public List<ProductResponse> getProductsByStore(Long storeId) {
-        // Sử dụng JOIN FETCH để lấy cả units trong 1 query
-        List<Product> products = productRepository.findByStoreIdWithUnits(storeId);
+        List<ProductResponse> products = loadLegacyList(storeId, null, true, true);
         log.info("Get products by store: {}, total: {}", storeId, products.size());
-        
-        return products.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return products;
     }
     
     /**
@@ -84,38 +158,90 @@ public class ProductService {
         categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
         
-        List<Product> products = productRepository.findByCategoryIdWithUnits(categoryId);
+        List<ProductResponse> products = loadLegacyList(null, categoryId, false, true);
         log.info("Get products by category: {}, total: {}", categoryId, products.size());
-        
-        return products.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return products;
     }
     
     /**
-     * Lấy products đang available theo store (Public)
+     * Lấy products đang available theo store (Public), sắp xếp theo tên
      */
     @Transactional(readOnly = true)
     public List<ProductResponse> getAvailableProductsByStore(Long storeId) {
-        List<Product> products = productRepository.findAvailableProductsByStoreWithUnits(storeId);
+        List<Long> ids = productRepository.findCatalogIdsAfterCursor(
+                storeId, null, null, null, true, false, false, false,
+                ProductCursor.FIRST.id(), PageRequest.of(0, MAX_LEGACY_LIST_SIZE));
+        List<ProductResponse> products = new ArrayList<>(loadInOrder(ids));
+        products.sort(Comparator.comparing(ProductResponse::getName, String.CASE_INSENSITIVE_ORDER));
         log.info("Get available products by store: {}, total: {}", storeId, products.size());
-        
-        return products.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return products;
+    }
+    
+    /**
+     * Trang đầu (tối đa MAX_LEGACY_LIST_SIZE) cho các endpoint trả List cũ, cùng 2 pha với catalog
+     */
+    private List<ProductResponse> loadLegacyList(Long storeId, Long categoryId,
+                                                 boolean includeClosed, boolean includeHidden) {
+        List<Long> ids = productRepository.findCatalogIdsAfterCursor(
+                storeId, categoryId, null, null, false, false, includeClosed, includeHidden,
+                ProductCursor.FIRST.id(), PageRequest.of(0, MAX_LEGACY_LIST_SIZE + 1));
+        if (ids.size() > MAX_LEGACY_LIST_SIZE) {
+            log.warn("Product list truncated to {} items (storeId={}, categoryId={}) - use /products/catalog",
+                    MAX_LEGACY_LIST_SIZE, storeId, categoryId);
+            ids = ids.subList(0, MAX_LEGACY_LIST_SIZE);
+        }
+        return loadInOrder(ids);
+    }
+    
+    /**
+     * Pha 2: nạp sản phẩm + units của 1 trang ID trong 1 query, giữ nguyên thứ tự ID
+     */
+    private List<ProductResponse> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = productRepository.findAllWithUnitsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductResponse> responses = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                responses.add(convertToResponse(product));
+            }
+        }
+        return responses;
     }
     
     /**
      * Tìm kiếm products theo keyword (Public)
+     * Tìm trên ProductSearchIndex trong bộ nhớ (bỏ dấu, khớp tiền tố, xếp hạng BM25), không query MySQL
+     * Tồn kho hiển thị = tồn kho đã index - phần khách khác đang giữ checkout (StockHoldService, bộ nhớ / Redis)
      */
-    @Transactional(readOnly = true)
-    public List<ProductResponse> searchProducts(String keyword) {
-        List<Product> products = productRepository.searchByKeyword(keyword);
-        log.info("Search products with keyword: '{}', found: {}", keyword, products.size());
-        
-        return products.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    public Page<ProductResponse> searchProducts(String keyword, Long storeId, Long categoryId,
+                                                boolean includeClosed, int page, int size) {
+        Page<ProductResponse> result = productSearchIndex.search(keyword, storeId, categoryId, includeClosed, page, size);
+        log.info("Search products with keyword: '{}', found: {}", keyword, result.getTotalElements());
+        return result.map(withoutHeldStock(result.getContent()));
+    }
+
+    private Function<ProductResponse, ProductResponse> withoutHeldStock(List<ProductResponse> content) {
+        List<Long> mappingIds = content.stream()
+                .filter(product -> product.getUnits() != null)
+                .flatMap(product -> product.getUnits().stream())
+                .map(ProductResponse.ProductUnitResponse::getId)
+                .toList();
+        Map<Long, Integer> held = stockHoldService.heldByOthers(mappingIds, null);
+        if (held.isEmpty()) {
+            return Function.identity();
+        }
+        return product -> product.getUnits() == null ? product : product.toBuilder()
+                .units(product.getUnits().stream()
+                        .map(unit -> !held.containsKey(unit.getId()) || unit.getStockQuantity() == null ? unit
+                                : unit.toBuilder()
+                                        .stockQuantity(Math.max(unit.getStockQuantity() - held.get(unit.getId()), 0))
+                                        .build())
+                        .toList())
+                .build();
     }
     
     /**
@@ -166,11 +292,11 @@ public class ProductService {
         List<ProductUnitMapping> mappings = new ArrayList<>();
         for (int i = 0; i < request.getUnits().size(); i++) {
             CreateProductRequest.ProductUnitRequest unitReq = request.getUnits().get(i);
-            Unit resolvedUnit = resolveUnit(unitReq.getUnitCode(), unitReq.getUnitName());
+            Unit resolvedUnit = productUnitResolver.resolveUnit(unitReq.getUnitCode(), unitReq.getUnitName());
             Double inputQuantity = unitReq.getBaseQuantity();
-            BigDecimal baseQuantity = resolveBaseQuantity(inputQuantity, resolvedUnit);
-            String baseUnit = resolveBaseUnit(unitReq.getBaseUnit(), resolvedUnit, baseQuantity);
-            String unitLabel = resolveUnitLabel(unitReq.getUnitName(), resolvedUnit, inputQuantity);
+            BigDecimal baseQuantity = productUnitResolver.resolveBaseQuantity(inputQuantity, resolvedUnit);
+            String baseUnit = productUnitResolver.resolveBaseUnit(unitReq.getBaseUnit(), resolvedUnit, baseQuantity);
+            String unitLabel = productUnitResolver.resolveUnitLabel(unitReq.getUnitName(), resolvedUnit, inputQuantity);
 
             ProductUnitMapping mapping = ProductUnitMapping.builder()
                 .product(product)
@@ -190,6 +316,8 @@ public class ProductService {
         
         Product savedProduct = productRepository.save(product);
         log.info("Created new product: {} for store: {}", savedProduct.getName(), store.getStoreName());
+        productSearchIndex.indexAfterCommit(savedProduct);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(store.getId()));
         
         return convertToResponse(savedProduct);
     }
@@ -249,12 +377,12 @@ public class ProductService {
                     mapping = existingById.get(unitReq.getId());
                 }
 
-                Unit resolvedUnit = resolveUnit(unitReq.getUnitCode(), unitReq.getUnitName());
+                Unit resolvedUnit = productUnitResolver.resolveUnit(unitReq.getUnitCode(), unitReq.getUnitName());
                 Double inputQuantity = unitReq.getBaseQuantity();
                 BigDecimal existingBaseQuantity = mapping != null ? mapping.getBaseQuantity() : null;
-                BigDecimal baseQuantity = resolveBaseQuantity(inputQuantity, resolvedUnit, existingBaseQuantity);
-                String baseUnit = resolveBaseUnit(unitReq.getBaseUnit(), resolvedUnit, baseQuantity);
-                String unitLabel = resolveUnitLabel(unitReq.getUnitName(), resolvedUnit, inputQuantity);
+                BigDecimal baseQuantity = productUnitResolver.resolveBaseQuantity(inputQuantity, resolvedUnit, existingBaseQuantity);
+                String baseUnit = productUnitResolver.resolveBaseUnit(unitReq.getBaseUnit(), resolvedUnit, baseQuantity);
+                String unitLabel = productUnitResolver.resolveUnitLabel(unitReq.getUnitName(), resolvedUnit, inputQuantity);
 
                 if (mapping == null) {
                     mapping = ProductUnitMapping.builder()
@@ -282,6 +410,8 @@ public class ProductService {
         
         Product updatedProduct = productRepository.save(product);
         log.info("Updated product: {}", productId);
+        productSearchIndex.indexAfterCommit(updatedProduct);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(product.getStore().getId()));
         
         return convertToResponse(updatedProduct);
     }
@@ -310,6 +440,8 @@ public class ProductService {
         
         Product updatedProduct = productRepository.save(product);
         log.info("Toggled product status: {} to {}", productId, updatedProduct.getStatus());
+        productSearchIndex.indexAfterCommit(updatedProduct);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(product.getStore().getId()));
         
         return convertToResponse(updatedProduct);
     }
@@ -331,149 +463,17 @@ public class ProductService {
         
         productRepository.delete(product);
         log.info("Deleted product: {}", productId);
+        productSearchIndex.removeAfterCommit(productId);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(product.getStore().getId()));
     }
     
     /**
      * Helper: Convert Product entity to ProductResponse DTO
      */
     private ProductResponse convertToResponse(Product product) {
-        // Lấy danh sách productUnitMappings và chuyển đổi sang response
-        List<ProductUnitMapping> mappings = product.getProductUnitMappings();
-        if (mappings == null) {
-            mappings = new ArrayList<>();
-        }
-        
-        List<ProductResponse.ProductUnitResponse> unitResponses = mappings.stream()
-                .filter(mapping -> mapping != null && mapping.getIsActive())
-                .map(mapping -> ProductResponse.ProductUnitResponse.builder()
-                        .id(mapping.getId())
-                    .unitCode(mapping.getUnit() != null ? mapping.getUnit().getCode() : null)
-                        .unitName(mapping.getUnitLabel() != null ? mapping.getUnitLabel() : 
-                                  (mapping.getUnit() != null ? mapping.getUnit().getName() : ""))
-                    .baseQuantity(mapping.getBaseQuantity())
-                    .baseUnit(mapping.getBaseUnit())
-                    .requiresQuantityInput(mapping.getUnit() != null
-                        && Boolean.TRUE.equals(mapping.getUnit().getRequiresQuantityInput()))
-                        .price(mapping.getPrice())
-                        .stockQuantity(mapping.getStockQuantity())
-                        .build())
-                .collect(Collectors.toList());
-        
-        return ProductResponse.builder()
-                .id(product.getId())
-                .name(product.getName())
-                .description(product.getDescription())
-                .imageUrl(product.getImageUrl())
-                .storeName(product.getStore().getStoreName())
-                .storeAddress(product.getStore().getAddress())
-                .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
-                .status(product.getStatus().name())
-                .units(unitResponses)
-                .build();
-    }
-
-    private Unit resolveUnit(String unitCode, String unitLabel) {
-        if (unitCode != null && !unitCode.isBlank()) {
-            return unitRepository.findByCode(unitCode.trim().toLowerCase())
-                    .orElseThrow(() -> new ResourceNotFoundException("Unit", "code", unitCode));
-        }
-
-        if (unitLabel == null || unitLabel.isBlank()) {
-            return unitRepository.findByCode("kg")
-                    .orElseThrow(() -> new ResourceNotFoundException("Unit", "code", "kg"));
-        }
-
-        String normalized = unitLabel.trim().toLowerCase();
-        String code = switch (normalized) {
-            case "kg", "kilogram" -> "kg";
-            case "g", "gram", "gam" -> "gram";
-            case "lang", "lạng" -> "lang";
-            case "bo", "bó" -> "bo";
-            case "goi", "gói" -> "goi";
-            case "chai" -> "chai";
-            case "lon" -> "lon";
-            default -> normalized;
-        };
-
-        return unitRepository.findByCode(code)
-                .or(() -> unitRepository.findByNameIgnoreCase(unitLabel.trim()))
-                .or(() -> unitRepository.findBySymbolIgnoreCase(unitLabel.trim()))
-                .orElseGet(() -> unitRepository.findByCode("kg")
-                        .orElseThrow(() -> new ResourceNotFoundException("Unit", "code", "kg")));
-    }
-
-    private BigDecimal resolveBaseQuantity(Double requestedBaseQuantity, Unit unit) {
-        return resolveBaseQuantity(requestedBaseQuantity, unit, null);
-    }
-
-    private BigDecimal resolveBaseQuantity(Double requestedBaseQuantity, Unit unit, BigDecimal existingBaseQuantity) {
-        boolean requiresInput = Boolean.TRUE.equals(unit.getRequiresQuantityInput());
-        if (!requiresInput) {
-            if (requestedBaseQuantity == null || requestedBaseQuantity <= 0) {
-                return null;
-            }
-            return BigDecimal.valueOf(requestedBaseQuantity).setScale(4, RoundingMode.HALF_UP);
-        }
-
-        if (requestedBaseQuantity == null || requestedBaseQuantity <= 0) {
-            throw new BadRequestException(
-                    "Đơn vị " + unit.getName() + " yêu cầu nhập độ lớn (baseQuantity > 0)");
-        }
-
-        BigDecimal inputQuantity = BigDecimal.valueOf(requestedBaseQuantity);
-
-        // Khi cập nhật, một số client gửi lại baseQuantity đã được quy đổi từ lần đọc trước.
-        // Nếu trùng với giá trị đang lưu, giữ nguyên để tránh nhân conversionRate thêm lần nữa.
-        if (existingBaseQuantity != null) {
-            BigDecimal normalizedExisting = existingBaseQuantity.setScale(4, RoundingMode.HALF_UP);
-            BigDecimal normalizedInput = inputQuantity.setScale(4, RoundingMode.HALF_UP);
-            if (normalizedInput.compareTo(normalizedExisting) == 0) {
-                return normalizedExisting;
-            }
-        }
-
-        BigDecimal conversionRate = unit.getConversionRate() != null
-                ? unit.getConversionRate()
-                : BigDecimal.ONE;
-        if (conversionRate.compareTo(BigDecimal.ZERO) <= 0) {
-            conversionRate = BigDecimal.ONE;
-        }
-        return inputQuantity.multiply(conversionRate).setScale(4, RoundingMode.HALF_UP);
-    }
-
-    private String resolveBaseUnit(String requestedBaseUnit, Unit unit, BigDecimal baseQuantity) {
-        if (requestedBaseUnit != null && !requestedBaseUnit.isBlank()) {
-            return requestedBaseUnit.trim();
-        }
-        if (baseQuantity != null && unit.getBaseUnit() != null && !unit.getBaseUnit().isBlank()) {
-            return unit.getBaseUnit();
-        }
-        return null;
-    }
-
-    private String resolveUnitLabel(String requestedLabel, Unit unit, Double inputQuantity) {
-        boolean requiresInput = Boolean.TRUE.equals(unit.getRequiresQuantityInput());
-        if (requiresInput) {
-            if (requestedLabel != null && !requestedLabel.isBlank()) {
-                return requestedLabel.trim();
-            }
-            if (inputQuantity == null || inputQuantity <= 0) {
-                throw new BadRequestException(
-                        "Đơn vị " + unit.getName() + " yêu cầu nhập độ lớn để tạo nhãn");
-            }
-            return formatQuantity(BigDecimal.valueOf(inputQuantity)) + unit.getSymbol();
-        }
-        if (requestedLabel != null && !requestedLabel.isBlank()) {
-            return requestedLabel.trim();
-        }
-        throw new BadRequestException("Đơn vị " + unit.getName() + " yêu cầu nhập nhãn hiển thị");
+        return productResponseMapper.toResponse(product);
     }
 
-    private String formatQuantity(BigDecimal value) {
-        DecimalFormat df = new DecimalFormat("0.####");
-        return df.format(value);
-    }
-    
     /**
      * Helper: Lấy current user từ SecurityContext
      */
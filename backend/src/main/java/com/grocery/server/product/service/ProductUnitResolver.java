@@ -0,0 +1,135 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+
+/**
+ * Component: ProductUnitResolver
+ * Mục đích: Quy tắc dựng 1 dòng đơn vị bán (ProductUnitMapping) từ dữ liệu client gửi lên:
+ * đơn vị, độ lớn quy đổi, đơn vị gốc, nhãn hiển thị
+ *
+ * Dùng chung cho tạo/sửa sản phẩm (ProductService) và import hàng loạt (ProductImportService)
+ * Vi phạm → BadRequestException / ResourceNotFoundException
+ */
+@Component
+@RequiredArgsConstructor
+class ProductUnitResolver {
+
+    private final UnitCatalog unitCatalog;
+
+    /**
+     * Tìm đơn vị theo code, hoặc theo nhãn (alias → code → tên → ký hiệu → kg)
+     * Tra UnitCatalog trong bộ nhớ, không query database
+     */
+    Unit resolveUnit(String unitCode, String unitLabel) {
+        if (unitCode != null && !unitCode.isBlank()) {
+            return unitCatalog.findByCode(unitCode)
+                    .orElseThrow(() -> new ResourceNotFoundException("Unit", "code", unitCode));
+        }
+
+        if (unitLabel == null || unitLabel.isBlank()) {
+            return defaultUnit();
+        }
+
+        String normalized = unitLabel.trim().toLowerCase();
+        String code = switch (normalized) {
+            case "kg", "kilogram" -> "kg";
+            case "g", "gram", "gam" -> "gram";
+            case "lang", "lạng" -> "lang";
+            case "bo", "bó" -> "bo";
+            case "goi", "gói" -> "goi";
+            case "chai" -> "chai";
+            case "lon" -> "lon";
+            default -> normalized;
+        };
+
+        return unitCatalog.findByCode(code)
+                .or(() -> unitCatalog.findByName(unitLabel))
+                .or(() -> unitCatalog.findBySymbol(unitLabel))
+                .orElseGet(this::defaultUnit);
+    }
+
+    Unit defaultUnit() {
+        return unitCatalog.findByCode(UnitCatalog.DEFAULT_UNIT_CODE)
+                .orElseThrow(() -> new ResourceNotFoundException("Unit", "code", UnitCatalog.DEFAULT_UNIT_CODE));
+    }
+
+    BigDecimal resolveBaseQuantity(Double requestedBaseQuantity, Unit unit) {
+        return resolveBaseQuantity(requestedBaseQuantity, unit, null);
+    }
+
+    BigDecimal resolveBaseQuantity(Double requestedBaseQuantity, Unit unit, BigDecimal existingBaseQuantity) {
+        boolean requiresInput = Boolean.TRUE.equals(unit.getRequiresQuantityInput());
+        if (!requiresInput) {
+            if (requestedBaseQuantity == null || requestedBaseQuantity <= 0) {
+                return null;
+            }
+            return BigDecimal.valueOf(requestedBaseQuantity).setScale(4, RoundingMode.HALF_UP);
+        }
+
+        if (requestedBaseQuantity == null || requestedBaseQuantity <= 0) {
+            throw new BadRequestException(
+                    "Đơn vị " + unit.getName() + " yêu cầu nhập độ lớn (baseQuantity > 0)");
+        }
+
+        BigDecimal inputQuantity = BigDecimal.valueOf(requestedBaseQuantity);
+
+        // Khi cập nhật, một số client gửi lại baseQuantity đã được quy đổi từ lần đọc trước.
+        // Nếu trùng với giá trị đang lưu, giữ nguyên để tránh nhân conversionRate thêm lần nữa.
+        if (existingBaseQuantity != null) {
+            BigDecimal normalizedExisting = existingBaseQuantity.setScale(4, RoundingMode.HALF_UP);
+            BigDecimal normalizedInput = inputQuantity.setScale(4, RoundingMode.HALF_UP);
+            if (normalizedInput.compareTo(normalizedExisting) == 0) {
+                return normalizedExisting;
+            }
+        }
+
+        BigDecimal conversionRate = unit.getConversionRate() != null
+                ? unit.getConversionRate()
+                : BigDecimal.ONE;
+        if (conversionRate.compareTo(BigDecimal.ZERO) <= 0) {
+            conversionRate = BigDecimal.ONE;
+        }
+        return inputQuantity.multiply(conversionRate).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    String resolveBaseUnit(String requestedBaseUnit, Unit unit, BigDecimal baseQuantity) {
+        if (requestedBaseUnit != null && !requestedBaseUnit.isBlank()) {
+            return requestedBaseUnit.trim();
+        }
+        if (baseQuantity != null && unit.getBaseUnit() != null && !unit.getBaseUnit().isBlank()) {
+            return unit.getBaseUnit();
+        }
+        return null;
+    }
+
+    String resolveUnitLabel(String requestedLabel, Unit unit, Double inputQuantity) {
+        boolean requiresInput = Boolean.TRUE.equals(unit.getRequiresQuantityInput());
+        if (requiresInput) {
+            if (requestedLabel != null && !requestedLabel.isBlank()) {
+                return requestedLabel.trim();
+            }
+            if (inputQuantity == null || inputQuantity <= 0) {
+                throw new BadRequestException(
+                        "Đơn vị " + unit.getName() + " yêu cầu nhập độ lớn để tạo nhãn");
+            }
+            return formatQuantity(BigDecimal.valueOf(inputQuantity)) + unit.getSymbol();
+        }
+        if (requestedLabel != null && !requestedLabel.isBlank()) {
+            return requestedLabel.trim();
+        }
+        throw new BadRequestException("Đơn vị " + unit.getName() + " yêu cầu nhập nhãn hiển thị");
+    }
+
+    private String formatQuantity(BigDecimal value) {
+        DecimalFormat df = new DecimalFormat("0.####");
+        return df.format(value);
+    }
+}
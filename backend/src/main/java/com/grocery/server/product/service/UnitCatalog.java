@@ -0,0 +1,214 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.product.repository.UnitCategoryRepository;
+import com.grocery.server.product.repository.UnitRepository;
+import com.grocery.server.product.search.VietnameseTextAnalyzer;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Component: UnitCatalog
+ * Mục đích: Từ điển đơn vị tính trong bộ nhớ, thay cho query UnitRepository mỗi dòng đơn vị khi tạo/sửa sản phẩm
+ *
+ * - Nạp toàn bộ units (kèm unit_categories) bằng 1 query, dựng Snapshot bất biến:
+ *   code → Unit, tên bỏ dấu → Unit, ký hiệu (chữ thường) → Unit, danh sách đang dùng theo display_order
+ * - Đọc không lock, không chạm database (volatile Snapshot)
+ * - Bảng gần như không đổi (seed từ schema.sql, không có API ghi) → nạp lại định kỳ app.units.refresh-interval-ms,
+ *   chỉ swap + bump ETag units khi nội dung thật sự khác
+ *
+ * Unit trong snapshot là entity detached (category đã fetch): chỉ đọc, dùng được làm tham chiếu khi lưu ProductUnitMapping
+ */
+@Component
+@Slf4j
+public class UnitCatalog {
+
+    public static final String DEFAULT_UNIT_CODE = "kg";
+
+    private record Snapshot(Map<String, Unit> byCode,
+                            Map<String, Unit> byName,
+                            Map<String, Unit> bySymbol,
+                            List<Unit> activeUnits,
+                            Map<Long, List<Unit>> activeUnitsByCategory,
+                            List<UnitCategory> activeCategories,
+                            List<List<Object>> signature) {
+    }
+
+    private final UnitRepository unitRepository;
+    private final UnitCategoryRepository unitCategoryRepository;
+    private final ResourceVersionService resourceVersionService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Snapshot snapshot;
+
+    public UnitCatalog(UnitRepository unitRepository,
+                       UnitCategoryRepository unitCategoryRepository,
+                       ResourceVersionService resourceVersionService,
+                       PlatformTransactionManager transactionManager) {
+        this.unitRepository = unitRepository;
+        this.unitCategoryRepository = unitCategoryRepository;
+        this.resourceVersionService = resourceVersionService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Transaction riêng: lần nạp đầu có thể xảy ra giữa transaction tạo sản phẩm,
+        // entity trong snapshot không được thuộc persistence context của request đó
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ========== TRA CỨU ==========
+
+    public Optional<Unit> findByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(current().byCode().get(code.trim().toLowerCase()));
+    }
+
+    /**
+     * Theo tên, không phân biệt hoa thường / dấu ("Bó" = "bo")
+     */
+    public Optional<Unit> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(current().byName().get(foldKey(name)));
+    }
+
+    public Optional<Unit> findBySymbol(String symbol) {
+        return symbol == null ? Optional.empty() : Optional.ofNullable(current().bySymbol().get(foldKey(symbol)));
+    }
+
+    public List<Unit> getActiveUnits() {
+        return current().activeUnits();
+    }
+
+    public List<Unit> getActiveUnits(Long categoryId) {
+        return current().activeUnitsByCategory().getOrDefault(categoryId, List.of());
+    }
+
+    public List<UnitCategory> getActiveCategories() {
+        return current().activeCategories();
+    }
+
+    private Snapshot current() {
+        Snapshot loaded = snapshot;
+        if (loaded == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                loaded = snapshot;
+            }
+        }
+        return loaded;
+    }
+
+    // ========== NẠP LẠI ==========
+
+    /**
+     * Nạp lại từ database, swap nếu khác bản đang dùng
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.units.refresh-interval-ms:300000}",
+               initialDelayString = "${app.units.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            Snapshot fresh = load();
+            synchronized (this) {
+                Snapshot previous = snapshot;
+                if (previous != null && previous.signature().equals(fresh.signature())) {
+                    return;
+                }
+                snapshot = fresh;
+                if (previous != null) {
+                    resourceVersionService.bumpLocal(ResourceVersionService.UNITS);
+                    log.info("Unit catalog reloaded: {} units", fresh.byCode().size());
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to reload unit catalog: {}", ex.getMessage());
+        }
+    }
+
+    private Snapshot load() {
+        return readOnlyTransaction.execute(status -> build(
+                unitRepository.findAllWithCategory(),
+                unitCategoryRepository.findAll()));
+    }
+
+    private static Snapshot build(List<Unit> units, List<UnitCategory> categories) {
+        Comparator<Unit> unitOrder = Comparator
+                .comparing((Unit u) -> u.getDisplayOrder() != null ? u.getDisplayOrder() : 0)
+                .thenComparing(Unit::getId);
+        Comparator<UnitCategory> categoryOrder = Comparator
+                .comparing((UnitCategory c) -> c.getDisplayOrder() != null ? c.getDisplayOrder() : 0)
+                .thenComparing(UnitCategory::getId);
+
+        List<Unit> sorted = new ArrayList<>(units);
+        sorted.sort(unitOrder);
+
+        Map<String, Unit> byCode = new HashMap<>();
+        Map<String, Unit> byName = new HashMap<>();
+        Map<String, Unit> bySymbol = new HashMap<>();
+        List<Unit> activeUnits = new ArrayList<>();
+        Map<Long, List<Unit>> activeByCategory = new LinkedHashMap<>();
+        List<List<Object>> signature = new ArrayList<>();
+
+        for (Unit unit : sorted) {
+            if (unit.getCode() != null) {
+                byCode.putIfAbsent(unit.getCode().toLowerCase(), unit);
+            }
+            // Trùng tên / ký hiệu: đơn vị có display_order nhỏ hơn thắng
+            if (unit.getName() != null) {
+                byName.putIfAbsent(foldKey(unit.getName()), unit);
+            }
+            if (unit.getSymbol() != null) {
+                bySymbol.putIfAbsent(foldKey(unit.getSymbol()), unit);
+            }
+            Long categoryId = unit.getCategory() != null ? unit.getCategory().getId() : null;
+            if (Boolean.TRUE.equals(unit.getIsActive())) {
+                activeUnits.add(unit);
+                if (categoryId != null) {
+                    activeByCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(unit);
+                }
+            }
+            signature.add(Arrays.asList(unit.getId(), categoryId, unit.getCode(), unit.getName(),
+                    unit.getSymbol(), unit.getBaseUnit(), unit.getConversionRate(), unit.getStepValue(),
+                    unit.getRequiresQuantityInput(), unit.getMinValue(), unit.getMaxValue(),
+                    unit.getDisplayOrder(), unit.getIsActive()));
+        }
+
+        List<UnitCategory> sortedCategories = new ArrayList<>(categories);
+        sortedCategories.sort(categoryOrder);
+        List<UnitCategory> activeCategories = new ArrayList<>();
+        for (UnitCategory category : sortedCategories) {
+            if (Boolean.TRUE.equals(category.getIsActive())) {
+                activeCategories.add(category);
+            }
+            signature.add(Arrays.asList(category.getId(), category.getCode(), category.getName(),
+                    category.getIcon(), category.getDisplayOrder(), category.getIsActive()));
+        }
+
+        Map<Long, List<Unit>> frozenByCategory = new HashMap<>();
+        activeByCategory.forEach((id, list) -> frozenByCategory.put(id, List.copyOf(list)));
+
+        return new Snapshot(Map.copyOf(byCode), Map.copyOf(byName), Map.copyOf(bySymbol),
+                List.copyOf(activeUnits), Map.copyOf(frozenByCategory), List.copyOf(activeCategories),
+                signature);
+    }
+
+    private static String foldKey(String text) {
+        return VietnameseTextAnalyzer.fold(text).trim();
+    }
+}
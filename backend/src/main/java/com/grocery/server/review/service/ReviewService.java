@@ -8,6 +8,7 @@ import com.grocery.server.review.dto.response.ReviewResponse;
 import com.grocery.server.review.dto.response.StoreRatingResponse;
 import com.grocery.server.review.entity.Review;
 import com.grocery.server.review.repository.ReviewRepository;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import com.grocery.server.shared.exception.BadRequestException;
 import com.grocery.server.shared.exception.ResourceNotFoundException;
 import com.grocery.server.shared.exception.UnauthorizedException;
@@ -46,6 +47,7 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final StoreRepository storeRepository;
     private final NotificationService notificationService;
+    private final ResourceVersionService resourceVersionService;
 
     /**
      * Tạo đánh giá mới
@@ -93,10 +95,12 @@ public class ReviewService {
 
         Review savedReview = reviewRepository.save(review);
         log.info("Review created successfully with id: {}", savedReview.getId());
+        // Rating trung bình nằm trong /stores/open
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.STORES);
 
         // Gửi thông báo đến chủ cửa hàng
         if (order.getStore().getOwner() != null) {
-            notificationService.createAndSend(
+            notificationService.enqueue(
                 order.getStore().getOwner().getId(),
                 Notification.NEW_REVIEW,
                 "Đánh giá mới từ " + reviewer.getFullName(),
@@ -137,6 +141,7 @@ public class ReviewService {
 
         Review updatedReview = reviewRepository.save(review);
         log.info("Review updated successfully: {}", reviewId);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.STORES);
 
         return mapToResponse(updatedReview);
     }
@@ -170,6 +175,7 @@ public class ReviewService {
         // 3. Xóa review
         reviewRepository.delete(review);
         log.info("Review deleted successfully: {}", reviewId);
+        resourceVersionService.bumpAfterCommit(ResourceVersionService.STORES);
     }
 
     /**
@@ -198,7 +204,7 @@ public class ReviewService {
         log.info("Review replied successfully: {}", reviewId);
 
         // Gửi thông báo đến khách hàng
-        notificationService.createAndSend(
+        notificationService.enqueue(
             review.getReviewer().getId(),
             Notification.REVIEW_REPLIED,
             "Phản hồi từ cửa hàng",
@@ -43,7 +43,7 @@ public class CorsConfig {
         
         // Expose headers (nếu cần)
         configuration.setExposedHeaders(Arrays.asList(
-            "Authorization", "X-Total-Count", "X-Page-Number", "X-Page-Size"
+            "Authorization", "X-Total-Count", "X-Page-Number", "X-Page-Size", "Idempotent-Replayed", "ETag"
         ));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
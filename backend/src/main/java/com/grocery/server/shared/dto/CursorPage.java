@@ -0,0 +1,47 @@
+package com.grocery.server.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO: CursorPage
+ * Mục đích: Kết quả phân trang theo cursor (keyset pagination)
+ *
+ * Format:
+ * {
+ *   "items": [ ... ],
+ *   "nextCursor": "MjAyNS0wMS0wMVQxMDowMDowMHwxMjM",   // null nếu hết dữ liệu
+ *   "hasMore": true,
+ *   "totalElements": null                                // chỉ có khi client yêu cầu includeCount
+ * }
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+    /**
+     * Dữ liệu của trang hiện tại
+     */
+    private List<T> items;
+
+    /**
+     * Cursor để lấy trang tiếp theo (opaque, client chỉ cần gửi lại nguyên văn)
+     */
+    private String nextCursor;
+
+    /**
+     * Còn trang tiếp theo hay không
+     */
+    private boolean hasMore;
+
+    /**
+     * Tổng số bản ghi (optional, tốn 1 query COUNT)
+     */
+    private Long totalElements;
+}
@@ -0,0 +1,286 @@
+package com.grocery.server.shared.etag;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Service: ResourceVersionService
+ * Mục đích: Conditional GET (ETag / If-None-Match → 304) cho dữ liệu ít thay đổi mà app tải lại mỗi lần mở màn hình
+ *
+ * Resource có version:
+ * - units: đơn vị tính (/units, /units/categories...)
+ * - categories: danh mục sản phẩm (/categories) - tên danh mục cũng nằm trong danh sách sản phẩm
+ * - stores: cửa hàng đang mở kèm rating (/stores/open)
+ * - store-products:{storeId}: sản phẩm của 1 cửa hàng (/products/store/{id}...) - ETag gồm cả version categories
+ *
+ * Version khi có Redis (nhiều node sau load balancer phải trả cùng ETag cho cùng dữ liệu):
+ * - Bộ đếm chung etag:version:{resource}; lần đầu node đọc resource: SET NX (thời điểm hiện tại, ms) rồi GET
+ *   → mọi node khởi tạo cùng 1 giá trị, restart (hay Redis mất dữ liệu rồi khởi tạo lại) không quay về version cũ
+ * - Bump sau commit: INCR, publish etag:bump:{resource}; node nhận đặt max(version, version nhận được)
+ * - Redis lỗi: dùng version riêng của node (như khi không có Redis) tới khi đọc lại được
+ *
+ * Version khi không có Redis (1 node):
+ * - Khởi tạo = thời điểm khởi động (ms) → restart không bao giờ trả 304 cho ETag cũ
+ * - Bump sau commit: max(version + 1, now) → tăng đơn điệu
+ *
+ * Bump gỡ luôn Spring cache tương ứng (categories...) TRƯỚC khi tăng version → ETag mới không đi kèm body cũ
+ *
+ * ETag: "{resource}-{version base36}" nối bằng dấu chấm, VD "categories-m1x2.store-products:7-m1x9"
+ *
+ * Request có If-None-Match khớp → 304 chỉ sau 1 lần tra ConcurrentHashMap, không query, không body
+ */
+@Service
+@Slf4j
+public class ResourceVersionService {
+
+    public static final String CHANNEL = "etag:bump:";
+    private static final String VERSION_KEY = "etag:version:";
+
+    public static final String UNITS = "units";
+    public static final String CATEGORIES = "categories";
+    public static final String STORES = "stores";
+    private static final String STORE_PRODUCTS = "store-products:";
+
+    /**
+     * Spring cache chứa dữ liệu của resource (gỡ khi bump)
+     */
+    private static final Map<String, List<String>> BACKING_CACHES = Map.of(
+            CATEGORIES, List.of("categories"));
+
+    private final CacheManager cacheManager;
+    private final RedisMessagePublisher redisMessagePublisher;
+    private final StringRedisTemplate redisTemplate;
+
+    private final long bootVersion = System.currentTimeMillis();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private volatile boolean redisFailing;
+
+    @Autowired
+    public ResourceVersionService(CacheManager cacheManager, RedisMessagePublisher redisMessagePublisher,
+                                  @Autowired(required = false) StringRedisTemplate redisTemplate) {
+        this.cacheManager = cacheManager;
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public static String storeProducts(Long storeId) {
+        return STORE_PRODUCTS + storeId;
+    }
+
+    // ========== ĐỌC ==========
+
+    /**
+     * Trả 304 nếu If-None-Match khớp version hiện tại, ngược lại 200 + body
+     * Version được đọc TRƯỚC khi dựng body: ghi xen giữa chỉ làm ETag cũ hơn body (lần sau trả 200), không bao giờ ngược lại
+     *
+     * @param ifNoneMatch Header If-None-Match (null nếu không có)
+     * @param body        Dựng body (chỉ gọi khi cần trả 200)
+     * @param resources   Các resource tạo nên response
+     */
+    public <T> ResponseEntity<T> conditional(String ifNoneMatch, Supplier<T> body, String... resources) {
+        String etag = etag(resources);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
+
+    public String etag(String... resources) {
+        StringBuilder etag = new StringBuilder("\"");
+        for (int i = 0; i < resources.length; i++) {
+            if (i > 0) {
+                etag.append('.');
+            }
+            etag.append(resources[i]).append('-').append(Long.toString(version(resources[i]), 36));
+        }
+        return etag.append('"').toString();
+    }
+
+    private long version(String resource) {
+        AtomicLong version = versions.get(resource);
+        if (version != null) {
+            return version.get();
+        }
+        if (redisTemplate == null) {
+            return local(resource).get();
+        }
+        Long shared = sharedVersion(resource);
+        // Chưa đọc được bộ đếm chung → không lưu lại, lần sau thử lại
+        return shared != null ? applyShared(resource, shared) : bootVersion;
+    }
+
+    private AtomicLong local(String resource) {
+        return versions.computeIfAbsent(resource, key -> new AtomicLong(bootVersion));
+    }
+
+    /**
+     * Giá trị của bộ đếm chung: resource chưa có trên node → nhận nguyên giá trị (không so với bootVersion của node)
+     */
+    private long applyShared(String resource, long shared) {
+        return versions.compute(resource, (key, current) -> {
+            if (current == null) {
+                return new AtomicLong(shared);
+            }
+            current.accumulateAndGet(shared, Math::max);
+            return current;
+        }).get();
+    }
+
+    /**
+     * Version chung của resource trên Redis (khởi tạo nếu chưa có), null nếu không có Redis / Redis lỗi
+     */
+    private Long sharedVersion(String resource) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            String key = VERSION_KEY + resource;
+            redisTemplate.opsForValue().setIfAbsent(key, Long.toString(System.currentTimeMillis()));
+            String value = redisTemplate.opsForValue().get(key);
+            redisFailing = false;
+            return value != null ? Long.parseLong(value) : null;
+        } catch (RuntimeException ex) {
+            logRedisFailure("read", resource, ex);
+            return null;
+        }
+    }
+
+    /**
+     * If-None-Match có thể là "*", hoặc danh sách ETag (so sánh weak - bỏ tiền tố W/)
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== GHI ==========
+
+    /**
+     * Tăng version sau khi transaction commit (chạy ngay nếu không có transaction)
+     * Rollback → không bump
+     */
+    public void bumpAfterCommit(String... resources) {
+        Runnable action = () -> {
+            for (String resource : resources) {
+                long version = bumpShared(resource);
+                try {
+                    redisMessagePublisher.publish(CHANNEL + resource, Map.of("version", version));
+                } catch (RuntimeException ex) {
+                    // Node này đã bump; node khác giữ version cũ tới lần bump sau (giống các kênh đồng bộ khác qua Redis)
+                    log.warn("Failed to broadcast version bump of {}: {}", resource, ex.getMessage());
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Bump không broadcast (resource mà mỗi node tự phát hiện thay đổi, VD units do UnitCatalog nạp lại)
+     * Có Redis: vẫn INCR bộ đếm chung - node nạp lại sau cùng cho ra version lớn nhất, các node hội tụ khi đều đã nạp lại
+     */
+    public void bumpLocal(String resource) {
+        bumpShared(resource);
+    }
+
+    public void bumpStoreAfterCommit(Long storeId) {
+        bumpAfterCommit(STORES, storeProducts(storeId));
+    }
+
+    /**
+     * Bump từ node khác (Redis etag:bump:{resource}): version đã là giá trị của bộ đếm chung
+     */
+    public void applyRemote(String resource, long version) {
+        clearBackingCaches(resource);
+        long applied = applyShared(resource, version);
+        log.debug("Resource {} set to version {} by another node", resource, applied);
+    }
+
+    private long bumpShared(String resource) {
+        if (redisTemplate != null) {
+            try {
+                // Khởi tạo trước nếu chưa có để INCR không bắt đầu từ 0
+                String key = VERSION_KEY + resource;
+                redisTemplate.opsForValue().setIfAbsent(key, Long.toString(System.currentTimeMillis()));
+                Long incremented = redisTemplate.opsForValue().increment(key);
+                if (incremented != null) {
+                    clearBackingCaches(resource);
+                    long version = applyShared(resource, incremented);
+                    log.debug("Resource {} bumped to shared version {}", resource, version);
+                    return version;
+                }
+            } catch (RuntimeException ex) {
+                logRedisFailure("bump", resource, ex);
+            }
+        }
+        return bump(resource, System.currentTimeMillis());
+    }
+
+    private long bump(String resource, long floor) {
+        clearBackingCaches(resource);
+        long version = local(resource).updateAndGet(current -> Math.max(current + 1, floor));
+        log.debug("Resource {} bumped to version {}", resource, version);
+        return version;
+    }
+
+    private void clearBackingCaches(String resource) {
+        for (String cacheName : BACKING_CACHES.getOrDefault(resource, List.of())) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Chỉ log lần đầu của chuỗi lỗi (đọc version nằm trên đường trả 304)
+     */
+    private void logRedisFailure(String action, String resource, RuntimeException ex) {
+        if (!redisFailing) {
+            log.warn("Failed to {} shared version of {}: {}", action, resource, ex.getMessage());
+        }
+        redisFailing = true;
+    }
+}
@@ -0,0 +1,12 @@
+package com.grocery.server.shared.exception;
+
+/**
+ * Exception: ConflictException
+ * Mục đích: Ném ra khi dữ liệu đã bị thay đổi đồng thời (HTTP 409)
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,380 @@
+package com.grocery.server.shared.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Service: IdempotencyService
+ * Mục đích: Xử lý header Idempotency-Key cho các API ghi dữ liệu mà client hay retry
+ * (POST /orders, POST /payments/initiate)
+ *
+ * Khóa lưu trữ: idem:{scope}:{principal}:{key}, fingerprint = SHA-256 của request body
+ *
+ * Flow:
+ * 1. Đã có kết quả (Caffeine local → Redis) → trả lại response đã lưu, không chạy lại
+ * 2. Cùng key đang chạy trên instance này → chờ request đầu tiên (CompletableFuture)
+ * 3. Cùng key đang chạy ở instance khác (Redis SET NX key:lock) → chờ kết quả xuất hiện trong Redis;
+ *    lock bị nhả mà không có kết quả (request đầu lỗi) → giành lock và chạy lại
+ * 4. Chưa ai chạy → thực thi, lưu response 2xx vào cả 2 tầng với TTL app.idempotency.ttl-hours
+ *
+ * - Cùng key nhưng body khác → 400 (client dùng lại key cho request khác)
+ * - Request đầu lỗi → không lưu, lần retry sau được chạy lại
+ * - Chờ quá app.idempotency.wait-ms → 409, client retry sau
+ * - Không có header → chạy bình thường
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final long REMOTE_POLL_MS = 50;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration inFlightTtl;
+    private final long waitMs;
+
+    private final Cache<String, Completed> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+    private final Counter conflictCounter;
+
+    /**
+     * Response đã hoàn tất
+     *
+     * @param body Object gốc (tầng local) hoặc JsonNode (đọc từ Redis)
+     */
+    private record Completed(String fingerprint, int status, Object body) {
+    }
+
+    /**
+     * Bản ghi lưu trong Redis
+     */
+    private record StoredResponse(String fingerprint, int status, JsonNode body) {
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<Completed> result) {
+    }
+
+    @Autowired
+    public IdempotencyService(@Autowired(required = false) StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.in-flight-ttl-ms:30000}") long inFlightTtlMs,
+                              @Value("${app.idempotency.wait-ms:10000}") long waitMs,
+                              @Value("${app.idempotency.local-max-size:10000}") long localMaxSize) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inFlightTtl = Duration.ofMillis(inFlightTtlMs);
+        this.waitMs = waitMs;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(this.ttl)
+                .build();
+
+        this.executedCounter = outcomeCounter(meterRegistry, "executed");
+        this.replayedCounter = outcomeCounter(meterRegistry, "replayed");
+        this.conflictCounter = outcomeCounter(meterRegistry, "conflict");
+    }
+
+    /**
+     * Chạy action tối đa 1 lần cho mỗi (scope, user, Idempotency-Key)
+     *
+     * @param scope    Tên API (vd: "orders.create")
+     * @param key      Giá trị header Idempotency-Key (null → không áp dụng)
+     * @param request  Request body (dùng tính fingerprint)
+     * @param bodyType Kiểu body response (đọc lại từ Redis)
+     * @param action   Xử lý thật của API
+     */
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request,
+                                         TypeReference<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " không được dài quá " + MAX_KEY_LENGTH + " ký tự");
+        }
+
+        String storeKey = "idem:" + scope + ":" + currentPrincipal() + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        while (true) {
+            Completed done = findCompleted(storeKey);
+            if (done != null) {
+                return replay(done, fingerprint, bodyType);
+            }
+
+            InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+            InFlight running = inFlight.putIfAbsent(storeKey, mine);
+            if (running != null) {
+                // Request trùng trên cùng instance → chờ request đầu tiên
+                checkFingerprint(running.fingerprint(), fingerprint);
+                Completed result = await(running.result());
+                if (result != null) {
+                    return replay(result, fingerprint, bodyType);
+                }
+                // Request đầu lỗi (không lưu kết quả) → thử chạy lại
+                continue;
+            }
+
+            try {
+                return runOnce(storeKey, mine, fingerprint, bodyType, action);
+            } finally {
+                inFlight.remove(storeKey, mine);
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> runOnce(String storeKey, InFlight mine, String fingerprint,
+                                          TypeReference<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        while (!tryRemoteLock(storeKey, fingerprint)) {
+            // Instance khác đang chạy → chờ kết quả trong Redis
+            Completed remote;
+            try {
+                remote = awaitRemote(storeKey);
+            } catch (ConflictException conflict) {
+                mine.result().completeExceptionally(conflict);
+                throw conflict;
+            }
+            if (remote != null) {
+                mine.result().complete(remote);
+                return replay(remote, fingerprint, bodyType);
+            }
+            // Instance kia lỗi, đã nhả lock mà không lưu kết quả → thử giành lock để chạy lại
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            releaseRemoteLock(storeKey);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+
+        executedCounter.increment();
+        Completed result = new Completed(fingerprint, response.getStatusCode().value(), response.getBody());
+        if (response.getStatusCode().is2xxSuccessful()) {
+            completed.put(storeKey, result);
+            storeRemote(storeKey, result);
+        } else {
+            releaseRemoteLock(storeKey);
+        }
+        mine.result().complete(result);
+        return response;
+    }
+
+    private Completed await(CompletableFuture<Completed> result) {
+        try {
+            return result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            conflictCounter.increment();
+            throw new ConflictException("Yêu cầu với " + HEADER + " này đang được xử lý, vui lòng thử lại sau");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConflictException conflict) {
+                throw conflict;
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Yêu cầu bị gián đoạn khi chờ xử lý trùng lặp");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replay(Completed done, String fingerprint, TypeReference<T> bodyType) {
+        checkFingerprint(done.fingerprint(), fingerprint);
+        replayedCounter.increment();
+
+        T body;
+        if (done.body() instanceof JsonNode node) {
+            body = objectMapper.convertValue(node, bodyType);
+        } else {
+            body = (T) done.body();
+        }
+        return ResponseEntity.status(done.status())
+                .header(REPLAYED_HEADER, "true")
+                .body(body);
+    }
+
+    private void checkFingerprint(String stored, String current) {
+        if (!stored.equals(current)) {
+            throw new BadRequestException(HEADER + " đã được dùng cho một yêu cầu khác");
+        }
+    }
+
+    // ========== TẦNG LƯU TRỮ ==========
+
+    private Completed findCompleted(String storeKey) {
+        Completed local = completed.getIfPresent(storeKey);
+        if (local != null || redisTemplate == null) {
+            return local;
+        }
+        Completed remote = readRemote(storeKey);
+        if (remote != null) {
+            completed.put(storeKey, remote);
+        }
+        return remote;
+    }
+
+    private Completed readRemote(String storeKey) {
+        try {
+            String json = redisTemplate.opsForValue().get(storeKey);
+            if (json == null) {
+                return null;
+            }
+            StoredResponse stored = objectMapper.readValue(json, StoredResponse.class);
+            return new Completed(stored.fingerprint(), stored.status(), stored.body());
+        } catch (Exception e) {
+            log.warn("Failed to read idempotency record {}: {}", storeKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeRemote(String storeKey, Completed result) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(new StoredResponse(
+                    result.fingerprint(), result.status(), objectMapper.valueToTree(result.body())));
+            redisTemplate.opsForValue().set(storeKey, json, ttl);
+            redisTemplate.delete(storeKey + ":lock");
+        } catch (Exception e) {
+            log.warn("Failed to store idempotency record {}: {}", storeKey, e.getMessage());
+        }
+    }
+
+    private boolean tryRemoteLock(String storeKey, String fingerprint) {
+        if (redisTemplate == null) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(
+                    redisTemplate.opsForValue().setIfAbsent(storeKey + ":lock", fingerprint, inFlightTtl));
+        } catch (Exception e) {
+            // Redis lỗi → chỉ còn bảo vệ trong phạm vi instance
+            log.warn("Idempotency lock unavailable for {}: {}", storeKey, e.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseRemoteLock(String storeKey) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(storeKey + ":lock");
+        } catch (Exception e) {
+            log.warn("Failed to release idempotency lock {}: {}", storeKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Chờ instance đang giữ lock ghi kết quả; lock biến mất mà không có kết quả → null (ngay khi thấy, không chờ hết hạn)
+     *
+     * @throws ConflictException nếu quá app.idempotency.wait-ms mà lock vẫn còn
+     */
+    private Completed awaitRemote(String storeKey) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            Completed remote = readRemote(storeKey);
+            if (remote == null && !remoteLockHeld(storeKey)) {
+                // storeRemote ghi kết quả rồi mới xóa lock → đọc lại 1 lần để không bỏ lỡ kết quả vừa ghi
+                remote = readRemote(storeKey);
+                if (remote == null) {
+                    return null;
+                }
+            }
+            if (remote != null) {
+                completed.put(storeKey, remote);
+                return remote;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                conflictCounter.increment();
+                throw new ConflictException("Yêu cầu với " + HEADER + " này đang được xử lý, vui lòng thử lại sau");
+            }
+            try {
+                Thread.sleep(REMOTE_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("Yêu cầu bị gián đoạn khi chờ xử lý trùng lặp");
+            }
+        }
+    }
+
+    /**
+     * Redis lỗi → coi như lock vẫn còn (chờ tiếp tới hết hạn)
+     */
+    private boolean remoteLockHeld(String storeKey) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(storeKey + ":lock"));
+        } catch (Exception e) {
+            log.warn("Failed to check idempotency lock {}: {}", storeKey, e.getMessage());
+            return true;
+        }
+    }
+
+    // ========== HELPER ==========
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = request != null
+                    ? objectMapper.writeValueAsBytes(request)
+                    : new byte[0];
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            // Không tính được fingerprint → so khớp theo key
+            return HexFormat.of().formatHex(String.valueOf(request).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : "anonymous";
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Số request có Idempotency-Key theo kết quả xử lý")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package com.grocery.server.shared.jdbc;
+
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.TransactionSystemException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Utility: ConditionalBatchUpdate
+ * Mục đích: JDBC batch cho các UPDATE có điều kiện (trừ kho, compare-and-set) mà caller cần biết chính xác dòng nào đã ghi
+ *
+ * Driver có thể trả Statement.SUCCESS_NO_INFO (-2) thay cho số dòng (MySQL Connector/J với rewriteBatchedStatements)
+ * → không phân biệt được "đã ghi" và "điều kiện không đạt". Khi gặp -2:
+ * rollback về savepoint đặt trước batch (trên connection của transaction hiện tại) rồi chạy lại từng câu
+ * - update đơn lẻ luôn trả số dòng thật
+ *
+ * Chỉ số dòng > 0 mới được coi là đã ghi. Bắt buộc gọi trong transaction của caller
+ */
+public final class ConditionalBatchUpdate {
+
+    private ConditionalBatchUpdate() {
+    }
+
+    /**
+     * @return Số dòng bị ảnh hưởng của từng câu, luôn >= 0
+     */
+    public static int[] execute(JdbcTemplate jdbcTemplate, String sql, List<Object[]> batchArgs) {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            Savepoint savepoint = setSavepoint(connection);
+            int[] updated = jdbcTemplate.batchUpdate(sql, batchArgs);
+            if (exact(updated)) {
+                release(connection, savepoint);
+                return updated;
+            }
+
+            rollback(connection, savepoint);
+            int[] counts = new int[batchArgs.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = jdbcTemplate.update(sql, batchArgs.get(i));
+            }
+            return counts;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    static boolean exact(int[] updated) {
+        for (int count : updated) {
+            if (count == Statement.SUCCESS_NO_INFO || count < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Savepoint setSavepoint(Connection connection) {
+        try {
+            return connection.setSavepoint();
+        } catch (SQLException e) {
+            throw new CannotGetJdbcConnectionException("Could not create savepoint for batch update", e);
+        }
+    }
+
+    private static void rollback(Connection connection, Savepoint savepoint) {
+        try {
+            connection.rollback(savepoint);
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw new TransactionSystemException("Could not roll back to savepoint before retrying batch", e);
+        }
+    }
+
+    private static void release(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // Savepoint còn lại được giải phóng khi transaction kết thúc
+        }
+    }
+}
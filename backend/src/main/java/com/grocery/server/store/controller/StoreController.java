@@ -1,6 +1,7 @@
 package com.grocery.server.store.controller;
 
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import com.grocery.server.store.dto.request.UpdateStoreRequest;
 import com.grocery.server.store.dto.response.StoreListResponse;
 import com.grocery.server.store.dto.response.StoreResponse;
@@ -8,6 +9,7 @@ import com.grocery.server.store.service.StoreService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +29,7 @@ import java.util.List;
 public class StoreController {
 
     private final StoreService storeService;
+    private final ResourceVersionService resourceVersionService;
 
     // ========== STORE OWNER - STORE MANAGEMENT ==========
     
@@ -154,15 +157,20 @@ public class StoreController {
         );
     }
 
+    /**
+     * GET /api/stores/open
+     * Danh sách cửa hàng đang mở (kèm rating)
+     * 
+     * Public endpoint
+     * Hỗ trợ If-None-Match → 304 khi danh sách chưa đổi
+     */
     @GetMapping("/open")
-    public ResponseEntity<ApiResponse<List<StoreListResponse>>> getOpenStores() {
-        log.info("GET /api/stores/open - Get open stores");
+    public ResponseEntity<ApiResponse<List<StoreListResponse>>> getOpenStores(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
-        List<StoreListResponse> stores = storeService.getOpenStores();
-        
-        return ResponseEntity.ok(
-                ApiResponse.success("Lấy danh sách cửa hàng đang mở thành công", stores)
-        );
+        return resourceVersionService.conditional(ifNoneMatch,
+                () -> ApiResponse.success("Lấy danh sách cửa hàng đang mở thành công", storeService.getOpenStores()),
+                ResourceVersionService.STORES);
     }
 
     @GetMapping("/search")
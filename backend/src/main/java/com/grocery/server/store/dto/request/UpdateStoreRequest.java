@@ -1,5 +1,7 @@
 package com.grocery.server.store.dto.request;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,4 +25,15 @@ public class UpdateStoreRequest {
     private String address;
 
     private String imageUrl;
+
+    /**
+     * Tọa độ cửa hàng - phải gửi cả 2 giá trị
+     */
+    @DecimalMin(value = "-90.0", message = "Vĩ độ không hợp lệ")
+    @DecimalMax(value = "90.0", message = "Vĩ độ không hợp lệ")
+    private Double latitude;
+
+    @DecimalMin(value = "-180.0", message = "Kinh độ không hợp lệ")
+    @DecimalMax(value = "180.0", message = "Kinh độ không hợp lệ")
+    private Double longitude;
 }
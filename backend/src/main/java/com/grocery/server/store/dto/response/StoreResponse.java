@@ -24,6 +24,8 @@ public class StoreResponse {
     private String storeName;
     private String address;
     private String imageUrl;
+    private Double latitude;
+    private Double longitude;
     private LocalDateTime createdAt;
     private Boolean isOpen;
     private Double averageRating;
@@ -41,6 +43,8 @@ public class StoreResponse {
                 .storeName(store.getStoreName())
                 .address(store.getAddress())
                 .imageUrl(store.getImageUrl())
+                .latitude(store.getLatitude())
+                .longitude(store.getLongitude())
                 .createdAt(store.getCreatedAt())
                 .isOpen(store.getIsOpen())
                 .averageRating(averageRating)
@@ -53,6 +53,16 @@ public class Store {
     @Column(name = "image_url")
     private String imageUrl;
 
+    /**
+     * Tọa độ cửa hàng (điểm lấy hàng), dùng để tìm shipper gần nhất
+     * NULL khi chủ cửa hàng chưa cập nhật
+     */
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
     @Column(name = "is_open", nullable = false)
     @Builder.Default
     private Boolean isOpen = true;
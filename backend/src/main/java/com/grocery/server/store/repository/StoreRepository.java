@@ -3,6 +3,8 @@ package com.grocery.server.store.repository;
 import com.grocery.server.store.entity.Store;
 import com.grocery.server.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,6 +20,18 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     Optional<Store> findByOwner(User owner);
     Optional<Store> findByOwnerId(Long ownerId);
     boolean existsByOwnerId(Long ownerId);
+
+    /**
+     * Chỉ lấy ID cửa hàng của chủ (không load entity)
+     */
+    @Query("SELECT s.id FROM Store s WHERE s.owner.id = :ownerId")
+    Optional<Long> findIdByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * Số điện thoại chủ cửa hàng (principal WebSocket)
+     */
+    @Query("SELECT s.owner.phoneNumber FROM Store s WHERE s.id = :storeId")
+    Optional<String> findOwnerPhoneNumberById(@Param("storeId") Long storeId);
     List<Store> findByIsOpen(Boolean isOpen);
     List<Store> findByStoreNameContainingIgnoreCase(String keyword);
     List<Store> findByAddressContainingIgnoreCase(String keyword);
@@ -11,6 +11,8 @@ import com.grocery.server.store.repository.StoreRepository;
 import com.grocery.server.user.entity.User;
 import com.grocery.server.user.repository.UserRepository;
 import com.grocery.server.review.repository.ReviewRepository;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -33,6 +35,8 @@ public class StoreService {
     private final StoreRepository storeRepository;
     private final UserRepository userRepository;
     private final ReviewRepository reviewRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersionService resourceVersionService;
 
     /**
      * Cập nhật thông tin cửa hàng (chỉ owner mới được phép)
@@ -62,8 +66,16 @@ public class StoreService {
             store.setImageUrl(request.getImageUrl().trim());
         }
 
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            store.setLatitude(request.getLatitude());
+            store.setLongitude(request.getLongitude());
+        }
+
         Store updatedStore = storeRepository.save(store);
         log.info("Updated store: {}", updatedStore.getId());
+        // Tên cửa hàng nằm trong index tìm kiếm sản phẩm
+        productSearchIndex.reindexStoreAfterCommit(storeId);
+        resourceVersionService.bumpStoreAfterCommit(storeId);
 
         Double avgRating = reviewRepository.calculateAverageRating(storeId);
         Long totalReviews = reviewRepository.countByStoreId(storeId);
@@ -178,6 +190,8 @@ public class StoreService {
         Store updatedStore = storeRepository.save(store);
 
         log.info("Toggled store status: {} to {}", storeId, updatedStore.getIsOpen());
+        productSearchIndex.reindexStoreAfterCommit(storeId);
+        resourceVersionService.bumpStoreAfterCommit(storeId);
 
         Double avgRating = reviewRepository.calculateAverageRating(storeId);
         Long totalReviews = reviewRepository.countByStoreId(storeId);
@@ -204,6 +218,8 @@ public class StoreService {
         
         storeRepository.delete(store);
         log.info("Deleted store: {}", storeId);
+        productSearchIndex.reindexStoreAfterCommit(storeId);
+        resourceVersionService.bumpStoreAfterCommit(storeId);
     }
 
     /**
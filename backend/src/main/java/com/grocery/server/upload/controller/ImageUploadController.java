@@ -4,9 +4,11 @@ import com.grocery.server.messaging.dto.UserProfileUpdatedEvent;
 import com.grocery.server.messaging.publisher.RedisMessagePublisher;
 import com.grocery.server.order.entity.Order;
 import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.service.OrderDetailCache;
 import com.grocery.server.product.entity.Product;
 import com.grocery.server.product.repository.ProductRepository;
 import com.grocery.server.shared.dto.ApiResponse;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import com.grocery.server.store.entity.Store;
 import com.grocery.server.store.repository.StoreRepository;
 import com.grocery.server.upload.service.CloudinaryUploadService;
@@ -61,6 +63,8 @@ public class ImageUploadController {
     private final OrderRepository orderRepository;
     private final UserService userService;
     private final RedisMessagePublisher messagePublisher;
+    private final OrderDetailCache orderDetailCache;
+    private final ResourceVersionService resourceVersionService;
 
     /**
      * Upload ảnh sản phẩm tạm thời (trước khi tạo product)
@@ -123,6 +127,7 @@ public class ImageUploadController {
             // Cập nhật URL vào database
             product.setImageUrl(imageUrl);
             productRepository.save(product);
+            resourceVersionService.bumpAfterCommit(ResourceVersionService.storeProducts(product.getStore().getId()));
             
             return ResponseEntity.ok(
                     ApiResponse.success("Upload ảnh sản phẩm thành công", imageUrl)
@@ -162,6 +167,7 @@ public class ImageUploadController {
             // Cập nhật URL vào database
             store.setImageUrl(imageUrl);
             storeRepository.save(store);
+            resourceVersionService.bumpStoreAfterCommit(storeId);
             
             return ResponseEntity.ok(
                     ApiResponse.success("Upload ảnh cửa hàng thành công", imageUrl)
@@ -325,6 +331,7 @@ public class ImageUploadController {
             // Cập nhật URL vào database
             order.setPodImageUrl(imageUrl);
             orderRepository.save(order);
+            orderDetailCache.invalidateAfterCommit(orderId);
             
             return ResponseEntity.ok(
                     ApiResponse.success("Upload ảnh POD thành công", imageUrl)
@@ -2,11 +2,13 @@ package com.grocery.server.user.repository;
 
 import com.grocery.server.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.List;
 
 /**
  * Repository: UserRepository
@@ -19,4 +21,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByRole(User.UserRole role);
     List<User> findByStatus(User.UserStatus status);
 //    Optional<User> findByEmail(String email);
+
+    /**
+     * Lấy phone number của nhiều user trong 1 query (dùng cho NotificationDispatcher)
+     * Chỉ select 2 cột, không load toàn bộ entity User
+     */
+    @Query("SELECT u.id AS id, u.phoneNumber AS phoneNumber FROM User u WHERE u.id IN :ids")
+    List<PhoneView> findPhoneNumbersByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Projection: id + phone number
+     */
+    interface PhoneView {
+        Long getId();
+        String getPhoneNumber();
+    }
 }
@@ -2,6 +2,7 @@ package com.grocery.server.user.service;
 
 import com.grocery.server.messaging.dto.UserProfileUpdatedEvent;
 import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.shared.etag.ResourceVersionService;
 import com.grocery.server.shared.exception.BadRequestException;
 import com.grocery.server.shared.exception.ResourceNotFoundException;
 import com.grocery.server.shared.exception.UnauthorizedException;
@@ -35,6 +36,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final RedisMessagePublisher messagePublisher;
+    private final ResourceVersionService resourceVersionService;
 
     /**
      * Lấy thông tin user hiện tại (từ JWT token)
@@ -73,6 +75,10 @@ public class UserService {
         User updatedUser = userRepository.save(user);
         publishUserProfileUpdatedEvent(updatedUser);
         log.info("Updated profile for user: {}", user.getPhoneNumber());
+        if (user.getRole() == User.UserRole.STORE) {
+            // Tên chủ cửa hàng nằm trong /stores/open
+            resourceVersionService.bumpAfterCommit(ResourceVersionService.STORES);
+        }
         
         return UserProfileResponse.fromEntity(updatedUser);
     }
@@ -147,6 +153,7 @@ public class UserService {
             if (user.getRole() == User.UserRole.STORE && user.getStore() != null) {
                 user.getStore().setIsOpen(false);
                 log.info("Auto-closed store {} because owner was banned", user.getStore().getId());
+                resourceVersionService.bumpStoreAfterCommit(user.getStore().getId());
             }
         } else {
             user.setStatus(User.UserStatus.ACTIVE);
@@ -170,8 +177,12 @@ public class UserService {
             throw new BadRequestException("Không thể xóa tài khoản Admin");
         }
         
+        Long storeId = user.getStore() != null ? user.getStore().getId() : null;
         userRepository.delete(user);
         log.info("Deleted user: {}", user.getPhoneNumber());
+        if (storeId != null) {
+            resourceVersionService.bumpStoreAfterCommit(storeId);
+        }
     }
     /**
      * Duyệt cửa hàng (Admin only) - Chuyển status từ PENDING sang ACTIVE và mở cửa hàng
@@ -194,6 +205,7 @@ public class UserService {
         // Mở cửa hàng
         if (user.getStore() != null) {
             user.getStore().setIsOpen(true);
+            resourceVersionService.bumpStoreAfterCommit(user.getStore().getId());
         }
         
         User updatedUser = userRepository.save(user);
@@ -224,6 +236,7 @@ public class UserService {
         if (user.getStore() != null) {
             user.getStore().setIsOpen(false);
             log.info("Auto-closed store {} because owner was rejected", user.getStore().getId());
+            resourceVersionService.bumpStoreAfterCommit(user.getStore().getId());
         }
         
         User updatedUser = userRepository.save(user);
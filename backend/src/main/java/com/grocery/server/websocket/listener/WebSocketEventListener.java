@@ -1,5 +1,7 @@
 package com.grocery.server.websocket.listener;
 
+import com.grocery.server.order.service.NearestShipperDispatcher;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
@@ -18,14 +20,17 @@ import java.security.Principal;
  * 
  * Các sự kiện:
  * - SessionConnectedEvent: Client kết nối thành công
- * - SessionDisconnectEvent: Client ngắt kết nối
+ * - SessionDisconnectEvent: Client ngắt kết nối (shipper bị gỡ khỏi chỉ mục vị trí)
  * - SessionSubscribeEvent: Client subscribe vào một topic
  * - SessionUnsubscribeEvent: Client unsubscribe
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class WebSocketEventListener {
 
+    private final NearestShipperDispatcher nearestShipperDispatcher;
+
     @EventListener
     public void handleSessionConnected(SessionConnectedEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
@@ -47,6 +52,8 @@ public class WebSocketEventListener {
         
         if (user != null) {
             log.info("WebSocket DISCONNECTED - User: {}, Session: {}", user.getName(), sessionId);
+            // Shipper mất kết nối thì không nhận được offer → gỡ khỏi chỉ mục vị trí
+            nearestShipperDispatcher.goOfflineByPrincipal(user.getName());
         } else {
             log.info("WebSocket DISCONNECTED - Anonymous, Session: {}", sessionId);
         }
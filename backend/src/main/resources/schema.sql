@@ -45,6 +45,8 @@ CREATE TABLE stores (
     user_id    BIGINT       NOT NULL COMMENT 'Chủ cửa hàng',
     store_name VARCHAR(100) NOT NULL,
     address    VARCHAR(255) NOT NULL,
+    latitude   DOUBLE       DEFAULT NULL COMMENT 'Tọa độ điểm lấy hàng',
+    longitude  DOUBLE       DEFAULT NULL,
     is_open    BOOLEAN DEFAULT TRUE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_user_id (user_id),
@@ -188,8 +190,11 @@ CREATE TABLE orders (
     total_amount     DECIMAL(10,2) NOT NULL,
     shipping_fee     DECIMAL(10,2) NOT NULL,
     delivery_address VARCHAR(255)  NOT NULL,
+    delivery_lat     DOUBLE        DEFAULT NULL COMMENT 'Tọa độ giao hàng',
+    delivery_lng     DOUBLE        DEFAULT NULL,
     pod_image_url    VARCHAR(255)  DEFAULT NULL COMMENT 'Ảnh bằng chứng giao hàng',
     cancel_reason    VARCHAR(255)  DEFAULT NULL,
+    version          BIGINT        NOT NULL DEFAULT 0 COMMENT 'Optimistic locking (compare-and-set chuyển trạng thái)',
     payment_status   ENUM('PENDING','SUCCESS','FAILED') DEFAULT 'PENDING',
     created_at       TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (customer_id) REFERENCES users(id),
@@ -199,7 +204,13 @@ CREATE TABLE orders (
     INDEX idx_store_id    (store_id),
     INDEX idx_shipper_id  (shipper_id),
     INDEX idx_status      (status),
-    INDEX idx_created_at  (created_at)
+    INDEX idx_created_at  (created_at),
+    -- Keyset pagination (created_at, id)
+    INDEX idx_orders_created_id       (created_at, id),
+    INDEX idx_orders_customer_created (customer_id, created_at, id),
+    INDEX idx_orders_shipper_created  (shipper_id, created_at, id),
+    INDEX idx_orders_store_created    (store_id, created_at, id),
+    INDEX idx_orders_status_created   (status, created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
 COMMENT='Đơn hàng';
 
@@ -219,6 +230,72 @@ CREATE TABLE order_items (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
 COMMENT='Chi tiết đơn hàng';
 
+-- =========================================================
+-- 9b. Table: order_stores (denormalized đơn hàng ↔ cửa hàng)
+-- =========================================================
+CREATE TABLE order_stores (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id   BIGINT      NOT NULL,
+    store_id   BIGINT      NOT NULL,
+    status     VARCHAR(20) NOT NULL COMMENT 'Bản sao orders.status',
+    created_at DATETIME    NOT NULL COMMENT 'Bản sao orders.created_at',
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_order_store (order_id, store_id),
+    INDEX idx_order_stores_store_created (store_id, created_at, order_id),
+    INDEX idx_order_stores_store_status  (store_id, status, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Cửa hàng liên quan của từng đơn hàng';
+
+-- =========================================================
+-- 9c. Table: order_participants (khách hàng / shipper / chủ cửa hàng của đơn)
+-- =========================================================
+CREATE TABLE order_participants (
+    id       BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT      NOT NULL,
+    user_id  BIGINT      NOT NULL,
+    role     VARCHAR(20) NOT NULL COMMENT 'CUSTOMER / SHIPPER / STORE_OWNER',
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_order_participant (order_id, user_id, role),
+    INDEX idx_order_participants_user (user_id, role)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Người tham gia đơn hàng (kiểm tra quyền chuyển trạng thái)';
+
+-- =========================================================
+-- 9d. Table: order_outbox (transactional outbox cho event đơn hàng)
+-- =========================================================
+CREATE TABLE order_outbox (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id     BIGINT       NOT NULL,
+    event_type   VARCHAR(50)  NOT NULL COMMENT 'created / accepted / status / paid',
+    channel      VARCHAR(100) NOT NULL COMMENT 'Redis channel, VD: order:created:123',
+    payload      TEXT         NOT NULL,
+    attempts     INT          NOT NULL DEFAULT 0,
+    claimed_by   VARCHAR(64)  DEFAULT NULL COMMENT 'Relay đang publish event',
+    claimed_at   DATETIME(6)  DEFAULT NULL,
+    created_at   DATETIME(6)  NOT NULL,
+    published_at DATETIME(6)  DEFAULT NULL COMMENT 'NULL = chưa publish',
+    INDEX idx_outbox_published_id (published_at, id),
+    INDEX idx_outbox_order_id     (order_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Event đơn hàng chờ OrderOutboxRelay publish lên Redis';
+
+-- =========================================================
+-- 9e. Table: revenue_rollups (doanh thu / số đơn tổng hợp theo ngày, tháng)
+-- =========================================================
+CREATE TABLE revenue_rollups (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    granularity     ENUM('DAY','MONTH') NOT NULL,
+    period_start    DATE          NOT NULL COMMENT 'DAY: chính ngày đó, MONTH: ngày 1 của tháng',
+    store_id        BIGINT        NOT NULL COMMENT '0 = toàn hệ thống',
+    revenue         DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT 'Doanh thu từ đơn DELIVERED',
+    order_count     BIGINT        NOT NULL DEFAULT 0,
+    delivered_count BIGINT        NOT NULL DEFAULT 0,
+    cancelled_count BIGINT        NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_revenue_rollup (granularity, store_id, period_start),
+    INDEX idx_revenue_rollups_period (period_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Thống kê doanh thu dựng sẵn (RevenueRollupService), không quét bảng orders';
+
 -- =========================================================
 -- 10. Table: payments
 -- =========================================================
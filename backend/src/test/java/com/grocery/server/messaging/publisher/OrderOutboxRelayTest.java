@@ -0,0 +1,116 @@
+package com.grocery.server.messaging.publisher;
+
+import com.grocery.server.messaging.entity.OrderOutboxEvent;
+import com.grocery.server.messaging.repository.OrderOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Relay outbox trên H2: publish theo thứ tự ID, event lỗi giữ lại các event sau của cùng đơn, không có Redis thì
+ * chỉ đánh dấu đã xử lý
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderOutboxRelayTest {
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RedisMessagePublisher publisher;
+    private List<String> published;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        publisher = mock(RedisMessagePublisher.class);
+        published = new ArrayList<>();
+        doAnswer(invocation -> {
+            String channel = invocation.getArgument(0);
+            if (channel.equals("order:status:1")) {
+                throw new IllegalStateException("Redis timeout");
+            }
+            published.add(channel);
+            return null;
+        }).when(publisher).publish(anyString(), anyString());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void publishesInOrderAndHoldsBackLaterEventsOfAFailedOrder() {
+        Long created1 = event(1L, "created");
+        Long status1 = event(1L, "status");
+        Long accepted1 = event(1L, "accepted");
+        Long created2 = event(2L, "created");
+
+        relay(mock(StringRedisTemplate.class)).drain();
+        entityManager.clear();
+
+        assertEquals(List.of("order:created:1", "order:created:2"), published);
+        assertNotNull(find(created1).getPublishedAt());
+        assertNotNull(find(created2).getPublishedAt());
+        assertNull(find(status1).getPublishedAt());
+        assertEquals(1, find(status1).getAttempts());
+        assertNull(find(accepted1).getPublishedAt(), "event sau của đơn lỗi bị giữ lại");
+        assertNull(find(accepted1).getClaimedBy(), "claim được trả để lần sau publish");
+        assertEquals(1.0, meterRegistry.counter("order.outbox.failed").count());
+        assertEquals(2.0, meterRegistry.counter("order.outbox.published").count());
+    }
+
+    @Test
+    void withoutRedisMarksEventsHandledWithoutPublishing() {
+        Long created1 = event(1L, "created");
+        Long status1 = event(1L, "status");
+
+        relay(null).drain();
+        entityManager.clear();
+
+        verify(publisher, never()).publish(anyString(), anyString());
+        assertNotNull(find(created1).getPublishedAt());
+        assertNotNull(find(status1).getPublishedAt());
+        assertEquals(2.0, meterRegistry.counter("order.outbox.local").count());
+        assertEquals(0.0, meterRegistry.counter("order.outbox.published").count());
+    }
+
+    private OrderOutboxRelay relay(StringRedisTemplate redisTemplate) {
+        return new OrderOutboxRelay(outboxRepository, publisher, redisTemplate, transactionManager, meterRegistry,
+                100, 10, 30_000, 24);
+    }
+
+    private Long event(Long orderId, String eventType) {
+        return entityManager.persistAndFlush(OrderOutboxEvent.builder()
+                .orderId(orderId)
+                .eventType(eventType)
+                .channel("order:" + eventType + ":" + orderId)
+                .payload("{}")
+                .build()).getId();
+    }
+
+    private OrderOutboxEvent find(Long id) {
+        return outboxRepository.findById(id).orElseThrow();
+    }
+}
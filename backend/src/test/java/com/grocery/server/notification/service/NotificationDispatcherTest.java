@@ -0,0 +1,162 @@
+package com.grocery.server.notification.service;
+
+import com.grocery.server.notification.document.Notification;
+import com.grocery.server.notification.repository.NotificationRepository;
+import com.grocery.server.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pipeline notification: gom lô (1 query phone, 1 insertMany, 1 aggregation unread), chỉ gửi sau commit, queue đầy thì bỏ
+ */
+class NotificationDispatcherTest {
+
+    private NotificationRepository notificationRepository;
+    private UserRepository userRepository;
+    private SimpMessagingTemplate messagingTemplate;
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDispatcher started;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        when(notificationRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findPhoneNumbersByIdIn(anyCollection()))
+                .thenReturn(List.of(phone(1L, "0900000001"), phone(2L, "0900000002")));
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Notification.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", 1L).append("count", 4),
+                        new Document("_id", 2L).append("count", 1)), new Document()));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (started != null) {
+            started.stop();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void queuedNotificationsAreDeliveredAsOneBatch() {
+        NotificationDispatcher dispatcher = newDispatcher(100);
+        dispatcher.submit(pending(1L, "ORDER_CREATED"));
+        dispatcher.submit(pending(2L, "ORDER_CREATED"));
+        dispatcher.submit(pending(1L, "ORDER_CONFIRMED"));
+        dispatcher.submit(pending(99L, "ORDER_CREATED"));
+
+        dispatcher.start();
+        started = dispatcher;
+
+        ArgumentCaptor<List<Notification>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, timeout(2_000)).insert(inserted.capture());
+        assertEquals(List.of("0900000001", "0900000002", "0900000001"),
+                inserted.getValue().stream().map(Notification::getRecipientPhone).toList(),
+                "user không tồn tại bị bỏ qua");
+        verify(userRepository, times(1)).findPhoneNumbersByIdIn(anyCollection());
+        verify(messagingTemplate, timeout(2_000)).convertAndSendToUser("0900000001", "/queue/notifications/count", 4L);
+        verify(messagingTemplate, timeout(2_000)).convertAndSendToUser("0900000002", "/queue/notifications/count", 1L);
+        verify(messagingTemplate, timeout(2_000).times(3))
+                .convertAndSendToUser(any(String.class), eq("/queue/notifications"), any(Object.class));
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(Notification.class), eq(Document.class));
+    }
+
+    @Test
+    void notificationsWaitForCommit() {
+        NotificationDispatcher dispatcher = newDispatcher(100);
+
+        TransactionSynchronizationManager.initSynchronization();
+        dispatcher.submit(pending(1L, "ORDER_CREATED"));
+        assertEquals(0.0, queueSize(), "chưa commit");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0.0, queueSize());
+
+        TransactionSynchronizationManager.initSynchronization();
+        dispatcher.submit(pending(1L, "ORDER_CREATED"));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1.0, queueSize());
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() {
+        NotificationDispatcher dispatcher = newDispatcher(2);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.submit(pending(1L, "ORDER_CREATED"));
+        }
+
+        assertEquals(2.0, queueSize());
+        assertEquals(3.0, meterRegistry.counter("notification.dropped").count());
+    }
+
+    private NotificationDispatcher newDispatcher(int queueCapacity) {
+        return new NotificationDispatcher(notificationRepository, userRepository, messagingTemplate,
+                mongoTemplate, meterRegistry, queueCapacity, 1, 100);
+    }
+
+    private double queueSize() {
+        return meterRegistry.get("notification.queue.size").gauge().value();
+    }
+
+    private static NotificationDispatcher.PendingNotification pending(Long recipientId, String type) {
+        return new NotificationDispatcher.PendingNotification(recipientId, type, "Đơn hàng", type, 10L, "ORDER",
+                LocalDateTime.now());
+    }
+
+    private static UserRepository.PhoneView phone(Long id, String phoneNumber) {
+        return new UserRepository.PhoneView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPhoneNumber() {
+                return phoneNumber;
+            }
+        };
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
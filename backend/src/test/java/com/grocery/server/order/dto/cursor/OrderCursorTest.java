@@ -0,0 +1,66 @@
+package com.grocery.server.order.dto.cursor;
+
+import com.grocery.server.shared.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCursorTest {
+
+    @Test
+    void roundTripsCreatedAtAndId() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2026, 3, 14, 9, 26, 53, 589_000_000), 4213L);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"),
+                "cursor phải an toàn trong query string");
+        assertEquals(cursor, OrderCursor.decode(encoded, false));
+        assertEquals(cursor, OrderCursor.decode(encoded, true));
+    }
+
+    @Test
+    void roundTripsWholeSeconds() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2026, 1, 1, 0, 0), 1L);
+
+        assertEquals(cursor, OrderCursor.decode(cursor.encode(), false));
+    }
+
+    @Test
+    void missingCursorStartsFromFirstPageOfEachDirection() {
+        assertSame(OrderCursor.FIRST_DESC, OrderCursor.decode(null, false));
+        assertSame(OrderCursor.FIRST_DESC, OrderCursor.decode(" ", false));
+        assertSame(OrderCursor.FIRST_ASC, OrderCursor.decode(null, true));
+        assertSame(OrderCursor.FIRST_ASC, OrderCursor.decode("", true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "not base64!",
+            "2026-03-14T09:26:53",
+            "|42",
+            "2026-03-14T09:26:53|",
+            "2026-03-14T09:26:53|abc",
+            "yesterday|42",
+            "2026-13-40T09:26:53|42"
+    })
+    void rejectsMalformedCursor(String raw) {
+        String cursor = raw.equals("not base64!") ? raw : encode(raw);
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> OrderCursor.decode(cursor, false));
+        assertEquals("Cursor không hợp lệ", ex.getMessage());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,157 @@
+package com.grocery.server.order.repository;
+
+import com.grocery.server.order.dto.cursor.OrderCursor;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Keyset pagination trên H2: đi hết các trang theo (created_at, id), không trùng, không sót, kể cả khi trùng created_at
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderKeysetQueryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private User otherCustomer;
+    private User shipper;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        otherCustomer = entityManager.persist(user("0900000002", User.UserRole.CUSTOMER));
+        shipper = entityManager.persist(user("0900000003", User.UserRole.SHIPPER));
+    }
+
+    @Test
+    void customerPagesWalkNewestFirstAcrossEqualTimestamps() {
+        List<Long> expected = new ArrayList<>();
+        // 7 đơn, 3 đơn cùng created_at để khóa phụ id phải phân định thứ tự
+        int[] minutes = {0, 5, 5, 5, 9, 12, 20};
+        for (int minute : minutes) {
+            expected.add(0, order(customer, OrderStatus.DELIVERED, null, minute, Payment.PaymentMethod.COD));
+        }
+        order(otherCustomer, OrderStatus.DELIVERED, null, 7, Payment.PaymentMethod.COD);
+
+        List<Long> walked = new ArrayList<>();
+        OrderCursor cursor = OrderCursor.FIRST_DESC;
+        List<Order> page;
+        do {
+            page = orderRepository.findByCustomerIdAfterCursor(
+                    customer.getId(), cursor.createdAt(), cursor.id(), PageRequest.of(0, 3));
+            page.forEach(o -> walked.add(o.getId()));
+            if (!page.isEmpty()) {
+                cursor = OrderCursor.of(page.get(page.size() - 1));
+            }
+        } while (page.size() == 3);
+
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void shipperPagesOnlyContainTheirOrders() {
+        Long first = order(customer, OrderStatus.DELIVERED, shipper, 1, Payment.PaymentMethod.COD);
+        Long second = order(customer, OrderStatus.DELIVERING, shipper, 2, Payment.PaymentMethod.COD);
+        order(customer, OrderStatus.CONFIRMED, null, 3, Payment.PaymentMethod.COD);
+
+        List<Order> firstPage = orderRepository.findByShipperIdAfterCursor(shipper.getId(),
+                OrderCursor.FIRST_DESC.createdAt(), OrderCursor.FIRST_DESC.id(), PageRequest.of(0, 1));
+        OrderCursor next = OrderCursor.of(firstPage.get(0));
+        List<Order> secondPage = orderRepository.findByShipperIdAfterCursor(shipper.getId(),
+                next.createdAt(), next.id(), PageRequest.of(0, 1));
+
+        assertEquals(List.of(second), ids(firstPage));
+        assertEquals(List.of(first), ids(secondPage));
+    }
+
+    @Test
+    void availableOrdersWalkOldestFirstAndSkipUnpaidMomo() {
+        Long oldest = order(customer, OrderStatus.CONFIRMED, null, 1, Payment.PaymentMethod.COD);
+        order(customer, OrderStatus.CONFIRMED, null, 2, Payment.PaymentMethod.MOMO);
+        Long sameMinuteA = order(customer, OrderStatus.CONFIRMED, null, 3, Payment.PaymentMethod.COD);
+        Long sameMinuteB = order(customer, OrderStatus.CONFIRMED, null, 3, Payment.PaymentMethod.COD);
+        order(customer, OrderStatus.CONFIRMED, shipper, 4, Payment.PaymentMethod.COD);
+        order(customer, OrderStatus.PENDING, null, 5, Payment.PaymentMethod.COD);
+
+        List<Order> firstPage = orderRepository.findAvailableOrdersForShippersAfterCursor(
+                OrderCursor.FIRST_ASC.createdAt(), OrderCursor.FIRST_ASC.id(), PageRequest.of(0, 2));
+        OrderCursor next = OrderCursor.of(firstPage.get(1));
+        List<Order> secondPage = orderRepository.findAvailableOrdersForShippersAfterCursor(
+                next.createdAt(), next.id(), PageRequest.of(0, 2));
+
+        assertEquals(List.of(oldest, sameMinuteA), ids(firstPage));
+        assertEquals(List.of(sameMinuteB), ids(secondPage));
+    }
+
+    @Test
+    void adminFiltersApplyBeforeTheCursor() {
+        order(customer, OrderStatus.DELIVERED, null, 1, Payment.PaymentMethod.COD);
+        Long cancelledEarly = order(customer, OrderStatus.CANCELLED, null, 2, Payment.PaymentMethod.COD);
+        Long cancelledLate = order(otherCustomer, OrderStatus.CANCELLED, null, 30, Payment.PaymentMethod.COD);
+        Long cancelledMid = order(customer, OrderStatus.CANCELLED, null, 10, Payment.PaymentMethod.COD);
+
+        List<Order> page = orderRepository.findAllWithFiltersAfterCursor(null, OrderStatus.CANCELLED,
+                T0, T0.plusMinutes(20), OrderCursor.FIRST_DESC.createdAt(), OrderCursor.FIRST_DESC.id(),
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(cancelledMid, cancelledEarly), ids(page));
+        assertEquals(3L, orderRepository.countWithFilters(null, OrderStatus.CANCELLED, null, null));
+        assertEquals(List.of(cancelledLate), ids(orderRepository.findAllWithFiltersAfterCursor(null,
+                OrderStatus.CANCELLED, T0.plusMinutes(25), null,
+                OrderCursor.FIRST_DESC.createdAt(), OrderCursor.FIRST_DESC.id(), PageRequest.of(0, 10))));
+    }
+
+    private Long order(User owner, OrderStatus status, User assignedShipper, int minute,
+                       Payment.PaymentMethod method) {
+        Order order = entityManager.persist(Order.builder()
+                .customer(owner)
+                .shipper(assignedShipper)
+                .status(status)
+                .totalAmount(BigDecimal.TEN)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .build());
+        entityManager.persist(Payment.builder()
+                .order(order).paymentMethod(method).amount(BigDecimal.TEN).build());
+        entityManager.flush();
+        // created_at do @CreationTimestamp điền, ghi đè để cố định thứ tự
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", T0.plusMinutes(minute), order.getId());
+        entityManager.clear();
+        return order.getId();
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
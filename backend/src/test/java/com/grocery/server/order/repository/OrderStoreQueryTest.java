@@ -0,0 +1,156 @@
+package com.grocery.server.order.repository;
+
+import com.grocery.server.order.dto.cursor.OrderCursor;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Truy vấn phía cửa hàng qua order_stores trên H2: đơn nhiều cửa hàng chỉ xuất hiện 1 lần, status đi theo đơn
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderStoreQueryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStoreRepository orderStoreRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Long bakery;
+    private Long grocer;
+
+    private Long shared;
+    private Long bakeryOnly;
+    private Long unpaidMomo;
+    private Long grocerOnly;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        bakery = store("0900000002", "Tiệm bánh");
+        grocer = store("0900000003", "Tạp hóa");
+
+        shared = order(OrderStatus.PENDING, Payment.PaymentMethod.COD, 1, bakery, grocer);
+        bakeryOnly = order(OrderStatus.PENDING, Payment.PaymentMethod.COD, 2, bakery);
+        unpaidMomo = order(OrderStatus.PENDING, Payment.PaymentMethod.MOMO, 3, bakery);
+        grocerOnly = order(OrderStatus.DELIVERED, Payment.PaymentMethod.COD, 4, grocer);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void storeListingsReadTheLinkTable() {
+        assertEquals(List.of(unpaidMomo, bakeryOnly, shared), ids(orderRepository.findByStoreId(bakery)));
+        assertEquals(List.of(bakeryOnly, shared), ids(orderRepository.findPaidOrdersByStoreId(bakery)));
+        assertEquals(List.of(grocerOnly, shared), ids(orderRepository.findByStoreId(grocer)));
+
+        Page<Order> page = orderRepository.findPaidOrdersByStoreId(bakery, PageRequest.of(0, 1));
+        assertEquals(List.of(bakeryOnly), ids(page.getContent()));
+        assertEquals(2, page.getTotalElements());
+    }
+
+    @Test
+    void statusChangesFollowTheOrderForEveryStore() {
+        orderStoreRepository.updateStatusByOrderId(shared, OrderStatus.CONFIRMED);
+
+        assertEquals(List.of(shared), ids(orderRepository.findByStoreIdAndStatus(bakery, OrderStatus.CONFIRMED)));
+        assertEquals(List.of(shared), ids(orderRepository.findByStoreIdAndStatus(grocer, OrderStatus.CONFIRMED)));
+        assertEquals(2L, orderRepository.countByStoreIdAndStatus(bakery, OrderStatus.PENDING));
+        assertEquals(Set.of(bakery, grocer), Set.copyOf(orderStoreRepository.findStoreIdsByOrderId(shared)));
+
+        Map<String, Long> grocerCounts = new HashMap<>();
+        for (Object[] row : orderStoreRepository.countByStoreIdInGroupByStatus(List.of(grocer))) {
+            grocerCounts.put(row[1].toString(), (Long) row[2]);
+        }
+        assertEquals(Map.of("CONFIRMED", 1L, "DELIVERED", 1L), grocerCounts);
+    }
+
+    @Test
+    void adminStoreFilterDoesNotDuplicateMultiStoreOrders() {
+        Page<Order> all = orderRepository.findAllWithFilters(null, null, null, null, PageRequest.of(0, 10));
+        Page<Order> bakeryOrders = orderRepository.findAllWithFilters(bakery, OrderStatus.PENDING, null, null,
+                PageRequest.of(0, 10));
+
+        assertEquals(4, all.getTotalElements());
+        assertEquals(3, bakeryOrders.getTotalElements());
+        assertEquals(List.of(unpaidMomo, bakeryOnly, shared), ids(bakeryOrders.getContent()));
+        assertEquals(2L, orderRepository.countWithFilters(grocer, null, null, null));
+    }
+
+    @Test
+    void paidStoreOrdersPageByCursor() {
+        List<Order> firstPage = orderRepository.findPaidOrdersByStoreIdAfterCursor(bakery,
+                OrderCursor.FIRST_DESC.createdAt(), OrderCursor.FIRST_DESC.id(), PageRequest.of(0, 1));
+        OrderCursor next = OrderCursor.of(firstPage.get(0));
+        List<Order> rest = orderRepository.findPaidOrdersByStoreIdAfterCursor(bakery,
+                next.createdAt(), next.id(), PageRequest.of(0, 10));
+
+        assertEquals(List.of(bakeryOnly), ids(firstPage));
+        assertEquals(List.of(shared), ids(rest));
+    }
+
+    private Long order(OrderStatus status, Payment.PaymentMethod method, int minute, Long... storeIds) {
+        Order order = entityManager.persist(Order.builder()
+                .customer(customer)
+                .status(status)
+                .totalAmount(BigDecimal.TEN)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .build());
+        entityManager.persist(Payment.builder()
+                .order(order).paymentMethod(method).amount(BigDecimal.TEN).build());
+        entityManager.flush();
+        // created_at do @CreationTimestamp điền, ghi đè để cố định thứ tự
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", T0.plusMinutes(minute), order.getId());
+        for (Long storeId : storeIds) {
+            entityManager.persist(OrderStore.builder()
+                    .order(order).storeId(storeId).status(status).createdAt(T0.plusMinutes(minute)).build());
+        }
+        return order.getId();
+    }
+
+    private Long store(String ownerPhone, String name) {
+        User owner = entityManager.persist(user(ownerPhone, User.UserRole.STORE));
+        return entityManager.persist(Store.builder().owner(owner).storeName(name).address("1 Lê Lợi").build()).getId();
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
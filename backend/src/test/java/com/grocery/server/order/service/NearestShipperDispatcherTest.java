@@ -0,0 +1,101 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.dto.OrderCreatedEvent;
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Offer đơn mới theo vòng bán kính: shipper gần trước, hết timeout thì nới vòng, hết vòng thì broadcast
+ */
+class NearestShipperDispatcherTest {
+
+    private static final double LAT = 10.7725;
+    private static final double LNG = 106.698;
+    private static final double KM = 1 / 111.32;
+
+    private ShipperLocationIndex index;
+    private SimpMessagingTemplate messagingTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private NearestShipperDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new ShipperLocationIndex(60_000, meterRegistry);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        dispatcher = new NearestShipperDispatcher(index, messagingTemplate, mock(RedisMessagePublisher.class),
+                meterRegistry, 2, new double[]{5, 2}, 100);
+        long now = System.currentTimeMillis();
+        index.update(1L, "near-1", LAT + 0.5 * KM, LNG, now);
+        index.update(2L, "near-2", LAT + 1 * KM, LNG, now);
+        index.update(3L, "near-3", LAT + 1.5 * KM, LNG, now);
+        index.update(4L, "mid", LAT + 4 * KM, LNG, now);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void offersNearestRingFirstThenWidensAfterTimeout() {
+        dispatcher.dispatch(event(10L, LAT, LNG));
+
+        verify(messagingTemplate).convertAndSendToUser(eq("near-1"), eq("/queue/orders/new"), any(Object.class));
+        verify(messagingTemplate).convertAndSendToUser(eq("near-2"), eq("/queue/orders/new"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("near-3"), anyString(), any(Object.class));
+
+        // Vòng 2 km còn near-3 → vòng 5 km có mid, không gửi lại cho shipper đã được offer
+        verify(messagingTemplate, timeout(2_000)).convertAndSendToUser(eq("near-3"), anyString(), any(Object.class));
+        verify(messagingTemplate, timeout(2_000)).convertAndSendToUser(eq("mid"), anyString(), any(Object.class));
+        verify(messagingTemplate, timeout(2_000)).convertAndSend(eq("/topic/orders/new"), any(Object.class));
+        verify(messagingTemplate, times(1)).convertAndSendToUser(eq("near-1"), anyString(), any(Object.class));
+        assertEquals(4.0, meterRegistry.counter("dispatch.offers.sent").count());
+    }
+
+    @Test
+    void acceptedOrderStopsFurtherRings() {
+        dispatcher.dispatch(event(10L, LAT, LNG));
+        dispatcher.cancel(10L);
+
+        verify(messagingTemplate, after(400).never()).convertAndSendToUser(eq("near-3"), anyString(), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void duplicateEventDoesNotOfferTwice() {
+        dispatcher.dispatch(event(10L, LAT, LNG));
+        dispatcher.dispatch(event(10L, LAT, LNG));
+
+        verify(messagingTemplate, times(1)).convertAndSendToUser(eq("near-1"), anyString(), any(Object.class));
+    }
+
+    @Test
+    void orderWithoutCoordinatesOrShippersIsBroadcast() {
+        dispatcher.dispatch(event(10L, null, null));
+        dispatcher.dispatch(event(11L, LAT + 50 * KM, LNG));
+
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/orders/new"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+        assertEquals(2.0, meterRegistry.counter("dispatch.offers.broadcast").count());
+    }
+
+    private static OrderCreatedEvent event(Long orderId, Double pickupLat, Double pickupLng) {
+        return OrderCreatedEvent.builder().orderId(orderId).pickupLat(pickupLat).pickupLng(pickupLng).build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.notification.document.Notification;
+import com.grocery.server.notification.service.NotificationService;
+import com.grocery.server.order.dto.request.BulkUpdateOrderStatusItemRequest;
+import com.grocery.server.order.dto.request.BulkUpdateOrderStatusRequest;
+import com.grocery.server.order.dto.response.BulkOrderStatusResponse;
+import com.grocery.server.order.dto.response.BulkOrderStatusResponse.ItemResult;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.entity.OrderParticipant.ParticipantRole;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Cập nhật trạng thái hàng loạt trên H2: lỗi từng dòng tách biệt, compare-and-set chỉ tính dòng thực sự được ghi,
+ * thông báo gộp theo người nhận
+ */
+@DataJpaTest
+@Import({OrderBulkStatusService.class, OrderStateMachine.class})
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderBulkStatusServiceTest {
+
+    @MockBean
+    private RevenueRollupService revenueRollupService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @MockBean
+    private StoreOrderCounterService storeOrderCounterService;
+
+    @Autowired
+    private OrderBulkStatusService bulkStatusService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private User owner;
+    private Store bakery;
+    private ProductUnitMapping bread;
+
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        owner = entityManager.persist(user("0900000002", User.UserRole.STORE));
+        bakery = entityManager.persist(Store.builder().owner(owner).storeName("Tiệm bánh").address("1 Lê Lợi").build());
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("count").name("Số lượng").build());
+        Unit unit = entityManager.persist(Unit.builder()
+                .category(category).code("piece").name("Cái").symbol("cái").build());
+        Product product = entityManager.persist(Product.builder().store(bakery).name("Bánh mì").build());
+        bread = entityManager.persist(ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel("1 cái")
+                .price(new BigDecimal("15000")).stockQuantity(100)
+                .build());
+
+        first = pendingOrder();
+        second = pendingOrder();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void failingLinesDoNotBlockTheRestOfTheBatch() {
+        BulkOrderStatusResponse response = bulkStatusService.updateStatuses(request(
+                item(first, OrderStatus.CONFIRMED, null),
+                item(second, OrderStatus.CANCELLED, null),
+                item(999999L, OrderStatus.CONFIRMED, null),
+                item(first, OrderStatus.CANCELLED, "Hết hàng")
+        ), owner.getId(), false);
+
+        assertEquals(4, response.getRequested());
+        assertEquals(1, response.getSucceeded());
+        assertEquals(3, response.getFailed());
+        List<ItemResult> results = response.getResults();
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(OrderStatus.CONFIRMED, results.get(0).getCurrentStatus());
+        assertEquals("Lý do hủy đơn không được để trống", results.get(1).getMessage());
+        assertEquals("Không tìm thấy đơn hàng", results.get(2).getMessage());
+        assertEquals("Đơn hàng bị lặp lại trong yêu cầu", results.get(3).getMessage());
+
+        assertEquals("CONFIRMED/1", statusAndVersion(first));
+        assertEquals("PENDING/0", statusAndVersion(second));
+        assertEquals("CONFIRMED", orderStoreStatus(first));
+        verify(storeOrderCounterService).recordTransition(
+                argThat(ids -> List.copyOf(ids).equals(List.of(bakery.getId()))),
+                eq(OrderStatus.PENDING), eq(OrderStatus.CONFIRMED));
+        verify(orderOutboxService).enqueueAll(eq("status"), argThat(events -> events.keySet().equals(Set.of(first))));
+        // Chủ cửa hàng là người thao tác → chỉ khách hàng nhận thông báo
+        verify(notificationService).enqueue(customer.getId(), Notification.ORDER_CONFIRMED,
+                "Đơn hàng #" + first + " đã được xác nhận", "Trạng thái mới: CONFIRMED", first, "ORDER");
+        verify(notificationService, never()).enqueue(eq(owner.getId()), anyString(), anyString(), anyString(),
+                anyLong(), anyString());
+    }
+
+    @Test
+    void rowChangedByAnotherRequestIsReportedAsConflict() {
+        // Bản đọc cũ còn trong persistence context, trong khi request khác đã xác nhận đơn
+        orderRepository.findById(second).orElseThrow();
+        jdbcTemplate.update("UPDATE orders SET status = 'CONFIRMED', version = version + 1 WHERE id = ?", second);
+
+        BulkOrderStatusResponse response = bulkStatusService.updateStatuses(request(
+                item(first, OrderStatus.CANCELLED, "Hết hàng"),
+                item(second, OrderStatus.CANCELLED, "Hết hàng")
+        ), owner.getId(), false);
+
+        assertEquals(1, response.getSucceeded());
+        ItemResult conflict = response.getResults().get(1);
+        assertFalse(conflict.isSuccess());
+        assertEquals(OrderStatus.PENDING, conflict.getPreviousStatus());
+        assertEquals(OrderStatus.CONFIRMED, conflict.getCurrentStatus());
+        assertEquals("CANCELLED/1", statusAndVersion(first));
+        assertEquals("CONFIRMED/1", statusAndVersion(second));
+        verify(storeOrderCounterService, times(1)).recordTransition(any(), any(), any());
+        verify(revenueRollupService).recordCancelled(
+                argThat((Map<Long, LocalDateTime> createdAt) -> createdAt.keySet().equals(Set.of(first))), anyMap());
+    }
+
+    @Test
+    void recipientGetsOneNotificationForAllTheirOrders() {
+        BulkOrderStatusResponse response = bulkStatusService.updateStatuses(request(
+                item(first, OrderStatus.CANCELLED, "Hết hàng"),
+                item(second, OrderStatus.CANCELLED, "Hết hàng")
+        ), owner.getId(), false);
+
+        assertEquals(2, response.getSucceeded());
+        verify(notificationService, times(1)).enqueue(anyLong(), anyString(), anyString(), anyString(),
+                anyLong(), anyString());
+        verify(notificationService).enqueue(customer.getId(), Notification.ORDER_CANCELLED,
+                "2 đơn hàng đã được cập nhật", "#" + first + ", #" + second + " đã bị hủy", first, "ORDER");
+    }
+
+    @Test
+    void customerCannotConfirmTheirOwnOrder() {
+        BulkOrderStatusResponse response = bulkStatusService.updateStatuses(request(
+                item(first, OrderStatus.CONFIRMED, null)
+        ), customer.getId(), false);
+
+        assertEquals(0, response.getSucceeded());
+        assertEquals("Chỉ chủ cửa hàng liên quan mới có thể xác nhận đơn hàng", response.getResults().get(0).getMessage());
+        assertEquals("PENDING/0", statusAndVersion(first));
+        verify(orderOutboxService, never()).enqueueAll(anyString(), anyMap());
+    }
+
+    private Long pendingOrder() {
+        OrderItem item = OrderItem.builder()
+                .productUnitMapping(bread)
+                .quantity(BigDecimal.ONE)
+                .unitPrice(bread.getPrice())
+                .build();
+        Order order = Order.builder()
+                .customer(customer)
+                .totalAmount(bread.getPrice())
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .orderItems(List.of(item))
+                .build();
+        item.setOrder(order);
+        entityManager.persist(order);
+        entityManager.persist(OrderStore.builder()
+                .order(order).storeId(bakery.getId()).status(OrderStatus.PENDING).createdAt(order.getCreatedAt()).build());
+        entityManager.persist(OrderParticipant.builder()
+                .order(order).userId(customer.getId()).role(ParticipantRole.CUSTOMER).build());
+        entityManager.persist(OrderParticipant.builder()
+                .order(order).userId(owner.getId()).role(ParticipantRole.STORE_OWNER).build());
+        return order.getId();
+    }
+
+    private String statusAndVersion(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status || '/' || version FROM orders WHERE id = ?",
+                String.class, orderId);
+    }
+
+    private String orderStoreStatus(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM order_stores WHERE order_id = ?", String.class, orderId);
+    }
+
+    private static BulkUpdateOrderStatusRequest request(BulkUpdateOrderStatusItemRequest... items) {
+        return BulkUpdateOrderStatusRequest.builder().items(List.of(items)).build();
+    }
+
+    private static BulkUpdateOrderStatusItemRequest item(Long orderId, OrderStatus status, String cancelReason) {
+        return BulkUpdateOrderStatusItemRequest.builder()
+                .orderId(orderId).newStatus(status).cancelReason(cancelReason).build();
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.order.dto.response.OrderResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Cache chi tiết đơn: bản cũ không ghi đè bản mới, load chồng lên invalidate bị bỏ, evict chỉ chạy sau commit
+ */
+class OrderDetailCacheTest {
+
+    private static final Long ORDER = 42L;
+
+    private RedisMessagePublisher redisMessagePublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderDetailCache cache;
+
+    @BeforeEach
+    void setUp() {
+        redisMessagePublisher = mock(RedisMessagePublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OrderDetailCache(redisMessagePublisher, meterRegistry, 100, 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void olderVersionDoesNotReplaceNewerEntry() {
+        OrderResponse newer = response(3L);
+        cache.put(ORDER, newer, cache.beginLoad());
+        cache.put(ORDER, response(2L), cache.beginLoad());
+
+        assertSame(newer, cache.get(ORDER));
+
+        OrderResponse newest = response(4L);
+        cache.put(ORDER, newest, cache.beginLoad());
+        assertSame(newest, cache.get(ORDER));
+        assertEquals(2, meterRegistry.get("order.detail-cache.entry.age").summary().count());
+    }
+
+    @Test
+    void loadStartedBeforeInvalidationIsDiscarded() {
+        long slowLoad = cache.beginLoad();
+        cache.evict(ORDER);
+
+        cache.put(ORDER, response(1L), slowLoad);
+
+        assertNull(cache.get(ORDER));
+        assertEquals(1.0, meterRegistry.get("order.detail-cache.stale.rejected").counter().count());
+
+        // Load bắt đầu sau invalidate thì được cache
+        OrderResponse fresh = response(2L);
+        cache.put(ORDER, fresh, cache.beginLoad());
+        assertSame(fresh, cache.get(ORDER));
+    }
+
+    @Test
+    void evictWaitsForCommitAndSkipsRollback() {
+        cache.put(ORDER, response(1L), cache.beginLoad());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evictAfterCommit(ORDER);
+        assertEquals(1L, cache.get(ORDER).getVersion(), "trước commit vẫn đọc bản cũ");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1L, cache.get(ORDER).getVersion());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evictAfterCommit(List.of(ORDER));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertNull(cache.get(ORDER));
+    }
+
+    @Test
+    void invalidationWithoutEventIsPublishedToOtherNodesAfterCommit() {
+        cache.put(ORDER, response(1L), cache.beginLoad());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateAfterCommit(ORDER);
+        verifyNoInteractions(redisMessagePublisher);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertNull(cache.get(ORDER));
+        verify(redisMessagePublisher).publish("order:invalidate:" + ORDER, Map.of("orderId", ORDER));
+    }
+
+    private static OrderResponse response(Long version) {
+        return OrderResponse.builder().id(ORDER).version(version).build();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
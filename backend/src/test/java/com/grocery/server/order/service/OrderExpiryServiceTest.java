@@ -0,0 +1,190 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.notification.service.NotificationService;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Hủy đơn quá hạn theo lô trên H2: chỉ đơn còn PENDING, chưa thanh toán và đã quá hạn; hoàn kho, order_stores, outbox
+ */
+@DataJpaTest
+@Import({OrderExpiryService.class, StockReservationService.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderExpiryServiceTest {
+
+    @MockBean
+    private RevenueRollupService revenueRollupService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @MockBean
+    private StoreOrderCounterService storeOrderCounterService;
+
+    @MockBean
+    private ResourceVersionService resourceVersionService;
+
+    @MockBean
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private OrderExpiryService orderExpiryService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private User owner;
+    private Store store;
+    private ProductUnitMapping rice;
+
+    private Long stale;
+    private Long paidOnline;
+    private Long fresh;
+    private Long confirmed;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        owner = entityManager.persist(user("0900000002", User.UserRole.STORE));
+        store = entityManager.persist(Store.builder().owner(owner).storeName("Tạp hóa").address("1 Lê Lợi").build());
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("weight").name("Khối lượng").build());
+        Unit unit = entityManager.persist(Unit.builder()
+                .category(category).code("bag").name("Túi").symbol("túi").build());
+        Product product = entityManager.persist(Product.builder().store(store).name("Gạo").build());
+        rice = entityManager.persist(ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel("Túi 5kg")
+                .price(BigDecimal.TEN).stockQuantity(10)
+                .build());
+
+        LocalDateTime twentyMinutesAgo = LocalDateTime.now().minusMinutes(20);
+        stale = order(OrderStatus.PENDING, Payment.PaymentStatus.PENDING, twentyMinutesAgo, 3);
+        paidOnline = order(OrderStatus.PENDING, Payment.PaymentStatus.SUCCESS, twentyMinutesAgo, 1);
+        fresh = order(OrderStatus.PENDING, Payment.PaymentStatus.PENDING, LocalDateTime.now(), 1);
+        confirmed = order(OrderStatus.CONFIRMED, Payment.PaymentStatus.PENDING, twentyMinutesAgo, 1);
+        entityManager.clear();
+    }
+
+    @Test
+    void deadlineIsFifteenMinutesAfterCreation() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+        assertEquals(createdAt.plusMinutes(15), orderExpiryService.deadlineFor(createdAt));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiresOnlyUnpaidPendingOrdersPastTheirDeadline() {
+        int expired = orderExpiryService.expireBatch(List.of(stale, paidOnline, fresh, confirmed));
+        entityManager.clear();
+
+        assertEquals(1, expired);
+        assertEquals("CANCELLED", status(stale));
+        assertEquals(OrderExpiryService.EXPIRED_REASON, jdbcTemplate.queryForObject(
+                "SELECT cancel_reason FROM orders WHERE id = ?", String.class, stale));
+        assertEquals("CANCELLED", jdbcTemplate.queryForObject(
+                "SELECT status FROM order_stores WHERE order_id = ?", String.class, stale));
+        assertEquals("PENDING", status(paidOnline));
+        assertEquals("PENDING", status(fresh));
+        assertEquals("CONFIRMED", status(confirmed));
+        assertEquals(13, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM product_unit_mappings WHERE id = ?", Integer.class, rice.getId()));
+
+        ArgumentCaptor<Map<Long, ?>> events = ArgumentCaptor.forClass(Map.class);
+        verify(orderOutboxService).enqueueAll(eq("status"), events.capture());
+        assertEquals(List.of(stale), List.copyOf(events.getValue().keySet()));
+        verify(storeOrderCounterService).recordTransition(List.of(store.getId()), OrderStatus.PENDING, OrderStatus.CANCELLED);
+        verify(notificationService).enqueue(eq(customer.getId()), anyString(), eq("Đơn hàng #" + stale + " đã bị hủy"),
+                anyString(), eq(stale), eq("ORDER"));
+        verify(notificationService).enqueue(eq(owner.getId()), anyString(), eq("Đơn hàng #" + stale + " bị hủy"),
+                anyString(), eq(stale), eq("ORDER"));
+    }
+
+    @Test
+    void sweepPicksUpOrdersMissingFromTheWheel() {
+        orderExpiryService.sweep();
+        entityManager.clear();
+
+        assertEquals("CANCELLED", status(stale));
+        assertEquals("PENDING", status(paidOnline));
+        assertEquals("PENDING", status(fresh));
+        verify(orderOutboxService, times(1)).enqueueAll(eq("status"), any());
+    }
+
+    private Long order(OrderStatus status, Payment.PaymentStatus paymentStatus, LocalDateTime createdAt, int quantity) {
+        Order order = Order.builder()
+                .customer(customer)
+                .store(store)
+                .status(status)
+                .paymentStatus(paymentStatus)
+                .totalAmount(BigDecimal.TEN)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .build();
+        order.setOrderItems(List.of(OrderItem.builder()
+                .order(order).productUnitMapping(rice)
+                .quantity(BigDecimal.valueOf(quantity)).unitPrice(BigDecimal.TEN)
+                .build()));
+        entityManager.persist(order);
+        entityManager.persist(OrderStore.builder()
+                .order(order).storeId(store.getId()).status(status).createdAt(createdAt).build());
+        entityManager.persist(OrderParticipant.builder()
+                .order(order).userId(customer.getId()).role(OrderParticipant.ParticipantRole.CUSTOMER).build());
+        entityManager.persist(OrderParticipant.builder()
+                .order(order).userId(owner.getId()).role(OrderParticipant.ParticipantRole.STORE_OWNER).build());
+        entityManager.flush();
+        // created_at do @CreationTimestamp điền, ghi đè để đặt tuổi của đơn
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", createdAt, order.getId());
+        return order.getId();
+    }
+
+    private String status(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, orderId);
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+}
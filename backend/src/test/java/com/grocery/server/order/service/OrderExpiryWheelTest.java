@@ -0,0 +1,137 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.notification.service.NotificationService;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Timing wheel: đơn đến hạn được gom và hủy ở tick tương ứng, đơn vòng sau không bị hủy sớm, không đặt trùng
+ */
+class OrderExpiryWheelTest {
+
+    private OrderRepository orderRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderExpiryService service;
+    private final List<Long> expired = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findPendingDeadlines()).thenReturn(new ArrayList<>());
+        when(orderRepository.lockExpirablePending(anyCollection(), any())).thenAnswer(invocation -> {
+            expired.addAll(invocation.<Collection<Long>>getArgument(0));
+            return List.of();
+        });
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void dueOrdersAreExpiredAndFutureOnesWait() throws InterruptedException {
+        List<Object[]> pending = new ArrayList<>();
+        pending.add(new Object[]{1L, LocalDateTime.now().minusMinutes(20)});
+        when(orderRepository.findPendingDeadlines()).thenReturn(pending);
+        service = newService(15);
+
+        service.start();
+        service.schedule(2L, LocalDateTime.now().minusMinutes(16));
+        // Deadline 15 phút nữa = rất nhiều vòng wheel (8 ô × 10 ms) → không được hủy sớm
+        service.schedule(3L, LocalDateTime.now());
+
+        awaitExpired(2);
+        Thread.sleep(300);
+        assertEquals(List.of(1L, 2L), expired.stream().sorted().toList());
+        assertEquals(1.0, scheduled());
+    }
+
+    @Test
+    void sameOrderIsScheduledOnce() {
+        service = newService(0);
+
+        service.schedule(1L, LocalDateTime.now());
+        service.schedule(1L, LocalDateTime.now());
+        assertEquals(1.0, scheduled());
+
+        service.start();
+        awaitExpired(1);
+        assertEquals(List.of(1L), expired);
+        assertEquals(0.0, scheduled());
+    }
+
+    @Test
+    void scheduleWaitsForCommit() {
+        service = newService(15);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.scheduleAfterCommit(1L, LocalDateTime.now());
+        assertEquals(0.0, scheduled());
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0.0, scheduled());
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.scheduleAfterCommit(1L, LocalDateTime.now());
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1.0, scheduled());
+    }
+
+    private OrderExpiryService newService(long ttlMinutes) {
+        return new OrderExpiryService(orderRepository, mock(OrderStoreRepository.class),
+                mock(OrderParticipantRepository.class), mock(StockReservationService.class),
+                mock(RevenueRollupService.class), mock(OrderOutboxService.class), mock(NotificationService.class),
+                mock(StoreOrderCounterService.class), mock(NamedParameterJdbcTemplate.class),
+                mock(PlatformTransactionManager.class), meterRegistry, ttlMinutes, 10, 8, 100);
+    }
+
+    private double scheduled() {
+        return meterRegistry.get("order.expiry.scheduled").gauge().value();
+    }
+
+    private void awaitExpired(int count) {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (expired.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(count, expired.size(), "số đơn đến hạn đã xử lý");
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
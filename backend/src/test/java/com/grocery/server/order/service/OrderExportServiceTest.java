@@ -0,0 +1,185 @@
+package com.grocery.server.order.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.payment.entity.Payment;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Xuất đơn hàng trên H2: NDJSON 1 dòng / đơn (gom dòng hàng), CSV gzip 1 dòng / sản phẩm, lọc qua order_stores
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderExportServiceTest {
+
+    private static final String ADDRESS = "12 Nguyễn Huệ, Quận 1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OrderExportService exportService;
+
+    private User customer;
+    private Store bakery;
+    private ProductUnitMapping bread;
+    private ProductUnitMapping milk;
+
+    private Long twoItems;
+    private Long noItems;
+
+    @BeforeEach
+    void setUp() {
+        // H2 không nhận fetch size âm (giá trị streaming của MySQL)
+        exportService = new OrderExportService(dataSource, objectMapper, 100, 1);
+
+        customer = entityManager.persist(User.builder()
+                .phoneNumber("0900000001").passwordHash("x").fullName("Lan").role(User.UserRole.CUSTOMER).build());
+        User owner = entityManager.persist(User.builder()
+                .phoneNumber("0900000002").passwordHash("x").role(User.UserRole.STORE).build());
+        bakery = entityManager.persist(Store.builder().owner(owner).storeName("Tiệm bánh").address("1 Lê Lợi").build());
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("count").name("Số lượng").build());
+        Unit unit = entityManager.persist(Unit.builder()
+                .category(category).code("piece").name("Cái").symbol("cái").build());
+        bread = entityManager.persist(mapping(unit, "Bánh mì", "", "15000"));
+        milk = entityManager.persist(mapping(unit, "Sữa", "Hộp 1L", "32000"));
+
+        twoItems = order(OrderStatus.DELIVERED, item(bread, 2), item(milk, 1));
+        noItems = order(OrderStatus.CANCELLED);
+        entityManager.persist(OrderStore.builder()
+                .order(entityManager.find(Order.class, twoItems)).storeId(bakery.getId())
+                .status(OrderStatus.DELIVERED).createdAt(LocalDateTime.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void ndjsonWritesOneLinePerOrderWithItsItems() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(OrderExportService.Format.NDJSON, null, null, null, null, out);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(2, exported);
+        assertEquals(2, lines.size());
+
+        JsonNode first = lines.get(0);
+        assertEquals(twoItems.longValue(), first.get("id").asLong());
+        assertEquals("COD", first.get("paymentMethod").asText());
+        assertEquals("Lan", first.get("customerName").asText());
+        assertEquals(2, first.get("items").size());
+        assertEquals("Cái", first.get("items").get(0).get("unitName").asText(), "unit_label trống → tên đơn vị");
+        assertEquals("Hộp 1L", first.get("items").get(1).get("unitName").asText());
+        assertEquals(0, new BigDecimal("30000").compareTo(first.get("items").get(0).get("subtotal").decimalValue()));
+
+        assertEquals(noItems.longValue(), lines.get(1).get("id").asLong());
+        assertEquals(0, lines.get(1).get("items").size());
+    }
+
+    @Test
+    void csvIsGzippedWithOneRowPerItemAndEscapedFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(OrderExportService.Format.CSV, null, null, null, null, out);
+
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] rows = csv.split("\r\n");
+        assertEquals(4, rows.length, "header + 2 sản phẩm + 1 đơn không có sản phẩm");
+        assertTrue(rows[0].startsWith("order_id,created_at,status"));
+        assertTrue(rows[1].startsWith(twoItems + ","));
+        assertTrue(rows[1].contains(",\"" + ADDRESS + "\","), "địa chỉ có dấu phẩy được đặt trong ngoặc kép");
+        assertEquals(",Sữa,Hộp 1L,1.00,32000.00,32000.0000", rows[2].substring(rows[2].indexOf(",Sữa")));
+        assertTrue(rows[3].startsWith(noItems + ",") && rows[3].endsWith(",,,,,,,,,"));
+    }
+
+    @Test
+    void filtersByStoreAndStatus() throws IOException {
+        ByteArrayOutputStream byStore = new ByteArrayOutputStream();
+        ByteArrayOutputStream byStatus = new ByteArrayOutputStream();
+
+        long storeCount = exportService.export(OrderExportService.Format.NDJSON, bakery.getId(), null, null, null, byStore);
+        long statusCount = exportService.export(OrderExportService.Format.NDJSON, null, OrderStatus.CANCELLED,
+                null, null, byStatus);
+
+        assertEquals(1, storeCount);
+        assertEquals(twoItems.longValue(), objectMapper.readTree(byStore.toString(StandardCharsets.UTF_8)).get("id").asLong());
+        assertEquals(1, statusCount);
+        assertEquals(noItems.longValue(), objectMapper.readTree(byStatus.toString(StandardCharsets.UTF_8)).get("id").asLong());
+    }
+
+    private Long order(OrderStatus status, OrderItem... items) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            total = total.add(item.getSubtotal());
+        }
+        Order order = Order.builder()
+                .customer(customer)
+                .status(status)
+                .totalAmount(total)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress(ADDRESS)
+                .orderItems(List.of(items))
+                .build();
+        for (OrderItem item : items) {
+            item.setOrder(order);
+        }
+        entityManager.persist(order);
+        entityManager.persist(Payment.builder()
+                .order(order).paymentMethod(Payment.PaymentMethod.COD).amount(total).build());
+        return order.getId();
+    }
+
+    private static OrderItem item(ProductUnitMapping mapping, int quantity) {
+        return OrderItem.builder()
+                .productUnitMapping(mapping)
+                .quantity(BigDecimal.valueOf(quantity))
+                .unitPrice(mapping.getPrice())
+                .build();
+    }
+
+    private ProductUnitMapping mapping(Unit unit, String name, String label, String price) {
+        Product product = entityManager.persist(Product.builder().store(bakery).name(name).build());
+        return ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel(label)
+                .price(new BigDecimal(price)).stockQuantity(100)
+                .build();
+    }
+}
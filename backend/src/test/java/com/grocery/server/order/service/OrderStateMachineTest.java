@@ -0,0 +1,167 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.request.UpdateOrderStatusRequest;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.UnauthorizedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Bảng chuyển trạng thái phải cho kết quả giống switch cũ trong OrderService.validateStatusTransition
+ */
+class OrderStateMachineTest {
+
+    private static final long CUSTOMER = 1L;
+    private static final long OWNER = 2L;
+    private static final long SHIPPER = 3L;
+    private static final long STRANGER = 9L;
+
+    /** Các cặp switch cũ cho qua khi user có đủ mọi vai trò */
+    private static final Map<OrderStatus, Set<OrderStatus>> LEGACY_ALLOWED = Map.of(
+            OrderStatus.PENDING, EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.CANCELLED),
+            OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.PICKING_UP),
+            OrderStatus.PICKING_UP, EnumSet.of(OrderStatus.DELIVERING),
+            OrderStatus.DELIVERING, EnumSet.of(OrderStatus.DELIVERED));
+
+    private RevenueRollupService revenueRollupService;
+    private OrderStateMachine stateMachine;
+    private OrderParticipants participants;
+
+    @BeforeEach
+    void setUp() {
+        revenueRollupService = mock(RevenueRollupService.class);
+        stateMachine = new OrderStateMachine(revenueRollupService);
+        participants = new OrderParticipants(CUSTOMER, SHIPPER, Set.of(OWNER));
+    }
+
+    @Test
+    void allowsExactlyTheLegacyTransitions() {
+        OrderParticipants everyone = new OrderParticipants(CUSTOMER, CUSTOMER, Set.of(CUSTOMER));
+        UpdateOrderStatusRequest complete = request("Khách đổi ý", "https://cdn/pod.jpg");
+
+        for (OrderStatus from : OrderStatus.values()) {
+            for (OrderStatus to : OrderStatus.values()) {
+                boolean allowed = LEGACY_ALLOWED.getOrDefault(from, Set.of()).contains(to);
+                if (allowed) {
+                    assertDoesNotThrow(() -> stateMachine.resolve(from, to, CUSTOMER, everyone, complete),
+                            from + " → " + to);
+                } else {
+                    assertThrows(BadRequestException.class,
+                            () -> stateMachine.resolve(from, to, CUSTOMER, everyone, complete),
+                            from + " → " + to);
+                }
+            }
+            assertEquals(LEGACY_ALLOWED.getOrDefault(from, Set.of()), stateMachine.targetsFrom(from));
+        }
+    }
+
+    @Test
+    void keepsLegacyRejectionMessages() {
+        assertEquals("Đơn hàng đã ở trạng thái PENDING",
+                rejection(OrderStatus.PENDING, OrderStatus.PENDING));
+        assertEquals("Đơn hàng chỉ có thể chuyển từ PENDING sang CONFIRMED hoặc CANCELLED",
+                rejection(OrderStatus.PENDING, OrderStatus.DELIVERED));
+        assertEquals("Đơn hàng đã được xác nhận, không thể hủy. Vui lòng liên hệ cửa hàng.",
+                rejection(OrderStatus.CONFIRMED, OrderStatus.CANCELLED));
+        assertEquals("Đơn hàng đang giao không thể hủy. Chỉ có thể chuyển sang DELIVERED",
+                rejection(OrderStatus.DELIVERING, OrderStatus.CANCELLED));
+        assertEquals("Đơn hàng đã hoàn tất/hủy, không thể thay đổi trạng thái",
+                rejection(OrderStatus.CANCELLED, OrderStatus.PENDING));
+    }
+
+    @Test
+    void onlyRelatedStoreOwnerOrAdminConfirms() {
+        UpdateOrderStatusRequest request = request(null, null);
+
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CONFIRMED,
+                OWNER, participants, request));
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CONFIRMED,
+                STRANGER, true, participants, request));
+        UnauthorizedException ex = assertThrows(UnauthorizedException.class,
+                () -> stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CONFIRMED, CUSTOMER, participants, request));
+        assertEquals("Chỉ chủ cửa hàng liên quan mới có thể xác nhận đơn hàng", ex.getMessage());
+    }
+
+    @Test
+    void cancelNeedsParticipantAndReason() {
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CANCELLED,
+                CUSTOMER, participants, request("Đặt nhầm", null)));
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CANCELLED,
+                OWNER, participants, request("Hết hàng", null)));
+        assertThrows(UnauthorizedException.class, () -> stateMachine.resolve(OrderStatus.PENDING,
+                OrderStatus.CANCELLED, SHIPPER, participants, request("Đặt nhầm", null)));
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> stateMachine.resolve(
+                OrderStatus.PENDING, OrderStatus.CANCELLED, CUSTOMER, participants, request("  ", null)));
+        assertEquals("Lý do hủy đơn không được để trống", ex.getMessage());
+    }
+
+    @Test
+    void onlyAssignedShipperMovesDelivery() {
+        UpdateOrderStatusRequest request = request(null, "https://cdn/pod.jpg");
+        OrderParticipants unassigned = new OrderParticipants(CUSTOMER, null, Set.of(OWNER));
+
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.CONFIRMED, OrderStatus.PICKING_UP,
+                STRANGER, participants, request));
+        assertDoesNotThrow(() -> stateMachine.resolve(OrderStatus.PICKING_UP, OrderStatus.DELIVERING,
+                SHIPPER, participants, request));
+        assertThrows(UnauthorizedException.class, () -> stateMachine.resolve(OrderStatus.PICKING_UP,
+                OrderStatus.DELIVERING, STRANGER, participants, request));
+        assertThrows(UnauthorizedException.class, () -> stateMachine.resolve(OrderStatus.PICKING_UP,
+                OrderStatus.DELIVERING, SHIPPER, unassigned, request));
+        assertThrows(UnauthorizedException.class, () -> stateMachine.resolve(OrderStatus.DELIVERING,
+                OrderStatus.DELIVERED, OWNER, participants, request));
+    }
+
+    @Test
+    void deliveryNeedsProofImage() {
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> stateMachine.resolve(
+                OrderStatus.DELIVERING, OrderStatus.DELIVERED, SHIPPER, participants, request(null, null)));
+        assertEquals("Ảnh chứng minh giao hàng không được để trống", ex.getMessage());
+    }
+
+    @Test
+    void sideEffectsUpdateRevenueRollups() {
+        Order order = new Order();
+
+        stateMachine.applySideEffects(stateMachine.resolve(OrderStatus.DELIVERING, OrderStatus.DELIVERED,
+                SHIPPER, participants, request(null, "https://cdn/pod.jpg")), order);
+        verify(revenueRollupService).recordDelivered(order);
+
+        stateMachine.applySideEffects(stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CANCELLED,
+                CUSTOMER, participants, request("Đặt nhầm", null)), order);
+        verify(revenueRollupService).recordCancelled(order);
+    }
+
+    @Test
+    void confirmHasNoSideEffects() {
+        stateMachine.applySideEffects(stateMachine.resolve(OrderStatus.PENDING, OrderStatus.CONFIRMED,
+                OWNER, participants, request(null, null)), new Order());
+        verifyNoInteractions(revenueRollupService);
+    }
+
+    private String rejection(OrderStatus from, OrderStatus to) {
+        return assertThrows(BadRequestException.class,
+                () -> stateMachine.resolve(from, to, CUSTOMER, participants, request("x", "x"))).getMessage();
+    }
+
+    private static UpdateOrderStatusRequest request(String cancelReason, String podImageUrl) {
+        return UpdateOrderStatusRequest.builder()
+                .cancelReason(cancelReason)
+                .podImageUrl(podImageUrl)
+                .build();
+    }
+}
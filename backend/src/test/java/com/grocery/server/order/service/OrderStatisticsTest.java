@@ -0,0 +1,85 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.response.OrderStatisticsResponse;
+import com.grocery.server.order.dto.response.OrderStatisticsResponse.MonthlyRevenueDto;
+import com.grocery.server.order.entity.RevenueRollup;
+import com.grocery.server.order.repository.RevenueRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Thống kê doanh thu đọc từ revenue_rollups: 12 tháng gần nhất (gồm tháng hiện tại) như khi còn quét bảng orders
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderStatisticsTest {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Mock
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    private final LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+    private final List<RevenueRollup> rollups = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // 24 tháng, tháng i trước tháng hiện tại có doanh thu 100 * (i + 1)
+        for (int i = 23; i >= 0; i--) {
+            rollups.add(RevenueRollup.builder()
+                    .granularity(RevenueRollup.Granularity.MONTH)
+                    .storeId(RevenueRollup.GLOBAL_STORE_ID)
+                    .periodStart(currentMonth.minusMonths(i))
+                    .revenue(BigDecimal.valueOf(100L * (i + 1)))
+                    .orderCount(2L)
+                    .deliveredCount(1L)
+                    .build());
+        }
+        when(revenueRollupRepository.findByGranularityAndStoreIdAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(
+                eq(RevenueRollup.Granularity.MONTH), eq(RevenueRollup.GLOBAL_STORE_ID), any(LocalDate.class)))
+                .thenAnswer(invocation -> {
+                    LocalDate from = invocation.getArgument(2);
+                    return rollups.stream().filter(r -> !r.getPeriodStart().isBefore(from)).toList();
+                });
+        when(revenueRollupRepository.sumAllTime(RevenueRollup.GLOBAL_STORE_ID))
+                .thenReturn(List.<Object[]>of(new Object[]{new BigDecimal("30000"), 48L}));
+    }
+
+    @Test
+    void monthlyRevenueCoversTheLastTwelveMonths() {
+        OrderStatisticsResponse statistics = orderService.getOrderStatistics();
+
+        List<String> months = statistics.getMonthlyRevenue().stream().map(MonthlyRevenueDto::getMonth).toList();
+        assertEquals(12, months.size());
+        assertEquals(currentMonth.minusMonths(11).format(MONTH), months.get(0));
+        assertEquals(currentMonth.format(MONTH), months.get(11));
+    }
+
+    @Test
+    void currentAndPreviousMonthDriveGrowthAndTotalsComeFromTheSum() {
+        OrderStatisticsResponse statistics = orderService.getOrderStatistics();
+
+        assertEquals(0, new BigDecimal("100").compareTo(statistics.getCurrentMonthRevenue()));
+        assertEquals(0, new BigDecimal("200").compareTo(statistics.getPreviousMonthRevenue()));
+        assertEquals(-50.0, statistics.getMonthOverMonthGrowth());
+        assertEquals(0, new BigDecimal("30000").compareTo(statistics.getTotalRevenue()));
+        assertEquals(48L, statistics.getTotalOrders());
+    }
+}
@@ -0,0 +1,158 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.service.OrderOutboxService;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderParticipant;
+import com.grocery.server.order.entity.OrderStore;
+import com.grocery.server.order.repository.OrderParticipantRepository;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Chuyển trạng thái bằng compare-and-set trên H2: bản đọc cũ (status, version) không ghi đè thay đổi của request khác
+ */
+@DataJpaTest
+@Import({OrderTransitionService.class, OrderAcceptanceService.class})
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class OrderTransitionServiceTest {
+
+    @MockBean
+    private StoreOrderCounterService storeOrderCounterService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private OrderTransitionService orderTransitionService;
+
+    @Autowired
+    private OrderAcceptanceService orderAcceptanceService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderParticipantRepository orderParticipantRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User firstShipper;
+    private User secondShipper;
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        User customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        firstShipper = entityManager.persist(user("0900000002", User.UserRole.SHIPPER));
+        secondShipper = entityManager.persist(user("0900000003", User.UserRole.SHIPPER));
+        Order order = entityManager.persist(Order.builder()
+                .customer(customer)
+                .totalAmount(BigDecimal.TEN)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .build());
+        entityManager.persist(OrderStore.builder()
+                .order(order).storeId(7L).status(OrderStatus.PENDING).createdAt(order.getCreatedAt()).build());
+        entityManager.flush();
+        entityManager.clear();
+        orderId = order.getId();
+    }
+
+    @Test
+    void appliedTransitionBumpsVersionAndSyncsOrderStores() {
+        Order order = orderRepository.findById(orderId).orElseThrow();
+
+        OrderTransitionResult result = orderTransitionService.changeStatus(order, OrderStatus.CANCELLED, "Đặt nhầm", null);
+
+        assertTrue(result.isApplied());
+        Order saved = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.CANCELLED, saved.getStatus());
+        assertEquals("Đặt nhầm", saved.getCancelReason());
+        assertEquals(order.getVersion() + 1, saved.getVersion());
+        assertEquals("CANCELLED", orderStoreStatus());
+        verify(storeOrderCounterService).recordTransition(List.of(7L), OrderStatus.PENDING, OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void staleSnapshotIsReportedAsConflictWithoutWriting() {
+        Order customerView = orderRepository.findById(orderId).orElseThrow();
+        entityManager.clear();
+        Order storeView = orderRepository.findById(orderId).orElseThrow();
+        assertTrue(orderTransitionService.changeStatus(storeView, OrderStatus.CONFIRMED, null, null).isApplied());
+
+        // Khách hủy trên bản đọc trước khi cửa hàng xác nhận
+        OrderTransitionResult result = orderTransitionService.changeStatus(customerView, OrderStatus.CANCELLED, "Đổi ý", null);
+
+        assertFalse(result.isApplied());
+        assertEquals(OrderStatus.CONFIRMED, result.currentStatus());
+        assertEquals(OrderStatus.CONFIRMED, orderRepository.findStatusById(orderId).orElseThrow());
+        assertEquals("CONFIRMED", orderStoreStatus());
+        verify(storeOrderCounterService, never())
+                .recordTransition(any(), eq(OrderStatus.PENDING), eq(OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void onlyOneOfTwoShippersReadingTheSameOrderGetsIt() {
+        Order firstRead = orderRepository.findById(orderId).orElseThrow();
+        entityManager.clear();
+        Order secondRead = orderRepository.findById(orderId).orElseThrow();
+
+        OrderTransitionResult first = orderTransitionService.assignShipper(firstRead, firstShipper, OrderStatus.CONFIRMED);
+        OrderTransitionResult second = orderTransitionService.assignShipper(secondRead, secondShipper, OrderStatus.CONFIRMED);
+
+        assertTrue(first.isApplied());
+        assertFalse(second.isApplied());
+        entityManager.clear();
+        assertEquals(firstShipper.getId(), orderRepository.findById(orderId).orElseThrow().getShipper().getId());
+        List<OrderParticipant> participants = orderParticipantRepository.findByOrderId(orderId);
+        assertEquals(1, participants.size());
+        assertEquals(firstShipper.getId(), participants.get(0).getUserId());
+    }
+
+    @Test
+    void acceptOrderRejectsTheSecondShipper() {
+        OrderAcceptanceService.OrderAcceptanceResult first = orderAcceptanceService.acceptOrder(orderId, firstShipper.getId());
+        entityManager.clear();
+        OrderAcceptanceService.OrderAcceptanceResult second = orderAcceptanceService.acceptOrder(orderId, secondShipper.getId());
+
+        assertTrue(first.isSuccess());
+        assertEquals(OrderStatus.CONFIRMED, first.getOrder().getStatus());
+        assertFalse(second.isSuccess());
+        assertEquals("Order is no longer available. Status: CONFIRMED", second.getMessage());
+        verify(orderOutboxService, times(1)).enqueue(eq("accepted"), eq(orderId), any());
+    }
+
+    private String orderStoreStatus() {
+        return jdbcTemplate.queryForObject("SELECT status FROM order_stores WHERE order_id = ?", String.class, orderId);
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.entity.OrderItem;
+import com.grocery.server.order.entity.RevenueRollup;
+import com.grocery.server.order.repository.RevenueRollupRepository;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * revenue_rollups trên H2 (chế độ MySQL cho ON DUPLICATE KEY UPDATE):
+ * cộng dồn theo ngày / tháng, toàn hệ thống / cửa hàng và rebuild() cho cùng kết quả
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RevenueRollupService.class)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class RevenueRollupServiceTest {
+
+    private static final LocalDateTime MARCH_2 = LocalDateTime.of(2026, 3, 2, 9, 0);
+    private static final LocalDateTime MARCH_20 = LocalDateTime.of(2026, 3, 20, 18, 30);
+    private static final LocalDateTime APRIL_1 = LocalDateTime.of(2026, 4, 1, 7, 15);
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Store bakery;
+    private Store grocer;
+    private ProductUnitMapping bread;
+    private ProductUnitMapping rice;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(user("0900000001", User.UserRole.CUSTOMER));
+        bakery = store("0900000002", "Tiệm bánh");
+        grocer = store("0900000003", "Tạp hóa");
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("count").name("Số lượng").build());
+        Unit unit = entityManager.persist(Unit.builder()
+                .category(category).code("piece").name("Cái").symbol("cái").build());
+        bread = entityManager.persist(mapping(bakery, unit, "Bánh mì", "15000"));
+        rice = entityManager.persist(mapping(grocer, unit, "Gạo", "120000"));
+    }
+
+    @Test
+    void incrementalUpdatesSplitByDayMonthAndStore() {
+        // Đơn 2 cửa hàng giao thành công, đơn cùng ngày bị hủy, đơn tháng sau còn chờ
+        Order delivered = order(MARCH_2, OrderStatus.DELIVERED, item(bread, 2), item(rice, 1));
+        Order cancelled = order(MARCH_2, OrderStatus.CANCELLED, item(rice, 3));
+        Order pending = order(APRIL_1, OrderStatus.PENDING, item(bread, 1));
+        revenueRollupService.recordOrderCreated(delivered, Set.of(bakery.getId(), grocer.getId()));
+        revenueRollupService.recordOrderCreated(cancelled, Set.of(grocer.getId()));
+        revenueRollupService.recordOrderCreated(pending, Set.of(bakery.getId()));
+        revenueRollupService.recordDelivered(delivered);
+        revenueRollupService.recordCancelled(Map.of(cancelled.getId(), cancelled.getCreatedAt()),
+                Map.of(cancelled.getId(), List.of(grocer.getId())));
+
+        Map<String, String> rows = rollups();
+
+        assertEquals("150000.00/2/1/1", rows.get("DAY 2026-03-02 0"));
+        assertEquals("150000.00/2/1/1", rows.get("MONTH 2026-03-01 0"));
+        assertEquals("30000.00/1/1/0", rows.get("MONTH 2026-03-01 " + bakery.getId()));
+        assertEquals("120000.00/2/1/1", rows.get("MONTH 2026-03-01 " + grocer.getId()));
+        assertEquals("0.00/1/0/0", rows.get("MONTH 2026-04-01 " + bakery.getId()));
+        assertEquals(10, rows.size(), "DAY + MONTH × (toàn hệ thống + cửa hàng) của 2 tháng");
+    }
+
+    @Test
+    void rebuildMatchesIncrementalTotals() {
+        Order delivered = order(MARCH_2, OrderStatus.DELIVERED, item(bread, 2), item(rice, 1));
+        Order cancelled = order(MARCH_20, OrderStatus.CANCELLED, item(bread, 4));
+        Order pending = order(APRIL_1, OrderStatus.PENDING, item(rice, 2));
+        revenueRollupService.recordOrderCreated(delivered, Set.of(bakery.getId(), grocer.getId()));
+        revenueRollupService.recordOrderCreated(cancelled, Set.of(bakery.getId()));
+        revenueRollupService.recordOrderCreated(pending, Set.of(grocer.getId()));
+        revenueRollupService.recordDelivered(delivered);
+        revenueRollupService.recordCancelled(cancelled);
+        Map<String, String> incremental = rollups();
+
+        // Lệch do lỗi ghi cộng dồn → rebuild sửa lại từ bảng orders
+        jdbcTemplate.update("UPDATE revenue_rollups SET order_count = order_count + 5");
+        revenueRollupService.rebuild();
+
+        assertEquals(incremental, rollups());
+    }
+
+    /**
+     * "granularity period_start store_id" → "revenue/order_count/delivered_count/cancelled_count", bỏ dòng toàn 0
+     */
+    private Map<String, String> rollups() {
+        entityManager.clear();
+        Map<String, String> rows = new TreeMap<>();
+        for (RevenueRollup r : revenueRollupRepository.findAll()) {
+            if (r.getOrderCount() == 0 && r.getDeliveredCount() == 0 && r.getCancelledCount() == 0) {
+                continue;
+            }
+            rows.put(r.getGranularity() + " " + r.getPeriodStart() + " " + r.getStoreId(),
+                    r.getRevenue().setScale(2) + "/" + r.getOrderCount() + "/"
+                            + r.getDeliveredCount() + "/" + r.getCancelledCount());
+        }
+        return rows;
+    }
+
+    private Order order(LocalDateTime createdAt, OrderStatus status, OrderItem... items) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            total = total.add(item.getSubtotal());
+        }
+        Order order = Order.builder()
+                .customer(customer)
+                .status(status)
+                .totalAmount(total)
+                .shippingFee(BigDecimal.ZERO)
+                .deliveryAddress("1 Lê Lợi")
+                .orderItems(List.of(items))
+                .build();
+        for (OrderItem item : items) {
+            item.setOrder(order);
+        }
+        entityManager.persistAndFlush(order);
+        // created_at do @CreationTimestamp điền, ghi đè để cố định ngày
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", createdAt, order.getId());
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+
+    private static OrderItem item(ProductUnitMapping mapping, int quantity) {
+        return OrderItem.builder()
+                .productUnitMapping(mapping)
+                .quantity(BigDecimal.valueOf(quantity))
+                .unitPrice(mapping.getPrice())
+                .build();
+    }
+
+    private ProductUnitMapping mapping(Store store, Unit unit, String name, String price) {
+        Product product = entityManager.persist(Product.builder().store(store).name(name).build());
+        return ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel("1 cái")
+                .price(new BigDecimal(price)).stockQuantity(100)
+                .build();
+    }
+
+    private Store store(String ownerPhone, String name) {
+        User owner = entityManager.persist(user(ownerPhone, User.UserRole.STORE));
+        return entityManager.persist(Store.builder().owner(owner).storeName(name).address("1 Lê Lợi").build());
+    }
+
+    private static User user(String phone, User.UserRole role) {
+        return User.builder().phoneNumber(phone).passwordHash("x").role(role).build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.response.OrderResponse;
+import com.grocery.server.order.entity.Order;
+import com.grocery.server.order.repository.OrderRepository;
+import com.grocery.server.payment.entity.Payment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dispatch board: thay đổi theo event xảy ra trong lúc đang đọc database không bị kết quả đọc cũ ghi đè
+ */
+class ShipperDispatchBoardTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    private OrderRepository orderRepository;
+    private ShipperDispatchBoard board;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        OrderResponseMapper mapper = mock(OrderResponseMapper.class);
+        when(mapper.toResponse(any())).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            return OrderResponse.builder().id(order.getId()).createdAt(order.getCreatedAt()).build();
+        });
+        board = new ShipperDispatchBoard(orderRepository, mapper, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void reconcileReplacesTheBoard() {
+        when(orderRepository.findAvailableOrdersForShippers()).thenReturn(List.of(order(2L), order(1L)));
+        board.reconcile();
+        assertEquals(List.of(1L, 2L), ids());
+
+        when(orderRepository.findAvailableOrdersForShippers()).thenReturn(List.of(order(3L)));
+        board.reconcile();
+        assertEquals(List.of(3L), ids());
+    }
+
+    @Test
+    void orderAcceptedDuringReconcileStaysOffTheBoard() {
+        when(orderRepository.findAvailableOrdersForShippers()).thenReturn(List.of(order(1L), order(2L)));
+        board.reconcile();
+
+        // Shipper nhận đơn 1 sau khi query đã đọc xong nhưng trước khi kết quả được áp dụng
+        when(orderRepository.findAvailableOrdersForShippers()).thenAnswer(invocation -> {
+            board.remove(1L);
+            return List.of(order(1L), order(2L), order(3L));
+        });
+        board.reconcile();
+
+        assertEquals(List.of(2L, 3L), ids());
+    }
+
+    @Test
+    void orderAcceptedDuringRefreshStaysOffTheBoard() {
+        when(orderRepository.findAllByIdWithFullDetails(anyCollection())).thenAnswer(invocation -> {
+            board.remove(1L);
+            return List.of(order(1L), order(2L));
+        });
+
+        board.refresh(List.of(1L, 2L));
+
+        assertEquals(List.of(2L), ids());
+    }
+
+    @Test
+    void changesBeforeTheReadAreOverwritten() {
+        board.remove(1L);
+        when(orderRepository.findAvailableOrdersForShippers()).thenReturn(List.of(order(1L)));
+
+        board.reconcile();
+
+        assertEquals(List.of(1L), ids(), "đơn lên lại bảng nếu database (đọc sau remove) vẫn thấy đơn chờ nhận");
+    }
+
+    private List<Long> ids() {
+        return board.getAvailableOrders().stream().map(OrderResponse::getId).toList();
+    }
+
+    private static Order order(Long id) {
+        return Order.builder()
+                .id(id)
+                .status(Order.OrderStatus.CONFIRMED)
+                .payments(List.of(Payment.builder().paymentMethod(Payment.PaymentMethod.COD).build()))
+                .createdAt(NOW.plusMinutes(id))
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.grocery.server.order.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chỉ mục vị trí shipper: K gần nhất trong bán kính (kể cả qua ranh giới ô lưới), bỏ vị trí cũ và bản cập nhật đến trễ
+ */
+class ShipperLocationIndexTest {
+
+    private static final double LAT = 10.7725;
+    private static final double LNG = 106.698;
+    /** ~1 km theo vĩ độ */
+    private static final double KM = 1 / 111.32;
+
+    private ShipperLocationIndex index;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        index = new ShipperLocationIndex(60_000, new SimpleMeterRegistry());
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void returnsNearestWithinRadiusSortedByDistance() {
+        index.update(1L, "0900000001", LAT + 3 * KM, LNG, now);
+        index.update(2L, "0900000002", LAT + 0.5 * KM, LNG, now);
+        index.update(3L, "0900000003", LAT - 1.5 * KM, LNG, now);
+        index.update(4L, "0900000004", LAT + 8 * KM, LNG, now);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(index.findNearest(LAT, LNG, 5, 10, Set.of())));
+        assertEquals(List.of(2L, 3L), ids(index.findNearest(LAT, LNG, 5, 2, Set.of())));
+        assertEquals(List.of(3L, 1L), ids(index.findNearest(LAT, LNG, 5, 10, Set.of(2L))));
+        double distance = index.findNearest(LAT, LNG, 5, 1, Set.of()).get(0).distanceKm();
+        assertTrue(Math.abs(distance - 0.5) < 0.01, "khoảng cách haversine: " + distance);
+    }
+
+    @Test
+    void movingShipperChangesCellAndStaleOrOutOfOrderUpdatesAreIgnored() {
+        index.update(1L, "0900000001", LAT + 20 * KM, LNG, now);
+        index.update(1L, "0900000001", LAT + 0.2 * KM, LNG, now + 1);
+        // Event Pub/Sub đến trễ mang vị trí cũ
+        index.update(1L, "0900000001", LAT + 20 * KM, LNG, now - 1);
+        index.update(2L, "0900000002", LAT, LNG + 0.1 * KM, now - 120_000);
+
+        assertEquals(List.of(1L), ids(index.findNearest(LAT, LNG, 1, 10, Set.of())));
+        assertEquals(List.of(), ids(index.findNearest(LAT + 20 * KM, LNG, 1, 10, Set.of())));
+
+        index.purgeStale();
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeByPrincipalTakesShipperOffline() {
+        index.update(1L, "0900000001", LAT, LNG, now);
+
+        assertEquals(1L, index.removeByPrincipal("0900000001"));
+        assertNull(index.removeByPrincipal("0900000001"));
+        assertEquals(List.of(), ids(index.findNearest(LAT, LNG, 1, 10, Set.of())));
+    }
+
+    private static List<Long> ids(List<ShipperLocationIndex.NearbyShipper> shippers) {
+        return shippers.stream().map(s -> s.position().shipperId()).toList();
+    }
+}
@@ -0,0 +1,207 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.order.dto.request.CreateOrderItemRequest;
+import com.grocery.server.order.dto.request.CreateStockHoldRequest;
+import com.grocery.server.order.dto.response.StockHoldResponse;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.UnauthorizedException;
+import com.grocery.server.store.entity.Store;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Giữ hàng checkout với registry trong bộ nhớ (không có Redis); tồn kho lấy từ StockReservationService giả lập
+ */
+class StockHoldServiceTest {
+
+    private static final long CUSTOMER_A = 1001L;
+    private static final long CUSTOMER_B = 1002L;
+    private static final long RICE = 1L;
+    private static final long EGGS = 2L;
+
+    private final Map<Long, Integer> stock = new HashMap<>();
+    private StockReservationService stockReservationService;
+    private StockHoldService service;
+
+    @BeforeEach
+    void setUp() {
+        stock.put(RICE, 5);
+        stock.put(EGGS, 10);
+        stockReservationService = mock(StockReservationService.class);
+        when(stockReservationService.loadMappings(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, ProductUnitMapping> mappings = new HashMap<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                mappings.put(id, mapping(id, stock.get(id)));
+            }
+            return mappings;
+        });
+        when(stockReservationService.currentStock(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, Integer> current = new HashMap<>();
+            invocation.<Collection<Long>>getArgument(0).forEach(id -> current.put(id, stock.get(id)));
+            return current;
+        });
+        service = newService(600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rejectsHoldBeyondStockLeftByOtherHolds() {
+        service.createHold(request(RICE, 3), CUSTOMER_A);
+
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> service.createHold(request(RICE, 3), CUSTOMER_B));
+        assertEquals("Sản phẩm 'Gạo - Túi' chỉ còn 2 có thể đặt (yêu cầu: 3)", ex.getMessage());
+        service.createHold(request(RICE, 2), CUSTOMER_B);
+
+        assertEquals(Map.of(RICE, 5), service.heldByOthers(List.of(RICE, EGGS), null));
+    }
+
+    @Test
+    void newHoldReplacesCustomersPreviousHold() {
+        StockHoldResponse first = service.createHold(request(RICE, 3), CUSTOMER_A);
+        StockHoldResponse second = service.createHold(request(RICE, 4, EGGS, 1), CUSTOMER_A);
+
+        assertNull(service.findActiveHold(first.getHoldId(), CUSTOMER_A));
+        assertNotNull(service.findActiveHold(second.getHoldId(), CUSTOMER_A));
+        assertEquals(Map.of(RICE, 4, EGGS, 1), service.heldByOthers(List.of(RICE, EGGS), null));
+    }
+
+    @Test
+    void holdBelongsToItsCustomer() {
+        String holdId = service.createHold(request(RICE, 3), CUSTOMER_A).getHoldId();
+
+        assertThrows(UnauthorizedException.class, () -> service.release(holdId, CUSTOMER_B));
+        assertThrows(UnauthorizedException.class, () -> service.findActiveHold(holdId, CUSTOMER_B));
+        assertEquals(Map.of(RICE, 3), service.heldByOthers(List.of(RICE), null));
+
+        service.release(holdId, CUSTOMER_A);
+        assertEquals(Map.of(), service.heldByOthers(List.of(RICE), null));
+    }
+
+    @Test
+    void rejectsHoldWhenStockChangedSinceItWasRead() {
+        // Đơn khác trừ kho và commit giữa lúc load biến thể và lúc ghi hold
+        when(stockReservationService.currentStock(anyCollection())).thenReturn(Map.of(RICE, 2));
+
+        assertThrows(BadRequestException.class, () -> service.createHold(request(RICE, 3), CUSTOMER_A));
+        assertEquals(Map.of(), service.heldByOthers(List.of(RICE), null), "hold bị từ chối không còn trong registry");
+    }
+
+    @Test
+    void claimReportsOthersHoldsAndBlocksConcurrentHolds() {
+        service.createHold(request(RICE, 2), CUSTOMER_B);
+        TransactionSynchronizationManager.initSynchronization();
+
+        Map<Long, Integer> reserved = service.claimForOrder(Map.of(RICE, 3), null);
+
+        assertEquals(Map.of(RICE, 2), reserved);
+        // Đơn đang trừ 3, khách B giữ 2 → không còn gì để giữ cho tới khi transaction kết thúc
+        assertThrows(BadRequestException.class, () -> service.createHold(request(RICE, 1), CUSTOMER_A));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(Map.of(RICE, 2), service.heldByOthers(List.of(RICE), null), "claim được nhả khi rollback");
+    }
+
+    @Test
+    void orderFromHoldReleasesTheHoldAfterCommit() {
+        service.createHold(request(RICE, 2), CUSTOMER_B);
+        String holdId = service.createHold(request(RICE, 3, EGGS, 4), CUSTOMER_A).getHoldId();
+        StockHoldService.StockHold hold = service.findActiveHold(holdId, CUSTOMER_A);
+        TransactionSynchronizationManager.initSynchronization();
+
+        Map<Long, Integer> reserved = service.claimForOrder(Map.of(RICE, 3), hold);
+
+        assertEquals(Map.of(RICE, 2), reserved, "phần của chính khách A không bị chừa lại");
+        assertEquals(Map.of(RICE, 5, EGGS, 4), service.heldByOthers(List.of(RICE, EGGS), null));
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertNull(service.findActiveHold(holdId, CUSTOMER_A));
+        assertEquals(Map.of(RICE, 2), service.heldByOthers(List.of(RICE, EGGS), null),
+                "hold của khách B còn, phần trứng không đặt được nhả");
+    }
+
+    @Test
+    void orderBeyondOwnHoldClaimsTheDifference() {
+        String holdId = service.createHold(request(RICE, 1), CUSTOMER_A).getHoldId();
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.claimForOrder(Map.of(RICE, 3), service.findActiveHold(holdId, CUSTOMER_A));
+
+        assertEquals(Map.of(RICE, 3), service.heldByOthers(List.of(RICE), null));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(Map.of(RICE, 1), service.heldByOthers(List.of(RICE), null), "rollback → hold của khách còn nguyên");
+    }
+
+    @Test
+    void expiredHoldsAreReleased() {
+        StockHoldService expiring = newService(-1);
+        String holdId = expiring.createHold(request(RICE, 3), CUSTOMER_A).getHoldId();
+
+        assertNull(expiring.findActiveHold(holdId, CUSTOMER_A));
+        assertEquals(1, expiring.sweepExpired());
+        assertEquals(Map.of(), expiring.heldByOthers(List.of(RICE), null));
+        assertEquals(0, expiring.sweepExpired());
+    }
+
+    private StockHoldService newService(long ttlMs) {
+        return new StockHoldService(stockReservationService, null, new SimpleMeterRegistry(), ttlMs, 3_600_000);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private static ProductUnitMapping mapping(Long id, int stockQuantity) {
+        Store store = Store.builder().id(1L).storeName("Tạp hóa").isOpen(true).build();
+        return ProductUnitMapping.builder()
+                .id(id)
+                .product(Product.builder().id(id).name("Gạo").store(store).build())
+                .unitLabel("Túi")
+                .stockQuantity(stockQuantity)
+                .build();
+    }
+
+    private static CreateStockHoldRequest request(Object... mappingAndQuantity) {
+        List<CreateOrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < mappingAndQuantity.length; i += 2) {
+            items.add(CreateOrderItemRequest.builder()
+                    .productUnitMappingId((Long) mappingAndQuantity[i])
+                    .quantity(BigDecimal.valueOf((Integer) mappingAndQuantity[i + 1]))
+                    .build());
+        }
+        return CreateStockHoldRequest.builder().items(items).build();
+    }
+}
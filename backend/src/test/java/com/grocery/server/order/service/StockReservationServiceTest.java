@@ -0,0 +1,154 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import com.grocery.server.shared.exception.BadRequestException;
+import com.grocery.server.shared.exception.ResourceNotFoundException;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Trừ / hoàn kho theo lô trên H2: UPDATE có điều kiện cho cả giỏ, chừa lại phần khách khác đang giữ
+ */
+@DataJpaTest
+@Import(StockReservationService.class)
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class StockReservationServiceTest {
+
+    @MockBean
+    private ResourceVersionService resourceVersionService;
+
+    @MockBean
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long rice;
+    private Long eggs;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(User.builder()
+                .phoneNumber("0900000001").passwordHash("x").role(User.UserRole.STORE).build());
+        Store store = entityManager.persist(Store.builder()
+                .owner(owner).storeName("Tạp hóa").address("1 Lê Lợi").build());
+        Product product = entityManager.persist(Product.builder().store(store).name("Gạo").build());
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("count").name("Số lượng").build());
+        Unit unit = entityManager.persist(Unit.builder()
+                .category(category).code("bag").name("Túi").symbol("túi").build());
+        rice = entityManager.persist(mapping(product, unit, "Túi 5kg", 5)).getId();
+        eggs = entityManager.persist(mapping(product, unit, "Vỉ 10", 10)).getId();
+        entityManager.flush();
+    }
+
+    private static ProductUnitMapping mapping(Product product, Unit unit, String label, int stock) {
+        return ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel(label)
+                .price(BigDecimal.TEN).stockQuantity(stock)
+                .build();
+    }
+
+    @Test
+    void deductsEveryVariantOfTheCart() {
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(List.of(eggs, rice, rice));
+
+        stockReservationService.deductStock(Map.of(rice, 5, eggs, 3), mappings, Map.of());
+
+        assertEquals(0, stock(rice));
+        assertEquals(7, stock(eggs));
+    }
+
+    @Test
+    void rejectsTheCartWhenAnyVariantIsShort() {
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(List.of(rice, eggs));
+
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> stockReservationService.deductStock(Map.of(rice, 1, eggs, 11), mappings, Map.of()));
+
+        assertEquals("Sản phẩm 'Gạo - Vỉ 10' không đủ hàng (yêu cầu: 11)", ex.getMessage());
+        assertEquals(10, stock(eggs), "không bao giờ bán âm kho");
+    }
+
+    @Test
+    void loadMappingsRejectsUnknownVariant() {
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
+                () -> stockReservationService.loadMappings(List.of(rice, 999_999L)));
+        assertEquals("Không tìm thấy biến thể sản phẩm ID: 999999", ex.getMessage());
+    }
+
+    @Test
+    void restoreAddsQuantitiesBack() {
+        stockReservationService.restoreStock(Map.of(rice, 2, eggs, 5));
+
+        assertEquals(7, stock(rice));
+        assertEquals(15, stock(eggs));
+    }
+
+    @Test
+    void deductionLeavesStockHeldByOthers() {
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(List.of(rice));
+
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> stockReservationService.deductStock(Map.of(rice, 2), mappings, Map.of(rice, 4)));
+        assertEquals("Sản phẩm 'Gạo - Túi 5kg' không đủ hàng (yêu cầu: 2)", ex.getMessage());
+        stockReservationService.deductStock(Map.of(rice, 1), mappings, Map.of(rice, 4));
+
+        assertEquals(4, stock(rice));
+    }
+
+    @Test
+    void committedStockIsPushedToSearchIndex() {
+        Map<Long, ProductUnitMapping> mappings = stockReservationService.loadMappings(List.of(rice, eggs));
+
+        stockReservationService.deductStock(Map.of(rice, 2, eggs, 1), mappings, Map.of());
+        verify(productSearchIndex, never()).updateStock(anyMap());
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+        verify(productSearchIndex).updateStock(Map.of(rice, 3, eggs, 9));
+    }
+
+    @Test
+    void currentStockReadsCommittedQuantities() {
+        jdbcTemplate.update("UPDATE product_unit_mappings SET stock_quantity = 3 WHERE id = ?", rice);
+
+        assertEquals(Map.of(rice, 3, eggs, 10), stockReservationService.currentStock(List.of(rice, eggs)));
+        assertEquals(Map.of(), stockReservationService.currentStock(List.of()));
+    }
+
+    private int stock(Long mappingId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM product_unit_mappings WHERE id = ?", Integer.class, mappingId);
+    }
+}
@@ -0,0 +1,182 @@
+package com.grocery.server.order.service;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.order.dto.response.StoreOrderCountsResponse;
+import com.grocery.server.order.entity.Order.OrderStatus;
+import com.grocery.server.order.repository.OrderStoreRepository;
+import com.grocery.server.store.repository.StoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counter đơn theo cửa hàng: delta áp dụng sau commit, chỉ cho cửa hàng đã nạp; reconcile không ghi đè HINCRBY xen vào
+ */
+class StoreOrderCounterServiceTest {
+
+    private static final long STORE = 7L;
+    private static final String OWNER_PHONE = "0900000007";
+
+    private final Map<OrderStatus, Long> database = new HashMap<>();
+    private OrderStoreRepository orderStoreRepository;
+    private StoreRepository storeRepository;
+    private SimpMessagingTemplate messagingTemplate;
+    private RedisMessagePublisher redisMessagePublisher;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        database.put(OrderStatus.PENDING, 2L);
+        orderStoreRepository = mock(OrderStoreRepository.class);
+        when(orderStoreRepository.countByStoreIdInGroupByStatus(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            database.forEach((status, count) -> rows.add(new Object[]{STORE, status, count}));
+            return rows;
+        });
+        storeRepository = mock(StoreRepository.class);
+        when(storeRepository.findOwnerPhoneNumberById(STORE)).thenReturn(Optional.of(OWNER_PHONE));
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        redisMessagePublisher = mock(RedisMessagePublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void committedTransitionsUpdateLoadedCountsAndPushToOwner() {
+        StoreOrderCounterService service = newService(null);
+        assertEquals(2L, service.getCounts(STORE).getCounts().get(OrderStatus.PENDING));
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.recordTransition(List.of(STORE), OrderStatus.PENDING, OrderStatus.CONFIRMED);
+        service.recordCreated(List.of(STORE), OrderStatus.PENDING);
+        assertEquals(0L, service.getCounts(STORE).getCounts().get(OrderStatus.CONFIRMED), "chưa commit");
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        Map<OrderStatus, Long> counts = service.getCounts(STORE).getCounts();
+        assertEquals(2L, counts.get(OrderStatus.PENDING));
+        assertEquals(1L, counts.get(OrderStatus.CONFIRMED));
+        verify(orderStoreRepository, times(1)).countByStoreIdInGroupByStatus(anyCollection());
+        verify(messagingTemplate).convertAndSendToUser(eq(OWNER_PHONE), anyString(), any(StoreOrderCountsResponse.class));
+    }
+
+    @Test
+    void rolledBackTransitionsAreDropped() {
+        StoreOrderCounterService service = newService(null);
+        service.getCounts(STORE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.recordTransition(List.of(STORE), OrderStatus.PENDING, OrderStatus.CANCELLED);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(2L, service.getCounts(STORE).getCounts().get(OrderStatus.PENDING));
+        assertEquals(0L, service.getCounts(STORE).getCounts().get(OrderStatus.CANCELLED));
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void writesForStoresNobodyWatchesNeitherCountNorPush() {
+        StoreOrderCounterService service = newService(null);
+
+        service.recordCreated(List.of(STORE), OrderStatus.PENDING);
+
+        verifyNoInteractions(orderStoreRepository, messagingTemplate);
+    }
+
+    @Test
+    void reconcileCorrectsDriftedLocalCounts() {
+        StoreOrderCounterService service = newService(null);
+        service.getCounts(STORE);
+        database.put(OrderStatus.PENDING, 5L);
+
+        service.reconcile();
+
+        assertEquals(5L, service.getCounts(STORE).getCounts().get(OrderStatus.PENDING));
+        assertEquals(1.0, meterRegistry.counter("order.store-counters.drift").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisReconcileOnlyWritesIfHashUnchangedSinceRead() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hash = mock(HashOperations.class);
+        when(redis.<Object, Object>opsForHash()).thenReturn(hash);
+        when(hash.entries("store:order-counts:" + STORE)).thenReturn(Map.of("_synced", "1", "PENDING", "3"));
+        List<Object> held = new ArrayList<>(Collections.nCopies(OrderStatus.values().length, null));
+        held.set(OrderStatus.PENDING.ordinal(), "3");
+        when(hash.multiGet(eq("store:order-counts:" + STORE), anyCollection())).thenReturn(held);
+        StoreOrderCounterService service = newService(redis);
+        service.getCounts(STORE);
+
+        List<Object> scriptArgs = new ArrayList<>();
+        long[] written = {0L};
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            scriptArgs.clear();
+            scriptArgs.addAll(Arrays.asList(invocation.getArguments()).subList(2, invocation.getArguments().length));
+            return written[0];
+        });
+
+        // HINCRBY xen vào giữa lúc đọc và lúc ghi → script không ghi
+        service.reconcile();
+        assertEquals(0.0, meterRegistry.counter("order.store-counters.drift").count());
+        verify(redisMessagePublisher, never()).publish(anyString(), any(Object.class));
+
+        written[0] = 1L;
+        service.reconcile();
+        assertEquals(1.0, meterRegistry.counter("order.store-counters.drift").count());
+        verify(redisMessagePublisher).publish(eq(StoreOrderCounterService.COUNTS_CHANNEL + STORE), any(Object.class));
+        verify(hash, never()).putAll(anyString(), anyMap());
+        int pending = scriptArgs.indexOf("PENDING");
+        assertEquals(List.of("PENDING", "3", "2"), scriptArgs.subList(pending, pending + 3),
+                "field, giá trị đã đọc, giá trị đếm từ database");
+    }
+
+    private StoreOrderCounterService newService(StringRedisTemplate redis) {
+        return new StoreOrderCounterService(orderStoreRepository, storeRepository, messagingTemplate,
+                redisMessagePublisher, redis, meterRegistry, 60);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
@@ -0,0 +1,31 @@
+package com.grocery.server.product.dto.cursor;
+
+import com.grocery.server.shared.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductCursorTest {
+
+    @Test
+    void roundTripsId() {
+        ProductCursor cursor = new ProductCursor(4213L);
+
+        assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void missingCursorStartsFromFirstPage() {
+        assertSame(ProductCursor.FIRST, ProductCursor.decode(null));
+        assertSame(ProductCursor.FIRST, ProductCursor.decode(" "));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        BadRequestException notBase64 = assertThrows(BadRequestException.class, () -> ProductCursor.decode("not base64!"));
+        assertEquals("Cursor không hợp lệ", notBase64.getMessage());
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode("YWJj"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.grocery.server.product.repository;
+
+import com.grocery.server.product.dto.cursor.ProductCursor;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Catalog sản phẩm theo cursor trên H2: pha 1 chỉ lấy ID (id DESC), lọc giá / còn hàng qua EXISTS trên biến thể đang bán
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class ProductCatalogQueryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Store openStore;
+    private Store closedStore;
+    private Category rice;
+    private Unit unit;
+
+    @BeforeEach
+    void setUp() {
+        openStore = store("0900000001", "Tạp hóa Lan", true);
+        closedStore = store("0900000002", "Tạp hóa đóng cửa", false);
+        rice = entityManager.persist(Category.builder().name("Gạo").build());
+        UnitCategory category = entityManager.persist(UnitCategory.builder().code("weight").name("Khối lượng").build());
+        unit = entityManager.persist(Unit.builder().category(category).code("kg").name("Kilogram").symbol("kg").build());
+    }
+
+    @Test
+    void pagesWalkNewestFirstSkippingHiddenAndClosedStores() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(0, product(openStore, null, Product.ProductStatus.AVAILABLE, "20000", 10, true));
+        }
+        Long hidden = product(openStore, null, Product.ProductStatus.HIDDEN, "20000", 10, true);
+        Long closed = product(closedStore, null, Product.ProductStatus.AVAILABLE, "20000", 10, true);
+        entityManager.flush();
+
+        List<Long> walked = new ArrayList<>();
+        ProductCursor cursor = ProductCursor.FIRST;
+        List<Long> page;
+        do {
+            page = catalog(null, null, null, null, false, false, cursor, 2);
+            walked.addAll(page);
+            if (!page.isEmpty()) {
+                cursor = new ProductCursor(page.get(page.size() - 1));
+            }
+        } while (page.size() == 2);
+
+        assertEquals(expected, walked);
+        // Chủ cửa hàng xem cả sản phẩm ẩn / cửa hàng đang đóng
+        List<Long> owner = catalog(closedStore.getId(), null, null, null, false, true, ProductCursor.FIRST, 10);
+        assertEquals(List.of(closed), owner);
+        assertEquals(hidden, catalog(openStore.getId(), null, null, null, false, true, ProductCursor.FIRST, 1).get(0));
+    }
+
+    @Test
+    void priceAndStockFiltersOnlyLookAtActiveVariants() {
+        Long cheap = product(openStore, rice, Product.ProductStatus.AVAILABLE, "15000", 10, true);
+        Long expensive = product(openStore, rice, Product.ProductStatus.AVAILABLE, "90000", 10, true);
+        Long soldOut = product(openStore, rice, Product.ProductStatus.AVAILABLE, "20000", 0, true);
+        Long inactiveInRange = product(openStore, rice, Product.ProductStatus.AVAILABLE, "20000", 10, false);
+        Long otherCategory = product(openStore, null, Product.ProductStatus.AVAILABLE, "20000", 10, true);
+        entityManager.flush();
+
+        assertEquals(List.of(soldOut, cheap),
+                catalog(null, rice.getId(), new BigDecimal("10000"), new BigDecimal("50000"), false, false,
+                        ProductCursor.FIRST, 10));
+        assertEquals(List.of(otherCategory, expensive, cheap),
+                catalog(openStore.getId(), null, null, null, true, false, ProductCursor.FIRST, 10));
+        assertEquals(List.of(inactiveInRange, soldOut, expensive, cheap),
+                catalog(null, rice.getId(), null, null, false, false, ProductCursor.FIRST, 10),
+                "không lọc biến thể → không cần EXISTS");
+    }
+
+    @Test
+    void secondPhaseLoadsUnitsForThePage() {
+        Long id = product(openStore, rice, Product.ProductStatus.AVAILABLE, "15000", 10, true);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Product> products = productRepository.findAllWithUnitsByIdIn(List.of(id));
+
+        assertEquals(1, products.size());
+        assertEquals("Tạp hóa Lan", products.get(0).getStore().getStoreName());
+        assertEquals("Kilogram", products.get(0).getProductUnitMappings().get(0).getUnit().getName());
+    }
+
+    private List<Long> catalog(Long storeId, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                               boolean inStock, boolean owner, ProductCursor cursor, int size) {
+        return productRepository.findCatalogIdsAfterCursor(storeId, categoryId, minPrice, maxPrice, inStock,
+                minPrice != null || maxPrice != null || inStock, owner, owner, cursor.id(), PageRequest.of(0, size));
+    }
+
+    private Long product(Store store, Category category, Product.ProductStatus status, String price, int stock,
+                         boolean active) {
+        Product product = entityManager.persist(Product.builder()
+                .store(store).category(category).name("Gạo ST25").status(status).build());
+        entityManager.persist(ProductUnitMapping.builder()
+                .product(product).unit(unit).unitLabel("1 kg")
+                .price(new BigDecimal(price)).stockQuantity(stock).isActive(active)
+                .build());
+        return product.getId();
+    }
+
+    private Store store(String ownerPhone, String name, boolean open) {
+        User owner = entityManager.persist(User.builder()
+                .phoneNumber(ownerPhone).passwordHash("x").role(User.UserRole.STORE).build());
+        return entityManager.persist(Store.builder()
+                .owner(owner).storeName(name).address("1 Lê Lợi").isOpen(open).build());
+    }
+}
@@ -0,0 +1,167 @@
+package com.grocery.server.product.search;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.dto.response.ProductResponse.ProductUnitResponse;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.repository.ProductRepository;
+import com.grocery.server.product.service.ProductResponseMapper;
+import com.grocery.server.store.entity.Store;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Index tìm kiếm trong bộ nhớ: bỏ dấu, AND giữa các từ, tiền tố cho từ cuối, xếp hạng BM25 theo trọng số field
+ */
+class ProductSearchIndexTest {
+
+    private static final Store MINH = Store.builder().id(1L).storeName("Tạp hóa Minh").isOpen(true).build();
+    private static final Store LAN = Store.builder().id(2L).storeName("Cửa hàng Lan").isOpen(false).build();
+    private static final Category VEGETABLES = Category.builder().id(10L).name("Rau củ").build();
+    private static final Category SPICES = Category.builder().id(20L).name("Gia vị").build();
+
+    private ProductRepository productRepository;
+    private RedisMessagePublisher publisher;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        ProductResponseMapper mapper = mock(ProductResponseMapper.class);
+        when(mapper.toResponse(any())).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            return ProductResponse.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .storeName(product.getStore().getStoreName())
+                    .categoryName(product.getCategory().getName())
+                    .units(List.of(ProductUnitResponse.builder().id(product.getId() * 100).stockQuantity(10).build()))
+                    .build();
+        });
+
+        publisher = mock(RedisMessagePublisher.class);
+        index = new ProductSearchIndex(productRepository, mapper, publisher,
+                mock(ProductSuggestionIndex.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+        index.indexAfterCommit(product(1L, "Rau cải ngọt", null, MINH, VEGETABLES));
+        index.indexAfterCommit(product(2L, "Cải thảo", null, MINH, VEGETABLES));
+        index.indexAfterCommit(product(3L, "Rau càng cua", null, MINH, VEGETABLES));
+        index.indexAfterCommit(product(4L, "Nước mắm cá cơm", null, LAN, SPICES));
+        index.indexAfterCommit(product(5L, "Bánh tráng", "Chấm nước mắm rất ngon", MINH, SPICES));
+    }
+
+    @Test
+    void matchesWithoutDiacritics() {
+        assertEquals(List.of(1L), ids(search("RAU CẢI NGỌT")));
+        assertEquals(List.of(1L), ids(search("rau cai ngot")));
+    }
+
+    @Test
+    void requiresEveryTermAndRanksNameAboveCategory() {
+        // "Cải thảo" chỉ có "rau" ở danh mục → xếp sau sản phẩm có "rau" trong tên
+        assertEquals(List.of(1L, 2L), ids(search("rau cai")));
+        assertEquals(List.of(), ids(search("rau mam")));
+    }
+
+    @Test
+    void onlyLastTermMatchesAsPrefix() {
+        assertEquals(Set.of(1L, 2L, 3L), Set.copyOf(ids(search("rau ca"))));
+        assertEquals(List.of(1L), ids(search("rau ngo")));
+        assertEquals(List.of(), ids(search("ngo rau")));
+    }
+
+    @Test
+    void exactMatchOutranksPrefixMatch() {
+        index.indexAfterCommit(product(6L, "Gạo tám", null, MINH, VEGETABLES));
+        index.indexAfterCommit(product(7L, "Gà ta", null, MINH, VEGETABLES));
+
+        assertEquals(List.of(7L, 6L), ids(search("ga")));
+    }
+
+    @Test
+    void nameOutranksDescription() {
+        assertEquals(List.of(4L, 5L), ids(index.search("nuoc mam", null, null, true, 0, 20)));
+    }
+
+    @Test
+    void filtersByStoreCategoryAndOpenStore() {
+        assertEquals(List.of(5L), ids(search("mam")));
+        assertEquals(List.of(), ids(index.search("rau", 2L, null, true, 0, 20)));
+        assertEquals(List.of(5L), ids(index.search("", null, 20L, false, 0, 20)));
+        assertEquals(List.of(5L, 4L), ids(index.search(null, null, 20L, true, 0, 20)));
+    }
+
+    @Test
+    void browsesByNameAndPages() {
+        Page<ProductResponse> first = index.search("", 1L, null, false, 0, 2);
+        Page<ProductResponse> second = index.search("", 1L, null, false, 1, 2);
+
+        assertEquals(List.of(5L, 2L), ids(first));
+        assertEquals(List.of(1L, 3L), ids(second));
+        assertEquals(4, first.getTotalElements());
+    }
+
+    @Test
+    void removedAndHiddenProductsDisappear() {
+        index.removeAfterCommit(1L);
+        Product hidden = product(2L, "Cải thảo", null, MINH, VEGETABLES);
+        hidden.setStatus(Product.ProductStatus.HIDDEN);
+        index.indexAfterCommit(hidden);
+
+        assertEquals(List.of(3L), ids(search("rau ca")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void stockUpdatesReplaceIndexedStockWithoutQueryingDatabase() {
+        index.updateStock(Map.of(100L, 3, 999L, 1));
+
+        ProductResponse hit = search("rau cai ngot").getContent().get(0);
+        assertEquals(3, hit.getUnits().get(0).getStockQuantity());
+        assertEquals(List.of(1L), ids(search("rau cai ngot")), "tồn kho không ảnh hưởng tới khớp từ khóa");
+        verify(publisher).publish(ProductSearchIndex.STOCK_CHANNEL, Map.of("stock", Map.of(100L, 3, 999L, 1)));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void stockOfRemovedProductIsIgnored() {
+        index.removeAfterCommit(1L);
+        index.applyStock(Map.of(100L, 3));
+        index.indexAfterCommit(product(1L, "Rau cải ngọt", null, MINH, VEGETABLES));
+
+        assertEquals(10, search("rau cai ngot").getContent().get(0).getUnits().get(0).getStockQuantity());
+    }
+
+    private Page<ProductResponse> search(String keyword) {
+        return index.search(keyword, null, null, false, 0, 20);
+    }
+
+    private static List<Long> ids(Page<ProductResponse> page) {
+        return page.getContent().stream().map(ProductResponse::getId).toList();
+    }
+
+    private static Product product(Long id, String name, String description, Store store, Category category) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .store(store)
+                .category(category)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.grocery.server.product.search;
+
+import com.grocery.server.product.dto.response.SuggestionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionTrieTest {
+
+    private static final SuggestionTrie TRIE = SuggestionTrie.build(List.of(
+            entry("Rau cải ngọt", 5),
+            entry("Rau cải xanh", 8),
+            entry("Rau càng cua", 3),
+            entry("Cải thảo", 6),
+            entry("Cà chua", 9),
+            entry("Sữa tươi", 2)));
+
+    @Test
+    void completesByPrefixInWeightOrder() {
+        assertEquals(List.of("Rau cải xanh", "Rau cải ngọt", "Rau càng cua"), texts(TRIE.complete("rau", 10)));
+        assertEquals(List.of("Rau cải xanh", "Rau cải ngọt"), texts(TRIE.complete("rau cai", 10)));
+        assertEquals(List.of("Rau càng cua"), texts(TRIE.complete("rau cang", 10)));
+    }
+
+    @Test
+    void matchesFromTheStartOfEveryWord() {
+        // "cai" là đầu từ của "Cải thảo" và từ thứ 2 của "Rau cải ..."
+        assertEquals(List.of("Rau cải xanh", "Cải thảo", "Rau cải ngọt"), texts(TRIE.complete("cai", 10)));
+        assertEquals(List.of("Rau cải ngọt"), texts(TRIE.complete("ngot", 10)));
+        assertEquals(List.of("Rau càng cua"), texts(TRIE.complete("cua", 10)));
+    }
+
+    @Test
+    void splitsCompressedEdgesInTheMiddle() {
+        // "rau ca" dừng giữa cạnh nén "cai" / "cang"
+        assertEquals(List.of("Rau cải xanh", "Rau cải ngọt", "Rau càng cua"), texts(TRIE.complete("rau ca", 10)));
+        assertEquals(List.of(), TRIE.complete("rau cx", 10));
+        assertEquals(List.of(), TRIE.complete("rau cai ngotx", 10));
+        assertEquals(List.of(), TRIE.complete("banh", 10));
+    }
+
+    @Test
+    void respectsLimit() {
+        assertEquals(List.of("Cà chua", "Rau cải xanh"), texts(TRIE.complete("c", 2)));
+    }
+
+    @Test
+    void keepsOnlyTopKPerNode() {
+        List<SuggestionTrie.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < SuggestionTrie.MAX_K * 3; i++) {
+            entries.add(entry("Bánh " + i, i));
+        }
+        SuggestionTrie trie = SuggestionTrie.build(entries);
+
+        List<String> top = texts(trie.complete("banh", 100));
+        assertEquals(SuggestionTrie.MAX_K, top.size());
+        for (int k = 0; k < SuggestionTrie.MAX_K; k++) {
+            assertEquals("Bánh " + (SuggestionTrie.MAX_K * 3 - 1 - k), top.get(k));
+        }
+    }
+
+    @Test
+    void equalWeightsRankByText() {
+        SuggestionTrie trie = SuggestionTrie.build(List.of(entry("Táo Mỹ", 1), entry("Táo Fuji", 1)));
+
+        assertEquals(List.of("Táo Fuji", "Táo Mỹ"), texts(trie.complete("tao", 10)));
+    }
+
+    @Test
+    void emptyTrieCompletesNothing() {
+        assertEquals(0, SuggestionTrie.EMPTY.size());
+        assertTrue(SuggestionTrie.EMPTY.complete("rau", 10).isEmpty());
+        assertEquals(List.of(), SuggestionTrie.EMPTY.complete("", 10));
+    }
+
+    private static SuggestionTrie.Entry entry(String text, long weight) {
+        return new SuggestionTrie.Entry(SuggestionResponse.builder().text(text).type("PRODUCT").build(), weight);
+    }
+
+    private static List<String> texts(List<SuggestionResponse> suggestions) {
+        return suggestions.stream().map(SuggestionResponse::getText).toList();
+    }
+}
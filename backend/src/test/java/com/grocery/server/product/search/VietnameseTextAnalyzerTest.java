@@ -0,0 +1,42 @@
+package com.grocery.server.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VietnameseTextAnalyzerTest {
+
+    @Test
+    void foldsDiacriticsAndCase() {
+        assertEquals("rau cai ngot", VietnameseTextAnalyzer.fold("Rau Cải Ngọt"));
+        assertEquals("dau phong rang", VietnameseTextAnalyzer.fold("Đậu phộng rang"));
+        assertEquals("nuoc mam phu quoc", VietnameseTextAnalyzer.fold("NƯỚC MẮM PHÚ QUỐC"));
+        assertEquals("ca ro phi", VietnameseTextAnalyzer.fold("cá rô phi"));
+    }
+
+    @Test
+    void foldsPrecomposedAndDecomposedInputAlike() {
+        String precomposed = "Sữa tươi";
+        String decomposed = Normalizer.normalize(precomposed, Normalizer.Form.NFD);
+
+        assertEquals(VietnameseTextAnalyzer.fold(precomposed), VietnameseTextAnalyzer.fold(decomposed));
+    }
+
+    @Test
+    void foldsEmptyInput() {
+        assertEquals("", VietnameseTextAnalyzer.fold(null));
+        assertEquals("", VietnameseTextAnalyzer.fold(""));
+        assertEquals(List.of(), VietnameseTextAnalyzer.tokenize(null));
+        assertEquals(List.of(), VietnameseTextAnalyzer.tokenize("  -- "));
+    }
+
+    @Test
+    void tokenizesOnNonAlphanumerics() {
+        assertEquals(List.of("sua", "tuoi", "1l"), VietnameseTextAnalyzer.tokenize("Sữa tươi 1L"));
+        assertEquals(List.of("banh", "mi", "que", "500g"), VietnameseTextAnalyzer.tokenize("  Bánh-mì que, (500g) "));
+        assertEquals(List.of("tra", "xanh", "0", "do"), VietnameseTextAnalyzer.tokenize("Trà xanh 0°độ"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.grocery.server.product.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.product.dto.request.CreateProductRequest;
+import com.grocery.server.shared.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Đọc file import: CSV gom dòng đơn vị vào sản phẩm phía trên, ô trong ngoặc kép, lỗi từng sản phẩm không dừng file
+ */
+class ProductImportReaderTest {
+
+    // Cấu hình như ObjectMapper của Spring Boot (bỏ qua trường lạ như "category")
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void csvGroupsContinuationRowsIntoTheProductAbove() throws IOException {
+        List<ProductImportReader.ImportRow> rows = read(ProductImportService.Format.CSV,
+                "\uFEFFName,Category,Description,Unit_Code,Unit Name,Price,Stock_Quantity\r\n" +
+                "Gạo ST25,Gạo,\"Dẻo, thơm\",kg,1 kg,32000,50\r\n" +
+                ",,,bao,\"Bao 5kg\",150000,8\r\n" +
+                "\r\n" +
+                "Nước mắm,,\"Chai \"\"Nam Ngư\"\"\nloại 1\",chai,Chai 500ml,45000,\r\n");
+
+        assertEquals(2, rows.size());
+        ProductImportReader.ImportRow rice = rows.get(0);
+        assertEquals(2, rice.line());
+        assertEquals("Gạo", rice.category());
+        assertEquals("Dẻo, thơm", rice.product().getDescription());
+        List<CreateProductRequest.ProductUnitRequest> units = rice.product().getUnits();
+        assertEquals(List.of("1 kg", "Bao 5kg"), units.stream().map(CreateProductRequest.ProductUnitRequest::getUnitName).toList());
+        assertEquals(150000.0, units.get(1).getPrice());
+        assertEquals(8, units.get(1).getStockQuantity());
+
+        ProductImportReader.ImportRow fishSauce = rows.get(1);
+        assertEquals(5, fishSauce.line());
+        assertEquals("Chai \"Nam Ngư\"\nloại 1", fishSauce.product().getDescription());
+        assertNull(fishSauce.product().getUnits().get(0).getStockQuantity());
+        assertNull(fishSauce.error());
+    }
+
+    @Test
+    void csvReportsBadNumbersPerProduct() throws IOException {
+        List<ProductImportReader.ImportRow> rows = read(ProductImportService.Format.CSV,
+                "name,unitCode,unitName,price,stockQuantity\n" +
+                "Bánh mì,cai,Cái,abc,1\n" +
+                ",cai,Túi 5 cái,60000,2\n" +
+                "Sữa,hop,Hộp,32000,1.5\n" +
+                "Trứng,vi,Vỉ 10,35000,10\n");
+
+        assertEquals(3, rows.size());
+        assertEquals("Dòng 2: price không phải là số: abc", rows.get(0).error());
+        assertEquals("Dòng 4: stockQuantity không phải là số nguyên: 1.5", rows.get(1).error());
+        assertNull(rows.get(2).error());
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsIsRejected() {
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> read(ProductImportService.Format.CSV, "name,unitCode\nGạo,kg\n"));
+
+        assertEquals("File CSV thiếu cột bắt buộc: price", ex.getMessage());
+    }
+
+    @Test
+    void ndjsonReadsOneProductPerLine() throws IOException {
+        List<ProductImportReader.ImportRow> rows = read(ProductImportService.Format.NDJSON,
+                "{\"name\":\"Gạo\",\"category\":\"Gạo\",\"units\":[{\"unitCode\":\"kg\",\"unitName\":\"1 kg\",\"price\":32000}]}\n" +
+                "\n" +
+                "{\"name\": \n" +
+                "[1, 2]\n");
+
+        assertEquals(3, rows.size());
+        assertEquals("Gạo", rows.get(0).category());
+        assertEquals(32000.0, rows.get(0).product().getUnits().get(0).getPrice());
+        assertEquals(3, rows.get(1).line());
+        assertTrue(rows.get(1).error().startsWith("JSON không hợp lệ"));
+        assertEquals("Mỗi dòng phải là 1 object JSON", rows.get(2).error());
+    }
+
+    private List<ProductImportReader.ImportRow> read(ProductImportService.Format format, String content) throws IOException {
+        List<ProductImportReader.ImportRow> rows = new ArrayList<>();
+        try (ProductImportReader reader = new ProductImportReader(format,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), objectMapper)) {
+            ProductImportReader.ImportRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
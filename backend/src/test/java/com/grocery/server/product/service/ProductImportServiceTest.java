@@ -0,0 +1,173 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.dto.response.ProductImportResponse;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.product.repository.CategoryRepository;
+import com.grocery.server.product.repository.UnitCategoryRepository;
+import com.grocery.server.product.repository.UnitRepository;
+import com.grocery.server.product.search.ProductSearchIndex;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import com.grocery.server.store.entity.Store;
+import com.grocery.server.store.repository.StoreRepository;
+import com.grocery.server.user.entity.User;
+import com.grocery.server.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import sản phẩm trên H2: kiểm tra trong bộ nhớ (trùng tên, danh mục, đơn vị), ghi theo chunk bằng INSERT nhiều dòng
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class ProductImportServiceTest {
+
+    private static final String OWNER_PHONE = "0900000001";
+    private static final String HEADER = "name,category,unitCode,unitName,price,stockQuantity\n";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final ProductSearchIndex productSearchIndex = mock(ProductSearchIndex.class);
+    private final ResourceVersionService resourceVersionService = mock(ResourceVersionService.class);
+    private ProductImportService importService;
+
+    private Store store;
+    private Category rice;
+    private Unit kilogram;
+    private Unit bag;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(User.builder()
+                .phoneNumber(OWNER_PHONE).passwordHash("x").role(User.UserRole.STORE).build());
+        store = entityManager.persist(Store.builder().owner(owner).storeName("Tạp hóa Lan").address("1 Lê Lợi").build());
+        rice = entityManager.persist(Category.builder().name("Gạo").build());
+        UnitCategory weight = entityManager.persist(UnitCategory.builder().code("weight").name("Khối lượng").build());
+        kilogram = entityManager.persist(Unit.builder()
+                .category(weight).code("kg").name("Kilogram").symbol("kg").build());
+        bag = entityManager.persist(Unit.builder()
+                .category(weight).code("bao").name("Bao").symbol("bao").build());
+        entityManager.persist(Product.builder().store(store).name("Nước mắm Nam Ngư").build());
+        entityManager.flush();
+
+        // UnitCatalog nạp trong transaction riêng → không thấy dữ liệu chưa commit của test, cấp units qua mock
+        UnitRepository unitRepository = mock(UnitRepository.class);
+        when(unitRepository.findAllWithCategory()).thenReturn(List.of(kilogram, bag));
+        UnitCatalog unitCatalog = new UnitCatalog(unitRepository, mock(UnitCategoryRepository.class),
+                resourceVersionService, mock(PlatformTransactionManager.class));
+
+        importService = new ProductImportService(jdbcTemplate, transactionManager,
+                Jackson2ObjectMapperBuilder.json().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                categoryRepository, storeRepository, userRepository, new ProductUnitResolver(unitCatalog),
+                productSearchIndex, resourceVersionService, new SimpleMeterRegistry(), 2, 100, 100);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(OWNER_PHONE, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void importsValidProductsAcrossChunksAndReportsTheRest() throws IOException {
+        ProductImportResponse response = importService.importProducts(ProductImportService.Format.CSV, csv(
+                "Gạo ST25,gao,kg,1 kg,32000,50\n" +
+                ",,bao,Bao 5kg,150000,8\n" +
+                "Gạo Nàng Hương,Gạo,kg,1 kg,28000,\n" +
+                "nuoc mam nam ngu,,kg,1 kg,45000,1\n" +
+                "Gạo lứt,Ngũ cốc,kg,1 kg,30000,1\n" +
+                "Gạo nếp,,kg,1 kg,0,1\n" +
+                "GẠO ST25,,kg,1 kg,33000,1\n" +
+                "Đậu xanh,,kg,1 kg,40000,3\n"), false);
+
+        assertEquals(7, response.getTotalProducts());
+        assertEquals(3, response.getImportedProducts());
+        assertEquals(4, response.getImportedUnits());
+        assertEquals(4, response.getFailedProducts());
+        assertEquals(List.of(
+                "5: Sản phẩm đã có trong cửa hàng hoặc trùng với dòng trước",
+                "6: Danh mục không tồn tại: Ngũ cốc",
+                "7: Giá của đơn vị 1 kg phải lớn hơn 0",
+                "8: Sản phẩm đã có trong cửa hàng hoặc trùng với dòng trước"
+        ), response.getErrors().stream().map(e -> e.getLine() + ": " + e.getMessage()).toList());
+
+        List<Map<String, Object>> products = jdbcTemplate.queryForList(
+                "SELECT id, name, category_id FROM products WHERE store_id = ? AND name <> 'Nước mắm Nam Ngư' ORDER BY id",
+                store.getId());
+        assertEquals(List.of("Gạo ST25", "Gạo Nàng Hương", "Đậu xanh"),
+                products.stream().map(p -> p.get("NAME")).toList());
+        assertEquals(rice.getId(), ((Number) products.get(0).get("CATEGORY_ID")).longValue());
+        Long st25 = ((Number) products.get(0).get("ID")).longValue();
+        assertEquals(List.of("1 kg/TRUE/50", "Bao 5kg/FALSE/8"), jdbcTemplate.queryForList(
+                "SELECT unit_label || '/' || is_default || '/' || stock_quantity FROM product_unit_mappings " +
+                "WHERE product_id = ? ORDER BY id", String.class, st25));
+        verify(resourceVersionService).bumpAfterCommit(ResourceVersionService.storeProducts(store.getId()));
+        verify(productSearchIndex).reindexStoreAfterCommit(store.getId());
+    }
+
+    @Test
+    void dryRunValidatesWithoutWriting() throws IOException {
+        ProductImportResponse response = importService.importProducts(ProductImportService.Format.NDJSON,
+                new ByteArrayInputStream((
+                        "{\"name\":\"Gạo ST25\",\"categoryId\":" + rice.getId() + ",\"units\":" +
+                        "[{\"unitCode\":\"kg\",\"unitName\":\"1 kg\",\"price\":32000}]}\n" +
+                        "{\"name\":\"Gạo lạ\",\"units\":[{\"unitCode\":\"tan\",\"unitName\":\"1 tấn\",\"price\":1}]}\n" +
+                        "{\"name\":\"X\",\"units\":[]}\n").getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(1, response.getImportedProducts());
+        assertEquals(2, response.getFailedProducts());
+        assertEquals("Phải có ít nhất 1 đơn vị bán; Tên sản phẩm phải từ 2-255 ký tự",
+                response.getErrors().get(1).getMessage());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE store_id = ?", Integer.class, store.getId()));
+        verify(resourceVersionService, never()).bumpAfterCommit(anyString());
+    }
+
+    private static ByteArrayInputStream csv(String rows) {
+        return new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8));
+    }
+}
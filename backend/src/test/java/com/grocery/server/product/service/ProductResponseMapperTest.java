@@ -0,0 +1,79 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.dto.response.ProductResponse;
+import com.grocery.server.product.entity.Category;
+import com.grocery.server.product.entity.Product;
+import com.grocery.server.product.entity.ProductUnitMapping;
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.store.entity.Store;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Map Product → ProductResponse: chỉ biến thể đang bán, tên hiển thị ưu tiên unit_label rồi tới tên đơn vị
+ */
+class ProductResponseMapperTest {
+
+    private final ProductResponseMapper mapper = new ProductResponseMapper();
+
+    private final Store store = Store.builder().storeName("Tạp hóa Lan").address("1 Lê Lợi").build();
+    private final Unit kilogram = Unit.builder()
+            .code("kg").name("Kilogram").symbol("kg").requiresQuantityInput(true).build();
+    private final Unit bag = Unit.builder().code("bag").name("Túi").symbol("túi").build();
+
+    @Test
+    void mapsActiveVariantsOnly() {
+        Product product = Product.builder()
+                .id(1L).name("Gạo ST25").store(store)
+                .category(Category.builder().name("Gạo").build())
+                .build();
+        product.setProductUnitMappings(Arrays.asList(
+                ProductUnitMapping.builder().id(10L).unit(kilogram).unitLabel(null)
+                        .price(new BigDecimal("32000")).stockQuantity(50).build(),
+                ProductUnitMapping.builder().id(11L).unit(bag).unitLabel("Túi 5kg")
+                        .baseQuantity(new BigDecimal("5")).baseUnit("kg")
+                        .price(new BigDecimal("150000")).stockQuantity(8).build(),
+                ProductUnitMapping.builder().id(12L).unit(bag).unitLabel("Túi 10kg")
+                        .price(new BigDecimal("290000")).isActive(false).build(),
+                null));
+
+        ProductResponse response = mapper.toResponse(product);
+
+        assertEquals("Gạo ST25", response.getName());
+        assertEquals("Tạp hóa Lan", response.getStoreName());
+        assertEquals("Gạo", response.getCategoryName());
+        assertEquals("AVAILABLE", response.getStatus());
+        List<ProductResponse.ProductUnitResponse> units = response.getUnits();
+        assertEquals(List.of(10L, 11L), units.stream().map(ProductResponse.ProductUnitResponse::getId).toList());
+
+        ProductResponse.ProductUnitResponse byWeight = units.get(0);
+        assertEquals("Kilogram", byWeight.getUnitName(), "không có unit_label → tên đơn vị");
+        assertEquals("kg", byWeight.getUnitCode());
+        assertTrue(byWeight.getRequiresQuantityInput());
+
+        ProductResponse.ProductUnitResponse packaged = units.get(1);
+        assertEquals("Túi 5kg", packaged.getUnitName());
+        assertEquals(0, new BigDecimal("5").compareTo(packaged.getBaseQuantity()));
+        assertEquals("kg", packaged.getBaseUnit());
+        assertFalse(packaged.getRequiresQuantityInput());
+        assertEquals(8, packaged.getStockQuantity());
+    }
+
+    @Test
+    void productWithoutVariantsOrCategoryMapsToEmptyUnits() {
+        Product product = Product.builder().id(2L).name("Bánh mì").store(store).build();
+
+        ProductResponse response = mapper.toResponse(product);
+
+        assertTrue(response.getUnits().isEmpty());
+        assertNull(response.getCategoryName());
+    }
+}
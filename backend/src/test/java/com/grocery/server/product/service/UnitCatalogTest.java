@@ -0,0 +1,107 @@
+package com.grocery.server.product.service;
+
+import com.grocery.server.product.entity.Unit;
+import com.grocery.server.product.entity.UnitCategory;
+import com.grocery.server.product.repository.UnitCategoryRepository;
+import com.grocery.server.product.repository.UnitRepository;
+import com.grocery.server.shared.etag.ResourceVersionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Từ điển đơn vị trong bộ nhớ: tra cứu bỏ dấu / hoa thường, nạp 1 lần, nạp lại chỉ swap + bump ETag khi dữ liệu đổi
+ */
+class UnitCatalogTest {
+
+    private final UnitCategory weight = UnitCategory.builder().id(1L).code("weight").name("Khối lượng").displayOrder(2).build();
+    private final UnitCategory count = UnitCategory.builder().id(2L).code("count").name("Số lượng").displayOrder(1).build();
+    private final UnitCategory retired = UnitCategory.builder().id(3L).code("old").name("Cũ").isActive(false).build();
+
+    private final List<Unit> units = new ArrayList<>();
+    private UnitRepository unitRepository;
+    private ResourceVersionService resourceVersionService;
+    private UnitCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        units.add(unit(10L, weight, "kg", "Kilogram", "kg", 1));
+        units.add(unit(11L, count, "bunch", "Bó", "bó", 2));
+        // Trùng tên với "Bó" nhưng display_order lớn hơn
+        units.add(unit(12L, count, "bundle", "bo", "bo", 5));
+        Unit legacy = unit(13L, count, "dozen", "Tá", "tá", 0);
+        legacy.setIsActive(false);
+        units.add(legacy);
+
+        unitRepository = mock(UnitRepository.class);
+        when(unitRepository.findAllWithCategory()).thenAnswer(invocation -> List.copyOf(units));
+        UnitCategoryRepository unitCategoryRepository = mock(UnitCategoryRepository.class);
+        when(unitCategoryRepository.findAll()).thenReturn(List.of(weight, count, retired));
+        resourceVersionService = mock(ResourceVersionService.class);
+        catalog = new UnitCatalog(unitRepository, unitCategoryRepository, resourceVersionService,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void lookupsIgnoreCaseAndDiacritics() {
+        assertEquals(10L, catalog.findByCode(" KG ").orElseThrow().getId());
+        assertEquals(11L, catalog.findByName("BO").orElseThrow().getId(), "trùng tên → display_order nhỏ hơn thắng");
+        assertEquals(11L, catalog.findBySymbol("Bó").orElseThrow().getId());
+        assertEquals(13L, catalog.findByCode("dozen").orElseThrow().getId(), "đơn vị ngừng dùng vẫn tra được theo code");
+        assertTrue(catalog.findByCode(null).isEmpty());
+        assertTrue(catalog.findByName("lít").isEmpty());
+
+        verify(unitRepository, times(1)).findAllWithCategory();
+    }
+
+    @Test
+    void activeListsFollowDisplayOrder() {
+        assertEquals(List.of(10L, 11L, 12L), catalog.getActiveUnits().stream().map(Unit::getId).toList());
+        assertEquals(List.of(11L, 12L), catalog.getActiveUnits(2L).stream().map(Unit::getId).toList());
+        assertTrue(catalog.getActiveUnits(3L).isEmpty());
+        assertEquals(List.of("count", "weight"),
+                catalog.getActiveCategories().stream().map(UnitCategory::getCode).toList());
+    }
+
+    @Test
+    void refreshSwapsAndBumpsOnlyWhenContentChanges() {
+        catalog.refresh();
+        catalog.refresh();
+        verify(resourceVersionService, never()).bumpLocal(ResourceVersionService.UNITS);
+
+        units.add(unit(14L, weight, "g", "Gram", "g", 0));
+        catalog.refresh();
+
+        verify(resourceVersionService, times(1)).bumpLocal(ResourceVersionService.UNITS);
+        assertEquals(14L, catalog.findByCode("g").orElseThrow().getId());
+        assertEquals(14L, catalog.getActiveUnits().get(0).getId());
+    }
+
+    @Test
+    void failedReloadKeepsTheCurrentSnapshot() {
+        catalog.refresh();
+        when(unitRepository.findAllWithCategory()).thenThrow(new IllegalStateException("connection reset"));
+
+        catalog.refresh();
+
+        assertEquals(10L, catalog.findByCode("kg").orElseThrow().getId());
+        verify(resourceVersionService, never()).bumpLocal(ResourceVersionService.UNITS);
+    }
+
+    private static Unit unit(Long id, UnitCategory category, String code, String name, String symbol, int order) {
+        return Unit.builder()
+                .id(id).category(category).code(code).name(name).symbol(symbol).displayOrder(order)
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.grocery.server.shared.etag;
+
+import com.grocery.server.messaging.publisher.RedisMessagePublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResourceVersionServiceTest {
+
+    private ConcurrentMapCacheManager cacheManager;
+    private AtomicInteger builds;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager("categories");
+        builds = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutBuildingTheBody() {
+        ResourceVersionService service = localService();
+        String etag = get(service, null).getHeaders().getETag();
+
+        ResponseEntity<String> notModified = get(service, etag);
+        ResponseEntity<String> weakInList = get(service, "\"other\", W/" + etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(etag, notModified.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, weakInList.getStatusCode());
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void bumpChangesTheEtagAndClearsTheBackingCache() {
+        ResourceVersionService service = localService();
+        String before = get(service, null).getHeaders().getETag();
+        cacheManager.getCache("categories").put("all", "old");
+
+        service.bumpAfterCommit(ResourceVersionService.CATEGORIES);
+
+        ResponseEntity<String> after = get(service, before);
+        assertEquals(HttpStatus.OK, after.getStatusCode());
+        assertNotEquals(before, after.getHeaders().getETag());
+        assertNull(cacheManager.getCache("categories").get("all"));
+    }
+
+    @Test
+    void bumpWaitsForCommit() {
+        ResourceVersionService service = localService();
+        String before = service.etag(ResourceVersionService.STORES);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.bumpStoreAfterCommit(7L);
+        List<TransactionSynchronization> rolledBack = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(rolledBack, TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(before, service.etag(ResourceVersionService.STORES));
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.bumpStoreAfterCommit(7L);
+        List<TransactionSynchronization> committed = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCommit(committed);
+        assertNotEquals(before, service.etag(ResourceVersionService.STORES));
+    }
+
+    @Test
+    void nodesSharingRedisAgreeOnVersions() throws InterruptedException {
+        StringRedisTemplate redis = fakeRedis();
+        ResourceVersionService first = new ResourceVersionService(cacheManager, mock(RedisMessagePublisher.class), redis);
+        String etag = first.etag(ResourceVersionService.CATEGORIES, ResourceVersionService.storeProducts(7L));
+
+        // Node khởi động sau có bootVersion khác nhưng vẫn phải trả cùng ETag
+        Thread.sleep(5);
+        ResourceVersionService second = new ResourceVersionService(cacheManager, mock(RedisMessagePublisher.class), redis);
+        ResourceVersionService third = new ResourceVersionService(cacheManager, mock(RedisMessagePublisher.class), redis);
+        assertEquals(etag, second.etag(ResourceVersionService.CATEGORIES, ResourceVersionService.storeProducts(7L)));
+        String before = first.etag(ResourceVersionService.CATEGORIES);
+
+        first.bumpAfterCommit(ResourceVersionService.CATEGORIES);
+        long shared = Long.parseLong(redis.opsForValue().get("etag:version:" + ResourceVersionService.CATEGORIES));
+        second.applyRemote(ResourceVersionService.CATEGORIES, shared);
+        // Node chưa từng đọc resource nhận version qua pub/sub
+        third.applyRemote(ResourceVersionService.CATEGORIES, shared);
+
+        String bumped = first.etag(ResourceVersionService.CATEGORIES);
+        assertNotEquals(before, bumped);
+        assertEquals(bumped, second.etag(ResourceVersionService.CATEGORIES));
+        assertEquals(bumped, third.etag(ResourceVersionService.CATEGORIES));
+    }
+
+    private ResourceVersionService localService() {
+        return new ResourceVersionService(cacheManager, mock(RedisMessagePublisher.class), null);
+    }
+
+    private ResponseEntity<String> get(ResourceVersionService service, String ifNoneMatch) {
+        return service.conditional(ifNoneMatch, () -> "body-" + builds.incrementAndGet(),
+                ResourceVersionService.CATEGORIES, ResourceVersionService.storeProducts(7L));
+    }
+
+    /**
+     * SET NX / GET / INCR trên 1 map dùng chung
+     */
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate fakeRedis() {
+        Map<String, String> values = new ConcurrentHashMap<>();
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(ops.setIfAbsent(anyString(), anyString())).thenAnswer(invocation ->
+                values.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(ops.get(anyString())).thenAnswer(invocation -> values.get(invocation.<String>getArgument(0)));
+        when(ops.increment(anyString())).thenAnswer(invocation -> Long.parseLong(values.merge(
+                invocation.getArgument(0), "1", (current, one) -> Long.toString(Long.parseLong(current) + 1))));
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        return redis;
+    }
+}
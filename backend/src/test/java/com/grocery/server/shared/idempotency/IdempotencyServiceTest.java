@@ -0,0 +1,276 @@
+package com.grocery.server.shared.idempotency;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocery.server.shared.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Idempotency-Key với tầng Caffeine local; trường hợp nhiều instance dùng Redis giả lập bằng map dùng chung
+ */
+class IdempotencyServiceTest {
+
+    private static final TypeReference<String> BODY = new TypeReference<>() {
+    };
+    private static final String LOCK = "idem:orders.create:0900000001:key-1:lock";
+
+    private IdempotencyService service;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(null, new ObjectMapper(), new SimpleMeterRegistry(), 24, 30_000, 2_000, 1_000);
+        executions = new AtomicInteger();
+        login("0900000001");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replaysStoredResponseForSameKeyAndBody() {
+        ResponseEntity<String> first = service.execute("orders.create", "key-1", Map.of("total", 100), BODY,
+                created("order-1"));
+        ResponseEntity<String> retry = service.execute("orders.create", "key-1", Map.of("total", 100), BODY,
+                created("order-2"));
+
+        assertEquals(1, executions.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("order-1", retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void rejectsSameKeyWithDifferentBody() {
+        service.execute("orders.create", "key-1", Map.of("total", 100), BODY, created("order-1"));
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () ->
+                service.execute("orders.create", "key-1", Map.of("total", 999), BODY, created("order-2")));
+        assertEquals(IdempotencyService.HEADER + " đã được dùng cho một yêu cầu khác", ex.getMessage());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keysAreScopedPerApiAndUser() {
+        service.execute("orders.create", "key-1", "body", BODY, created("order"));
+        service.execute("payments.initiate", "key-1", "body", BODY, created("payment"));
+        login("0900000002");
+        ResponseEntity<String> otherUser = service.execute("orders.create", "key-1", "body", BODY,
+                created("other-order"));
+
+        assertEquals(3, executions.get());
+        assertEquals("other-order", otherUser.getBody());
+    }
+
+    @Test
+    void failedOrNonSuccessResponsesAreNotStored() {
+        assertThrows(IllegalStateException.class, () -> service.execute("orders.create", "key-1", "body", BODY,
+                () -> {
+                    executions.incrementAndGet();
+                    throw new IllegalStateException("database down");
+                }));
+        service.execute("orders.create", "key-1", "body", BODY, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("busy");
+        });
+        ResponseEntity<String> retry = service.execute("orders.create", "key-1", "body", BODY, created("order"));
+
+        assertEquals(3, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void withoutKeyAlwaysExecutes() {
+        service.execute("orders.create", null, "body", BODY, created("a"));
+        service.execute("orders.create", " ", "body", BODY, created("b"));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void rejectsOverlongKey() {
+        assertThrows(BadRequestException.class, () ->
+                service.execute("orders.create", "k".repeat(129), "body", BODY, created("order")));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<String>> first = pool.submit(() -> {
+                login("0900000001");
+                return service.execute("orders.create", "key-1", "body", BODY, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return ResponseEntity.status(HttpStatus.CREATED).body("order-1");
+                });
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<String>> duplicate = pool.submit(() -> {
+                login("0900000001");
+                return service.execute("orders.create", "key-1", "body", BODY, created("order-2"));
+            });
+            release.countDown();
+
+            assertEquals("order-1", first.get(5, TimeUnit.SECONDS).getBody());
+            ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals("order-1", replayed.getBody());
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(1, executions.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void replayReturnsTheStoredBodyInstance() {
+        List<String> body = List.of("a", "b");
+        TypeReference<List<String>> type = new TypeReference<>() {
+        };
+        service.execute("orders.create", "key-1", "body", type, () -> ResponseEntity.ok(body));
+
+        assertSame(body, service.execute("orders.create", "key-1", "body", type,
+                () -> ResponseEntity.ok(List.of())).getBody());
+    }
+
+    @Test
+    void duplicateOnAnotherNodeRunsAgainOnceLockIsReleasedWithoutResult() throws Exception {
+        Map<String, String> redis = new ConcurrentHashMap<>();
+        IdempotencyService node = new IdempotencyService(fakeRedis(redis), new ObjectMapper(), new SimpleMeterRegistry(),
+                24, 30_000, 10_000, 1_000);
+        // Instance khác đang chạy request đầu rồi lỗi → nhả lock, không lưu kết quả
+        redis.put(LOCK, "fingerprint");
+        ScheduledExecutorService other = Executors.newSingleThreadScheduledExecutor();
+        try {
+            other.schedule(() -> redis.remove(LOCK), 200, TimeUnit.MILLISECONDS);
+            long started = System.currentTimeMillis();
+
+            ResponseEntity<String> response = node.execute("orders.create", "key-1", "body", BODY, created("order-1"));
+
+            assertEquals("order-1", response.getBody());
+            assertEquals(1, executions.get());
+            assertTrue(System.currentTimeMillis() - started < 5_000, "không chờ hết wait-ms");
+            assertTrue(redis.containsKey(LOCK.substring(0, LOCK.length() - ":lock".length())), "kết quả được lưu");
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateOnAnotherNodeReplaysTheStoredResult() throws Exception {
+        Map<String, String> redis = new ConcurrentHashMap<>();
+        IdempotencyService first = new IdempotencyService(fakeRedis(redis), new ObjectMapper(), new SimpleMeterRegistry(),
+                24, 30_000, 10_000, 1_000);
+        IdempotencyService second = new IdempotencyService(fakeRedis(redis), new ObjectMapper(), new SimpleMeterRegistry(),
+                24, 30_000, 10_000, 1_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<String>> running = pool.submit(() -> {
+                login("0900000001");
+                return first.execute("orders.create", "key-1", "body", BODY, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return ResponseEntity.status(HttpStatus.CREATED).body("order-1");
+                });
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<String>> duplicate = pool.submit(() -> {
+                login("0900000001");
+                return second.execute("orders.create", "key-1", "body", BODY, created("order-2"));
+            });
+            Thread.sleep(150);
+            release.countDown();
+
+            assertEquals("order-1", running.get(5, TimeUnit.SECONDS).getBody());
+            ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals("order-1", replayed.getBody());
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(1, executions.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * SET NX / SET / GET / DEL / EXISTS trên 1 map dùng chung (bỏ qua TTL)
+     */
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate fakeRedis(Map<String, String> values) {
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                values.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ops).set(anyString(), anyString(), any(Duration.class));
+        when(ops.get(anyString())).thenAnswer(invocation -> values.get(invocation.<String>getArgument(0)));
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        when(redis.delete(anyString())).thenAnswer(invocation -> values.remove(invocation.<String>getArgument(0)) != null);
+        when(redis.hasKey(anyString())).thenAnswer(invocation -> values.containsKey(invocation.<String>getArgument(0)));
+        return redis;
+    }
+
+    private Supplier<ResponseEntity<String>> created(String body) {
+        return () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(body);
+        };
+    }
+
+    private static void login(String phoneNumber) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                phoneNumber, null, List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.grocery.server.shared.jdbc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConditionalBatchUpdateTest {
+
+    private static final String SQL = "UPDATE t SET v = v - ? WHERE id = ? AND v >= ?";
+    private static final List<Object[]> ARGS = List.of(
+            new Object[]{1, 10L, 1}, new Object[]{5, 11L, 5}, new Object[]{2, 12L, 2});
+
+    private JdbcTemplate jdbcTemplate;
+    private Connection connection;
+    private Savepoint savepoint;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        savepoint = mock(Savepoint.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+    }
+
+    @Test
+    void exactCountsAreReturnedAsIs() throws Exception {
+        when(jdbcTemplate.batchUpdate(eq(SQL), anyList())).thenReturn(new int[]{1, 0, 1});
+
+        assertArrayEquals(new int[]{1, 0, 1}, ConditionalBatchUpdate.execute(jdbcTemplate, SQL, ARGS));
+        verify(connection).releaseSavepoint(savepoint);
+        verify(connection, never()).rollback(any(Savepoint.class));
+        verify(jdbcTemplate, never()).update(eq(SQL), any(Object[].class));
+    }
+
+    @Test
+    void successNoInfoRollsBackAndRetriesEachStatement() throws Exception {
+        int noInfo = Statement.SUCCESS_NO_INFO;
+        when(jdbcTemplate.batchUpdate(eq(SQL), anyList())).thenReturn(new int[]{noInfo, noInfo, noInfo});
+        when(jdbcTemplate.update(SQL, ARGS.get(0))).thenReturn(1);
+        when(jdbcTemplate.update(SQL, ARGS.get(1))).thenReturn(0);
+        when(jdbcTemplate.update(SQL, ARGS.get(2))).thenReturn(1);
+
+        int[] counts = ConditionalBatchUpdate.execute(jdbcTemplate, SQL, ARGS);
+
+        assertArrayEquals(new int[]{1, 0, 1}, counts, "-2 không được tính là đã ghi");
+        InOrder order = inOrder(jdbcTemplate, connection);
+        order.verify(connection).setSavepoint();
+        order.verify(jdbcTemplate).batchUpdate(eq(SQL), anyList());
+        order.verify(connection).rollback(savepoint);
+        order.verify(jdbcTemplate).update(SQL, ARGS.get(0));
+        order.verify(jdbcTemplate).update(SQL, ARGS.get(1));
+        order.verify(jdbcTemplate).update(SQL, ARGS.get(2));
+    }
+
+    @Test
+    void detectsSuccessNoInfo() {
+        assertArrayEquals(new boolean[]{true, true, false},
+                new boolean[]{
+                        ConditionalBatchUpdate.exact(new int[]{}),
+                        ConditionalBatchUpdate.exact(new int[]{0, 1, 3}),
+                        ConditionalBatchUpdate.exact(new int[]{1, Statement.SUCCESS_NO_INFO})});
+    }
+}